@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.PersistentAccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * Throughput of in memory balance updates from 1 to 16 threads, both spread over many accounts and contended on a
+ * single account.
+ */
+public class AccountUpdateBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+    private static final int UPDATES = 400000;
+    private static final int ACCOUNTS = 64;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+    }
+
+    @Test
+    public void spreadOverAccounts() throws InterruptedException, InvalidAccountException {
+        for (int threads : THREAD_COUNTS) {
+            double rate = run(threads, ACCOUNTS);
+            BenchmarkSupport.report("account updates threads=%d accounts=%d %.0f updates/s", threads, ACCOUNTS, rate);
+        }
+    }
+
+    @Test
+    public void singleAccount() throws InterruptedException, InvalidAccountException {
+        for (int threads : THREAD_COUNTS) {
+            double rate = run(threads, 1);
+            BenchmarkSupport.report("account updates threads=%d accounts=1 %.0f updates/s", threads, rate);
+        }
+    }
+
+    private static double run(int threads, final int accounts) throws InterruptedException, InvalidAccountException {
+        final PersistentAccountDAO accountDAO = new PersistentAccountDAO();
+        final String[] accountNumbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountNumbers[i] = "ACC" + i;
+            accountDAO.addAccount(new Account(accountNumbers[i], "Bank", "Holder", 0));
+        }
+
+        final int perThread = UPDATES / threads;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            accountDAO.updateBalance(accountNumbers[(offset + i) % accounts], ExpenseType.INCOME, 1);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double rate = perThread * threads / ((System.nanoTime() - begin) / 1e9);
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        long total = 0;
+        for (String accountNo : accountNumbers) {
+            total += accountDAO.getAccount(accountNo).getBalanceCents();
+        }
+        assertEquals((long) perThread * threads, total);
+        return rate;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.util.Locale;
+
+/**
+ * Helpers shared by the on-device benchmarks. Benchmarks are skipped unless the instrumentation is started with
+ * <code>-Pandroid.testInstrumentationRunnerArguments.benchmark=true</code>, so that <code>connectedCheck</code> on CI
+ * stays fast.
+ */
+public final class BenchmarkSupport {
+    public static final String TAG = "ExpenseManagerBench";
+
+    private BenchmarkSupport() {
+    }
+
+    public static boolean isEnabled() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        return arguments != null && Boolean.parseBoolean(arguments.getString("benchmark"));
+    }
+
+    /***
+     * Insert <code>count</code> transactions spread over <code>accounts</code> accounts in a single SQLite
+     * transaction. The rows are written with the same layout the application uses.
+     *
+     * @param sqLiteDb
+     * @param count
+     * @param accounts
+     */
+    public static void seedTransactions(SQLiteDatabase sqLiteDb, int count, int accounts) {
+        sqLiteDb.beginTransaction();
+        try {
+            SQLiteStatement insertAccount = sqLiteDb.compileStatement(
+                    "INSERT OR REPLACE INTO `account` (`accountNo`, `bankName`, `accountHolderName`, `balance`) VALUES (?, 'Bank', 'Holder', 0)");
+            for (int i = 0; i < accounts; i++) {
+                insertAccount.bindString(1, "ACC" + i);
+                insertAccount.executeInsert();
+            }
+            SQLiteStatement insertTransaction = sqLiteDb.compileStatement(
+                    "INSERT INTO `transaction` (`date`, `accountNo`, `expenseType`, `amount`) VALUES (?, ?, ?, ?)");
+            for (int i = 0; i < count; i++) {
+                // roughly twenty years of history, 2000-01-01 is epoch day 10957
+                insertTransaction.bindLong(1, 10957 + i % 7300);
+                insertTransaction.bindString(2, "ACC" + (i % accounts));
+                insertTransaction.bindString(3, i % 3 == 0 ? "INCOME" : "EXPENSE");
+                insertTransaction.bindLong(4, 100 + i % 100000);
+                insertTransaction.executeInsert();
+            }
+            sqLiteDb.setTransactionSuccessful();
+        } finally {
+            sqLiteDb.endTransaction();
+        }
+    }
+
+    public static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void report(String format, Object... args) {
+        Log.i(TAG, String.format(Locale.US, format, args));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.PersistentExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer.CsvStatementParser;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer.ImportProgress;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer.StatementImporter;
+
+/**
+ * Imports generated CSV statements of growing size and reports the throughput and the heap in use while importing,
+ * which should stay flat whatever the size of the statement.
+ */
+public class ImportBenchmark {
+    private static final String DATABASE_NAME = "import-benchmark.db";
+    private static final int[] SIZES = {10000, 100000, 500000};
+
+    private Context context;
+    private PersistentExpenseManager expenseManager;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        expenseManager = new PersistentExpenseManager(context, DATABASE_NAME, true);
+        expenseManager.addAccount("IMPORT", "Bank", "Holder", 0);
+    }
+
+    @After
+    public void tearDown() {
+        if (expenseManager != null) {
+            expenseManager.close();
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    @Test
+    public void importCsv() throws IOException {
+        for (int size : SIZES) {
+            long heapBefore = BenchmarkSupport.usedHeap();
+            final long[] peakHeap = {0};
+            ImportProgress progress = new StatementImporter(expenseManager).importStatement(
+                    new CsvStatementParser(new GeneratedStatement(size)), new StatementImporter.ImportListener() {
+                        @Override
+                        public void onProgress(ImportProgress progress) {
+                            Runtime runtime = Runtime.getRuntime();
+                            peakHeap[0] = Math.max(peakHeap[0], runtime.totalMemory() - runtime.freeMemory());
+                        }
+
+                        @Override
+                        public void onRejected(String reason) {
+                        }
+                    });
+
+            assertEquals(size, progress.getRowsImported());
+            BenchmarkSupport.report("import rows=%d rows/s=%.0f peakHeapGrowth=%dKB", size,
+                    progress.getRowsPerSecond(), (peakHeap[0] - heapBefore) / 1024);
+        }
+    }
+
+    /**
+     * Produces a CSV statement on the fly so the benchmark itself does not hold the file in memory.
+     */
+    private static class GeneratedStatement extends Reader {
+        private final int rows;
+        private int row;
+        private String line = "";
+        private int position;
+
+        GeneratedStatement(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == line.length()) {
+                if (row == rows)
+                    return -1;
+                line = String.format(Locale.US, "2020-%02d-%02d,IMPORT,INCOME,%d.25\n", 1 + row % 12, 1 + row % 28, row % 500);
+                position = 0;
+                row++;
+            }
+            int count = Math.min(length, line.length() - position);
+            line.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
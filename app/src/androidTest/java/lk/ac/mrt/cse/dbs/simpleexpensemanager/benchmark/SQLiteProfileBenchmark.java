@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.PersistentExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.SQLiteProfile;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * Median and 99th percentile latency of a single posting and of the newest page of the log under each SQLite
+ * profile, on the Android bindings.
+ */
+public class SQLiteProfileBenchmark {
+    private static final String DATABASE_NAME = "profile-benchmark.db";
+    private static final int SEED_ROWS = 20000;
+    private static final int ACCOUNTS = 10;
+    private static final int SAMPLES = 500;
+    private static final int PAGE_SIZE = 50;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void profiles() throws InvalidAccountException {
+        for (SQLiteProfile profile : new SQLiteProfile[]{SQLiteProfile.LEGACY, SQLiteProfile.DEFAULT, SQLiteProfile.BULK}) {
+            context.deleteDatabase(DATABASE_NAME);
+            PersistentExpenseManager expenseManager = new PersistentExpenseManager(context, DATABASE_NAME, true, profile);
+            try {
+                BenchmarkSupport.seedTransactions(expenseManager.getWritableDatabase(), SEED_ROWS, ACCOUNTS);
+                expenseManager.addAccount("BENCH", "Bank", "Holder", 0);
+
+                long[] posts = new long[SAMPLES];
+                long[] queries = new long[SAMPLES];
+                for (int i = 0; i < SAMPLES; i++) {
+                    long start = System.nanoTime();
+                    expenseManager.updateAccountBalance("BENCH", 1 + i % 28, i % 12, 2020, ExpenseType.INCOME, "10");
+                    posts[i] = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    expenseManager.getTransactionLogs(TransactionDAO.FIRST_PAGE, PAGE_SIZE);
+                    queries[i] = System.nanoTime() - start;
+                }
+                BenchmarkSupport.report("profile %s post p50=%dus p99=%dus query p50=%dus p99=%dus", profile.getName(),
+                        percentile(posts, 50), percentile(posts, 99), percentile(queries, 50), percentile(queries, 99));
+            } finally {
+                expenseManager.close();
+                context.deleteDatabase(DATABASE_NAME);
+            }
+        }
+    }
+
+    private static long percentile(long[] samples, int percent) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[(sorted.length - 1) * percent / 100] / 1000;
+    }
+}
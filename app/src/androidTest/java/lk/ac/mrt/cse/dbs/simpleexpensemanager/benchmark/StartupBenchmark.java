@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.PersistentExpenseManager;
+
+/**
+ * Compares cold start time and retained heap of the eager and the lazy PersistentExpenseManager setup.
+ */
+public class StartupBenchmark {
+    private static final String DATABASE_NAME = "startup-benchmark.db";
+    private static final int[] SIZES = {10000, 100000, 1000000};
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    @Test
+    public void coldStart() {
+        for (int size : SIZES) {
+            context.deleteDatabase(DATABASE_NAME);
+            PersistentExpenseManager seeder = new PersistentExpenseManager(context, DATABASE_NAME, true);
+            BenchmarkSupport.seedTransactions(seeder.getWritableDatabase(), size, 10);
+            seeder.close();
+
+            measure(size, false);
+            measure(size, true);
+        }
+    }
+
+    private void measure(int size, boolean lazyLoading) {
+        long heapBefore = BenchmarkSupport.usedHeap();
+        long start = System.nanoTime();
+        PersistentExpenseManager expenseManager = new PersistentExpenseManager(context, DATABASE_NAME, lazyLoading);
+        long elapsed = System.nanoTime() - start;
+        long retained = BenchmarkSupport.usedHeap() - heapBefore;
+
+        assertEquals(10, expenseManager.getAccountNumbersList().size());
+        BenchmarkSupport.report("startup %s rows=%d time=%.1fms retainedHeap=%dKB",
+                lazyLoading ? "lazy" : "eager", size, elapsed / 1e6, retained / 1024);
+        expenseManager.close();
+    }
+}
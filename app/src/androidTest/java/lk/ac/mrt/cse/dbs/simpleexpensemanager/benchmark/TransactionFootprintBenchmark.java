@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.PersistentTransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Heap retained by one million in-memory transactions, stored as a LinkedList of Transaction objects (the previous
+ * layout of PersistentTransactionDAO) and in the columnar PersistentTransactionDAO.
+ */
+public class TransactionFootprintBenchmark {
+    private static final int ROWS = 1000000;
+    private static final int ACCOUNTS = 10;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+    }
+
+    @Test
+    public void heapPerRow() {
+        String[] accountNumbers = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers[i] = "ACC" + i;
+        }
+
+        long before = BenchmarkSupport.usedHeap();
+        List<Transaction> objects = new LinkedList<>();
+        for (int i = 0; i < ROWS; i++) {
+            // a distinct Date per row, as rows loaded from SQLite each get their own
+            objects.add(new Transaction(i + 1, EpochDays.toDate(10957 + i % 7300), accountNumbers[i % ACCOUNTS],
+                    i % 3 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 100 + i % 100000));
+        }
+        long linkedList = BenchmarkSupport.usedHeap() - before;
+        assertEquals(ROWS, objects.size());
+        objects = null;
+
+        before = BenchmarkSupport.usedHeap();
+        PersistentTransactionDAO columnar = new PersistentTransactionDAO();
+        for (int i = 0; i < ROWS; i++) {
+            columnar.logTransaction(10957 + i % 7300, accountNumbers[i % ACCOUNTS],
+                    i % 3 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 100 + i % 100000);
+        }
+        long columns = BenchmarkSupport.usedHeap() - before;
+        assertEquals(ROWS, columnar.size());
+
+        BenchmarkSupport.report("footprint rows=%d linkedList=%.1fMB (%d B/row) columnar=%.1fMB (%d B/row)", ROWS,
+                linkedList / 1048576.0, linkedList / ROWS, columns / 1048576.0, columns / ROWS);
+    }
+}
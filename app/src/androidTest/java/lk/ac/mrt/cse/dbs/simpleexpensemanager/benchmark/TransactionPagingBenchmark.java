@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.PersistentExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.PersistentTransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.SQLiteTransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Compares the cost of reading the first and the 500th page of transactions from the in-memory LinkedList DAO and
+ * from the keyset paginated SQLite DAO.
+ */
+public class TransactionPagingBenchmark {
+    private static final String DATABASE_NAME = "paging-benchmark.db";
+    private static final int ROWS = 100000;
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 500;
+    private static final int ITERATIONS = 200;
+
+    private Context context;
+    private PersistentExpenseManager expenseManager;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        expenseManager = new PersistentExpenseManager(context, DATABASE_NAME, true);
+        BenchmarkSupport.seedTransactions(expenseManager.getWritableDatabase(), ROWS, 10);
+    }
+
+    @After
+    public void tearDown() {
+        if (expenseManager != null) {
+            expenseManager.close();
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    @Test
+    public void pages() {
+        TransactionDAO inMemory = new PersistentTransactionDAO();
+        Date date = new Date();
+        for (int i = 0; i < ROWS; i++) {
+            inMemory.logTransaction(date, "ACC" + (i % 10), ExpenseType.EXPENSE, i);
+        }
+        TransactionDAO sqLite = new SQLiteTransactionDAO(expenseManager.getStore());
+
+        BenchmarkSupport.report("paging in-memory tail page=%.3fms", timeTail(inMemory));
+        for (TransactionDAO dao : new TransactionDAO[]{inMemory, sqLite}) {
+            long deepCursor = cursorOfPage(dao, DEEP_PAGE);
+            BenchmarkSupport.report("paging %s keyset page=1 %.3fms page=%d %.3fms",
+                    dao.getClass().getSimpleName(), timePage(dao, TransactionDAO.FIRST_PAGE), DEEP_PAGE,
+                    timePage(dao, deepCursor));
+        }
+    }
+
+    private long cursorOfPage(TransactionDAO dao, int page) {
+        long cursor = TransactionDAO.FIRST_PAGE;
+        for (int i = 1; i < page; i++) {
+            List<Transaction> transactions = dao.getTransactionLogsBefore(cursor, PAGE_SIZE);
+            cursor = transactions.get(transactions.size() - 1).getId();
+        }
+        return cursor;
+    }
+
+    private double timePage(TransactionDAO dao, long cursor) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(PAGE_SIZE, dao.getTransactionLogsBefore(cursor, PAGE_SIZE).size());
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    private double timeTail(TransactionDAO dao) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            // touch every element, a LinkedList subList has to walk to the tail first
+            for (Transaction transaction : dao.getPaginatedTransactionLogs(PAGE_SIZE)) {
+                assertEquals(ExpenseType.EXPENSE, transaction.getExpenseType());
+            }
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.PersistentExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Throughput of posting transactions one by one through updateAccountBalance versus in a single bulk transaction.
+ */
+public class WritePathBenchmark {
+    private static final String DATABASE_NAME = "write-benchmark.db";
+    private static final int POSTINGS = 2000;
+
+    private Context context;
+    private PersistentExpenseManager expenseManager;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkSupport.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        expenseManager = new PersistentExpenseManager(context, DATABASE_NAME, true);
+        expenseManager.addAccount("BENCH", "Bank", "Holder", 0);
+    }
+
+    @After
+    public void tearDown() {
+        if (expenseManager != null) {
+            expenseManager.close();
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    @Test
+    public void singleAndBulk() throws InvalidAccountException {
+        long start = System.nanoTime();
+        for (int i = 0; i < POSTINGS; i++) {
+            expenseManager.updateAccountBalance("BENCH", 1 + i % 28, i % 12, 2020, ExpenseType.INCOME, "10");
+        }
+        double single = POSTINGS / ((System.nanoTime() - start) / 1e9);
+
+        List<Transaction> batch = new ArrayList<>(POSTINGS);
+        Date date = new Date();
+        for (int i = 0; i < POSTINGS; i++) {
+            batch.add(new Transaction(date, "BENCH", ExpenseType.INCOME, 1000));
+        }
+        start = System.nanoTime();
+        expenseManager.updateAccountBalances(batch);
+        double bulk = POSTINGS / ((System.nanoTime() - start) / 1e9);
+
+        assertEquals(2 * POSTINGS * 1000L, expenseManager.getAccountsDAO().getAccount("BENCH").getBalanceCents());
+        BenchmarkSupport.report("write single=%.0f postings/s bulk=%.0f postings/s", single, bulk);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.ui.AddAccountFragment;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.ui.ExpenseLogsFragment;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.ui.ManageExpensesFragment;
+
+/**
+ * Checks that the UI gets the expense manager from the registry and not from the fragment arguments.
+ */
+public class ExpenseManagerRegistryTest {
+
+    @After
+    public void clearRegistry() {
+        ExpenseManager previous = ExpenseManagerRegistry.unregister();
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    @Test
+    public void registeredManagerIsReturnedRightAway() {
+        ExpenseManager expenseManager = new LedgerExpenseManager(new InMemoryLedgerStore(), false);
+        ExpenseManagerRegistry.register(expenseManager);
+
+        final AtomicReference<ExpenseManager> result = new AtomicReference<>();
+        ExpenseManagerRegistry.obtain(ApplicationProvider.getApplicationContext(),
+                new AsyncExpenseManager.Callback<ExpenseManager>() {
+                    @Override
+                    public void onResult(ExpenseManager manager) {
+                        result.set(manager);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                    }
+                });
+        assertSame(expenseManager, result.get());
+        assertSame(expenseManager, ExpenseManagerRegistry.peek());
+    }
+
+    @Test
+    public void fragmentsCarryNoArguments() {
+        assertNull(ManageExpensesFragment.newInstance().getArguments());
+        assertNull(AddAccountFragment.newInstance().getArguments());
+        assertNull(ExpenseLogsFragment.newInstance().getArguments());
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer.CsvStatementParser;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.SQLiteLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Exports a ledger of several chunks from a database file and reads it back, checks the quoting of the CSV and the
+ * escaping of the JSON lines, and cancels an export in the middle.
+ */
+public class LedgerExporterTest {
+    private static final String DATABASE_NAME = "exporter-test.db";
+    // five chunks of the exporter, and more rows than its write buffer holds
+    private static final int ROWS = 5000;
+    private static final String QUOTED_ACCOUNT = "A,1 \"x\"";
+
+    private Context context;
+    private SQLiteLedgerStore store;
+    private LedgerExporter exporter;
+
+    private static Transaction row(int index) {
+        return new Transaction(EpochDays.toDate(EpochDays.of(2019, 1, 1) + index % 365),
+                index % 3 == 0 ? QUOTED_ACCOUNT : "PLAIN", index % 2 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE,
+                1 + index);
+    }
+
+    private static Transaction transferLeg(String accountNo, ExpenseType expenseType) {
+        Transaction transaction = new Transaction(EpochDays.toDate(EpochDays.of(2020, 1, 1)), accountNo, expenseType,
+                2500);
+        transaction.setTransfer(true);
+        return transaction;
+    }
+
+    @Before
+    public void setUp() throws InvalidAccountException {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        store = new SQLiteLedgerStore(context, DATABASE_NAME);
+        store.addAccount(new Account(QUOTED_ACCOUNT, "Bank", "Holder", 100000000));
+        store.addAccount(new Account("PLAIN", "Bank", "Holder", 100000000));
+        List<Transaction> transactions = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add(row(i));
+        }
+        store.post(transactions);
+        // the two legs of a transfer, last in the ledger
+        transactions.clear();
+        transactions.add(transferLeg("PLAIN", ExpenseType.EXPENSE));
+        transactions.add(transferLeg(QUOTED_ACCOUNT, ExpenseType.INCOME));
+        store.post(transactions);
+        exporter = new LedgerExporter(store);
+    }
+
+    @After
+    public void tearDown() {
+        exporter.shutdown();
+        store.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void exportsEveryChunkAsCsvTheImporterReads() throws IOException, StatementFormatException {
+        StringWriter csv = new StringWriter();
+        assertEquals(ROWS + 2, exporter.exportTo(csv, ExportFormat.CSV));
+
+        String[] lines = csv.toString().split("\n");
+        assertEquals("date,accountNo,expenseType,amount,transfer", lines[0]);
+        assertEquals("2019-01-01,\"A,1 \"\"x\"\"\",INCOME,0.01,false", lines[1]);
+        assertEquals("2019-01-02,PLAIN,EXPENSE,0.02,false", lines[2]);
+        assertEquals("2020-01-01,PLAIN,EXPENSE,25.00,true", lines[ROWS + 1]);
+
+        CsvStatementParser parser = new CsvStatementParser(new StringReader(csv.toString()));
+        for (int i = 0; i < ROWS; i++) {
+            Transaction expected = row(i);
+            Transaction transaction = parser.next();
+            assertEquals(expected.getDate(), transaction.getDate());
+            assertEquals(expected.getAccountNo(), transaction.getAccountNo());
+            assertEquals(expected.getExpenseType(), transaction.getExpenseType());
+            assertEquals(expected.getAmountCents(), transaction.getAmountCents());
+            assertFalse(transaction.isTransfer());
+        }
+        Transaction leg = parser.next();
+        assertEquals(ExpenseType.EXPENSE, leg.getExpenseType());
+        assertTrue(leg.isTransfer());
+        leg = parser.next();
+        assertEquals(QUOTED_ACCOUNT, leg.getAccountNo());
+        assertEquals(ExpenseType.INCOME, leg.getExpenseType());
+        assertTrue(leg.isTransfer());
+        assertNull(parser.next());
+        parser.close();
+    }
+
+    @Test
+    public void escapesTheJsonStrings() throws IOException, InvalidAccountException {
+        // a backslash, a quote, a line break and a control character
+        store.post(Collections.singletonList(new Transaction(EpochDays.toDate(EpochDays.of(2019, 4, 1)),
+                "J\\\"\n\001", ExpenseType.INCOME, 1250)));
+        StringWriter json = new StringWriter();
+        assertEquals(ROWS + 3, exporter.exportTo(json, ExportFormat.JSON_LINES));
+
+        String[] lines = json.toString().split("\n");
+        assertEquals(ROWS + 3, lines.length);
+        assertEquals("{\"id\":1,\"date\":\"2019-01-01\",\"accountNo\":\"A,1 \\\"x\\\"\",\"expenseType\":\"INCOME\",\"amount\":0.01,\"transfer\":false}",
+                lines[0]);
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(lines[i], lines[i].startsWith("{\"id\":" + (i + 1) + ","));
+        }
+        assertEquals("{\"id\":" + (ROWS + 2) + ",\"date\":\"2020-01-01\",\"accountNo\":\"A,1 \\\"x\\\"\",\"expenseType\":\"INCOME\",\"amount\":25.00,\"transfer\":true}",
+                lines[ROWS + 1]);
+        assertEquals("{\"id\":" + (ROWS + 3) + ",\"date\":\"2019-04-01\",\"accountNo\":\"J\\\\\\\"\\n\\u0001\",\"expenseType\":\"INCOME\",\"amount\":12.50,\"transfer\":false}",
+                lines[ROWS + 2]);
+    }
+
+    @Test
+    public void stopsWhenTheThreadIsInterrupted() throws IOException {
+        Thread.currentThread().interrupt();
+        try {
+            exporter.exportTo(new StringWriter(), ExportFormat.CSV);
+            fail("the export was interrupted");
+        } catch (InterruptedIOException expected) {
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void closesTheStreamWhenCancelled() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final AtomicLong bytes = new AtomicLong();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes.addAndGet(len);
+                if (writing.getCount() == 0)
+                    return;
+                writing.countDown();
+                // hold the export on its first full buffer until it is cancelled, leaving the interrupt set
+                long deadline = System.currentTimeMillis() + 10000;
+                while (!Thread.currentThread().isInterrupted() && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+
+        Future<Long> export = exporter.export(out, ExportFormat.CSV);
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        assertTrue(export.cancel(true));
+        assertTrue("the stream is closed", closed.await(10, TimeUnit.SECONDS));
+        try {
+            export.get();
+            fail("the export was cancelled");
+        } catch (CancellationException expected) {
+        }
+
+        StringWriter full = new StringWriter();
+        exporter.exportTo(full, ExportFormat.CSV);
+        assertTrue(bytes.get() < full.toString().length());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.ui;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.R;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.AppMetrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManagerRegistry;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+
+/**
+ * Debug screen with the latency histograms and counters of the expense manager. The menu turns the metrics on and
+ * off, clears them and saves the report to a file.
+ */
+public class MetricsActivity extends AppCompatActivity {
+    private static final String TAG = "MetricsActivity";
+
+    private TextView reportView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        reportView = (TextView) findViewById(R.id.metrics_report);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.action_metrics_enabled).setChecked(Metrics.isEnabled());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_metrics_enabled:
+                Metrics.setEnabled(!item.isChecked());
+                item.setChecked(Metrics.isEnabled());
+                refresh();
+                return true;
+            case R.id.action_metrics_refresh:
+                refresh();
+                return true;
+            case R.id.action_metrics_reset:
+                Metrics.reset();
+                refresh();
+                return true;
+            case R.id.action_metrics_save:
+                save();
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    private void refresh() {
+        reportView.setText(AppMetrics.report(ExpenseManagerRegistry.peek()));
+    }
+
+    private void save() {
+        final String report = AppMetrics.report(ExpenseManagerRegistry.peek());
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    File file = AppMetrics.dumpToFile(getApplicationContext(), report);
+                    message = getString(R.string.msg_metrics_saved, file.getAbsolutePath());
+                } catch (IOException e) {
+                    Log.e(TAG, "Unable to save the metrics", e);
+                    message = getString(R.string.msg_metrics_save_failed);
+                }
+                final String toast = message;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(MetricsActivity.this, toast, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        }, "metrics-dump").start();
+    }
+}
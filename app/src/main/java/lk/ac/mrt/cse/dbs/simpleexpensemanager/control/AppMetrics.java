@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.CachedAccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+
+/**
+ * Connects the {@link Metrics} of the core module to the app: slow operations are written to the log, and the
+ * report, completed with the database access counts and the account cache, is shown by the metrics screen and can
+ * be saved to a file.
+ */
+public final class AppMetrics {
+    private static final String TAG = "Metrics";
+
+    private static final Metrics.SlowOperationListener LOG_LISTENER = new Metrics.SlowOperationListener() {
+        @Override
+        public void onSlowOperation(String name, long nanos, String detail) {
+            Log.w(TAG, String.format(Locale.US, "Slow %s: %.1f ms on %s%s", name, nanos / 1e6,
+                    Thread.currentThread().getName(), detail == null ? "" : ", " + detail));
+        }
+    };
+
+    private static boolean installed;
+
+    private AppMetrics() {
+    }
+
+    /***
+     * Report the slow operations to the log, and turn the metrics on or off. Only the first call of the process has
+     * an effect, so the choice made on the metrics screen survives the activity being recreated.
+     *
+     * @param enabled
+     */
+    public static synchronized void install(boolean enabled) {
+        if (installed)
+            return;
+        installed = true;
+        Metrics.setSlowOperationListener(LOG_LISTENER);
+        Metrics.setEnabled(enabled);
+    }
+
+    /***
+     * Build the report of the metrics.
+     *
+     * @param expenseManager - the open expense manager, or null
+     * @return
+     */
+    public static String report(ExpenseManager expenseManager) {
+        StringBuilder report = new StringBuilder(Metrics.report());
+        report.append(String.format(Locale.US, "%ndatabase accesses %d, from the main thread %d%n",
+                DbAccessMonitor.getAccessCount(), DbAccessMonitor.getMainThreadAccessCount()));
+        if (expenseManager != null && expenseManager.getAccountsDAO() instanceof CachedAccountDAO) {
+            CachedAccountDAO accountDAO = (CachedAccountDAO) expenseManager.getAccountsDAO();
+            report.append(String.format(Locale.US, "account cache %d/%d, hit rate %.1f%%, evictions %d%n",
+                    accountDAO.size(), accountDAO.getCapacity(), accountDAO.getHitRate() * 100,
+                    accountDAO.getEvictionCount()));
+        }
+        return report.toString();
+    }
+
+    /***
+     * Save a report to a new file in the external files directory of the app, or in its internal files directory
+     * when the external storage is not available.
+     *
+     * @param context
+     * @param report
+     * @return the file written
+     * @throws IOException
+     */
+    public static File dumpToFile(Context context, String report) throws IOException {
+        File directory = context.getExternalFilesDir(null);
+        if (directory == null)
+            directory = context.getFilesDir();
+        String name = "metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".txt";
+        File file = new File(directory, name);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(report);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Asynchronous facade of an ExpenseManager for the UI. Every write runs on a single process wide writer thread, so
+ * writes keep their order and never contend with each other, while reads run on a small reader pool. Results and
+ * errors are delivered back on the main thread.
+ */
+public class AsyncExpenseManager {
+    private static final String TAG = "AsyncExpenseManager";
+    private static final int READER_THREADS = 2;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(new NamedThreadFactory("expense-writer"));
+    private static final ExecutorService readers = Executors.newFixedThreadPool(READER_THREADS, new NamedThreadFactory("expense-reader"));
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the outcome of an asynchronous call on the main thread.
+     */
+    public interface Callback<T> {
+        public void onResult(T result);
+
+        public void onError(Exception e);
+    }
+
+    private final ExpenseManager expenseManager;
+
+    public AsyncExpenseManager(ExpenseManager expenseManager) {
+        this.expenseManager = expenseManager;
+    }
+
+    /***
+     * Open the persistent expense manager on the writer thread, so that creating or upgrading the database and
+     * loading the accounts does not block the caller. The standing orders that fell due while the app was not
+     * running are posted next, on the same thread.
+     *
+     * @param context
+     * @param callback
+     * @return
+     */
+    public static Future<?> open(final Context context, Callback<ExpenseManager> callback) {
+        return submit(writer, new Callable<ExpenseManager>() {
+            @Override
+            public ExpenseManager call() {
+                PersistentExpenseManager expenseManager = new PersistentExpenseManager(context.getApplicationContext());
+                new AsyncExpenseManager(expenseManager).postRecurring(null);
+                return expenseManager;
+            }
+        }, callback);
+    }
+
+    public ExpenseManager getExpenseManager() {
+        return expenseManager;
+    }
+
+    public Future<?> getAccountNumbersList(Callback<List<String>> callback) {
+        return submit(readers, new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                return expenseManager.getAccountNumbersList();
+            }
+        }, callback);
+    }
+
+    public Future<?> getTransactionLogs(final long beforeId, final int limit, Callback<List<Transaction>> callback) {
+        return submit(readers, new Callable<List<Transaction>>() {
+            @Override
+            public List<Transaction> call() {
+                return expenseManager.getTransactionLogs(beforeId, limit);
+            }
+        }, callback);
+    }
+
+    /***
+     * Search the transactions of the accounts matching a query on the reader pool, see
+     * {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO#searchTransactions}. Gives empty pages when the
+     * expense manager has no search.
+     *
+     * @param query
+     * @param after    - the last transaction of the previous page, or null
+     * @param limit
+     * @param callback
+     * @return
+     */
+    public Future<?> searchTransactions(final String query, final Transaction after, final int limit,
+                                        Callback<List<Transaction>> callback) {
+        return submit(readers, new Callable<List<Transaction>>() {
+            @Override
+            public List<Transaction> call() {
+                if (!(expenseManager instanceof LedgerExpenseManager))
+                    return Collections.emptyList();
+                return ((LedgerExpenseManager) expenseManager).getSearchDAO().searchTransactions(query, after, limit);
+            }
+        }, callback);
+    }
+
+    public Future<?> addAccount(final String accountNo, final String bankName, final String accountHolderName,
+                                final long initialBalance, Callback<Void> callback) {
+        return submit(writer, new Callable<Void>() {
+            @Override
+            public Void call() {
+                expenseManager.addAccount(accountNo, bankName, accountHolderName, initialBalance);
+                return null;
+            }
+        }, callback);
+    }
+
+    public Future<?> updateAccountBalance(final String accountNo, final int day, final int month, final int year,
+                                          final ExpenseType expenseType, final String amount,
+                                          Callback<Void> callback) {
+        return submit(writer, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                expenseManager.updateAccountBalance(accountNo, day, month, year, expenseType, amount);
+                return null;
+            }
+        }, callback);
+    }
+
+    public Future<?> transfer(final String fromAccountNo, final String toAccountNo, final int day, final int month,
+                              final int year, final String amount, Callback<Void> callback) {
+        return submit(writer, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                expenseManager.transfer(fromAccountNo, toAccountNo, day, month, year, amount);
+                return null;
+            }
+        }, callback);
+    }
+
+    public Future<?> updateAccountBalances(final List<Transaction> transactions, Callback<Void> callback) {
+        return submit(writer, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                expenseManager.updateAccountBalances(transactions);
+                return null;
+            }
+        }, callback);
+    }
+
+    /***
+     * Store a standing order on the writer thread and post its occurrences that are already due.
+     *
+     * @param rule
+     * @param callback - receives the number of occurrences posted
+     * @return
+     */
+    public Future<?> addRecurringRule(final RecurringRule rule, Callback<Integer> callback) {
+        return submit(writer, new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                LedgerExpenseManager ledgerExpenseManager = (LedgerExpenseManager) expenseManager;
+                ledgerExpenseManager.addRecurringRule(rule);
+                return new RecurringScheduler(ledgerExpenseManager).catchUp();
+            }
+        }, callback);
+    }
+
+    /***
+     * Post the occurrences of the standing orders due today on the writer thread. Does nothing when the expense
+     * manager has no standing orders.
+     *
+     * @param callback - receives the number of occurrences posted, or null to only log the errors
+     * @return
+     */
+    public Future<?> postRecurring(Callback<Integer> callback) {
+        return submit(writer, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                if (!(expenseManager instanceof LedgerExpenseManager))
+                    return 0;
+                int posted = new RecurringScheduler((LedgerExpenseManager) expenseManager).catchUp();
+                if (posted > 0) {
+                    Log.i(TAG, "Posted " + posted + " recurring transactions");
+                }
+                return posted;
+            }
+        }, callback);
+    }
+
+    private static <T> Future<?> submit(ExecutorService executor, final Callable<T> task,
+                                        final Callback<T> callback) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final T result = task.call();
+                    if (callback != null) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onResult(result);
+                            }
+                        });
+                    }
+                } catch (final Exception e) {
+                    if (callback == null) {
+                        Log.e(TAG, "Asynchronous call failed", e);
+                    } else {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onError(e);
+                            }
+                        });
+                    }
+                }
+            }
+        });
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
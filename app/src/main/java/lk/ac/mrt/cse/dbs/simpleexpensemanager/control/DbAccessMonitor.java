@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the database accesses of the expense managers, and in particular the ones still made from the main
+ * thread. Every main thread access is a potential source of jank, the first one is logged with its stack trace.
+ */
+public final class DbAccessMonitor {
+    private static final String TAG = "DbAccessMonitor";
+
+    private static final AtomicLong accessCount = new AtomicLong();
+    private static final AtomicLong mainThreadAccessCount = new AtomicLong();
+
+    private DbAccessMonitor() {
+    }
+
+    /***
+     * Record a database access made by the calling thread.
+     */
+    public static void recordAccess() {
+        accessCount.incrementAndGet();
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            if (mainThreadAccessCount.incrementAndGet() == 1) {
+                Log.w(TAG, "Database accessed from the main thread", new Throwable());
+            }
+        }
+    }
+
+    public static long getAccessCount() {
+        return accessCount.get();
+    }
+
+    public static long getMainThreadAccessCount() {
+        return mainThreadAccessCount.get();
+    }
+
+    public static void reset() {
+        accessCount.set(0);
+        mainThreadAccessCount.set(0);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process wide home of the ExpenseManager. The UI looks the manager up here instead of receiving it through fragment
+ * arguments, so saving and restoring the fragment state never serializes the ledger. The first lookup opens the
+ * persistent manager on the writer thread, lookups made while it is opening are answered once it is ready.
+ */
+public final class ExpenseManagerRegistry {
+    private static final List<AsyncExpenseManager.Callback<ExpenseManager>> waiting = new ArrayList<>();
+    private static ExpenseManager expenseManager;
+    private static boolean opening;
+
+    private ExpenseManagerRegistry() {
+    }
+
+    /***
+     * Get the expense manager if it has already been opened.
+     *
+     * @return the registered expense manager, or null
+     */
+    public static synchronized ExpenseManager peek() {
+        return expenseManager;
+    }
+
+    /***
+     * Get the expense manager, opening it the first time it is needed. The callback is invoked right away when the
+     * manager is already open, otherwise on the main thread once it is.
+     *
+     * @param context
+     * @param callback
+     */
+    public static void obtain(Context context, AsyncExpenseManager.Callback<ExpenseManager> callback) {
+        ExpenseManager current;
+        boolean open = false;
+        synchronized (ExpenseManagerRegistry.class) {
+            current = expenseManager;
+            if (current == null) {
+                waiting.add(callback);
+                open = !opening;
+                opening = true;
+            }
+        }
+        if (current != null) {
+            callback.onResult(current);
+        } else if (open) {
+            AsyncExpenseManager.open(context, new AsyncExpenseManager.Callback<ExpenseManager>() {
+                @Override
+                public void onResult(ExpenseManager result) {
+                    ExpenseManager registered;
+                    synchronized (ExpenseManagerRegistry.class) {
+                        if (expenseManager == null) {
+                            expenseManager = result;
+                        }
+                        registered = expenseManager;
+                    }
+                    if (registered != result) {
+                        // a manager was registered while this one was opening
+                        result.close();
+                    }
+                    for (AsyncExpenseManager.Callback<ExpenseManager> callback : drain()) {
+                        callback.onResult(registered);
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    for (AsyncExpenseManager.Callback<ExpenseManager> callback : drain()) {
+                        callback.onError(e);
+                    }
+                }
+            });
+        }
+    }
+
+    /***
+     * Use the given expense manager for the rest of the process, e.g. a test double.
+     *
+     * @param manager
+     */
+    public static void register(ExpenseManager manager) {
+        synchronized (ExpenseManagerRegistry.class) {
+            expenseManager = manager;
+        }
+        if (manager != null) {
+            for (AsyncExpenseManager.Callback<ExpenseManager> callback : drain()) {
+                callback.onResult(manager);
+            }
+        }
+    }
+
+    /***
+     * Forget the registered expense manager, the next lookup opens a new one.
+     *
+     * @return the manager that was registered, or null. The caller is responsible for closing it.
+     */
+    public static synchronized ExpenseManager unregister() {
+        ExpenseManager previous = expenseManager;
+        expenseManager = null;
+        return previous;
+    }
+
+    private static synchronized List<AsyncExpenseManager.Callback<ExpenseManager>> drain() {
+        List<AsyncExpenseManager.Callback<ExpenseManager>> callbacks = new ArrayList<>(waiting);
+        waiting.clear();
+        opening = false;
+        return callbacks;
+    }
+}
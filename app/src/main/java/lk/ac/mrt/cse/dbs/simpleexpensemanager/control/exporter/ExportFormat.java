@@ -14,11 +14,18 @@
  *
  */
 
-package lk.ac.mrt.cse.dbs.simpleexpensemanager;
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exporter;
 
 /**
- *
+ * This ENUM holds the output formats supported by the LedgerExporter.
  */
-public class Constants {
-    public static final String EXPENSE_MANAGER = "expense-manager";
+public enum ExportFormat {
+    /**
+     * Comma separated values with a header line, the same layout the CsvStatementParser reads.
+     */
+    CSV,
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES
 }
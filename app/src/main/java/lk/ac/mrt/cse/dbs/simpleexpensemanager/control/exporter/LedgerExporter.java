@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exporter;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.LedgerSchema;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
+/**
+ * The LedgerExporter writes every logged transaction to an output stream, reading the `transaction` table in
+ * keyset chunks instead of going through {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO#getAllTransactionLogs()}.
+ * Only one chunk of rows and one row buffer are alive at any time, whatever the size of the ledger.
+ * <p/>
+ * The two legs of a transfer are an EXPENSE and an INCOME flagged as a transfer, the flag is exported with them so
+ * that whatever reads the export can keep them out of the spending.
+ * <p/>
+ * Exports run on a background thread and can be cancelled through the returned Future.
+ */
+public class LedgerExporter {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final SQLiteOpenHelper dbHelper;
+    private final ExecutorService executor;
+
+    public LedgerExporter(SQLiteOpenHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /***
+     * Start exporting the ledger in the background. The stream is closed when the export ends.
+     *
+     * @param out    - where the ledger is written
+     * @param format - the output format
+     * @return - a Future holding the number of transactions written, cancel it to stop the export
+     */
+    public Future<Long> export(final OutputStream out, final ExportFormat format) {
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), WRITE_BUFFER_SIZE);
+                try {
+                    return exportTo(writer, format);
+                } finally {
+                    writer.close();
+                }
+            }
+        });
+    }
+
+    /***
+     * Stop the background thread once the pending exports are done.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /***
+     * Export the ledger on the calling thread.
+     *
+     * @param writer
+     * @param format
+     * @return - number of transactions written
+     * @throws IOException - also thrown as an InterruptedIOException when the thread is interrupted
+     */
+    public long exportTo(Writer writer, ExportFormat format) throws IOException {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        StringBuilder row = new StringBuilder(128);
+        long lastDay = Long.MIN_VALUE;
+        String lastDayText = null;
+        long lastId = 0;
+        long written = 0;
+
+        if (format == ExportFormat.CSV)
+            writer.write("date,accountNo,expenseType,amount,transfer\n");
+
+        while (true) {
+            // a fresh keyset query per chunk: a single cursor over the whole table would be re-stepped from the
+            // start every time its window is refilled
+            Cursor cursor = sqLiteDb.rawQuery("SELECT " + LedgerSchema.TRANSACTION_COLUMNS + " FROM `transaction` WHERE `id` > ? ORDER BY `id` LIMIT " + CHUNK_SIZE,
+                    new String[]{String.valueOf(lastId)});
+            int count = 0;
+            try {
+                while (cursor.moveToNext()) {
+                    if (Thread.currentThread().isInterrupted())
+                        throw new InterruptedIOException("Export cancelled after " + written + " transactions");
+                    lastId = cursor.getLong(0);
+                    long day = cursor.getLong(1);
+                    if (day != lastDay) {
+                        // ledgers are mostly ordered by date, formatting once per day is enough
+                        row.setLength(0);
+                        EpochDays.appendIsoDate(day, row);
+                        lastDayText = row.toString();
+                        lastDay = day;
+                    }
+
+                    row.setLength(0);
+                    switch (format) {
+                        case CSV:
+                            row.append(lastDayText).append(',');
+                            appendCsv(row, cursor.getString(2));
+                            row.append(',').append(cursor.getString(3)).append(',');
+                            Money.appendTo(cursor.getLong(4), row);
+                            row.append(',').append(cursor.getInt(5) != 0);
+                            break;
+                        case JSON_LINES:
+                            row.append("{\"id\":").append(lastId).append(",\"date\":\"").append(lastDayText)
+                                    .append("\",\"accountNo\":");
+                            appendJson(row, cursor.getString(2));
+                            row.append(",\"expenseType\":\"").append(cursor.getString(3)).append("\",\"amount\":");
+                            Money.appendTo(cursor.getLong(4), row);
+                            row.append(",\"transfer\":").append(cursor.getInt(5) != 0).append('}');
+                            break;
+                    }
+                    row.append('\n');
+                    writer.append(row);
+                    written++;
+                    count++;
+                }
+            } finally {
+                cursor.close();
+            }
+            if (count < CHUNK_SIZE)
+                break;
+        }
+        writer.flush();
+
+        return written;
+    }
+
+    private static void appendCsv(StringBuilder row, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"')
+                row.append('"');
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    private static void appendJson(StringBuilder row, String value) {
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    row.append("\\\"");
+                    break;
+                case '\\':
+                    row.append("\\\\");
+                    break;
+                case '\n':
+                    row.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        row.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        row.append(c);
+                    }
+            }
+        }
+        row.append('"');
+    }
+}
@@ -1,40 +0,0 @@
-package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
-
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
-
-import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
-import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
-import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
-
-public class PersistentTransactionDAO implements TransactionDAO {
-
-    private final List<Transaction> transactions;
-
-    public PersistentTransactionDAO() {
-        transactions = new LinkedList<>();
-    }
-
-    @Override
-    public void logTransaction(Date date, String accountNo, ExpenseType expenseType, double amount) {
-        Transaction transaction = new Transaction(date, accountNo, expenseType, amount);
-        transactions.add(transaction);
-    }
-
-    @Override
-    public List<Transaction> getAllTransactionLogs() {
-        return transactions;
-    }
-
-    @Override
-    public List<Transaction> getPaginatedTransactionLogs(int limit) {
-        int size = transactions.size();
-        if (size <= limit) {
-            return transactions;
-        }
-        // return the last <code>limit</code> number of transaction logs
-        return transactions.subList(size - limit, size);
-    }
-
-}
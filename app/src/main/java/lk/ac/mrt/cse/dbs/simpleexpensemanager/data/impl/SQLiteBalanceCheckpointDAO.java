@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.BalanceCheckpointDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BalanceCheckpoint;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * BalanceCheckpointDAO implementation over the `balance_checkpoint` table. The table is kept up to date by triggers
+ * on the `account` and `transaction` tables, so every write path maintains it. This class also offers the tools to
+ * recompute the checkpoints from the raw transactions and to check them.
+ */
+public class SQLiteBalanceCheckpointDAO implements BalanceCheckpointDAO {
+    private final SQLiteOpenHelper dbHelper;
+
+    public SQLiteBalanceCheckpointDAO(SQLiteOpenHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public long getBalance(String accountNo, long epochDay) throws InvalidAccountException {
+        int yearMonth = EpochDays.yearMonth(epochDay);
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.SELECT_BALANCE_ON, new String[]{accountNo,
+                String.valueOf(yearMonth), accountNo, String.valueOf(EpochDays.firstDayOf(yearMonth)),
+                String.valueOf(epochDay)});
+        boolean unknown = !cursor.moveToNext() || cursor.isNull(0);
+        long balance = unknown ? 0 : cursor.getLong(0);
+        cursor.close();
+
+        if (unknown) {
+            String msg = "Account " + accountNo + " is invalid.";
+            throw new InvalidAccountException(msg);
+        }
+        return balance;
+    }
+
+    @Override
+    public List<BalanceCheckpoint> getCheckpoints(String accountNo) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.SELECT_BALANCE_CHECKPOINTS, new String[]{accountNo});
+        List<BalanceCheckpoint> checkpoints = readCheckpoints(cursor);
+        cursor.close();
+
+        return checkpoints;
+    }
+
+    /***
+     * Recompute every checkpoint from the stored balances and the `transaction` table, in a single SQLite
+     * transaction.
+     */
+    public void rebuild() {
+        SQLiteDatabase sqLiteDb = dbHelper.getWritableDatabase();
+        sqLiteDb.beginTransaction();
+        try {
+            sqLiteDb.execSQL("DELETE FROM `balance_checkpoint`");
+            sqLiteDb.execSQL("INSERT INTO `balance_checkpoint` (" + LedgerSchema.BALANCE_CHECKPOINT_COLUMNS + ") "
+                    + LedgerSchema.EXPECTED_BALANCE_CHECKPOINTS);
+            sqLiteDb.setTransactionSuccessful();
+        } finally {
+            sqLiteDb.endTransaction();
+        }
+    }
+
+    @Override
+    public List<BalanceCheckpoint> verify() {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.VERIFY_BALANCE_CHECKPOINTS, null);
+        List<BalanceCheckpoint> mismatches = readCheckpoints(cursor);
+        cursor.close();
+
+        return mismatches;
+    }
+
+    private List<BalanceCheckpoint> readCheckpoints(Cursor cursor) {
+        List<BalanceCheckpoint> checkpoints = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            checkpoints.add(new BalanceCheckpoint(cursor.getString(0), cursor.getInt(1), cursor.getLong(2)));
+        }
+
+        return checkpoints;
+    }
+}
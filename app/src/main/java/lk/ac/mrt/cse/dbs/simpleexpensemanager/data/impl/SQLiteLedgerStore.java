@@ -0,0 +1,379 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.DbAccessMonitor;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration.Migrator;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * LedgerStore over the Android SQLite bindings. It creates and upgrades the database, and posts transactions with
+ * statements compiled once per connection.
+ * <p/>
+ * The connections are set up from a {@link SQLiteProfile}. With the write-ahead log the framework keeps a pool of
+ * read connections next to the primary one, so the DAO queries do not wait for a posting in progress. The tuning
+ * pragmas are applied in onConfigure, which the framework only calls for the primary connection; the pooled read
+ * connections keep the platform defaults for the page cache and memory mapping.
+ * <p/>
+ * The calls are timed under the same "store." names of {@link Metrics} as the JDBC store. "store.open" covers
+ * opening the primary connection, from onConfigure to the end of onOpen, including a creation or an upgrade.
+ */
+public class SQLiteLedgerStore extends SQLiteOpenHelper implements LedgerStore {
+    public static final String DATABASE_NAME = "190429G.db";
+
+    private static final String TAG = "SQLiteLedgerStore";
+
+    private static final Timer OPEN_TIMER = Metrics.timer("store.open");
+    private static final Timer POST_TIMER = Metrics.timer("store.post");
+    private static final Timer LOAD_ACCOUNT_TIMER = Metrics.timer("store.loadAccount");
+    private static final Timer LOAD_ACCOUNTS_TIMER = Metrics.timer("store.loadAccounts");
+    private static final Timer LOAD_TRANSACTIONS_TIMER = Metrics.timer("store.loadTransactions");
+
+    private static final Migrator.Listener LOG_LISTENER = new Migrator.Listener() {
+        @Override
+        public void onForeignKeyViolations(List<String> violations) {
+            // incomes logged for accounts this device does not know, the keys stay off until the next open
+            Log.w(TAG, violations.size() + " rows violate a foreign key after the upgrade, first " + violations.get(0));
+        }
+    };
+
+    private final SQLiteProfile profile;
+    private final Migrator migrator = Migrator.forLedger();
+    private final SQLiteTransactionDAO transactionDAO;
+    private final SQLiteMonthlyTotalDAO monthlyTotalDAO;
+    private final SQLiteSearchDAO searchDAO;
+    private final SQLiteRecurringRuleDAO recurringRuleDAO;
+    private final SQLiteBalanceCheckpointDAO balanceCheckpointDAO;
+
+    private SQLiteDatabase statementsDb;
+    private SQLiteStatement insertTransactionStatement;
+    private SQLiteStatement debitStatement;
+    private SQLiteStatement creditStatement;
+    private SQLiteStatement advanceRuleStatement;
+    private long openStart;
+
+    public SQLiteLedgerStore(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    public SQLiteLedgerStore(Context context, String databaseName) {
+        this(context, databaseName, SQLiteProfile.DEFAULT);
+    }
+
+    public SQLiteLedgerStore(Context context, String databaseName, SQLiteProfile profile) {
+        super(context, databaseName, null, LedgerSchema.VERSION);
+        this.profile = profile;
+        migrator.setListener(LOG_LISTENER);
+        setWriteAheadLoggingEnabled(profile.isWriteAheadLog());
+        transactionDAO = new SQLiteTransactionDAO(this);
+        monthlyTotalDAO = new SQLiteMonthlyTotalDAO(this);
+        searchDAO = new SQLiteSearchDAO(this);
+        recurringRuleDAO = new SQLiteRecurringRuleDAO(this);
+        balanceCheckpointDAO = new SQLiteBalanceCheckpointDAO(this);
+    }
+
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        DbAccessMonitor.recordAccess();
+        return super.getWritableDatabase();
+    }
+
+    @Override
+    public SQLiteDatabase getReadableDatabase() {
+        DbAccessMonitor.recordAccess();
+        return super.getReadableDatabase();
+    }
+
+    public SQLiteProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase sqLiteDb) {
+        openStart = OPEN_TIMER.start();
+        sqLiteDb.setForeignKeyConstraintsEnabled(profile.isForeignKeys());
+        sqLiteDb.setMaxSqlCacheSize(profile.getStatementCacheSize());
+        for (String pragma : profile.getTuningPragmas()) {
+            // some pragmas answer with a row, which execSQL refuses
+            Cursor cursor = sqLiteDb.rawQuery(pragma, null);
+            cursor.moveToFirst();
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase sqLiteDb) {
+        for (String sql : LedgerSchema.CREATE_STATEMENTS) {
+            sqLiteDb.execSQL(sql);
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase sqLiteDb, int oldVersion, int newVersion) {
+        // only remember where the upgrade starts from, this runs in the single transaction of SQLiteOpenHelper. The
+        // migrations run in onOpen, where each batch can commit on its own.
+        migrator.baseline(new SQLiteMigrationDatabase(sqLiteDb), oldVersion);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase sqLiteDb) {
+        try {
+            if (sqLiteDb.isReadOnly()) {
+                return;
+            }
+            // a new database is at the latest version, an upgraded one was recorded by onUpgrade, and an upgrade
+            // that was interrupted resumes where it stopped
+            SQLiteMigrationDatabase db = new SQLiteMigrationDatabase(sqLiteDb);
+            migrator.baseline(db, sqLiteDb.getVersion());
+            int migrations = migrator.migrate(db);
+            if (migrations > 0) {
+                Log.i(TAG, "Upgraded the database with " + migrations + " migrations");
+            }
+        } finally {
+            OPEN_TIMER.stop(openStart, sqLiteDb.getPath());
+        }
+    }
+
+    @Override
+    public List<Account> loadAccounts() {
+        SQLiteDatabase sqLiteDb = this.getWritableDatabase();
+        long start = LOAD_ACCOUNTS_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT `accountNo`, `bankName`, `accountHolderName`, `balance` FROM `account`", null);
+
+        List<Account> accounts = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            accounts.add(new Account(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3)));
+        }
+        cursor.close();
+        LOAD_ACCOUNTS_TIMER.stop(start);
+
+        return accounts;
+    }
+
+    @Override
+    public Account loadAccount(String accountNo) {
+        SQLiteDatabase sqLiteDb = this.getReadableDatabase();
+        long start = LOAD_ACCOUNT_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT `accountNo`, `bankName`, `accountHolderName`, `balance` FROM `account` WHERE `accountNo` = ?",
+                new String[]{accountNo});
+
+        Account account = null;
+        if (cursor.moveToFirst()) {
+            account = new Account(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3));
+        }
+        cursor.close();
+        LOAD_ACCOUNT_TIMER.stop(start);
+
+        return account;
+    }
+
+    @Override
+    public List<String> loadAccountNumbers() {
+        SQLiteDatabase sqLiteDb = this.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT `accountNo` FROM `account`", null);
+
+        List<String> accountNumbers = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            accountNumbers.add(cursor.getString(0));
+        }
+        cursor.close();
+
+        return accountNumbers;
+    }
+
+    @Override
+    public void loadTransactions(PersistentTransactionDAO transactionDAO) {
+        SQLiteDatabase sqLiteDb = this.getWritableDatabase();
+        long start = LOAD_TRANSACTIONS_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT `date`, `accountNo`, `expenseType`, `amount`, `transfer` FROM `transaction` ORDER BY `id`", null);
+
+        while (cursor.moveToNext()) {
+            long epochDay = cursor.getLong(0);
+            String accountNo = cursor.getString(1);
+            ExpenseType expenseType = ExpenseType.valueOf(cursor.getString(2));
+            long amount = cursor.getLong(3);
+            boolean transfer = cursor.getInt(4) != 0;
+            transactionDAO.logTransaction(epochDay, accountNo, expenseType, amount, transfer);
+        }
+        cursor.close();
+        LOAD_TRANSACTIONS_TIMER.stop(start);
+    }
+
+    @Override
+    public void addAccount(Account account) {
+        SQLiteDatabase sqLiteDb = this.getWritableDatabase();
+        ContentValues contentValues = new ContentValues();
+        contentValues.put("accountNo", account.getAccountNo());
+        contentValues.put("bankName", account.getBankName());
+        contentValues.put("accountHolderName", account.getAccountHolderName());
+        contentValues.put("balance", account.getBalanceCents());
+        sqLiteDb.insert("account", null, contentValues);
+    }
+
+    @Override
+    public void post(List<Transaction> transactions) throws InvalidAccountException {
+        write(transactions, Collections.<RecurringRule>emptyList(), Collections.<RecurringRule>emptyList());
+    }
+
+    @Override
+    public boolean postRecurring(List<Transaction> transactions, List<RecurringRule> rules,
+                                 List<RecurringRule> advancedRules) throws InvalidAccountException {
+        return write(transactions, rules, advancedRules);
+    }
+
+    private synchronized boolean write(List<Transaction> transactions, List<RecurringRule> rules,
+                                       List<RecurringRule> advancedRules) throws InvalidAccountException {
+        SQLiteDatabase sqLiteDb = this.getWritableDatabase();
+        compileStatements(sqLiteDb);
+
+        long start = POST_TIMER.start();
+        sqLiteDb.beginTransaction();
+        try {
+            for (int i = 0; i < rules.size(); i++) {
+                if (!advanceRuleDB(rules.get(i), advancedRules.get(i)))
+                    return false;
+            }
+            for (Transaction transaction : transactions) {
+                if (!postTransactionDB(transaction))
+                    throw new InvalidAccountException("Please enter an amount that is lesser than the account balance.");
+            }
+            sqLiteDb.setTransactionSuccessful();
+            return true;
+        } finally {
+            sqLiteDb.endTransaction();
+            POST_TIMER.stop(start);
+        }
+    }
+
+    /***
+     * Count the occurrences of a rule as posted. Must be called inside an SQLite transaction.
+     *
+     * @return false if the rule is gone or was advanced since it was read
+     */
+    private boolean advanceRuleDB(RecurringRule rule, RecurringRule advancedRule) {
+        advanceRuleStatement.bindLong(1, advancedRule.getPosted());
+        advanceRuleStatement.bindLong(2, advancedRule.getNextDay());
+        advanceRuleStatement.bindLong(3, rule.getId());
+        advanceRuleStatement.bindLong(4, rule.getPosted());
+        return advanceRuleStatement.executeUpdateDelete() == 1;
+    }
+
+    /***
+     * Apply one transaction to the balance and log it. Must be called inside an SQLite transaction.
+     *
+     * @return false if the transaction is an expense larger than the account balance
+     */
+    private boolean postTransactionDB(Transaction transaction) {
+        String accountNo = transaction.getAccountNo();
+        long amount = transaction.getAmountCents();
+
+        switch (transaction.getExpenseType()) {
+            case EXPENSE:
+                debitStatement.bindLong(1, amount);
+                debitStatement.bindString(2, accountNo);
+                debitStatement.bindLong(3, amount);
+                if (debitStatement.executeUpdateDelete() == 0)
+                    return false;
+                break;
+            case INCOME:
+                creditStatement.bindLong(1, amount);
+                creditStatement.bindString(2, accountNo);
+                creditStatement.executeUpdateDelete();
+                break;
+        }
+
+        insertTransactionStatement.bindLong(1, EpochDays.fromDate(transaction.getDate()));
+        insertTransactionStatement.bindString(2, accountNo);
+        insertTransactionStatement.bindString(3, transaction.getExpenseType().toString());
+        insertTransactionStatement.bindLong(4, amount);
+        insertTransactionStatement.bindLong(5, transaction.isTransfer() ? 1 : 0);
+        insertTransactionStatement.executeInsert();
+        return true;
+    }
+
+    private void compileStatements(SQLiteDatabase sqLiteDb) {
+        if (statementsDb == sqLiteDb)
+            return;
+        releaseStatements();
+        insertTransactionStatement = sqLiteDb.compileStatement(LedgerSchema.INSERT_TRANSACTION);
+        debitStatement = sqLiteDb.compileStatement(LedgerSchema.DEBIT_ACCOUNT);
+        creditStatement = sqLiteDb.compileStatement(LedgerSchema.CREDIT_ACCOUNT);
+        advanceRuleStatement = sqLiteDb.compileStatement(LedgerSchema.ADVANCE_RECURRING_RULE);
+        statementsDb = sqLiteDb;
+    }
+
+    private void releaseStatements() {
+        if (statementsDb == null)
+            return;
+        insertTransactionStatement.close();
+        debitStatement.close();
+        creditStatement.close();
+        advanceRuleStatement.close();
+        statementsDb = null;
+    }
+
+    @Override
+    public SQLiteTransactionDAO getTransactionDAO() {
+        return transactionDAO;
+    }
+
+    @Override
+    public SQLiteMonthlyTotalDAO getMonthlyTotalDAO() {
+        return monthlyTotalDAO;
+    }
+
+    @Override
+    public SQLiteSearchDAO getSearchDAO() {
+        return searchDAO;
+    }
+
+    @Override
+    public SQLiteRecurringRuleDAO getRecurringRuleDAO() {
+        return recurringRuleDAO;
+    }
+
+    @Override
+    public SQLiteBalanceCheckpointDAO getBalanceCheckpointDAO() {
+        return balanceCheckpointDAO;
+    }
+
+    @Override
+    public synchronized void close() {
+        releaseStatements();
+        super.close();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration.MigrationDatabase;
+
+/**
+ * MigrationDatabase over the Android SQLite bindings.
+ */
+public class SQLiteMigrationDatabase implements MigrationDatabase {
+    private final SQLiteDatabase sqLiteDb;
+
+    public SQLiteMigrationDatabase(SQLiteDatabase sqLiteDb) {
+        this.sqLiteDb = sqLiteDb;
+    }
+
+    @Override
+    public void execSQL(String sql, Object... bindArgs) {
+        sqLiteDb.execSQL(sql, bindArgs);
+    }
+
+    @Override
+    public Long queryLong(String sql, Object... bindArgs) {
+        SQLiteStatement statement = sqLiteDb.compileStatement(sql);
+        try {
+            for (int i = 0; i < bindArgs.length; i++) {
+                Object arg = bindArgs[i];
+                if (arg == null) {
+                    statement.bindNull(i + 1);
+                } else if (arg instanceof Long || arg instanceof Integer) {
+                    statement.bindLong(i + 1, ((Number) arg).longValue());
+                } else if (arg instanceof Double) {
+                    statement.bindDouble(i + 1, (Double) arg);
+                } else {
+                    statement.bindString(i + 1, arg.toString());
+                }
+            }
+            // simpleQueryForLong cannot tell NULL from 0
+            String value = statement.simpleQueryForString();
+            return value == null ? null : Long.valueOf(value);
+        } catch (SQLiteDoneException e) {
+            return null;
+        } finally {
+            statement.close();
+        }
+    }
+
+    @Override
+    public List<String> describeRows(String sql) {
+        Cursor cursor = sqLiteDb.rawQuery(sql, null);
+        try {
+            List<String> rows = new ArrayList<>(cursor.getCount());
+            StringBuilder row = new StringBuilder();
+            while (cursor.moveToNext()) {
+                row.setLength(0);
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    if (i > 0)
+                        row.append(", ");
+                    row.append(cursor.getString(i));
+                }
+                rows.add(row.toString());
+            }
+            return rows;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void beginTransaction() {
+        sqLiteDb.beginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        sqLiteDb.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        sqLiteDb.endTransaction();
+    }
+}
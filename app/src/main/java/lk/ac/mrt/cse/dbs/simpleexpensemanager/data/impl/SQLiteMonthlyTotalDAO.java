@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.MonthlyTotalDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.MonthlyTotal;
+
+/**
+ * MonthlyTotalDAO implementation over the `monthly_total` table. The table is kept up to date by triggers on the
+ * `transaction` table, so every write path (the expense manager, the DAOs, the importer) maintains it. This class
+ * also offers the tools to recompute the totals from the raw transactions and to check them.
+ */
+public class SQLiteMonthlyTotalDAO implements MonthlyTotalDAO {
+    private static final String COLUMNS = LedgerSchema.MONTHLY_TOTAL_COLUMNS;
+    private static final String EXPECTED_TOTALS = LedgerSchema.EXPECTED_MONTHLY_TOTALS;
+
+    private final SQLiteOpenHelper dbHelper;
+
+    public SQLiteMonthlyTotalDAO(SQLiteOpenHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public List<MonthlyTotal> getMonthlyTotals(String accountNo, int fromYearMonth, int toYearMonth) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT " + COLUMNS + " FROM `monthly_total` WHERE `accountNo` = ? AND `yearMonth` BETWEEN ? AND ? ORDER BY `yearMonth`, `expenseType`",
+                new String[]{accountNo, String.valueOf(fromYearMonth), String.valueOf(toYearMonth)});
+        List<MonthlyTotal> totals = readTotals(cursor);
+        cursor.close();
+
+        return totals;
+    }
+
+    @Override
+    public List<MonthlyTotal> getMonthlyTotals(int yearMonth) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT " + COLUMNS + " FROM `monthly_total` WHERE `yearMonth` = ? ORDER BY `accountNo`, `expenseType`",
+                new String[]{String.valueOf(yearMonth)});
+        List<MonthlyTotal> totals = readTotals(cursor);
+        cursor.close();
+
+        return totals;
+    }
+
+    @Override
+    public long getTotal(ExpenseType expenseType, int fromYearMonth, int toYearMonth) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT IFNULL(SUM(`total`), 0) FROM `monthly_total` WHERE `expenseType` = ? AND `yearMonth` BETWEEN ? AND ?",
+                new String[]{expenseType.toString(), String.valueOf(fromYearMonth), String.valueOf(toYearMonth)});
+        long total = 0;
+        if (cursor.moveToNext()) {
+            total = cursor.getLong(0);
+        }
+        cursor.close();
+
+        return total;
+    }
+
+    /***
+     * Recompute every bucket from the `transaction` table, in a single SQLite transaction.
+     */
+    public void rebuild() {
+        SQLiteDatabase sqLiteDb = dbHelper.getWritableDatabase();
+        sqLiteDb.beginTransaction();
+        try {
+            rebuild(sqLiteDb);
+            sqLiteDb.setTransactionSuccessful();
+        } finally {
+            sqLiteDb.endTransaction();
+        }
+    }
+
+    /***
+     * Recompute every bucket from the `transaction` table, on a database that is already in a transaction.
+     *
+     * @param sqLiteDb
+     */
+    public static void rebuild(SQLiteDatabase sqLiteDb) {
+        sqLiteDb.execSQL("DELETE FROM `monthly_total`");
+        sqLiteDb.execSQL("INSERT INTO `monthly_total` (" + COLUMNS + ") " + EXPECTED_TOTALS);
+    }
+
+    /***
+     * Compare the buckets with the totals recomputed from the `transaction` table.
+     *
+     * @return - the buckets that are wrong or missing, holding their expected values. Empty when the totals are
+     * consistent.
+     */
+    public List<MonthlyTotal> verify() {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery("SELECT e.`accountNo`, e.`yearMonth`, e.`expenseType`, e.`total`, e.`count` FROM (" + EXPECTED_TOTALS + ") e "
+                + "LEFT JOIN `monthly_total` m ON m.`accountNo` = e.`accountNo` AND m.`yearMonth` = e.`yearMonth` AND m.`expenseType` = e.`expenseType` "
+                + "WHERE m.`accountNo` IS NULL OR m.`count` != e.`count` OR m.`total` != e.`total` "
+                + "UNION ALL "
+                + "SELECT m.`accountNo`, m.`yearMonth`, m.`expenseType`, 0, 0 FROM `monthly_total` m "
+                + "LEFT JOIN (" + EXPECTED_TOTALS + ") e ON m.`accountNo` = e.`accountNo` AND m.`yearMonth` = e.`yearMonth` AND m.`expenseType` = e.`expenseType` "
+                + "WHERE e.`accountNo` IS NULL AND (m.`count` != 0 OR m.`total` != 0)", null);
+        List<MonthlyTotal> mismatches = readTotals(cursor);
+        cursor.close();
+
+        return mismatches;
+    }
+
+    private List<MonthlyTotal> readTotals(Cursor cursor) {
+        List<MonthlyTotal> totals = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            totals.add(new MonthlyTotal(cursor.getString(0), cursor.getInt(1),
+                    ExpenseType.valueOf(cursor.getString(2)), cursor.getLong(3), cursor.getLong(4)));
+        }
+
+        return totals;
+    }
+}
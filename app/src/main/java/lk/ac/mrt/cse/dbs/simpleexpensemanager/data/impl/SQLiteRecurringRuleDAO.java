@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.RecurringRuleDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+
+/**
+ * RecurringRuleDAO implementation over the `recurring_rule` table. The occurrences are posted, and the rules
+ * advanced, by {@link SQLiteLedgerStore#postRecurring(List, List, List)}.
+ */
+public class SQLiteRecurringRuleDAO implements RecurringRuleDAO {
+    private final SQLiteOpenHelper dbHelper;
+
+    public SQLiteRecurringRuleDAO(SQLiteOpenHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public RecurringRule addRule(RecurringRule rule) {
+        SQLiteDatabase sqLiteDb = dbHelper.getWritableDatabase();
+        ContentValues contentValues = new ContentValues();
+        contentValues.put("name", rule.getName());
+        contentValues.put("accountNo", rule.getAccountNo());
+        contentValues.put("expenseType", rule.getExpenseType().toString());
+        contentValues.put("amount", rule.getAmountCents());
+        contentValues.put("period", rule.getPeriod().toString());
+        contentValues.put("every", rule.getEvery());
+        contentValues.put("startDate", rule.getStartDay());
+        contentValues.put("endDate", rule.getEndDay());
+        contentValues.put("posted", rule.getPosted());
+        contentValues.put("nextDate", rule.getNextDay());
+        return rule.withId(sqLiteDb.insertOrThrow("recurring_rule", null, contentValues));
+    }
+
+    @Override
+    public boolean removeRule(long id) {
+        SQLiteDatabase sqLiteDb = dbHelper.getWritableDatabase();
+        return sqLiteDb.delete("recurring_rule", "`id` = ?", new String[]{String.valueOf(id)}) > 0;
+    }
+
+    @Override
+    public List<RecurringRule> getRules() {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.SELECT_RECURRING_RULES, null);
+        List<RecurringRule> rules = readRules(cursor);
+        cursor.close();
+
+        return rules;
+    }
+
+    @Override
+    public List<RecurringRule> getDueRules(long epochDay, int limit) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.SELECT_DUE_RECURRING_RULES,
+                new String[]{String.valueOf(epochDay), String.valueOf(limit)});
+        List<RecurringRule> rules = readRules(cursor);
+        cursor.close();
+
+        return rules;
+    }
+
+    private static List<RecurringRule> readRules(Cursor cursor) {
+        List<RecurringRule> rules = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            rules.add(new RecurringRule(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    ExpenseType.valueOf(cursor.getString(3)), cursor.getLong(4),
+                    RecurringRule.Period.valueOf(cursor.getString(5)), cursor.getInt(6), cursor.getLong(7),
+                    cursor.getLong(8), cursor.getLong(9)));
+        }
+        return rules;
+    }
+}
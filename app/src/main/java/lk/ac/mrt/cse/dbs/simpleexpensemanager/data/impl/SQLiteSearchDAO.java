@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * SearchDAO over the `account_search` full text index. The accounts are matched in the index, then the newest
+ * transactions of each of them are read from the (accountNo, date) index, so no query scans the `transaction` table.
+ */
+public class SQLiteSearchDAO implements SearchDAO {
+    private static final Timer ACCOUNTS_TIMER = Metrics.timer("store.searchAccounts");
+    private static final Timer TRANSACTIONS_TIMER = Metrics.timer("store.searchTransactions");
+
+    private final SQLiteOpenHelper dbHelper;
+
+    public SQLiteSearchDAO(SQLiteOpenHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public List<Account> searchAccounts(String query, int limit) {
+        String match = LedgerSearch.matchExpression(query);
+        if (match == null)
+            return Collections.emptyList();
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        long start = ACCOUNTS_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.SEARCH_ACCOUNTS, new String[]{match, String.valueOf(limit)});
+
+        List<Account> accounts = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            accounts.add(new Account(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3)));
+        }
+        cursor.close();
+        ACCOUNTS_TIMER.stop(start, LedgerSchema.SEARCH_ACCOUNTS);
+
+        return accounts;
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(String query, Transaction after, int limit) {
+        String match = LedgerSearch.matchExpression(query);
+        if (match == null)
+            return Collections.emptyList();
+        String cursorDay = String.valueOf(LedgerSearch.cursorDay(after));
+        String cursorId = String.valueOf(LedgerSearch.cursorId(after));
+        String pageSize = String.valueOf(limit);
+
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        long start = TRANSACTIONS_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery(LedgerSchema.SEARCH_ACCOUNT_NUMBERS,
+                new String[]{match, String.valueOf(LedgerSearch.MAX_ACCOUNTS)});
+        List<String> accountNumbers = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            accountNumbers.add(cursor.getString(0));
+        }
+        cursor.close();
+
+        List<Transaction> candidates = new ArrayList<>();
+        for (String accountNo : accountNumbers) {
+            cursor = sqLiteDb.rawQuery(LedgerSchema.SEARCH_ACCOUNT_TRANSACTIONS,
+                    new String[]{accountNo, cursorDay, cursorDay, cursorId, pageSize});
+            while (cursor.moveToNext()) {
+                candidates.add(new Transaction(cursor.getLong(0), EpochDays.toDate(cursor.getLong(1)),
+                        cursor.getString(2), ExpenseType.valueOf(cursor.getString(3)), cursor.getLong(4),
+                        cursor.getInt(5) != 0));
+            }
+            cursor.close();
+        }
+        TRANSACTIONS_TIMER.stop(start, LedgerSchema.SEARCH_ACCOUNT_TRANSACTIONS);
+
+        return LedgerSearch.newestFirst(candidates, limit);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * TransactionDAO implementation that keeps nothing in memory. Every call is served straight from the `transaction`
+ * table, so the cost of opening the expense manager does not grow with the size of the ledger.
+ */
+public class SQLiteTransactionDAO implements TransactionDAO {
+    private static final String COLUMNS = LedgerSchema.TRANSACTION_COLUMNS;
+    // keyset pagination: seek on the primary key instead of OFFSET, so deep pages cost as much as the first
+    private static final String PAGE_BEFORE_SQL = "SELECT " + COLUMNS + " FROM `transaction` WHERE `id` < ? ORDER BY `id` DESC LIMIT ?";
+    // served by the (accountNo, date) index, the range and the ordering are resolved inside SQLite
+    private static final String ACCOUNT_SQL = "SELECT " + COLUMNS + " FROM `transaction` WHERE `accountNo` = ? AND `date` BETWEEN ? AND ? ORDER BY `date`, `id`";
+    private static final String ALL_SQL = "SELECT " + COLUMNS + " FROM `transaction` ORDER BY `id`";
+    private static final String LAST_PAGE_SQL = "SELECT " + COLUMNS + " FROM `transaction` ORDER BY `id` DESC LIMIT ?";
+
+    private static final Timer PAGE_TIMER = Metrics.timer("store.transactionPage");
+    private static final Timer ACCOUNT_TIMER = Metrics.timer("store.accountTransactions");
+    private static final Timer ALL_TIMER = Metrics.timer("store.allTransactions");
+
+    private final SQLiteOpenHelper dbHelper;
+
+    public SQLiteTransactionDAO(SQLiteOpenHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public void logTransaction(Date date, String accountNo, ExpenseType expenseType, long amount) {
+        SQLiteDatabase sqLiteDb = dbHelper.getWritableDatabase();
+        ContentValues contentValues = new ContentValues();
+        contentValues.put("date", EpochDays.fromDate(date));
+        contentValues.put("accountNo", accountNo);
+        contentValues.put("expenseType", expenseType.toString());
+        contentValues.put("amount", amount);
+        sqLiteDb.insert("`transaction`", null, contentValues);
+    }
+
+    @Override
+    public List<Transaction> getTransactionLogsBefore(long beforeId, int limit) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        long start = PAGE_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery(PAGE_BEFORE_SQL, new String[]{String.valueOf(beforeId), String.valueOf(limit)});
+        List<Transaction> transactions = readTransactions(cursor);
+        cursor.close();
+        PAGE_TIMER.stop(start, PAGE_BEFORE_SQL);
+
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> getAccountTransactionLogs(String accountNo, Date from, Date to) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        long start = ACCOUNT_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery(ACCOUNT_SQL,
+                new String[]{accountNo, String.valueOf(EpochDays.fromDate(from)), String.valueOf(EpochDays.fromDate(to))});
+        List<Transaction> transactions = readTransactions(cursor);
+        cursor.close();
+        ACCOUNT_TIMER.stop(start, ACCOUNT_SQL);
+
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> getAllTransactionLogs() {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        long start = ALL_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery(ALL_SQL, null);
+        List<Transaction> transactions = readTransactions(cursor);
+        cursor.close();
+        ALL_TIMER.stop(start, ALL_SQL);
+
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> getPaginatedTransactionLogs(int limit) {
+        SQLiteDatabase sqLiteDb = dbHelper.getReadableDatabase();
+        long start = PAGE_TIMER.start();
+        Cursor cursor = sqLiteDb.rawQuery(LAST_PAGE_SQL, new String[]{String.valueOf(limit)});
+        List<Transaction> transactions = readTransactions(cursor);
+        cursor.close();
+        PAGE_TIMER.stop(start, LAST_PAGE_SQL);
+
+        // return the last <code>limit</code> number of transaction logs, oldest first
+        Collections.reverse(transactions);
+        return transactions;
+    }
+
+    private List<Transaction> readTransactions(Cursor cursor) {
+        List<Transaction> transactions = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            long id = cursor.getLong(0);
+            Date date = EpochDays.toDate(cursor.getLong(1));
+            String accountNo = cursor.getString(2);
+            ExpenseType expenseType = ExpenseType.valueOf(cursor.getString(3));
+            long amount = cursor.getLong(4);
+            boolean transfer = cursor.getInt(5) != 0;
+            transactions.add(new Transaction(id, date, accountNo, expenseType, amount, transfer));
+        }
+
+        return transactions;
+    }
+}
@@ -25,9 +25,10 @@ import android.widget.Button;
 import android.widget.EditText;
 
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.R;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.AsyncExpenseManager;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManager;
-
-import static lk.ac.mrt.cse.dbs.simpleexpensemanager.Constants.EXPENSE_MANAGER;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManagerRegistry;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
 /**
  *
  */
@@ -39,12 +40,10 @@ public class AddAccountFragment extends Fragment implements View.OnClickListener
     private EditText initialBalance;
     private Button addAccount;
 
-    public static AddAccountFragment newInstance(ExpenseManager expenseManager) {
-        AddAccountFragment addAccountFragment = new AddAccountFragment();
-        Bundle args = new Bundle();
-        args.putSerializable(EXPENSE_MANAGER, expenseManager);
-        addAccountFragment.setArguments(args);
-        return addAccountFragment;
+    public static AddAccountFragment newInstance() {
+        // the expense manager is looked up from the registry, it is not passed in the arguments so that saving the
+        // fragment state does not serialize the ledger
+        return new AddAccountFragment();
     }
 
     public AddAccountFragment() {
@@ -60,7 +59,16 @@ public class AddAccountFragment extends Fragment implements View.OnClickListener
         addAccount = (Button) rootView.findViewById(R.id.add_account);
         addAccount.setOnClickListener(this);
 
-        currentExpenseManager = (ExpenseManager) getArguments().get(EXPENSE_MANAGER);
+        ExpenseManagerRegistry.obtain(getActivity(), new AsyncExpenseManager.Callback<ExpenseManager>() {
+            @Override
+            public void onResult(ExpenseManager result) {
+                currentExpenseManager = result;
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
         return rootView;
     }
 
@@ -94,9 +102,17 @@ public class AddAccountFragment extends Fragment implements View.OnClickListener
                     break;
                 }
 
+                long initialBalanceVal;
+                try {
+                    initialBalanceVal = Money.parse(initialBalanceStr);
+                } catch (NumberFormatException e) {
+                    initialBalance.setError(getActivity().getString(R.string.err_init_balance_invalid));
+                    break;
+                }
+
                 if (currentExpenseManager != null) {
-                    currentExpenseManager.addAccount(accountNumStr, bankNameStr, accountHolderStr,
-                            Double.parseDouble(initialBalanceStr));
+                    new AsyncExpenseManager(currentExpenseManager).addAccount(accountNumStr, bankNameStr,
+                            accountHolderStr, initialBalanceVal, null);
                 }
                 cleanUp();
                 break;
@@ -17,35 +17,49 @@
 package lk.ac.mrt.cse.dbs.simpleexpensemanager.ui;
 
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TableLayout;
-import android.widget.TableRow;
-import android.widget.TextView;
+import android.widget.EditText;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.List;
 
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.R;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.AsyncExpenseManager;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManagerRegistry;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
-
-import static lk.ac.mrt.cse.dbs.simpleexpensemanager.Constants.EXPENSE_MANAGER;
 /**
  *
  */
 public class ExpenseLogsFragment extends Fragment {
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    // wait for the user to stop typing before searching
+    private static final long SEARCH_DELAY_MILLIS = 250;
+
+    private final Handler handler = new Handler();
+
     private ExpenseManager currentExpenseManager;
+    private TransactionLogAdapter adapter;
+    private LinearLayoutManager layoutManager;
+    private boolean loading;
+    private boolean exhausted;
+    private String query = "";
+    // incremented on every new search, a page loaded for an older one is dropped
+    private int generation;
 
-    public static ExpenseLogsFragment newInstance(ExpenseManager expenseManager) {
-        ExpenseLogsFragment expenseLogsFragment = new ExpenseLogsFragment();
-        Bundle args = new Bundle();
-        args.putSerializable(EXPENSE_MANAGER, expenseManager);
-        expenseLogsFragment.setArguments(args);
-        return expenseLogsFragment;
+    public static ExpenseLogsFragment newInstance() {
+        // the expense manager is looked up from the registry, it is not passed in the arguments so that saving the
+        // fragment state does not serialize the ledger
+        return new ExpenseLogsFragment();
     }
 
     public ExpenseLogsFragment() {
@@ -54,42 +68,115 @@ public class ExpenseLogsFragment extends Fragment {
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View rootView = inflater.inflate(R.layout.fragment_expense_logs, container, false);
-        TableLayout logsTableLayout = (TableLayout) rootView.findViewById(R.id.logs_table);
-        TableRow tableRowHeader = (TableRow) rootView.findViewById(R.id.logs_table_header);
+        RecyclerView logsList = (RecyclerView) rootView.findViewById(R.id.logs_list);
 
-        currentExpenseManager = (ExpenseManager) getArguments().get(EXPENSE_MANAGER);
-        List<Transaction> transactionList = new ArrayList<>();
-        if (currentExpenseManager != null) {
-            transactionList = currentExpenseManager.getTransactionLogs();
-        }
-        generateTransactionsTable(rootView, logsTableLayout, transactionList);
-        return rootView;
-    }
+        // one formatter for the whole list instead of one per row
+        adapter = new TransactionLogAdapter(new SimpleDateFormat(getActivity().getString(R.string.config_date_log_pattern)));
+        layoutManager = new LinearLayoutManager(rootView.getContext());
+        logsList.setLayoutManager(layoutManager);
+        logsList.setHasFixedSize(true);
+        logsList.setAdapter(adapter);
+        logsList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        EditText searchField = (EditText) rootView.findViewById(R.id.logs_search);
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(final Editable s) {
+                handler.removeCallbacksAndMessages(null);
+                handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        search(s.toString().trim());
+                    }
+                }, SEARCH_DELAY_MILLIS);
+            }
+        });
 
-    private void generateTransactionsTable(View rootView, TableLayout logsTableLayout,
-                                           List<Transaction> transactionList) {
-        for (Transaction transaction : transactionList) {
-            TableRow tr = new TableRow(rootView.getContext());
-            TextView lDateVal = new TextView(rootView.getContext());
+        loading = false;
+        exhausted = false;
+        query = "";
+        generation++;
+        ExpenseManagerRegistry.obtain(getActivity(), new AsyncExpenseManager.Callback<ExpenseManager>() {
+            @Override
+            public void onResult(ExpenseManager result) {
+                currentExpenseManager = result;
+                if (isAdded()) {
+                    loadNextPage();
+                }
+            }
 
-            SimpleDateFormat sdf = new SimpleDateFormat(getActivity().getString(R.string.config_date_log_pattern));
-            String formattedDate = sdf.format(transaction.getDate());
-            lDateVal.setText(formattedDate);
-            tr.addView(lDateVal);
+            @Override
+            public void onError(Exception e) {
+            }
+        });
+        return rootView;
+    }
 
-            TextView lAccountNoVal = new TextView(rootView.getContext());
-            lAccountNoVal.setText(transaction.getAccountNo());
-            tr.addView(lAccountNoVal);
+    @Override
+    public void onDestroyView() {
+        handler.removeCallbacksAndMessages(null);
+        super.onDestroyView();
+    }
 
-            TextView lExpenseTypeVal = new TextView(rootView.getContext());
-            lExpenseTypeVal.setText(transaction.getExpenseType().toString());
-            tr.addView(lExpenseTypeVal);
+    private void search(String newQuery) {
+        if (newQuery.equals(query) || !isAdded()) {
+            return;
+        }
+        query = newQuery;
+        generation++;
+        loading = false;
+        exhausted = false;
+        adapter.clear();
+        loadNextPage();
+    }
 
-            TextView lAmountVal = new TextView(rootView.getContext());
-            lAmountVal.setText(String.valueOf(transaction.getAmount()));
-            tr.addView(lAmountVal);
+    private void loadNextPage() {
+        if (loading || exhausted || currentExpenseManager == null) {
+            return;
+        }
+        loading = true;
+        final int pageGeneration = generation;
+        AsyncExpenseManager.Callback<List<Transaction>> callback = new AsyncExpenseManager.Callback<List<Transaction>>() {
+            @Override
+            public void onResult(List<Transaction> page) {
+                if (isAdded() && pageGeneration == generation) {
+                    onPageLoaded(page);
+                }
+            }
 
-            logsTableLayout.addView(tr);
+            @Override
+            public void onError(Exception e) {
+                if (pageGeneration == generation) {
+                    loading = false;
+                }
+            }
+        };
+        // the queries run on the reader pool, the page is appended back on the main thread
+        if (query.isEmpty()) {
+            new AsyncExpenseManager(currentExpenseManager).getTransactionLogs(adapter.getLastId(), PAGE_SIZE, callback);
+        } else {
+            new AsyncExpenseManager(currentExpenseManager).searchTransactions(query, adapter.getLast(), PAGE_SIZE, callback);
         }
     }
+
+    private void onPageLoaded(List<Transaction> page) {
+        loading = false;
+        exhausted = page.size() < PAGE_SIZE;
+        adapter.appendPage(page);
+    }
 }
@@ -16,6 +16,7 @@
 
 package lk.ac.mrt.cse.dbs.simpleexpensemanager.ui;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.support.design.widget.TabLayout;
 import android.support.v4.app.Fragment;
@@ -24,13 +25,21 @@ import android.support.v4.app.FragmentPagerAdapter;
 import android.support.v4.view.ViewPager;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.BuildConfig;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.R;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.AppMetrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.AsyncExpenseManager;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManager;
-import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.PersistentExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManagerRegistry;
 
 public class MainActivity extends AppCompatActivity {
-    private ExpenseManager expenseManager;
+    private static final String TAG = "MainActivity";
+    private static final String METRICS_ACTIVITY = "lk.ac.mrt.cse.dbs.simpleexpensemanager.ui.MetricsActivity";
+
     /**
      * The {@link android.support.v4.view.PagerAdapter} that will provide
      * fragments for each of the sections. We use a
@@ -50,6 +59,8 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        // debug builds record from the start, including the database open
+        AppMetrics.install(BuildConfig.DEBUG);
 
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -57,18 +68,43 @@ public class MainActivity extends AppCompatActivity {
         // primary sections of the activity.
         mSectionsPagerAdapter = new SectionsPagerAdapter(getSupportFragmentManager());
 
-        // Set up the ViewPager with the sections adapter.
         mViewPager = (ViewPager) findViewById(R.id.container);
         mViewPager.setAdapter(mSectionsPagerAdapter);
-
         TabLayout tabLayout = (TabLayout) findViewById(R.id.tabs);
         tabLayout.setupWithViewPager(mViewPager);
 
-        /***  Begin generating dummy data for In-Memory implementation  ***/
-        expenseManager = new PersistentExpenseManager(this);
+        /***  Start opening the persistent storage off the main thread, the fragments pick it up from the registry  ***/
+        ExpenseManagerRegistry.obtain(this, new AsyncExpenseManager.Callback<ExpenseManager>() {
+            @Override
+            public void onResult(ExpenseManager result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Unable to open the expense manager", e);
+            }
+        });
         /*** END ***/
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        if (!BuildConfig.DEBUG)
+            return false;
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_metrics) {
+            // the metrics screen only exists in the debug builds
+            startActivity(new Intent().setClassName(this, METRICS_ACTIVITY));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     /**
      * A {@link FragmentPagerAdapter} that returns a fragment corresponding to
      * one of the sections/tabs/pages.
@@ -85,13 +121,13 @@ public class MainActivity extends AppCompatActivity {
             // Return the respective fragment.
             switch (position) {
                 case 0:
-                    return ManageExpensesFragment.newInstance(expenseManager);
+                    return ManageExpensesFragment.newInstance();
                 case 1:
-                    return AddAccountFragment.newInstance(expenseManager);
+                    return AddAccountFragment.newInstance();
                 case 2:
-                    return ExpenseLogsFragment.newInstance(expenseManager);
+                    return ExpenseLogsFragment.newInstance();
                 default:
-                    return ManageExpensesFragment.newInstance(expenseManager);
+                    return ManageExpensesFragment.newInstance();
             }
         }
 
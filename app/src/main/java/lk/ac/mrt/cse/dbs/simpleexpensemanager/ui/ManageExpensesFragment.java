@@ -31,29 +31,38 @@ import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.Spinner;
 
+import java.util.List;
+
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.R;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.AsyncExpenseManager;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManager;
-import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManagerRegistry;
 import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
-
-import static lk.ac.mrt.cse.dbs.simpleexpensemanager.Constants.EXPENSE_MANAGER;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
 /**
  *
  */
 public class ManageExpensesFragment extends Fragment implements View.OnClickListener {
+    // the periods of R.array.repeat_options, null for a single transaction
+    private static final RecurringRule.Period[] REPEAT_PERIODS = {
+            null, RecurringRule.Period.DAY, RecurringRule.Period.WEEK, RecurringRule.Period.MONTH};
+
     private Button submitButton;
     private EditText amount;
     private Spinner accountSelector;
+    private Spinner transferAccountSelector;
+    private Spinner repeatSelector;
     private RadioGroup expenseTypeGroup;
     private DatePicker datePicker;
     private ExpenseManager currentExpenseManager;
+    private AsyncExpenseManager asyncExpenseManager;
 
-    public static ManageExpensesFragment newInstance(ExpenseManager expenseManager) {
-        ManageExpensesFragment manageExpensesFragment = new ManageExpensesFragment();
-        Bundle args = new Bundle();
-        args.putSerializable(EXPENSE_MANAGER, expenseManager);
-        manageExpensesFragment.setArguments(args);
-        return manageExpensesFragment;
+    public static ManageExpensesFragment newInstance() {
+        // the expense manager is looked up from the registry, it is not passed in the arguments so that saving the
+        // fragment state does not serialize the ledger
+        return new ManageExpensesFragment();
     }
 
     public ManageExpensesFragment() {
@@ -67,22 +76,52 @@ public class ManageExpensesFragment extends Fragment implements View.OnClickList
 
         amount = (EditText) rootView.findViewById(R.id.amount);
         accountSelector = (Spinner) rootView.findViewById(R.id.account_selector);
-        currentExpenseManager = (ExpenseManager) getArguments().get(EXPENSE_MANAGER);
-        ArrayAdapter<String> adapter =
-                null;
-        if (currentExpenseManager != null) {
-            adapter = new ArrayAdapter<>(this.getActivity(), R.layout.support_simple_spinner_dropdown_item,
-                    currentExpenseManager.getAccountNumbersList());
-        }
-        accountSelector.setAdapter(adapter);
+        transferAccountSelector = (Spinner) rootView.findViewById(R.id.transfer_account_selector);
+        repeatSelector = (Spinner) rootView.findViewById(R.id.repeat_selector);
+        ExpenseManagerRegistry.obtain(getActivity(), new AsyncExpenseManager.Callback<ExpenseManager>() {
+            @Override
+            public void onResult(ExpenseManager result) {
+                currentExpenseManager = result;
+                asyncExpenseManager = new AsyncExpenseManager(result);
+                loadAccountNumbers();
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
 
         expenseTypeGroup = (RadioGroup) rootView.findViewById(R.id.expense_type_group);
         RadioButton expenseType = (RadioButton) rootView.findViewById(R.id.expense);
         RadioButton incomeType = (RadioButton) rootView.findViewById(R.id.income);
+        expenseTypeGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(RadioGroup group, int checkedId) {
+                transferAccountSelector.setEnabled(checkedId == R.id.transfer);
+            }
+        });
         datePicker = (DatePicker) rootView.findViewById(R.id.date_selector);
         return rootView;
     }
 
+    private void loadAccountNumbers() {
+        asyncExpenseManager.getAccountNumbersList(new AsyncExpenseManager.Callback<List<String>>() {
+            @Override
+            public void onResult(List<String> accountNumbers) {
+                if (isAdded()) {
+                    accountSelector.setAdapter(new ArrayAdapter<>(getActivity(),
+                            R.layout.support_simple_spinner_dropdown_item, accountNumbers));
+                    transferAccountSelector.setAdapter(new ArrayAdapter<>(getActivity(),
+                            R.layout.support_simple_spinner_dropdown_item, accountNumbers));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
+    }
+
     @Override
     public void onClick(View view) {
         switch (view.getId()) {
@@ -92,6 +131,7 @@ public class ManageExpensesFragment extends Fragment implements View.OnClickList
                 RadioButton checkedType = (RadioButton) getActivity().findViewById(expenseTypeGroup
                         .getCheckedRadioButtonId());
                 String type = (String) checkedType.getText();
+                ExpenseType expenseType = ExpenseType.valueOf(type.toUpperCase());
 
                 int day = datePicker.getDayOfMonth();
                 int month = datePicker.getMonth();
@@ -101,25 +141,76 @@ public class ManageExpensesFragment extends Fragment implements View.OnClickList
                     amount.setError(getActivity().getString(R.string.err_amount_required));
                 }
 
-                if (currentExpenseManager != null) {
-                    try {
-                        currentExpenseManager.updateAccountBalance(selectedAccount, day, month, year,
-                                ExpenseType.valueOf(type.toUpperCase()), amountStr);
-                    } catch (InvalidAccountException e) {
-                        new AlertDialog.Builder(this.getActivity())
-                                .setTitle(this.getString(R.string.msg_account_update_unable) + selectedAccount)
-                                .setMessage(e.getMessage())
-                                .setNeutralButton(this.getString(R.string.msg_ok),
-                                        new DialogInterface.OnClickListener() {
-                                    @Override
-                                    public void onClick(DialogInterface dialog, int which) {
-                                        dialog.cancel();
-                                    }
-                                }).setIcon(android.R.drawable.ic_dialog_alert).show();
+                final String account = selectedAccount;
+                AsyncExpenseManager.Callback<Void> showError = new AsyncExpenseManager.Callback<Void>() {
+                    @Override
+                    public void onResult(Void result) {
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (isAdded()) {
+                            showUpdateError(account, e);
+                        }
                     }
+                };
+
+                RecurringRule.Period period = REPEAT_PERIODS[repeatSelector.getSelectedItemPosition()];
+                if (asyncExpenseManager != null && period != null) {
+                    if (!amountStr.isEmpty() && selectedAccount != null) {
+                        addRecurringRule(selectedAccount, expenseType, amountStr, period,
+                                EpochDays.of(year, month + 1, day));
+                    }
+                } else if (asyncExpenseManager != null && expenseType == ExpenseType.TRANSFER) {
+                    String targetAccount = (String) transferAccountSelector.getSelectedItem();
+                    if (!amountStr.isEmpty() && selectedAccount != null && targetAccount != null) {
+                        asyncExpenseManager.transfer(selectedAccount, targetAccount, day, month, year, amountStr,
+                                showError);
+                    }
+                } else if (asyncExpenseManager != null) {
+                    asyncExpenseManager.updateAccountBalance(selectedAccount, day, month, year, expenseType, amountStr,
+                            showError);
                 }
                 amount.getText().clear();
                 break;
         }
     }
+
+    private void addRecurringRule(final String account, ExpenseType expenseType, String amountStr,
+                                  RecurringRule.Period period, long startDay) {
+        RecurringRule rule;
+        try {
+            rule = new RecurringRule(0, expenseType + " " + account, account, expenseType, Money.parse(amountStr),
+                    period, 1, startDay, RecurringRule.NEVER, 0);
+        } catch (IllegalArgumentException e) {
+            showUpdateError(account, e);
+            return;
+        }
+        // the occurrences already due, including the first one when it is today or earlier, are posted right away
+        asyncExpenseManager.addRecurringRule(rule, new AsyncExpenseManager.Callback<Integer>() {
+            @Override
+            public void onResult(Integer posted) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isAdded()) {
+                    showUpdateError(account, e);
+                }
+            }
+        });
+    }
+
+    private void showUpdateError(String selectedAccount, Exception e) {
+        new AlertDialog.Builder(this.getActivity())
+                .setTitle(this.getString(R.string.msg_account_update_unable) + selectedAccount)
+                .setMessage(e.getMessage())
+                .setNeutralButton(this.getString(R.string.msg_ok),
+                        new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        dialog.cancel();
+                    }
+                }).setIcon(android.R.drawable.ic_dialog_alert).show();
+    }
 }
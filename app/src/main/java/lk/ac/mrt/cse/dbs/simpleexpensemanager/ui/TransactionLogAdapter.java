@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.ui;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.R;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
+/**
+ * Adapter of the transaction logs list. Pages of transactions are appended as the user scrolls, while the row
+ * views are recycled by the RecyclerView.
+ */
+public class TransactionLogAdapter extends RecyclerView.Adapter<TransactionLogAdapter.ViewHolder> {
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final DateFormat dateFormat;
+
+    public TransactionLogAdapter(DateFormat dateFormat) {
+        this.dateFormat = dateFormat;
+        setHasStableIds(true);
+    }
+
+    /***
+     * Append the next page of transactions to the list.
+     *
+     * @param page
+     */
+    public void appendPage(List<Transaction> page) {
+        int start = transactions.size();
+        transactions.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    /***
+     * Remove every transaction, e.g. before showing the results of another search.
+     */
+    public void clear() {
+        transactions.clear();
+        notifyDataSetChanged();
+    }
+
+    /***
+     * Get the cursor of the next page of a search.
+     *
+     * @return - the last transaction shown, or null if there is none
+     */
+    public Transaction getLast() {
+        return transactions.isEmpty() ? null : transactions.get(transactions.size() - 1);
+    }
+
+    /***
+     * Get the keyset cursor of the next page to be loaded.
+     *
+     * @return - id of the last transaction shown
+     */
+    public long getLastId() {
+        if (transactions.isEmpty()) {
+            return TransactionDAO.FIRST_PAGE;
+        }
+        return transactions.get(transactions.size() - 1).getId();
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_transaction_log, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Transaction transaction = transactions.get(position);
+        holder.date.setText(dateFormat.format(transaction.getDate()));
+        holder.accountNo.setText(transaction.getAccountNo());
+        holder.expenseType.setText(transaction.getExpenseType().toString());
+        holder.amount.setText(Money.format(transaction.getAmountCents()));
+    }
+
+    @Override
+    public int getItemCount() {
+        return transactions.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return transactions.get(position).getId();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        private final TextView date;
+        private final TextView accountNo;
+        private final TextView expenseType;
+        private final TextView amount;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            date = (TextView) itemView.findViewById(R.id.log_date);
+            accountNo = (TextView) itemView.findViewById(R.id.log_account);
+            expenseType = (TextView) itemView.findViewById(R.id.log_type);
+            amount = (TextView) itemView.findViewById(R.id.log_amount);
+        }
+    }
+}
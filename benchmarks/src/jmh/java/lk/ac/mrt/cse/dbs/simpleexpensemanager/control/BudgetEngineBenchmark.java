@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Budget;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Budget evaluation of one posted expense, with thousands of account budgets and a few ledger wide ones, once the
+ * spending of the month is known. The store is not written, only the engine is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BudgetEngineBenchmark {
+    private static final int ACCOUNTS = 1000;
+    private static final int LEDGER_BUDGETS = 4;
+
+    @Param({"0", "1000", "10000"})
+    public int budgets;
+
+    private BudgetEngine engine;
+    private List<List<Transaction>> postings;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new BudgetEngine(new InMemoryLedgerStore().getMonthlyTotalDAO());
+        for (int i = 0; i < budgets; i++) {
+            // limits high enough that the alerts are never raised, the listeners are not part of the measure
+            engine.addBudget(new Budget("budget" + i, i < LEDGER_BUDGETS ? null : "ACC" + (i % ACCOUNTS),
+                    Long.MAX_VALUE / 2, 80));
+        }
+        Date today = new Date();
+        postings = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            List<Transaction> posting = Collections.singletonList(new Transaction(today, "ACC" + i, ExpenseType.EXPENSE, 1));
+            postings.add(posting);
+            engine.posted(posting, engine.prepare(posting));
+        }
+    }
+
+    @Benchmark
+    public int[] post() {
+        List<Transaction> posting = postings.get(next++ % ACCOUNTS);
+        int[] yearMonths = engine.prepare(posting);
+        engine.posted(posting, yearMonths);
+        return yearMonths;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Catching up on standing orders after six months without a run: weekly and monthly rules, about 15 occurrences
+ * each, posted in batches of RecurringScheduler.MAX_OCCURRENCES. Every invocation starts from a new ledger.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class RecurringSchedulerBenchmark {
+    private static final int ACCOUNTS = 10;
+    private static final long START = EpochDays.of(2019, 1, 1);
+    private static final long TODAY = EpochDays.plusMonths(START, 6);
+
+    @Param({"file", "heap"})
+    public String storage;
+
+    @Param({"100", "1000"})
+    public int rules;
+
+    private File databaseFile;
+    private LedgerExpenseManager expenseManager;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException, InvalidAccountException {
+        LedgerStore store;
+        if ("heap".equals(storage)) {
+            store = new InMemoryLedgerStore();
+        } else {
+            databaseFile = File.createTempFile("expense-recurring", ".db");
+            databaseFile.delete();
+            store = new JdbcLedgerStore("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        }
+        expenseManager = new LedgerExpenseManager(store, true);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            expenseManager.addAccount("ACC" + i, "Bank", "Holder", 1000000000L);
+        }
+        for (int i = 0; i < rules; i++) {
+            expenseManager.addRecurringRule(new RecurringRule(0, "rule" + i, "ACC" + (i % ACCOUNTS),
+                    i % 4 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 100 + i,
+                    i % 2 == 0 ? RecurringRule.Period.WEEK : RecurringRule.Period.MONTH, 1, START + i % 28,
+                    RecurringRule.NEVER, 0));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        expenseManager.close();
+        if (databaseFile != null) {
+            for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+                new File(databaseFile.getPath() + suffix).delete();
+            }
+        }
+    }
+
+    @Benchmark
+    public int catchUp() {
+        return new RecurringScheduler(expenseManager).catchUp(TODAY);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Cost of posting through updateAccountBalance, one transaction per commit, of a transfer, two legs in one commit,
+ * and of a batch of postings in one commit, on an in-memory and on a file backed SQLite database, and on the in memory
+ * store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpdateAccountBalanceBenchmark {
+    private static final int ACCOUNTS = 10;
+
+    @Param({"memory", "file", "heap"})
+    public String storage;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private File databaseFile;
+    private LedgerExpenseManager expenseManager;
+    private List<Transaction> batch;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LedgerStore store;
+        if ("heap".equals(storage)) {
+            store = new InMemoryLedgerStore();
+        } else if ("file".equals(storage)) {
+            databaseFile = File.createTempFile("expense-bench", ".db");
+            databaseFile.delete();
+            store = new JdbcLedgerStore("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        } else {
+            store = new JdbcLedgerStore("jdbc:sqlite::memory:");
+        }
+        expenseManager = new LedgerExpenseManager(store, true);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            expenseManager.addAccount("ACC" + i, "Bank", "Holder", 1000000000L);
+        }
+
+        batch = new ArrayList<>(batchSize);
+        Date date = new Date();
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new Transaction(date, "ACC" + (i % ACCOUNTS),
+                    i % 2 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 1000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expenseManager.close();
+        if (databaseFile != null) {
+            databaseFile.delete();
+        }
+    }
+
+    @Benchmark
+    public void updateAccountBalance() throws InvalidAccountException {
+        int i = next++;
+        // incomes and expenses alternate, so the balances never run out
+        expenseManager.updateAccountBalance("ACC" + (i % ACCOUNTS), 1 + i % 28, i % 12, 2019,
+                (i / ACCOUNTS) % 2 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, "12.50");
+    }
+
+    @Benchmark
+    public void transfer() throws InvalidAccountException {
+        int i = next++;
+        // each account sends to the next one, every balance goes round in a circle
+        expenseManager.transfer("ACC" + (i % ACCOUNTS), "ACC" + ((i + 1) % ACCOUNTS), 1 + i % 28, i % 12, 2019,
+                "12.50");
+    }
+
+    @Benchmark
+    public void updateAccountBalances() throws InvalidAccountException {
+        expenseManager.updateAccountBalances(batch);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Date parsing and formatting as done by the importer, the exporter and the transaction list, each next to the
+ * SimpleDateFormat code it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateBenchmark {
+    private DateFormat isoFormat;
+    private Date date;
+    private long epochDay;
+    private StringBuilder builder;
+
+    @Setup
+    public void setUp() {
+        isoFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        date = EpochDays.toDate(EpochDays.of(2019, 4, 28));
+        epochDay = EpochDays.fromDate(date);
+        builder = new StringBuilder(10);
+    }
+
+    @Benchmark
+    public Date parseIso() throws StatementFormatException {
+        return StatementDates.parse("2019-04-28");
+    }
+
+    @Benchmark
+    public Date parseDayFirst() throws StatementFormatException {
+        return StatementDates.parse("28-04-2019");
+    }
+
+    @Benchmark
+    public Date parseOfx() throws StatementFormatException {
+        return StatementDates.parse("20190428120000[+5.30:IST]");
+    }
+
+    @Benchmark
+    public Date parseSimpleDateFormat() throws ParseException {
+        return isoFormat.parse("2019-04-28");
+    }
+
+    @Benchmark
+    public StringBuilder formatEpochDay() {
+        builder.setLength(0);
+        EpochDays.appendIsoDate(epochDay, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public String formatSimpleDateFormat() {
+        return isoFormat.format(date);
+    }
+
+    @Benchmark
+    public long epochDayFromDate() {
+        return EpochDays.fromDate(date);
+    }
+
+    @Benchmark
+    public Date dateFromEpochDay() {
+        return EpochDays.toDate(epochDay);
+    }
+
+    @Benchmark
+    public Date calendarFromFields() {
+        // the date handling of ExpenseManager.updateAccountBalance
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2019, 3, 28);
+        return calendar.getTime();
+    }
+}
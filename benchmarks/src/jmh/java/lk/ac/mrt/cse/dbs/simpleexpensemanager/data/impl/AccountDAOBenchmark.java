@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * Lookups and balance updates on the in memory account store, uncontended and from four threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountDAOBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int accounts;
+
+    private PersistentAccountDAO accountDAO;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountDAO = new PersistentAccountDAO();
+        accountNumbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountNumbers[i] = "ACC" + i;
+            accountDAO.addAccount(new Account(accountNumbers[i], "Bank", "Holder", 0));
+        }
+    }
+
+    private String randomAccount() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+
+    @Benchmark
+    public Account getAccount() throws InvalidAccountException {
+        return accountDAO.getAccount(randomAccount());
+    }
+
+    @Benchmark
+    public void updateBalance() throws InvalidAccountException {
+        accountDAO.updateBalance(randomAccount(), ExpenseType.INCOME, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateBalanceFourThreads() throws InvalidAccountException {
+        accountDAO.updateBalance(randomAccount(), ExpenseType.INCOME, 1);
+    }
+
+    @Benchmark
+    public List<String> getAccountNumbersList() {
+        return accountDAO.getAccountNumbersList();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * The balance of an account on a past day, from the checkpoints of a file backed database and of the in memory store,
+ * against replaying the log as it had to be done before. Also the cost of the checkpoints on the write path: a posting
+ * dated today touches one checkpoint, a posting dated ten years back moves the closing balance of every later month.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BalanceCheckpointBenchmark {
+    private static final int ACCOUNTS = 100;
+    private static final int BATCH_SIZE = 10000;
+    // 2000-01-01, the seeded rows cover twenty years from there in date order
+    private static final int FIRST_DAY = 10957;
+    private static final int DAYS = 7300;
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private File databaseFile;
+    private JdbcLedgerStore jdbcStore;
+    private InMemoryLedgerStore heapStore;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InvalidAccountException {
+        databaseFile = File.createTempFile("expense-checkpoint", ".db");
+        databaseFile.delete();
+        jdbcStore = new JdbcLedgerStore("jdbc:sqlite:" + databaseFile.getAbsolutePath(), SQLiteProfile.BULK);
+        heapStore = new InMemoryLedgerStore();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account(accountNo(i), "Bank", "Holder", 0);
+            jdbcStore.addAccount(account);
+            heapStore.addAccount(account);
+        }
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Transaction(EpochDays.toDate(FIRST_DAY + (long) i * DAYS / rows), accountNo(i),
+                    ExpenseType.INCOME, 100 + i % 1000));
+            if (batch.size() == BATCH_SIZE || i == rows - 1) {
+                jdbcStore.post(batch);
+                heapStore.post(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcStore.close();
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(databaseFile.getPath() + suffix).delete();
+        }
+    }
+
+    private static String accountNo(int i) {
+        return String.format("ACC%03d", i % ACCOUNTS);
+    }
+
+    private long nextDay() {
+        // spread over the twenty years, a different account and day on every call
+        int i = next++;
+        return FIRST_DAY + (i * 7919L) % DAYS;
+    }
+
+    @Benchmark
+    public long jdbcBalance() throws InvalidAccountException {
+        int i = next;
+        return jdbcStore.getBalanceCheckpointDAO().getBalance(accountNo(i), nextDay());
+    }
+
+    @Benchmark
+    public long heapBalance() throws InvalidAccountException {
+        int i = next;
+        return heapStore.getBalanceCheckpointDAO().getBalance(accountNo(i), nextDay());
+    }
+
+    @Benchmark
+    public long heapReplay() {
+        int i = next;
+        String accountNo = accountNo(i);
+        long day = nextDay();
+        long balance = 0;
+        for (Transaction transaction : heapStore.getTransactionDAO().getAllTransactionLogs()) {
+            if (transaction.getAccountNo().equals(accountNo) && EpochDays.fromDate(transaction.getDate()) <= day)
+                balance += transaction.getExpenseType() == ExpenseType.INCOME
+                        ? transaction.getAmountCents() : -transaction.getAmountCents();
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public void jdbcPostToday() throws InvalidAccountException {
+        jdbcStore.post(Arrays.asList(new Transaction(EpochDays.toDate(FIRST_DAY + DAYS), accountNo(next++),
+                ExpenseType.INCOME, 100)));
+    }
+
+    @Benchmark
+    public void jdbcPostTenYearsBack() throws InvalidAccountException {
+        Date date = EpochDays.toDate(FIRST_DAY + DAYS / 2);
+        jdbcStore.post(Arrays.asList(new Transaction(date, accountNo(next++), ExpenseType.INCOME, 100)));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Sustained write throughput, in postings per second, of the journal store against the JDBC store on an SQLite file
+ * under the legacy and the default profile, and under the write-ahead log with a sync at every commit ("wal-full"),
+ * the same durability as the journal. Every posting is a commit of its own, from one thread and from four. The
+ * journal compacts itself in the background while it runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JournalLedgerStoreBenchmark {
+    private static final int ACCOUNTS = 100;
+
+    @Param({"journal", "legacy", "default", "wal-full"})
+    public String store;
+
+    private File directory;
+    private LedgerStore ledgerStore;
+    private final AtomicLong next = new AtomicLong();
+    private Date today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = File.createTempFile("expense-journal", "");
+        directory.delete();
+        directory.mkdirs();
+        if ("journal".equals(store)) {
+            ledgerStore = new JournalLedgerStore(directory);
+        } else {
+            SQLiteProfile profile = "wal-full".equals(store)
+                    ? new SQLiteProfile("wal-full", true, SQLiteProfile.SYNCHRONOUS_FULL, 8192, 32L << 20, 50, false)
+                    : SQLiteProfile.named(store);
+            ledgerStore = new JdbcLedgerStore("jdbc:sqlite:" + new File(directory, "ledger.db").getAbsolutePath(),
+                    profile);
+        }
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ledgerStore.addAccount(new Account("ACC" + i, "Bank", "Holder", 1000000000L));
+        }
+        today = new Date();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ledgerStore.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private void postOne() throws InvalidAccountException {
+        long i = next.getAndIncrement();
+        // incomes and expenses alternate, so the balances never run out
+        ledgerStore.post(Collections.singletonList(new Transaction(today, "ACC" + (i % ACCOUNTS),
+                (i / ACCOUNTS) % 2 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 1250)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void post() throws InvalidAccountException {
+        postOne();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void postFromFourThreads() throws InvalidAccountException {
+        postOne();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Latency of a single posting (one commit), of a keyset page query, and of both at once with one writer and two
+ * readers, on a file backed database under each SQLiteProfile. Sampled, so the report has percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SQLiteProfileBenchmark {
+    private static final int ACCOUNTS = 10;
+    private static final int SEED_ROWS = 100000;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"legacy", "default", "bulk"})
+    public String profile;
+
+    private File databaseFile;
+    private JdbcLedgerStore store;
+    private final AtomicLong next = new AtomicLong();
+    private Date today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InvalidAccountException {
+        databaseFile = File.createTempFile("expense-profile", ".db");
+        deleteDatabase();
+        store = new JdbcLedgerStore("jdbc:sqlite:" + databaseFile.getAbsolutePath(), SQLiteProfile.named(profile));
+        for (int i = 0; i < ACCOUNTS; i++) {
+            store.addAccount(new Account("ACC" + i, "Bank", "Holder", 1000000000L));
+        }
+        List<Transaction> seed = new ArrayList<>(SEED_ROWS);
+        today = new Date();
+        for (int i = 0; i < SEED_ROWS; i++) {
+            seed.add(new Transaction(today, "ACC" + (i % ACCOUNTS), ExpenseType.INCOME, 100 + i % 1000));
+        }
+        store.post(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        deleteDatabase();
+    }
+
+    private void deleteDatabase() {
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(databaseFile.getPath() + suffix).delete();
+        }
+    }
+
+    private void postOne() throws InvalidAccountException {
+        long i = next.getAndIncrement();
+        // incomes and expenses alternate, so the balances never run out
+        store.post(Collections.singletonList(new Transaction(today, "ACC" + (i % ACCOUNTS),
+                (i / ACCOUNTS) % 2 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 1250)));
+    }
+
+    private List<Transaction> queryPage() {
+        return store.getTransactionDAO().getTransactionLogsBefore(TransactionDAO.FIRST_PAGE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void post() throws InvalidAccountException {
+        postOne();
+    }
+
+    @Benchmark
+    public List<Transaction> query() {
+        return queryPage();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedPost() throws InvalidAccountException {
+        postOne();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public List<Transaction> mixedQuery() {
+        return queryPage();
+    }
+}
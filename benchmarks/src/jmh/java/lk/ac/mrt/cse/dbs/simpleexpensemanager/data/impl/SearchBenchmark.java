@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Account search and the first two pages of a transaction search, over the FTS4 index of a file backed database and
+ * over the in memory index, on a ledger of a thousand accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+    private static final int ACCOUNTS = 1000;
+    private static final int PAGE_SIZE = 50;
+    private static final int BATCH_SIZE = 10000;
+    // 2000-01-01, the seeded rows cover about twenty years from there
+    private static final int FIRST_DAY = 10957;
+    private static final String[] BANKS = {"Bank of Ceylon", "Sampath Bank", "Hatton National Bank", "Peoples Bank"};
+    private static final String[] FIRST_NAMES = {"Kasun", "Kamal", "Nimal", "Sunil", "Amara", "Dilini", "Ruwan"};
+    private static final String[] LAST_NAMES = {"Perera", "Silva", "Fernando", "Jayasuriya", "Bandara"};
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private File databaseFile;
+    private JdbcLedgerStore jdbcStore;
+    private InMemoryLedgerStore heapStore;
+    private Transaction firstPageEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InvalidAccountException {
+        databaseFile = File.createTempFile("expense-search", ".db");
+        databaseFile.delete();
+        jdbcStore = new JdbcLedgerStore("jdbc:sqlite:" + databaseFile.getAbsolutePath(), SQLiteProfile.BULK);
+        heapStore = new InMemoryLedgerStore();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account(String.format("%03d-%04d", i % 7, i), BANKS[i % BANKS.length],
+                    FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[i % LAST_NAMES.length], 0);
+            jdbcStore.addAccount(account);
+            heapStore.addAccount(account);
+        }
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Transaction(EpochDays.toDate(FIRST_DAY + i % 7300), String.format("%03d-%04d", i % 7, i % ACCOUNTS),
+                    ExpenseType.INCOME, 100 + i % 100000));
+            if (batch.size() == BATCH_SIZE || i == rows - 1) {
+                jdbcStore.post(batch);
+                heapStore.post(batch);
+                batch.clear();
+            }
+        }
+        List<Transaction> firstPage = jdbcStore.getSearchDAO().searchTransactions("kasun perera", null, PAGE_SIZE);
+        firstPageEnd = firstPage.get(firstPage.size() - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcStore.close();
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(databaseFile.getPath() + suffix).delete();
+        }
+    }
+
+    @Benchmark
+    public List<Account> jdbcAccounts() {
+        return jdbcStore.getSearchDAO().searchAccounts("ceyl ka", PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> jdbcFirstPage() {
+        return jdbcStore.getSearchDAO().searchTransactions("kasun perera", null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> jdbcNextPage() {
+        return jdbcStore.getSearchDAO().searchTransactions("kasun perera", firstPageEnd, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Account> heapAccounts() {
+        return heapStore.getSearchDAO().searchAccounts("ceyl ka", PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> heapFirstPage() {
+        // the in memory log has no account index, every matching account is a scan of the whole log
+        return heapStore.getSearchDAO().searchTransactions("kasun perera", null, PAGE_SIZE);
+    }
+}
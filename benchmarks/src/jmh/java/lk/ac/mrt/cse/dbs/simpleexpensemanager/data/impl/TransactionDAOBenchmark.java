@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Appends, keyset pages, the tail page and a one month account statement on the in memory transaction log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionDAOBenchmark {
+    private static final int ACCOUNTS = 10;
+    private static final int PAGE_SIZE = 50;
+    // 2000-01-01, the seeded rows cover about twenty years from there
+    private static final int FIRST_DAY = 10957;
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private PersistentTransactionDAO transactionDAO;
+    private PersistentTransactionDAO appendDAO;
+    private Date monthStart;
+    private Date monthEnd;
+    private Date today;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionDAO = new PersistentTransactionDAO();
+        for (int i = 0; i < rows; i++) {
+            transactionDAO.logTransaction(FIRST_DAY + i % 7300, "ACC" + (i % ACCOUNTS),
+                    i % 3 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE, 100 + i % 100000);
+        }
+        monthStart = EpochDays.toDate(EpochDays.of(2005, 6, 1));
+        monthEnd = EpochDays.toDate(EpochDays.of(2005, 6, 30));
+        today = new Date();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetAppends() {
+        appendDAO = new PersistentTransactionDAO();
+    }
+
+    @Benchmark
+    public void logTransaction() {
+        appendDAO.logTransaction(today, "ACC1", ExpenseType.EXPENSE, 1234);
+    }
+
+    @Benchmark
+    public List<Transaction> firstPage() {
+        return transactionDAO.getTransactionLogsBefore(TransactionDAO.FIRST_PAGE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> middlePage() {
+        return transactionDAO.getTransactionLogsBefore(rows / 2, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void tailPage(Blackhole blackhole) {
+        for (Transaction transaction : transactionDAO.getPaginatedTransactionLogs(10)) {
+            blackhole.consume(transaction);
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> accountMonth() {
+        return transactionDAO.getAccountTransactionLogs("ACC3", monthStart, monthEnd);
+    }
+}
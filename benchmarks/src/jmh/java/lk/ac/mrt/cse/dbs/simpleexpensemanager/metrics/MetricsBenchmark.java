@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+
+/**
+ * Overhead of the instrumentation: a bare start and stop of a timer, and a call to an instrumented operation of the
+ * ledger, with the metrics disabled and enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    private static final Timer TIMER = Metrics.timer("bench.timer");
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private LedgerExpenseManager expenseManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics.setEnabled(enabled);
+        expenseManager = new LedgerExpenseManager(new InMemoryLedgerStore(), true);
+        for (int i = 0; i < 100; i++) {
+            expenseManager.addAccount("ACC" + i, "Bank", "Holder", 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expenseManager.close();
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Benchmark
+    public long timer() {
+        long start = TIMER.start();
+        TIMER.stop(start);
+        return start;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long timerContended() {
+        long start = TIMER.start();
+        TIMER.stop(start);
+        return start;
+    }
+
+    @Benchmark
+    public int accountNumbers() {
+        return expenseManager.getAccountNumbersList().size();
+    }
+}
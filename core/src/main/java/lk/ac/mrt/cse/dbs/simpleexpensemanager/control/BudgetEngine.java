@@ -0,0 +1,269 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.MonthlyTotalDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Budget;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BudgetAlert;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.MonthlyTotal;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Counter;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+
+/**
+ * Keeps the monthly spending of every budget in memory and raises an alert when a posted expense takes it past
+ * the warning level or the limit of the budget.
+ * <p/>
+ * The spending of a budget in a month is read once from the {@link MonthlyTotalDAO}, the first time an expense of
+ * that month is posted to it, and then kept up to date as the expenses are posted. A posting costs one map lookup
+ * plus one addition per budget of its account and per ledger wide budget, whatever the number of other budgets and
+ * the size of the transaction history. The legs of a transfer between accounts are not spending, they are left out
+ * like they are left out of the monthly totals.
+ * <p/>
+ * The budgets are changed through {@link LedgerExpenseManager}, under the same lock as the postings, so that a
+ * month is never read from the store while an expense of that month is being written.
+ */
+public class BudgetEngine {
+    private static final Counter ALERT_COUNTER = Metrics.counter("ledger.budget.alerts");
+
+    private final MonthlyTotalDAO monthlyTotalDAO;
+    private final Map<String, Tracker> budgets = new LinkedHashMap<>();
+    private final Map<String, List<Tracker>> accountBudgets = new HashMap<>();
+    private final List<Tracker> ledgerBudgets = new ArrayList<>();
+    private final List<BudgetListener> listeners = new CopyOnWriteArrayList<>();
+
+    /***
+     * @param monthlyTotalDAO - the totals the spending of a month is read from the first time it is needed
+     */
+    public BudgetEngine(MonthlyTotalDAO monthlyTotalDAO) {
+        this.monthlyTotalDAO = monthlyTotalDAO;
+    }
+
+    public void addListener(BudgetListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BudgetListener listener) {
+        listeners.remove(listener);
+    }
+
+    /***
+     * Add a budget, replacing the budget of the same name if there is one.
+     *
+     * @param budget
+     */
+    synchronized void addBudget(Budget budget) {
+        removeBudget(budget.getName());
+        Tracker tracker = new Tracker(budget);
+        budgets.put(budget.getName(), tracker);
+        if (budget.getAccountNo() == null) {
+            ledgerBudgets.add(tracker);
+        } else {
+            List<Tracker> trackers = accountBudgets.get(budget.getAccountNo());
+            if (trackers == null) {
+                trackers = new ArrayList<>(1);
+                accountBudgets.put(budget.getAccountNo(), trackers);
+            }
+            trackers.add(tracker);
+        }
+    }
+
+    /***
+     * @param name
+     * @return - false if there is no budget of that name
+     */
+    synchronized boolean removeBudget(String name) {
+        Tracker tracker = budgets.remove(name);
+        if (tracker == null)
+            return false;
+        String accountNo = tracker.budget.getAccountNo();
+        if (accountNo == null) {
+            ledgerBudgets.remove(tracker);
+        } else {
+            List<Tracker> trackers = accountBudgets.get(accountNo);
+            trackers.remove(tracker);
+            if (trackers.isEmpty())
+                accountBudgets.remove(accountNo);
+        }
+        return true;
+    }
+
+    /***
+     * Get the budgets, in the order they were added.
+     *
+     * @return
+     */
+    public synchronized List<Budget> getBudgets() {
+        List<Budget> list = new ArrayList<>(budgets.size());
+        for (Tracker tracker : budgets.values()) {
+            list.add(tracker.budget);
+        }
+        return list;
+    }
+
+    /***
+     * Get the spending of a budget in a month.
+     *
+     * @param name      - name of the budget
+     * @param yearMonth - the month as yyyyMM
+     * @return - the sum of the expenses, in cents, or -1 if there is no budget of that name
+     */
+    public synchronized long getSpent(String name, int yearMonth) {
+        Tracker tracker = budgets.get(name);
+        return tracker == null ? -1 : tracker.monthOrLoad(yearMonth)[0];
+    }
+
+    /***
+     * Read the spending of the months the given transactions will be posted to, for the budgets that do not know it
+     * yet. Must be called before the transactions are written to the store.
+     *
+     * @param transactions
+     * @return - the month of each transaction, or null when there is no budget
+     */
+    synchronized int[] prepare(List<Transaction> transactions) {
+        if (budgets.isEmpty())
+            return null;
+        int[] yearMonths = new int[transactions.size()];
+        for (int i = 0; i < yearMonths.length; i++) {
+            Transaction transaction = transactions.get(i);
+            if (!isSpending(transaction))
+                continue;
+            yearMonths[i] = EpochDays.yearMonth(EpochDays.fromDate(transaction.getDate()));
+            List<Tracker> trackers = accountBudgets.get(transaction.getAccountNo());
+            if (trackers != null) {
+                for (Tracker tracker : trackers) {
+                    tracker.monthOrLoad(yearMonths[i]);
+                }
+            }
+            for (Tracker tracker : ledgerBudgets) {
+                tracker.monthOrLoad(yearMonths[i]);
+            }
+        }
+        return yearMonths;
+    }
+
+    /***
+     * Add the given transactions, once committed, to the spending of their budgets and notify the listeners of the
+     * alerts.
+     *
+     * @param transactions
+     * @param yearMonths   - as returned by prepare
+     */
+    void posted(List<Transaction> transactions, int[] yearMonths) {
+        if (yearMonths == null)
+            return;
+        List<BudgetAlert> alerts = null;
+        synchronized (this) {
+            for (int i = 0; i < yearMonths.length; i++) {
+                Transaction transaction = transactions.get(i);
+                if (!isSpending(transaction))
+                    continue;
+                List<Tracker> trackers = accountBudgets.get(transaction.getAccountNo());
+                if (trackers != null) {
+                    for (Tracker tracker : trackers) {
+                        alerts = tracker.spend(yearMonths[i], transaction, alerts);
+                    }
+                }
+                for (Tracker tracker : ledgerBudgets) {
+                    alerts = tracker.spend(yearMonths[i], transaction, alerts);
+                }
+            }
+        }
+        if (alerts == null)
+            return;
+        ALERT_COUNTER.add(alerts.size());
+        for (BudgetAlert alert : alerts) {
+            for (BudgetListener listener : listeners) {
+                listener.onBudgetAlert(alert);
+            }
+        }
+    }
+
+    /**
+     * The spending of one budget per month. The month of the last posting is kept aside, most postings are for the
+     * current month and skip the map.
+     */
+    private final class Tracker {
+        private final Budget budget;
+        private final long warningCents;
+        private final Map<Integer, long[]> months = new HashMap<>();
+        private int lastYearMonth;
+        private long[] lastMonth;
+
+        Tracker(Budget budget) {
+            this.budget = budget;
+            this.warningCents = budget.getWarningCents();
+        }
+
+        long[] monthOrLoad(int yearMonth) {
+            if (lastMonth != null && lastYearMonth == yearMonth)
+                return lastMonth;
+            long[] month = months.get(yearMonth);
+            if (month == null) {
+                month = new long[]{loadSpent(budget.getAccountNo(), yearMonth)};
+                months.put(yearMonth, month);
+            }
+            lastYearMonth = yearMonth;
+            lastMonth = month;
+            return month;
+        }
+
+        List<BudgetAlert> spend(int yearMonth, Transaction transaction, List<BudgetAlert> alerts) {
+            long[] month = monthOrLoad(yearMonth);
+            long before = month[0];
+            long after = before + transaction.getAmountCents();
+            month[0] = after;
+
+            BudgetAlert.Level level;
+            if (before <= budget.getLimitCents() && after > budget.getLimitCents()) {
+                level = BudgetAlert.Level.EXCEEDED;
+            } else if (before < warningCents && after >= warningCents) {
+                level = BudgetAlert.Level.WARNING;
+            } else {
+                return alerts;
+            }
+            if (alerts == null)
+                alerts = new ArrayList<>(1);
+            alerts.add(new BudgetAlert(budget, yearMonth, level, after, transaction));
+            return alerts;
+        }
+    }
+
+    private static boolean isSpending(Transaction transaction) {
+        return transaction.getExpenseType() == ExpenseType.EXPENSE && !transaction.isTransfer();
+    }
+
+    private long loadSpent(String accountNo, int yearMonth) {
+        if (accountNo == null)
+            return monthlyTotalDAO.getTotal(ExpenseType.EXPENSE, yearMonth, yearMonth);
+        long spent = 0;
+        for (MonthlyTotal total : monthlyTotalDAO.getMonthlyTotals(accountNo, yearMonth, yearMonth)) {
+            if (total.getExpenseType() == ExpenseType.EXPENSE)
+                spent += total.getTotal();
+        }
+        return spent;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.ExpenseManagerException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.AccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
+/**
+ * The ExpenseManager acts as the mediator when performing transactions. This is an abstract class with an abstract
+ * method to setup the DAO objects depending on the implementation.
+ * <p/>
+ * It does not depend on the Android framework, the storage is provided by the implementation, see
+ * {@link LedgerExpenseManager}.
+ */
+public abstract class ExpenseManager {
+    private AccountDAO accountsHolder;
+    private TransactionDAO transactionsHolder;
+
+    /***
+     * Get list of account numbers as String.
+     *
+     * @return
+     */
+    public List<String> getAccountNumbersList() {
+        return accountsHolder.getAccountNumbersList();
+    }
+
+    /***
+     * Update the account balance. A TRANSFER needs a target account, see
+     * {@link #transfer(String, String, int, int, int, String)}.
+     *
+     * @param accountNo
+     * @param day
+     * @param month
+     * @param year
+     * @param expenseType
+     * @param amount
+     * @throws InvalidAccountException
+     */
+    public void updateAccountBalance(String accountNo, int day, int month, int year, ExpenseType expenseType,
+                                     String amount) throws InvalidAccountException {
+        if (expenseType == ExpenseType.TRANSFER)
+            throw new IllegalArgumentException("A transfer needs a target account");
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(year, month, day);
+        Date transactionDate = calendar.getTime();
+
+        if (!amount.isEmpty()) {
+            long amountVal = Money.parse(amount);
+            checkAmount(amountVal);
+            transactionsHolder.logTransaction(transactionDate, accountNo, expenseType, amountVal);
+            accountsHolder.updateBalance(accountNo, expenseType, amountVal);
+        }
+    }
+
+    /***
+     * Move money from one account to another. The transfer is posted as an EXPENSE on the source account and an
+     * INCOME on the target account, with the same date and amount.
+     *
+     * @param fromAccountNo
+     * @param toAccountNo
+     * @param day
+     * @param month
+     * @param year
+     * @param amount
+     * @throws InvalidAccountException - if one of the accounts is invalid, or the amount exceeds the balance of the
+     *                                 source account
+     */
+    public void transfer(String fromAccountNo, String toAccountNo, int day, int month, int year, String amount)
+            throws InvalidAccountException {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(year, month, day);
+        Date transactionDate = calendar.getTime();
+
+        if (!amount.isEmpty()) {
+            transfer(transactionDate, fromAccountNo, toAccountNo, Money.parse(amount));
+        }
+    }
+
+    /***
+     * Move money from one account to another.
+     *
+     * @param date
+     * @param fromAccountNo
+     * @param toAccountNo
+     * @param amount        - in cents, positive
+     * @throws InvalidAccountException
+     */
+    public void transfer(Date date, String fromAccountNo, String toAccountNo, long amount)
+            throws InvalidAccountException {
+        checkTransfer(fromAccountNo, toAccountNo, amount);
+        transactionsHolder.logTransaction(date, fromAccountNo, ExpenseType.EXPENSE, amount);
+        transactionsHolder.logTransaction(date, toAccountNo, ExpenseType.INCOME, amount);
+        accountsHolder.transferBalance(fromAccountNo, toAccountNo, amount);
+    }
+
+    /***
+     * Check the accounts and the amount of a transfer before anything is written.
+     *
+     * @param fromAccountNo
+     * @param toAccountNo
+     * @param amount
+     * @throws InvalidAccountException - if one of the accounts is invalid
+     */
+    protected void checkTransfer(String fromAccountNo, String toAccountNo, long amount)
+            throws InvalidAccountException {
+        if (fromAccountNo.equals(toAccountNo))
+            throw new IllegalArgumentException("Cannot transfer from account " + fromAccountNo + " to itself");
+        if (amount <= 0)
+            throw new IllegalArgumentException("A transfer needs a positive amount");
+        // an income for an unknown account would be logged without crediting anything
+        accountsHolder.getAccount(fromAccountNo);
+        accountsHolder.getAccount(toAccountNo);
+    }
+
+    /***
+     * Check the amount of a transaction before anything is written. The type tells an expense from an income, a
+     * negative expense would credit its account past the balance check.
+     *
+     * @param amount - in cents
+     */
+    protected static void checkAmount(long amount) {
+        if (amount <= 0)
+            throw new IllegalArgumentException("A transaction needs a positive amount");
+    }
+
+    /***
+     * Update the account balances for many transactions at once.
+     *
+     * @param transactions - the transactions to be posted, in order
+     * @throws InvalidAccountException
+     */
+    public void updateAccountBalances(List<Transaction> transactions) throws InvalidAccountException {
+        for (Transaction transaction : transactions) {
+            checkAmount(transaction.getAmountCents());
+        }
+        for (Transaction transaction : transactions) {
+            transactionsHolder.logTransaction(transaction.getDate(), transaction.getAccountNo(),
+                    transaction.getExpenseType(), transaction.getAmountCents());
+            accountsHolder.updateBalance(transaction.getAccountNo(), transaction.getExpenseType(),
+                    transaction.getAmountCents());
+        }
+    }
+
+    /***
+     * Get a list of transaction logs.
+     *
+     * @return
+     */
+    public List<Transaction> getTransactionLogs() {
+        return transactionsHolder.getPaginatedTransactionLogs(10);
+    }
+
+    /***
+     * Get the page of transaction logs that precedes the given transaction, newest first.
+     *
+     * @param beforeId - id of the last transaction of the previous page, or TransactionDAO.FIRST_PAGE
+     * @param limit
+     * @return
+     */
+    public List<Transaction> getTransactionLogs(long beforeId, int limit) {
+        return transactionsHolder.getTransactionLogsBefore(beforeId, limit);
+    }
+
+    /***
+     * Add account to the accounts dao.
+     *
+     * @param accountNo
+     * @param bankName
+     * @param accountHolderName
+     * @param initialBalance - in cents
+     */
+    public void addAccount(String accountNo, String bankName, String accountHolderName, long initialBalance) {
+        Account account = new Account(accountNo, bankName, accountHolderName, initialBalance);
+        accountsHolder.addAccount(account);
+    }
+
+    /***
+     * Get access to the AccountDAO concrete implementation.
+     *
+     * @return
+     */
+    public AccountDAO getAccountsDAO() {
+        return accountsHolder;
+    }
+
+    /***
+     * Set the concrete AccountDAO implementation.
+     *
+     * @param accountDAO
+     */
+    public void setAccountsDAO(AccountDAO accountDAO) {
+        this.accountsHolder = accountDAO;
+    }
+
+    /***
+     * Get access to the TransactionDAO concrete implementation.
+     *
+     * @return
+     */
+    public TransactionDAO getTransactionsDAO() {
+        return transactionsHolder;
+    }
+
+    /***
+     * Set the concrete TransactionDAO implementation.
+     *
+     * @param transactionDAO
+     */
+    public void setTransactionsDAO(TransactionDAO transactionDAO) {
+        this.transactionsHolder = transactionDAO;
+    }
+
+    /***
+     * Release the storage held by this expense manager. Does nothing by default.
+     */
+    public void close() {
+    }
+
+    /***
+     * This method should be implemented by the concrete implementation of this class. It will dictate how the DAO
+     * objects will be initialized.
+     */
+    public abstract void setup() throws ExpenseManagerException;
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.BalanceCheckpointDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.MonthlyTotalDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.RecurringRuleDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.CachedAccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.PersistentAccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.PersistentTransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Budget;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Counter;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * ExpenseManager over a {@link LedgerStore}. The accounts are loaded into memory at startup, or read through a
+ * bounded {@link CachedAccountDAO} for large account sets, and every posting is written to the store first, then
+ * applied to the balances in memory.
+ * <p/>
+ * The same engine runs on Android with an SQLite store and on a plain JVM with the JDBC or the in memory store.
+ * <p/>
+ * A transfer is a batch of two legs, so the debit and the credit are committed together or not at all.
+ * <p/>
+ * Every posting also goes through a {@link BudgetEngine}, which raises the alerts of the budgets added here.
+ * <p/>
+ * The public operations are timed under the "ledger." names of {@link Metrics}.
+ */
+public class LedgerExpenseManager extends ExpenseManager {
+    /***
+     * Account cache size that loads every account at startup.
+     */
+    public static final int ALL_ACCOUNTS = 0;
+
+    private static final Timer SETUP_TIMER = Metrics.timer("ledger.setup");
+    private static final Timer POST_TIMER = Metrics.timer("ledger.post");
+    private static final Timer TRANSFER_TIMER = Metrics.timer("ledger.transfer");
+    private static final Timer ADD_ACCOUNT_TIMER = Metrics.timer("ledger.addAccount");
+    private static final Timer ACCOUNT_NUMBERS_TIMER = Metrics.timer("ledger.accountNumbers");
+    private static final Timer TRANSACTION_PAGE_TIMER = Metrics.timer("ledger.transactionPage");
+    private static final Counter POSTED_COUNTER = Metrics.counter("ledger.transactions.posted");
+    private static final Counter REJECTED_COUNTER = Metrics.counter("ledger.transactions.rejected");
+
+    private final LedgerStore store;
+    private final boolean lazyLoading;
+    private final int accountCacheSize;
+    private final BudgetEngine budgetEngine;
+
+    /***
+     * @param store
+     * @param lazyLoading - when true only the accounts are loaded at startup and transactions are read from the
+     *                    store on demand, otherwise the whole transaction log is copied into memory.
+     */
+    public LedgerExpenseManager(LedgerStore store, boolean lazyLoading) {
+        this(store, lazyLoading, ALL_ACCOUNTS);
+    }
+
+    /***
+     * @param store
+     * @param lazyLoading
+     * @param accountCacheSize - the number of accounts kept in memory, or ALL_ACCOUNTS to load them all at startup
+     */
+    public LedgerExpenseManager(LedgerStore store, boolean lazyLoading, int accountCacheSize) {
+        this.store = store;
+        this.lazyLoading = lazyLoading;
+        this.accountCacheSize = accountCacheSize;
+        this.budgetEngine = new BudgetEngine(store.getMonthlyTotalDAO());
+        setup();
+    }
+
+    public LedgerStore getStore() {
+        return store;
+    }
+
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    public int getAccountCacheSize() {
+        return accountCacheSize;
+    }
+
+    /***
+     * Get access to the per account, month and expense type totals.
+     *
+     * @return
+     */
+    public MonthlyTotalDAO getMonthlyTotalDAO() {
+        return store.getMonthlyTotalDAO();
+    }
+
+    /***
+     * Get access to the search over the accounts and their transactions.
+     *
+     * @return
+     */
+    public SearchDAO getSearchDAO() {
+        return store.getSearchDAO();
+    }
+
+    /***
+     * Get the balances of the accounts on past days, read from the balance checkpoints of the store.
+     *
+     * @return
+     */
+    public BalanceCheckpointDAO getBalanceCheckpointDAO() {
+        return store.getBalanceCheckpointDAO();
+    }
+
+    /***
+     * Get access to the standing orders. Their occurrences are posted by a {@link RecurringScheduler}.
+     *
+     * @return
+     */
+    public RecurringRuleDAO getRecurringRuleDAO() {
+        return store.getRecurringRuleDAO();
+    }
+
+    /***
+     * Store a new standing order.
+     *
+     * @param rule
+     * @return - the rule with the id given by the store
+     * @throws InvalidAccountException - if the account of the rule does not exist
+     */
+    public RecurringRule addRecurringRule(RecurringRule rule) throws InvalidAccountException {
+        // the occurrences are posted in the background, an income for an unknown account would be logged silently
+        getAccountsDAO().getAccount(rule.getAccountNo());
+        return store.getRecurringRuleDAO().addRule(rule);
+    }
+
+    /***
+     * Get the budgets and register for their alerts.
+     *
+     * @return
+     */
+    public BudgetEngine getBudgetEngine() {
+        return budgetEngine;
+    }
+
+    /***
+     * Add a monthly budget, replacing the budget of the same name if there is one. Budgets are kept in memory only.
+     *
+     * @param budget
+     */
+    public synchronized void addBudget(Budget budget) {
+        budgetEngine.addBudget(budget);
+    }
+
+    /***
+     * @param name
+     * @return - false if there is no budget of that name
+     */
+    public synchronized boolean removeBudget(String name) {
+        return budgetEngine.removeBudget(name);
+    }
+
+    @Override
+    public void setup() {
+        long start = SETUP_TIMER.start();
+        try {
+            loadDAOs();
+        } finally {
+            SETUP_TIMER.stop(start);
+        }
+    }
+
+    private void loadDAOs() {
+        if (accountCacheSize == ALL_ACCOUNTS) {
+            PersistentAccountDAO persistentAccountDAO = new PersistentAccountDAO();
+            for (Account account : store.loadAccounts()) {
+                persistentAccountDAO.addAccount(account);
+            }
+            setAccountsDAO(persistentAccountDAO);
+        } else {
+            setAccountsDAO(new CachedAccountDAO(store, accountCacheSize));
+        }
+
+        if (lazyLoading) {
+            setTransactionsDAO(store.getTransactionDAO());
+        } else {
+            PersistentTransactionDAO persistentTransactionDAO = new PersistentTransactionDAO();
+            store.loadTransactions(persistentTransactionDAO);
+            setTransactionsDAO(persistentTransactionDAO);
+        }
+    }
+
+    @Override
+    public void updateAccountBalance(String accountNo, int day, int month, int year, ExpenseType expenseType,
+                                     String amount) throws InvalidAccountException {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(year, month, day);
+        Date transactionDate = calendar.getTime();
+
+        if (!amount.isEmpty()) {
+            long amountVal = Money.parse(amount);
+            updateAccountBalances(Collections.singletonList(
+                    new Transaction(transactionDate, accountNo, expenseType, amountVal)));
+        }
+    }
+
+    /***
+     * Post all the given transactions in a single store transaction. Either every entry is written, or none is
+     * when one of the expenses exceeds the balance of its account.
+     *
+     * @param transactions
+     * @throws InvalidAccountException
+     * @throws IllegalArgumentException - if an amount is not positive, nothing is written
+     */
+    @Override
+    public synchronized void updateAccountBalances(List<Transaction> transactions) throws InvalidAccountException {
+        for (Transaction transaction : transactions) {
+            checkAmount(transaction.getAmountCents());
+        }
+        post(transactions, null, null);
+    }
+
+    /***
+     * Post occurrences of standing orders like {@link #updateAccountBalances(List)}, counting them in their rules in
+     * the same store transaction, see {@link LedgerStore#postRecurring(List, List, List)}.
+     *
+     * @param transactions
+     * @param rules         - the rules as they were read
+     * @param advancedRules - the same rules with the occurrences counted
+     * @return - false, and nothing is posted, if one of the rules changed since it was read
+     * @throws InvalidAccountException
+     */
+    public synchronized boolean postRecurring(List<Transaction> transactions, List<RecurringRule> rules,
+                                              List<RecurringRule> advancedRules) throws InvalidAccountException {
+        return post(transactions, rules, advancedRules);
+    }
+
+    /***
+     * Move money between two accounts in a single store transaction: the expense on the source account and the
+     * income on the target account are both written, or neither is when the amount exceeds the source balance.
+     *
+     * @param date
+     * @param fromAccountNo
+     * @param toAccountNo
+     * @param amount        - in cents, positive
+     * @throws InvalidAccountException
+     */
+    @Override
+    public synchronized void transfer(Date date, String fromAccountNo, String toAccountNo, long amount)
+            throws InvalidAccountException {
+        long start = TRANSFER_TIMER.start();
+        try {
+            checkTransfer(fromAccountNo, toAccountNo, amount);
+            // the debit goes first, so the store rejects an overdraft before it writes the credit. The legs are
+            // flagged so that the money moved is not counted as spending or earning
+            List<Transaction> legs = Arrays.asList(
+                    new Transaction(0, date, fromAccountNo, ExpenseType.EXPENSE, amount, true),
+                    new Transaction(0, date, toAccountNo, ExpenseType.INCOME, amount, true));
+            write(legs, null, null);
+            getAccountsDAO().transferBalance(fromAccountNo, toAccountNo, amount);
+        } finally {
+            TRANSFER_TIMER.stop(start);
+        }
+    }
+
+    private boolean post(List<Transaction> transactions, List<RecurringRule> rules,
+                         List<RecurringRule> advancedRules) throws InvalidAccountException {
+        if (!write(transactions, rules, advancedRules))
+            return false;
+        for (Transaction transaction : transactions) {
+            getAccountsDAO().updateBalance(transaction.getAccountNo(), transaction.getExpenseType(),
+                    transaction.getAmountCents());
+        }
+        return true;
+    }
+
+    /***
+     * Write the transactions to the store and log them, leaving the balances in memory to the caller.
+     */
+    private boolean write(List<Transaction> transactions, List<RecurringRule> rules,
+                          List<RecurringRule> advancedRules) throws InvalidAccountException {
+        long start = POST_TIMER.start();
+        int[] yearMonths;
+        try {
+            yearMonths = budgetEngine.prepare(transactions);
+            if (rules == null) {
+                store.post(transactions);
+            } else if (!store.postRecurring(transactions, rules, advancedRules)) {
+                return false;
+            }
+        } catch (InvalidAccountException e) {
+            REJECTED_COUNTER.add(transactions.size());
+            throw e;
+        } finally {
+            POST_TIMER.stop(start);
+        }
+        POSTED_COUNTER.add(transactions.size());
+        budgetEngine.posted(transactions, yearMonths);
+
+        for (Transaction transaction : transactions) {
+            // the lazy transaction DAO reads the rows written above straight from the store
+            if (!lazyLoading)
+                ((PersistentTransactionDAO) getTransactionsDAO()).logTransaction(
+                        EpochDays.fromDate(transaction.getDate()), transaction.getAccountNo(),
+                        transaction.getExpenseType(), transaction.getAmountCents(), transaction.isTransfer());
+        }
+        return true;
+    }
+
+    @Override
+    public void addAccount(String accountNo, String bankName, String accountHolderName, long initialBalance) {
+        long start = ADD_ACCOUNT_TIMER.start();
+        try {
+            Account account = new Account(accountNo, bankName, accountHolderName, initialBalance);
+            store.addAccount(account);
+            getAccountsDAO().addAccount(account);
+        } finally {
+            ADD_ACCOUNT_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public List<String> getAccountNumbersList() {
+        long start = ACCOUNT_NUMBERS_TIMER.start();
+        try {
+            return super.getAccountNumbersList();
+        } finally {
+            ACCOUNT_NUMBERS_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionLogs() {
+        long start = TRANSACTION_PAGE_TIMER.start();
+        try {
+            return super.getTransactionLogs();
+        } finally {
+            TRANSACTION_PAGE_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionLogs(long beforeId, int limit) {
+        long start = TRANSACTION_PAGE_TIMER.start();
+        try {
+            return super.getTransactionLogs(beforeId, limit);
+        } finally {
+            TRANSACTION_PAGE_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        store.close();
+    }
+}
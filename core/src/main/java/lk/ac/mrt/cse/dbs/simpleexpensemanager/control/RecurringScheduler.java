@@ -0,0 +1,226 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.RecurringRuleDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * Posts the occurrences of the standing orders that have fallen due. A run reads the due rules from the index on
+ * their next occurrence, derives every occurrence up to the given day from the rule alone, and posts them all, in
+ * date order, as one batch that also counts them in the rules. Catching up after months without a run costs one
+ * batch per {@link #MAX_OCCURRENCES} occurrences, and the rules that are not due are never read.
+ * <p/>
+ * Runs are idempotent: the rules are only advanced if nobody advanced them since they were read, so two runs racing
+ * over the same rules post each occurrence once, and a run repeated on the same day posts nothing.
+ * <p/>
+ * When an expense of the batch exceeds the balance of its account, each rule is posted on its own instead and the
+ * rules that still fail are left due. They are the most overdue rules, so a catch up reads past the ones that failed
+ * in its earlier runs: the rules behind them still post in one batch, and the failed ones are retried by the next
+ * catch up.
+ */
+public class RecurringScheduler {
+    /***
+     * The most occurrences posted by a single run.
+     */
+    public static final int MAX_OCCURRENCES = 1000;
+
+    private static final int MAX_RULES = 500;
+    private static final Timer RUN_TIMER = Metrics.timer("ledger.recurring.run");
+
+    private static final Comparator<Transaction> BY_DATE = new Comparator<Transaction>() {
+        @Override
+        public int compare(Transaction lhs, Transaction rhs) {
+            return lhs.getDate().compareTo(rhs.getDate());
+        }
+    };
+
+    /**
+     * The outcome of a run.
+     */
+    public static final class Run {
+        private final int posted;
+        private final List<RecurringRule> failedRules;
+        private final boolean more;
+
+        Run(int posted, List<RecurringRule> failedRules, boolean more) {
+            this.posted = posted;
+            this.failedRules = failedRules;
+            this.more = more;
+        }
+
+        /***
+         * @return - the number of occurrences posted
+         */
+        public int getPosted() {
+            return posted;
+        }
+
+        /***
+         * @return - the rules whose occurrences were rejected because an expense exceeded the balance
+         */
+        public List<RecurringRule> getFailedRules() {
+            return failedRules;
+        }
+
+        /***
+         * @return - true when occurrences were left for another run, because of the size of a run or a race
+         */
+        public boolean hasMore() {
+            return more;
+        }
+    }
+
+    private final LedgerExpenseManager expenseManager;
+
+    public RecurringScheduler(LedgerExpenseManager expenseManager) {
+        this.expenseManager = expenseManager;
+    }
+
+    /***
+     * Post the occurrences due today.
+     *
+     * @return - the number of occurrences posted
+     */
+    public int catchUp() {
+        return catchUp(EpochDays.fromDate(new Date()));
+    }
+
+    /***
+     * Run until every occurrence due on or before a day is posted, or a run posts nothing.
+     *
+     * @param epochDay - the day, usually today
+     * @return - the number of occurrences posted
+     */
+    public int catchUp(long epochDay) {
+        int posted = 0;
+        Set<Long> failedRuleIds = new HashSet<>();
+        Run run;
+        do {
+            run = run(epochDay, failedRuleIds);
+            posted += run.getPosted();
+            for (RecurringRule rule : run.getFailedRules()) {
+                failedRuleIds.add(rule.getId());
+            }
+            // a run that only found failing rules is followed by one that skips them
+        } while (run.hasMore() && (run.getPosted() > 0 || !run.getFailedRules().isEmpty()));
+        return posted;
+    }
+
+    /***
+     * Post, as one batch, at most MAX_OCCURRENCES of the occurrences due on or before a day.
+     *
+     * @param epochDay - the day, usually today
+     * @return
+     */
+    public Run run(long epochDay) {
+        return run(epochDay, Collections.<Long>emptySet());
+    }
+
+    private Run run(long epochDay, Set<Long> skippedRuleIds) {
+        long start = RUN_TIMER.start();
+        try {
+            RecurringRuleDAO recurringRuleDAO = expenseManager.getRecurringRuleDAO();
+            // the skipped rules are still due and come first, read past them
+            int limit = MAX_RULES + skippedRuleIds.size();
+            List<RecurringRule> read = recurringRuleDAO.getDueRules(epochDay, limit);
+            List<RecurringRule> due = new ArrayList<>(Math.min(read.size(), MAX_RULES));
+            for (RecurringRule rule : read) {
+                if (due.size() < MAX_RULES && !skippedRuleIds.contains(rule.getId()))
+                    due.add(rule);
+            }
+            if (due.isEmpty())
+                return new Run(0, Collections.<RecurringRule>emptyList(), false);
+
+            List<Transaction> transactions = new ArrayList<>();
+            List<RecurringRule> rules = new ArrayList<>(due.size());
+            List<RecurringRule> advancedRules = new ArrayList<>(due.size());
+            boolean truncated = false;
+            for (RecurringRule rule : due) {
+                int occurrences = addOccurrences(rule, epochDay, MAX_OCCURRENCES - transactions.size(), transactions);
+                if (occurrences == 0) {
+                    truncated = true;
+                    break;
+                }
+                rules.add(rule);
+                advancedRules.add(rule.advance(occurrences));
+            }
+            truncated |= read.size() == limit || due.size() == MAX_RULES || transactions.size() == MAX_OCCURRENCES;
+            Collections.sort(transactions, BY_DATE);
+
+            try {
+                if (!expenseManager.postRecurring(transactions, rules, advancedRules))
+                    return new Run(0, Collections.<RecurringRule>emptyList(), true);
+                return new Run(transactions.size(), Collections.<RecurringRule>emptyList(), truncated);
+            } catch (InvalidAccountException e) {
+                return runEach(rules, epochDay, truncated);
+            }
+        } finally {
+            RUN_TIMER.stop(start);
+        }
+    }
+
+    /***
+     * Post the occurrences of each rule in a batch of its own, leaving the rules that fail due.
+     */
+    private Run runEach(List<RecurringRule> rules, long epochDay, boolean truncated) {
+        int posted = 0;
+        List<RecurringRule> failedRules = new ArrayList<>();
+        for (RecurringRule rule : rules) {
+            List<Transaction> transactions = new ArrayList<>();
+            int occurrences = addOccurrences(rule, epochDay, MAX_OCCURRENCES, transactions);
+            try {
+                if (expenseManager.postRecurring(transactions, Collections.singletonList(rule),
+                        Collections.singletonList(rule.advance(occurrences))))
+                    posted += occurrences;
+            } catch (InvalidAccountException e) {
+                failedRules.add(rule);
+            }
+        }
+        // a rule may have more than MAX_OCCURRENCES due, another run finds out
+        return new Run(posted, failedRules, truncated || posted > 0);
+    }
+
+    /***
+     * Add the due occurrences of a rule, from the first one not posted yet.
+     *
+     * @return - the number of occurrences added
+     */
+    private static int addOccurrences(RecurringRule rule, long epochDay, int limit, List<Transaction> transactions) {
+        int occurrences = 0;
+        long day;
+        while (occurrences < limit && (day = rule.occurrenceDay(rule.getPosted() + occurrences)) <= epochDay) {
+            transactions.add(new Transaction(EpochDays.toDate(day), rule.getAccountNo(), rule.getExpenseType(),
+                    rule.getAmountCents()));
+            occurrences++;
+        }
+        return occurrences;
+    }
+}
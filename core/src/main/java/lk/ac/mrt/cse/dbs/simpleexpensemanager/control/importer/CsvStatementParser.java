@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
+/**
+ * Reads a CSV statement line by line. Every record has the columns
+ * <pre>date,accountNo,expenseType,amount</pre>
+ * where the date is "yyyy-MM-dd" or "dd-MM-yyyy" and the expense type is EXPENSE or INCOME. When the expense type is
+ * left empty it is taken from the sign of the amount, negative for an expense. An amount with an expense type is
+ * unsigned, or negative for an EXPENSE; a negative INCOME would turn a refund into earnings and is rejected, like a
+ * TRANSFER, which is not a single row. An optional fifth column, true or false, tells the legs of a transfer apart,
+ * as the LedgerExporter writes them. Fields may be quoted with double quotes. A first line that starts with "date" is
+ * treated as a header and skipped.
+ */
+public class CsvStatementParser implements StatementParser {
+    private static final int COLUMNS = 4;
+    private static final int COLUMNS_WITH_TRANSFER = 5;
+
+    private final BufferedReader reader;
+    private final List<String> fields = new ArrayList<>(COLUMNS);
+    private final StringBuilder field = new StringBuilder();
+    private int lineNo;
+
+    public CsvStatementParser(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public Transaction next() throws IOException, StatementFormatException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null)
+                return null;
+            lineNo++;
+        } while (line.trim().isEmpty()
+                || (lineNo == 1 && line.toLowerCase(Locale.US).startsWith("date")));
+
+        split(line);
+        if (fields.size() != COLUMNS && fields.size() != COLUMNS_WITH_TRANSFER)
+            throw new StatementFormatException("Line " + lineNo + ": expected " + COLUMNS + " or " + COLUMNS_WITH_TRANSFER
+                    + " columns but found "
+                    + fields.size());
+
+        try {
+            long amount = Money.parse(fields.get(3));
+            String type = fields.get(2);
+            ExpenseType expenseType;
+            if (type.isEmpty()) {
+                expenseType = amount < 0 ? ExpenseType.EXPENSE : ExpenseType.INCOME;
+            } else {
+                expenseType = ExpenseType.valueOf(type.toUpperCase(Locale.US));
+                if (expenseType == ExpenseType.TRANSFER)
+                    throw new StatementFormatException("A transfer is imported as its two legs");
+                if (expenseType == ExpenseType.INCOME && amount < 0)
+                    throw new StatementFormatException("Negative amount " + fields.get(3) + " for an INCOME");
+            }
+            Transaction transaction = new Transaction(StatementDates.parse(fields.get(0)), fields.get(1), expenseType,
+                    Math.abs(amount));
+            if (fields.size() == COLUMNS_WITH_TRANSFER)
+                transaction.setTransfer(parseTransfer(fields.get(4)));
+            return transaction;
+        } catch (IllegalArgumentException e) {
+            throw new StatementFormatException("Line " + lineNo + ": " + e.getMessage(), e);
+        } catch (StatementFormatException e) {
+            throw new StatementFormatException("Line " + lineNo + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean parseTransfer(String value) throws StatementFormatException {
+        if (value.isEmpty() || value.equalsIgnoreCase("false"))
+            return false;
+        if (value.equalsIgnoreCase("true"))
+            return true;
+        throw new StatementFormatException("Invalid transfer flag " + value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void split(String line) {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+    }
+}
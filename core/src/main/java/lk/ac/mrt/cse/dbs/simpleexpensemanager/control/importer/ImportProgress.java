@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+/**
+ * This POJO holds a snapshot of the progress of a statement import.
+ */
+public class ImportProgress {
+    private final long rowsRead;
+    private final long rowsImported;
+    private final long rowsRejected;
+    private final long elapsedNanos;
+
+    public ImportProgress(long rowsRead, long rowsImported, long rowsRejected, long elapsedNanos) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rowsRejected = rowsRejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /***
+     * Get the number of rows read per second so far.
+     *
+     * @return
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "read=" + rowsRead + " imported=" + rowsImported + " rejected=" + rowsRejected
+                + " rows/s=" + Math.round(getRowsPerSecond());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
+/**
+ * Reads the STMTTRN records of an OFX statement with a small streaming tag scanner, both the SGML (OFX 1.x) and
+ * the XML (OFX 2.x) flavours. The account number is taken from the ACCTID of the enclosing statement, the expense
+ * type from the sign of TRNAMT. A STMTTRN cut short, by the next STMTTRN or by the end of the stream, is reported as
+ * malformed and the parser goes on with what follows.
+ */
+public class OfxStatementParser implements StatementParser {
+    private final Reader reader;
+    private final StringBuilder tag = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private int pending = -1;
+
+    private String accountNo;
+    private String datePosted;
+    private String amount;
+    private boolean inTransaction;
+
+    public OfxStatementParser(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public Transaction next() throws IOException, StatementFormatException {
+        while (readTag()) {
+            String name = tag.toString();
+            if (name.equals("STMTTRN")) {
+                boolean unterminated = inTransaction;
+                inTransaction = true;
+                datePosted = null;
+                amount = null;
+                if (unterminated)
+                    throw new StatementFormatException("Unterminated STMTTRN record");
+            } else if (name.equals("/STMTTRN")) {
+                inTransaction = false;
+                return toTransaction();
+            } else if (name.charAt(0) != '/') {
+                readText();
+                if (name.equals("ACCTID")) {
+                    accountNo = text.toString();
+                } else if (inTransaction && name.equals("DTPOSTED")) {
+                    datePosted = text.toString();
+                } else if (inTransaction && name.equals("TRNAMT")) {
+                    amount = text.toString();
+                }
+            }
+        }
+        if (inTransaction) {
+            inTransaction = false;
+            throw new StatementFormatException("Truncated STMTTRN record");
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Transaction toTransaction() throws StatementFormatException {
+        if (accountNo == null || datePosted == null || amount == null)
+            throw new StatementFormatException("Incomplete STMTTRN record");
+        Date date = StatementDates.parse(datePosted);
+        long value;
+        try {
+            value = Money.parse(amount);
+        } catch (NumberFormatException e) {
+            throw new StatementFormatException("Invalid TRNAMT " + amount, e);
+        }
+        ExpenseType expenseType = value < 0 ? ExpenseType.EXPENSE : ExpenseType.INCOME;
+        return new Transaction(date, accountNo, expenseType, Math.abs(value));
+    }
+
+    /***
+     * Advance to the next tag and leave its upper-cased name in <code>tag</code>.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean readTag() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            // skip the headers and any text outside the elements we are interested in
+        }
+        if (c == -1)
+            return false;
+        tag.setLength(0);
+        while ((c = read()) != -1 && c != '>') {
+            tag.append(Character.toUpperCase((char) c));
+        }
+        return c != -1 && tag.length() > 0;
+    }
+
+    /***
+     * Read the value following an opening tag into <code>text</code>, up to the next tag.
+     */
+    private void readText() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            text.append((char) c);
+        }
+        pending = c;
+        // trim in place, SGML values run up to the line break
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1)))
+            end--;
+        text.setLength(end);
+        int start = 0;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start)))
+            start++;
+        text.delete(0, start);
+    }
+
+    private int read() throws IOException {
+        if (pending != -1) {
+            int c = pending;
+            pending = -1;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import java.util.Date;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Allocation free parsing of the date layouts found in bank statements, used instead of a SimpleDateFormat per row.
+ */
+final class StatementDates {
+
+    private StatementDates() {
+    }
+
+    /***
+     * Parse "yyyy-MM-dd", "dd-MM-yyyy" (the layout used by the application) or the "yyyyMMdd" prefix of an OFX
+     * date time.
+     *
+     * @param value
+     * @return
+     * @throws StatementFormatException
+     */
+    static Date parse(CharSequence value) throws StatementFormatException {
+        int year, month, day;
+        if (value.length() == 10 && value.charAt(4) == '-') {
+            year = digits(value, 0, 4);
+            month = digits(value, 5, 7);
+            day = digits(value, 8, 10);
+        } else if (value.length() == 10 && value.charAt(2) == '-') {
+            day = digits(value, 0, 2);
+            month = digits(value, 3, 5);
+            year = digits(value, 6, 10);
+        } else if (value.length() >= 8) {
+            year = digits(value, 0, 4);
+            month = digits(value, 4, 6);
+            day = digits(value, 6, 8);
+        } else {
+            throw new StatementFormatException("Unsupported date " + value);
+        }
+        // EpochDays.of would roll the 31st of April over to the 1st of May
+        if (month < 1 || month > 12 || day < 1 || day > EpochDays.lengthOfMonth(year, month))
+            throw new StatementFormatException("Invalid date " + value);
+        return EpochDays.toDate(EpochDays.of(year, month, day));
+    }
+
+    private static int digits(CharSequence value, int start, int end) throws StatementFormatException {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                throw new StatementFormatException("Invalid date " + value);
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
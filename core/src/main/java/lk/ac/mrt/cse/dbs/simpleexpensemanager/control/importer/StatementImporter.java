@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.ExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * The StatementImporter streams the transactions of a bank statement into the expense manager. Rows are validated
+ * against the AccountDAO and posted in batches through {@link ExpenseManager#updateAccountBalances(List)}, so only
+ * one batch is held in memory whatever the size of the statement.
+ * <p/>
+ * The rejected rows are reported to the {@link ImportListener} with the reason, for the caller to log.
+ */
+public class StatementImporter {
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+
+    /**
+     * Receives the progress of an import after every batch, and every rejected row, on the importing thread.
+     */
+    public interface ImportListener {
+        public void onProgress(ImportProgress progress);
+
+        public void onRejected(String reason);
+    }
+
+    private final ExpenseManager expenseManager;
+    private final int batchSize;
+
+    public StatementImporter(ExpenseManager expenseManager) {
+        this(expenseManager, DEFAULT_BATCH_SIZE);
+    }
+
+    public StatementImporter(ExpenseManager expenseManager, int batchSize) {
+        this.expenseManager = expenseManager;
+        this.batchSize = batchSize;
+    }
+
+    /***
+     * Import every transaction of the statement. Malformed rows, rows of unknown accounts, zero amounts and expenses
+     * larger than the balance are rejected and counted, the rest of the statement is still imported.
+     *
+     * @param parser   - the statement, it is closed when the import ends
+     * @param listener - notified after every batch and of every rejected row, may be null
+     * @return - the final progress of the import
+     * @throws IOException
+     */
+    public ImportProgress importStatement(StatementParser parser, ImportListener listener) throws IOException {
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        long start = System.nanoTime();
+        long read = 0;
+        long imported = 0;
+        long rejected = 0;
+
+        try {
+            while (true) {
+                Transaction transaction;
+                try {
+                    transaction = parser.next();
+                } catch (StatementFormatException e) {
+                    reject(listener, e.getMessage());
+                    read++;
+                    rejected++;
+                    continue;
+                }
+                if (transaction == null)
+                    break;
+                read++;
+
+                try {
+                    expenseManager.getAccountsDAO().getAccount(transaction.getAccountNo());
+                } catch (InvalidAccountException e) {
+                    reject(listener, e.getMessage());
+                    rejected++;
+                    continue;
+                }
+                if (transaction.getAmountCents() <= 0) {
+                    // the expense manager refuses a batch holding it without naming the row, unlike an overdraft
+                    reject(listener, "Zero amount for account " + transaction.getAccountNo());
+                    rejected++;
+                    continue;
+                }
+                batch.add(transaction);
+
+                if (batch.size() == batchSize) {
+                    int posted = post(batch, listener);
+                    imported += posted;
+                    rejected += batch.size() - posted;
+                    batch.clear();
+                    if (listener != null)
+                        listener.onProgress(new ImportProgress(read, imported, rejected, System.nanoTime() - start));
+                }
+            }
+            int posted = post(batch, listener);
+            imported += posted;
+            rejected += batch.size() - posted;
+        } finally {
+            parser.close();
+        }
+
+        ImportProgress progress = new ImportProgress(read, imported, rejected, System.nanoTime() - start);
+        if (listener != null)
+            listener.onProgress(progress);
+        return progress;
+    }
+
+    /***
+     * Post a batch in one go. If an expense of the batch is refused, fall back to posting that batch row by row so
+     * that only the offending rows are rejected.
+     *
+     * @return - number of rows posted
+     */
+    private int post(List<Transaction> batch, ImportListener listener) {
+        if (batch.isEmpty())
+            return 0;
+        try {
+            expenseManager.updateAccountBalances(batch);
+            return batch.size();
+        } catch (InvalidAccountException e) {
+            int posted = 0;
+            List<Transaction> single = new ArrayList<>(1);
+            for (Transaction transaction : batch) {
+                single.clear();
+                single.add(transaction);
+                try {
+                    expenseManager.updateAccountBalances(single);
+                    posted++;
+                } catch (InvalidAccountException rejected) {
+                    reject(listener, rejected.getMessage());
+                }
+            }
+            return posted;
+        }
+    }
+
+    private static void reject(ImportListener listener, String reason) {
+        if (listener != null)
+            listener.onRejected(reason);
+    }
+}
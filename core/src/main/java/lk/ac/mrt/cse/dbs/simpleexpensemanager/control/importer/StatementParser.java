@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * A StatementParser reads the transactions of a bank statement one at a time, so that a statement of any size can be
+ * imported with a constant amount of memory.
+ */
+public interface StatementParser extends Closeable {
+
+    /***
+     * Read the next transaction of the statement.
+     *
+     * @return - the next transaction, or null at the end of the statement
+     * @throws IOException              - if the underlying stream fails
+     * @throws StatementFormatException - if the current record is malformed. The parser skips the record and can
+     *                                  still be used.
+     */
+    public Transaction next() throws IOException, StatementFormatException;
+}
@@ -75,9 +75,19 @@ public interface AccountDAO {
      *
      * @param accountNo   - account number of the respective account
      * @param expenseType - the type of the transaction
-     * @param amount      - amount involved
+     * @param amount      - amount involved, in cents
      * @throws InvalidAccountException - if the account number is invalid
      */
-    public void updateBalance(String accountNo, ExpenseType expenseType, double amount) throws InvalidAccountException;
+    public void updateBalance(String accountNo, ExpenseType expenseType, long amount) throws InvalidAccountException;
+
+    /***
+     * Move an amount from one account to another. Neither balance changes when one of the accounts is invalid.
+     *
+     * @param fromAccountNo - account number of the debited account
+     * @param toAccountNo   - account number of the credited account
+     * @param amount        - amount involved, in cents
+     * @throws InvalidAccountException - if one of the account numbers is invalid
+     */
+    public void transferBalance(String fromAccountNo, String toAccountNo, long amount) throws InvalidAccountException;
 
 }
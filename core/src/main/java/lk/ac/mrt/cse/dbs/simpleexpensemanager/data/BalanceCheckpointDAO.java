@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data;
+
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BalanceCheckpoint;
+
+/**
+ * BalanceCheckpointDAO interface gives the balance of an account on any past day. The store keeps a checkpoint per
+ * account and month holding the closing balance of the month, plus an opening checkpoint, and maintains them as the
+ * transactions are logged, including the ones dated in an earlier month. A historical balance is the checkpoint of
+ * the month before plus the transactions of the month up to the day, read from an index, instead of a replay of the
+ * whole log.
+ */
+public interface BalanceCheckpointDAO {
+
+    /***
+     * Get the balance of an account at the end of a day.
+     *
+     * @param accountNo - account number of the respective account
+     * @param epochDay  - the day, transactions dated on it are included
+     * @return - the balance in cents
+     * @throws InvalidAccountException - if the account has no checkpoint, i.e. it is not stored
+     */
+    public long getBalance(String accountNo, long epochDay) throws InvalidAccountException;
+
+    /***
+     * Get the checkpoints of one account, the opening checkpoint first, then by month.
+     *
+     * @param accountNo
+     * @return
+     */
+    public List<BalanceCheckpoint> getCheckpoints(String accountNo);
+
+    /***
+     * Compare every checkpoint with the closing balance recomputed from the stored balance and the transaction log.
+     *
+     * @return - the checkpoints that are missing or wrong, holding their expected balance (zero for a checkpoint of
+     * an account that is not stored). Empty when the checkpoints are consistent.
+     */
+    public List<BalanceCheckpoint> verify();
+}
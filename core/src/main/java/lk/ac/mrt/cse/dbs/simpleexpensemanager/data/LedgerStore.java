@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data;
+
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.PersistentTransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * LedgerStore is the storage SPI of the expense manager. An implementation keeps the accounts and the transaction log
+ * durable and gives read access to them, while the balances kept in memory and the mediation stay in
+ * {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager}.
+ * <p/>
+ * Errors of the underlying storage are reported as
+ * {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException}.
+ */
+public interface LedgerStore {
+
+    /***
+     * Read every stored account.
+     *
+     * @return - list of Account objects
+     */
+    public List<Account> loadAccounts();
+
+    /***
+     * Read one stored account.
+     *
+     * @param accountNo
+     * @return - the account as stored, or null if there is none with that number
+     */
+    public Account loadAccount(String accountNo);
+
+    /***
+     * Read the numbers of every stored account, without the rest of the accounts.
+     *
+     * @return - list of account numbers
+     */
+    public List<String> loadAccountNumbers();
+
+    /***
+     * Copy the whole transaction log, oldest first, into an in memory store.
+     *
+     * @param transactionDAO - the store to be filled
+     */
+    public void loadTransactions(PersistentTransactionDAO transactionDAO);
+
+    /***
+     * Store a new account.
+     *
+     * @param account - the account to be added
+     */
+    public void addAccount(Account account);
+
+    /***
+     * Apply the transactions to the stored balances and append them to the log, atomically: either every entry is
+     * written, or none is when one of the expenses exceeds the balance of its account. An income for an account
+     * that is not stored is still logged.
+     *
+     * @param transactions - the transactions to be posted, in order
+     * @throws InvalidAccountException - if an expense exceeds the balance of its account
+     */
+    public void post(List<Transaction> transactions) throws InvalidAccountException;
+
+    /***
+     * Post occurrences of standing orders and count them in their rules, atomically, like {@link #post(List)}. The
+     * rules are only advanced if nobody advanced them since they were read, so posting the same occurrences twice
+     * writes nothing the second time.
+     *
+     * @param transactions  - the occurrences to be posted, in order
+     * @param rules         - the rules the occurrences come from, as they were read
+     * @param advancedRules - the same rules with the occurrences counted, in the same order
+     * @return - false, and nothing is written, if one of the rules was removed or advanced in the meantime
+     * @throws InvalidAccountException - if an expense exceeds the balance of its account
+     */
+    public boolean postRecurring(List<Transaction> transactions, List<RecurringRule> rules,
+                                 List<RecurringRule> advancedRules) throws InvalidAccountException;
+
+    /***
+     * Get read access to the stored transaction log.
+     *
+     * @return
+     */
+    public TransactionDAO getTransactionDAO();
+
+    /***
+     * Get read access to the per account, month and expense type totals.
+     *
+     * @return
+     */
+    public MonthlyTotalDAO getMonthlyTotalDAO();
+
+    /***
+     * Get access to the search over the accounts and their transactions.
+     *
+     * @return
+     */
+    public SearchDAO getSearchDAO();
+
+    /***
+     * Get access to the standing orders.
+     *
+     * @return
+     */
+    public RecurringRuleDAO getRecurringRuleDAO();
+
+    /***
+     * Get read access to the balances of the accounts on past days.
+     *
+     * @return
+     */
+    public BalanceCheckpointDAO getBalanceCheckpointDAO();
+
+    /***
+     * Release the resources held by the store.
+     */
+    public void close();
+}
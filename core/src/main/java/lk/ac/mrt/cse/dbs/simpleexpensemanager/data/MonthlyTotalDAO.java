@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data;
+
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.MonthlyTotal;
+
+/**
+ * MonthlyTotalDAO interface gives access to the totals of the transactions per account, month and expense type.
+ * The totals are maintained as the transactions are logged, so reports cost as much as the number of buckets read
+ * rather than the number of transactions.
+ * <p/>
+ * Months are given as yyyyMM, e.g. 201904.
+ */
+public interface MonthlyTotalDAO {
+
+    /***
+     * Get the monthly totals of one account over a range of months.
+     *
+     * @param accountNo      - account number of the respective account
+     * @param fromYearMonth  - first month, inclusive
+     * @param toYearMonth    - last month, inclusive
+     * @return - the buckets of the account, ordered by month
+     */
+    public List<MonthlyTotal> getMonthlyTotals(String accountNo, int fromYearMonth, int toYearMonth);
+
+    /***
+     * Get the totals of every account for one month.
+     *
+     * @param yearMonth - the month
+     * @return - the buckets of the month, ordered by account number
+     */
+    public List<MonthlyTotal> getMonthlyTotals(int yearMonth);
+
+    /***
+     * Get the total of one expense type over all the accounts and a range of months.
+     *
+     * @param expenseType   - the type of the transactions
+     * @param fromYearMonth - first month, inclusive
+     * @param toYearMonth   - last month, inclusive
+     * @return - the sum of the amounts, in cents
+     */
+    public long getTotal(ExpenseType expenseType, int fromYearMonth, int toYearMonth);
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data;
+
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+
+/**
+ * RecurringRuleDAO interface stores the standing orders. The occurrences are posted through
+ * {@link LedgerStore#postRecurring(List, List, List)}, which advances the rules in the same store transaction.
+ */
+public interface RecurringRuleDAO {
+
+    /***
+     * Store a new rule.
+     *
+     * @param rule - the rule, its id is ignored
+     * @return - the rule with the id given by the store
+     */
+    public RecurringRule addRule(RecurringRule rule);
+
+    /***
+     * Delete a rule. The occurrences already posted are kept.
+     *
+     * @param id
+     * @return - false if there is no rule with that id
+     */
+    public boolean removeRule(long id);
+
+    /***
+     * Get every rule, by id.
+     *
+     * @return
+     */
+    public List<RecurringRule> getRules();
+
+    /***
+     * Get the rules with an occurrence due on or before a day, the most overdue first. Read from an index on the
+     * next occurrence, so the rules that are not due cost nothing.
+     *
+     * @param epochDay - the day, usually today
+     * @param limit    - the maximum number of rules
+     * @return
+     */
+    public List<RecurringRule> getDueRules(long epochDay, int limit);
+}
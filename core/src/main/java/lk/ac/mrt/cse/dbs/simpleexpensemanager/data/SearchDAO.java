@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data;
+
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * SearchDAO interface finds accounts, and their transactions, by the words of the account number, the bank name and
+ * the account holder name. The index is maintained as the accounts are written, a search does not scan the ledger.
+ * <p/>
+ * A query is split into words on anything that is not an ASCII letter or digit, and ASCII letters match in any case.
+ * Every word of the query matches as the prefix of a word of the account, and all of them must match: "ceyl ka"
+ * finds the accounts of Kasun at the Bank of Ceylon. A query without any word finds nothing.
+ */
+public interface SearchDAO {
+
+    /***
+     * Find the accounts matching a query.
+     *
+     * @param query - the words typed by the user
+     * @param limit - the maximum number of accounts
+     * @return - the matching accounts, ordered by account number
+     */
+    public List<Account> searchAccounts(String query, int limit);
+
+    /***
+     * Get a page of the transactions of the accounts matching a query, newest first. Only the transactions of the
+     * first {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.LedgerSearch#MAX_ACCOUNTS} matching accounts
+     * are returned.
+     *
+     * @param query - the words typed by the user
+     * @param after - the last transaction of the previous page, or null for the first page
+     * @param limit - the maximum number of transactions
+     * @return - the page, ordered by date then id, newest first
+     */
+    public List<Transaction> searchTransactions(String query, Transaction after, int limit);
+}
@@ -27,15 +27,20 @@ import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
  */
 public interface TransactionDAO {
 
+    /***
+     * Cursor value that requests the newest page from {@link #getTransactionLogsBefore(long, int)}.
+     */
+    public static final long FIRST_PAGE = Long.MAX_VALUE;
+
     /***
      * Log the transaction requested by the user.
      *
      * @param date        - date of the transaction
      * @param accountNo   - account number involved
      * @param expenseType - type of the expense
-     * @param amount      - amount involved
+     * @param amount      - amount involved, in cents
      */
-    public void logTransaction(Date date, String accountNo, ExpenseType expenseType, double amount);
+    public void logTransaction(Date date, String accountNo, ExpenseType expenseType, long amount);
 
     /***
      * Return all the transactions logged.
@@ -51,4 +56,26 @@ public interface TransactionDAO {
      * @return - a list of requested number of transactions
      */
     public List<Transaction> getPaginatedTransactionLogs(int limit);
+
+    /***
+     * Return the transactions of an account that fall between two days, both inclusive, in date order.
+     *
+     * @param accountNo - account number involved
+     * @param from      - first day of the range
+     * @param to        - last day of the range
+     * @return - a list of the matching transactions
+     */
+    public List<Transaction> getAccountTransactionLogs(String accountNo, Date from, Date to);
+
+    /***
+     * Return the page of transactions logged just before the given transaction, newest first. Pass the id of the
+     * last transaction of the previous page to get the next one, or {@link #FIRST_PAGE} to get the newest page.
+     * <p/>
+     * Implementations should seek to the cursor instead of skipping rows, so that every page costs the same.
+     *
+     * @param beforeId - id of the last transaction already seen
+     * @param limit    - maximum number of transactions to be returned
+     * @return - a list of at most <code>limit</code> transactions with an id lower than <code>beforeId</code>
+     */
+    public List<Transaction> getTransactionLogsBefore(long beforeId, int limit);
 }
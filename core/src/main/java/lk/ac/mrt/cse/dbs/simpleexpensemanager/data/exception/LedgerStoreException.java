@@ -0,0 +1,30 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception;
+
+/**
+ * This exception is thrown by a LedgerStore when its underlying storage fails.
+ */
+public class LedgerStoreException extends RuntimeException {
+    public LedgerStoreException(String detailMessage) {
+        super(detailMessage);
+    }
+
+    public LedgerStoreException(String detailMessage, Throwable throwable) {
+        super(detailMessage, throwable);
+    }
+}
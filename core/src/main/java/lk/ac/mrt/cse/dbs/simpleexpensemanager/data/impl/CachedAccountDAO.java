@@ -0,0 +1,303 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.AccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * AccountDAO that keeps a bounded number of accounts in memory and reads the others from the `account` table on
+ * demand, for ledgers with more accounts than it is reasonable to load at startup.
+ * <p/>
+ * The cache is split in lock stripes, each one a least recently used map, so lookups of different accounts rarely wait
+ * for each other and a stripe evicts its least recently used account once it is full. A cache of fewer than 128
+ * accounts is a single stripe and holds exactly its capacity. A larger one rounds the share of each stripe up, so the
+ * bound is approximate: it can hold a few accounts more than its capacity, and it starts evicting before it is full
+ * when the accounts in use are not spread evenly over the stripes. Only the account numbers are kept for every account,
+ * as a sorted immutable snapshot that answers getAccountNumbersList without copying and tells unknown accounts apart
+ * without a query. The snapshot is rebuilt when an account is added or removed.
+ * <p/>
+ * The store is the owner of the balances: {@link LedgerStore#post(List)} writes them, and updateBalance only drops
+ * the cached copy, so the next lookup reads the balance the store committed.
+ */
+public class CachedAccountDAO implements AccountDAO {
+    private static final int STRIPES = 16;
+    private static final int MIN_STRIPE_CAPACITY = 8;
+
+    private final LedgerStore store;
+    private final int capacity;
+    private final Stripe[] stripes;
+    private final Object snapshotLock = new Object();
+    private volatile List<String> accountNumbers;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /***
+     * @param store
+     * @param capacity - the number of accounts kept in memory, approximate above 128
+     */
+    public CachedAccountDAO(LedgerStore store, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.store = store;
+        this.capacity = capacity;
+        // a stripe of a handful of accounts evicts on every collision, a small cache is better off with one lock
+        int stripeCount = capacity < STRIPES * MIN_STRIPE_CAPACITY ? 1 : STRIPES;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe((capacity + stripeCount - 1) / stripeCount);
+        }
+    }
+
+    private Stripe stripeFor(String accountNo) {
+        int hash = accountNo.hashCode();
+        // spread the high bits so that similar account numbers do not share a stripe
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    /***
+     * Get the account numbers, sorted. The list is an immutable snapshot shared by every caller until the accounts
+     * change.
+     *
+     * @return
+     */
+    @Override
+    public List<String> getAccountNumbersList() {
+        List<String> snapshot = accountNumbers;
+        if (snapshot == null) {
+            synchronized (snapshotLock) {
+                snapshot = accountNumbers;
+                if (snapshot == null) {
+                    List<String> numbers = new ArrayList<>(store.loadAccountNumbers());
+                    Collections.sort(numbers);
+                    snapshot = Collections.unmodifiableList(numbers);
+                    accountNumbers = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private boolean exists(String accountNo) {
+        return Collections.binarySearch(getAccountNumbersList(), accountNo) >= 0;
+    }
+
+    /***
+     * Read every account from the store. The cache is left as it is.
+     *
+     * @return
+     */
+    @Override
+    public List<Account> getAccountsList() {
+        return store.loadAccounts();
+    }
+
+    @Override
+    public Account getAccount(String accountNo) throws InvalidAccountException {
+        if (!exists(accountNo)) {
+            String msg = "Account " + accountNo + " is invalid.";
+            throw new InvalidAccountException(msg);
+        }
+        Stripe stripe = stripeFor(accountNo);
+        synchronized (stripe) {
+            Account account = stripe.get(accountNo);
+            if (account != null) {
+                hits.incrementAndGet();
+                return account;
+            }
+            misses.incrementAndGet();
+            // loaded under the stripe lock, so a concurrent updateBalance cannot be overtaken by an older balance
+            account = store.loadAccount(accountNo);
+            if (account == null) {
+                String msg = "Account " + accountNo + " is invalid.";
+                throw new InvalidAccountException(msg);
+            }
+            stripe.put(accountNo, account);
+            return account;
+        }
+    }
+
+    /***
+     * Cache an account that has just been written to the store.
+     *
+     * @param account - the account to be added.
+     */
+    @Override
+    public void addAccount(Account account) {
+        String accountNo = account.getAccountNo();
+        Stripe stripe = stripeFor(accountNo);
+        synchronized (stripe) {
+            stripe.put(accountNo, account);
+        }
+        synchronized (snapshotLock) {
+            List<String> snapshot = getAccountNumbersList();
+            int index = Collections.binarySearch(snapshot, accountNo);
+            if (index < 0) {
+                List<String> numbers = new ArrayList<>(snapshot.size() + 1);
+                numbers.addAll(snapshot);
+                numbers.add(-index - 1, accountNo);
+                accountNumbers = Collections.unmodifiableList(numbers);
+            }
+        }
+    }
+
+    /***
+     * Forget an account for the rest of the session. The store has no deletes, the account stays in the table.
+     *
+     * @param accountNo - of the account to be removed.
+     * @throws InvalidAccountException
+     */
+    @Override
+    public void removeAccount(String accountNo) throws InvalidAccountException {
+        synchronized (snapshotLock) {
+            List<String> snapshot = getAccountNumbersList();
+            int index = Collections.binarySearch(snapshot, accountNo);
+            if (index < 0) {
+                String msg = "Account " + accountNo + " is invalid.";
+                throw new InvalidAccountException(msg);
+            }
+            List<String> numbers = new ArrayList<>(snapshot);
+            numbers.remove(index);
+            accountNumbers = Collections.unmodifiableList(numbers);
+        }
+        Stripe stripe = stripeFor(accountNo);
+        synchronized (stripe) {
+            stripe.remove(accountNo);
+        }
+    }
+
+    /***
+     * Drop the cached copy of an account whose balance the store has just changed.
+     *
+     * @param accountNo   - account number of the respective account
+     * @param expenseType - the type of the transaction
+     * @param amount      - amount involved, in cents
+     * @throws InvalidAccountException - if the account number is invalid
+     */
+    @Override
+    public void updateBalance(String accountNo, ExpenseType expenseType, long amount) throws InvalidAccountException {
+        if (!exists(accountNo)) {
+            String msg = "Account " + accountNo + " is invalid.";
+            throw new InvalidAccountException(msg);
+        }
+        Stripe stripe = stripeFor(accountNo);
+        synchronized (stripe) {
+            stripe.remove(accountNo);
+        }
+    }
+
+    /***
+     * Drop the cached copies of both accounts of a transfer the store has just committed.
+     *
+     * @param fromAccountNo - account number of the debited account
+     * @param toAccountNo   - account number of the credited account
+     * @param amount        - amount involved, in cents
+     * @throws InvalidAccountException - if one of the account numbers is invalid
+     */
+    @Override
+    public void transferBalance(String fromAccountNo, String toAccountNo, long amount)
+            throws InvalidAccountException {
+        // the store wrote both balances in one transaction, each lookup reloads a committed balance on its own
+        updateBalance(fromAccountNo, ExpenseType.EXPENSE, amount);
+        updateBalance(toAccountNo, ExpenseType.INCOME, amount);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /***
+     * The number of accounts held in memory.
+     *
+     * @return
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /***
+     * The share of lookups answered from memory.
+     *
+     * @return - between 0 and 1, or 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "CachedAccountDAO(size=%d/%d, hits=%d, misses=%d, evictions=%d)",
+                size(), capacity, hits.get(), misses.get(), evictions.get());
+    }
+
+    /**
+     * One lock stripe of the cache, a map in access order that drops its eldest entry when it is full. Guarded by
+     * its own monitor.
+     */
+    private final class Stripe extends LinkedHashMap<String, Account> {
+        private final int stripeCapacity;
+
+        Stripe(int stripeCapacity) {
+            super(16, 0.75f, true);
+            this.stripeCapacity = stripeCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Account> eldest) {
+            if (size() > stripeCapacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
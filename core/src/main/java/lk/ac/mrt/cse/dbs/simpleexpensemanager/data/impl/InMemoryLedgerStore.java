@@ -0,0 +1,564 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.BalanceCheckpointDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.MonthlyTotalDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.RecurringRuleDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BalanceCheckpoint;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.MonthlyTotal;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * LedgerStore that keeps everything in memory, for tests and load tests on a JVM. It follows the same rules as the
+ * SQLite stores: postings are all or nothing, an expense may not exceed the stored balance and an income for an
+ * unknown account is still logged.
+ * <p/>
+ * The transaction log is a columnar {@link PersistentTransactionDAO}. Transactions must be written through
+ * {@link #post(List)}, which also maintains the monthly totals. The search is an inverted index of the words of the
+ * accounts, updated as they are added. The standing orders are kept by id and scanned for the due ones. The balance
+ * checkpoints are sorted maps per account, of the closing balances by month and of the net amounts by day.
+ */
+public class InMemoryLedgerStore implements LedgerStore {
+    private final Map<String, Account> accounts;
+    private final PersistentTransactionDAO transactionDAO;
+    private final InMemoryMonthlyTotalDAO monthlyTotalDAO;
+    private final InMemorySearchDAO searchDAO;
+    private final InMemoryRecurringRuleDAO recurringRuleDAO;
+    private final InMemoryBalanceCheckpointDAO balanceCheckpointDAO;
+
+    public InMemoryLedgerStore() {
+        accounts = new HashMap<>();
+        transactionDAO = new PersistentTransactionDAO();
+        monthlyTotalDAO = new InMemoryMonthlyTotalDAO();
+        searchDAO = new InMemorySearchDAO();
+        recurringRuleDAO = new InMemoryRecurringRuleDAO();
+        balanceCheckpointDAO = new InMemoryBalanceCheckpointDAO();
+    }
+
+    @Override
+    public synchronized List<Account> loadAccounts() {
+        List<Account> copies = new ArrayList<>(accounts.size());
+        for (Account account : accounts.values()) {
+            copies.add(copyOf(account));
+        }
+        return copies;
+    }
+
+    @Override
+    public synchronized Account loadAccount(String accountNo) {
+        Account account = accounts.get(accountNo);
+        return account == null ? null : copyOf(account);
+    }
+
+    @Override
+    public synchronized List<String> loadAccountNumbers() {
+        return new ArrayList<>(accounts.keySet());
+    }
+
+    @Override
+    public void loadTransactions(PersistentTransactionDAO target) {
+        for (Transaction transaction : transactionDAO.getAllTransactionLogs()) {
+            target.logTransaction(EpochDays.fromDate(transaction.getDate()), transaction.getAccountNo(),
+                    transaction.getExpenseType(), transaction.getAmountCents(), transaction.isTransfer());
+        }
+    }
+
+    @Override
+    public synchronized void addAccount(Account account) {
+        // the store keeps its own copy, the caller goes on updating the balance of the one it holds
+        Account previous = accounts.put(account.getAccountNo(), copyOf(account));
+        if (previous != null)
+            searchDAO.remove(previous);
+        searchDAO.add(account);
+        balanceCheckpointDAO.open(account);
+    }
+
+    @Override
+    public synchronized void post(List<Transaction> transactions) throws InvalidAccountException {
+        apply(transactions);
+    }
+
+    private void apply(List<Transaction> transactions) throws InvalidAccountException {
+        // check every expense against the balances as they will be at its turn before writing anything
+        Map<String, Long> balances = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            Account account = accounts.get(transaction.getAccountNo());
+            if (account == null) {
+                if (transaction.getExpenseType() == ExpenseType.EXPENSE)
+                    throw new InvalidAccountException("Please enter an amount that is lesser than the account balance.");
+                continue;
+            }
+            Long pending = balances.get(account.getAccountNo());
+            long balance = pending != null ? pending : account.getBalanceCents();
+            if (transaction.getExpenseType() == ExpenseType.EXPENSE) {
+                if (balance < transaction.getAmountCents())
+                    throw new InvalidAccountException("Please enter an amount that is lesser than the account balance.");
+                balance -= transaction.getAmountCents();
+            } else {
+                balance += transaction.getAmountCents();
+            }
+            balances.put(account.getAccountNo(), balance);
+        }
+
+        for (Map.Entry<String, Long> balance : balances.entrySet()) {
+            accounts.get(balance.getKey()).setBalanceCents(balance.getValue());
+        }
+        for (Transaction transaction : transactions) {
+            log(EpochDays.fromDate(transaction.getDate()), transaction.getAccountNo(), transaction.getExpenseType(),
+                    transaction.getAmountCents(), transaction.isTransfer());
+        }
+    }
+
+    /***
+     * Apply a transaction to the balance of its account and log it without checking the balance, e.g. when it is
+     * read back from a snapshot of a store that checked it already.
+     *
+     * @param epochDay
+     * @param accountNo
+     * @param expenseType
+     * @param amount
+     * @param transfer
+     */
+    synchronized void restore(long epochDay, String accountNo, ExpenseType expenseType, long amount,
+                              boolean transfer) {
+        Account account = accounts.get(accountNo);
+        if (account != null)
+            account.setBalanceCents(account.getBalanceCents() + signedAmount(expenseType, amount));
+        log(epochDay, accountNo, expenseType, amount, transfer);
+    }
+
+    /***
+     * Store a rule under the id it was given before, replacing the rule with that id if there is one.
+     *
+     * @param rule
+     */
+    synchronized void restoreRule(RecurringRule rule) {
+        recurringRuleDAO.rules.put(rule.getId(), rule);
+        recurringRuleDAO.lastId = Math.max(recurringRuleDAO.lastId, rule.getId());
+    }
+
+    private void log(long epochDay, String accountNo, ExpenseType expenseType, long amount, boolean transfer) {
+        transactionDAO.logTransaction(epochDay, accountNo, expenseType, amount, transfer);
+        // like the trigger of the SQLite stores, the legs of a transfer are not counted in the monthly totals
+        if (!transfer)
+            monthlyTotalDAO.add(accountNo, EpochDays.yearMonth(epochDay), expenseType, amount);
+        balanceCheckpointDAO.add(accountNo, epochDay, signedAmount(expenseType, amount));
+    }
+
+    @Override
+    public synchronized boolean postRecurring(List<Transaction> transactions, List<RecurringRule> rules,
+                                              List<RecurringRule> advancedRules) throws InvalidAccountException {
+        for (RecurringRule rule : rules) {
+            RecurringRule stored = recurringRuleDAO.rules.get(rule.getId());
+            if (stored == null || stored.getPosted() != rule.getPosted())
+                return false;
+        }
+        apply(transactions);
+        for (RecurringRule advancedRule : advancedRules) {
+            recurringRuleDAO.rules.put(advancedRule.getId(), advancedRule);
+        }
+        return true;
+    }
+
+    @Override
+    public TransactionDAO getTransactionDAO() {
+        return transactionDAO;
+    }
+
+    @Override
+    public MonthlyTotalDAO getMonthlyTotalDAO() {
+        return monthlyTotalDAO;
+    }
+
+    @Override
+    public SearchDAO getSearchDAO() {
+        return searchDAO;
+    }
+
+    @Override
+    public RecurringRuleDAO getRecurringRuleDAO() {
+        return recurringRuleDAO;
+    }
+
+    @Override
+    public BalanceCheckpointDAO getBalanceCheckpointDAO() {
+        return balanceCheckpointDAO;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static long signedAmount(ExpenseType expenseType, long amount) {
+        return expenseType == ExpenseType.INCOME ? amount : -amount;
+    }
+
+    private static Account copyOf(Account account) {
+        return new Account(account.getAccountNo(), account.getBankName(), account.getAccountHolderName(),
+                account.getBalanceCents());
+    }
+
+    /**
+     * The monthly totals of the in memory store, one bucket per account, month and expense type.
+     */
+    private static final class InMemoryMonthlyTotalDAO implements MonthlyTotalDAO {
+        private static final Comparator<MonthlyTotal> BY_MONTH = new Comparator<MonthlyTotal>() {
+            @Override
+            public int compare(MonthlyTotal lhs, MonthlyTotal rhs) {
+                if (lhs.getYearMonth() != rhs.getYearMonth())
+                    return lhs.getYearMonth() < rhs.getYearMonth() ? -1 : 1;
+                return lhs.getExpenseType().compareTo(rhs.getExpenseType());
+            }
+        };
+
+        private static final Comparator<MonthlyTotal> BY_ACCOUNT = new Comparator<MonthlyTotal>() {
+            @Override
+            public int compare(MonthlyTotal lhs, MonthlyTotal rhs) {
+                int order = lhs.getAccountNo().compareTo(rhs.getAccountNo());
+                return order != 0 ? order : lhs.getExpenseType().compareTo(rhs.getExpenseType());
+            }
+        };
+
+        private final Map<String, MonthlyTotal> buckets = new HashMap<>();
+
+        synchronized void add(String accountNo, int yearMonth, ExpenseType expenseType, long amount) {
+            String key = accountNo + '\u0000' + yearMonth + '\u0000' + expenseType;
+            MonthlyTotal bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new MonthlyTotal(accountNo, yearMonth, expenseType, 0, 0);
+                buckets.put(key, bucket);
+            }
+            bucket.setTotal(bucket.getTotal() + amount);
+            bucket.setCount(bucket.getCount() + 1);
+        }
+
+        @Override
+        public synchronized List<MonthlyTotal> getMonthlyTotals(String accountNo, int fromYearMonth, int toYearMonth) {
+            List<MonthlyTotal> totals = new ArrayList<>();
+            for (MonthlyTotal bucket : buckets.values()) {
+                if (bucket.getAccountNo().equals(accountNo) && bucket.getYearMonth() >= fromYearMonth
+                        && bucket.getYearMonth() <= toYearMonth) {
+                    totals.add(copyOf(bucket));
+                }
+            }
+            Collections.sort(totals, BY_MONTH);
+            return totals;
+        }
+
+        @Override
+        public synchronized List<MonthlyTotal> getMonthlyTotals(int yearMonth) {
+            List<MonthlyTotal> totals = new ArrayList<>();
+            for (MonthlyTotal bucket : buckets.values()) {
+                if (bucket.getYearMonth() == yearMonth) {
+                    totals.add(copyOf(bucket));
+                }
+            }
+            Collections.sort(totals, BY_ACCOUNT);
+            return totals;
+        }
+
+        @Override
+        public synchronized long getTotal(ExpenseType expenseType, int fromYearMonth, int toYearMonth) {
+            long total = 0;
+            for (MonthlyTotal bucket : buckets.values()) {
+                if (bucket.getExpenseType() == expenseType && bucket.getYearMonth() >= fromYearMonth
+                        && bucket.getYearMonth() <= toYearMonth) {
+                    total += bucket.getTotal();
+                }
+            }
+            return total;
+        }
+
+        private static MonthlyTotal copyOf(MonthlyTotal bucket) {
+            return new MonthlyTotal(bucket.getAccountNo(), bucket.getYearMonth(), bucket.getExpenseType(),
+                    bucket.getTotal(), bucket.getCount());
+        }
+    }
+
+    /**
+     * Inverted index from the words of the accounts to their numbers. The words are sorted, so the words starting
+     * with a prefix are one range of the map. Guarded by the monitor of the store.
+     */
+    private final class InMemorySearchDAO implements SearchDAO {
+        private final TreeMap<String, Set<String>> words = new TreeMap<>();
+
+        void add(Account account) {
+            for (String word : wordsOf(account)) {
+                Set<String> accountNumbers = words.get(word);
+                if (accountNumbers == null) {
+                    accountNumbers = new TreeSet<>();
+                    words.put(word, accountNumbers);
+                }
+                accountNumbers.add(account.getAccountNo());
+            }
+        }
+
+        void remove(Account account) {
+            for (String word : wordsOf(account)) {
+                Set<String> accountNumbers = words.get(word);
+                if (accountNumbers != null) {
+                    accountNumbers.remove(account.getAccountNo());
+                    if (accountNumbers.isEmpty())
+                        words.remove(word);
+                }
+            }
+        }
+
+        private List<String> wordsOf(Account account) {
+            List<String> accountWords = LedgerSearch.words(account.getAccountNo());
+            accountWords.addAll(LedgerSearch.words(account.getBankName()));
+            accountWords.addAll(LedgerSearch.words(account.getAccountHolderName()));
+            return accountWords;
+        }
+
+        /***
+         * @return the numbers of the accounts matching every word of the query, sorted
+         */
+        private List<String> match(String query, int limit) {
+            List<String> queryWords = LedgerSearch.words(query);
+            if (queryWords.isEmpty())
+                return new ArrayList<>();
+            Set<String> matching = null;
+            synchronized (InMemoryLedgerStore.this) {
+                for (String queryWord : queryWords) {
+                    Set<String> prefixed = new TreeSet<>();
+                    SortedMap<String, Set<String>> range = words.subMap(queryWord, queryWord + Character.MAX_VALUE);
+                    for (Set<String> accountNumbers : range.values()) {
+                        prefixed.addAll(accountNumbers);
+                    }
+                    if (matching == null) {
+                        matching = prefixed;
+                    } else {
+                        matching.retainAll(prefixed);
+                    }
+                }
+            }
+            List<String> accountNumbers = new ArrayList<>(matching);
+            return accountNumbers.size() > limit ? accountNumbers.subList(0, limit) : accountNumbers;
+        }
+
+        @Override
+        public List<Account> searchAccounts(String query, int limit) {
+            List<Account> found = new ArrayList<>();
+            for (String accountNo : match(query, limit)) {
+                Account account = loadAccount(accountNo);
+                if (account != null)
+                    found.add(account);
+            }
+            return found;
+        }
+
+        @Override
+        public List<Transaction> searchTransactions(String query, Transaction after, int limit) {
+            long cursorDay = LedgerSearch.cursorDay(after);
+            long cursorId = LedgerSearch.cursorId(after);
+            return transactionDAO.getAccountTransactionLogsBefore(match(query, LedgerSearch.MAX_ACCOUNTS), cursorDay,
+                    cursorId, limit);
+        }
+    }
+
+    /**
+     * The standing orders, by id. Guarded by the monitor of the store.
+     */
+    private final class InMemoryRecurringRuleDAO implements RecurringRuleDAO {
+        private final Map<Long, RecurringRule> rules = new TreeMap<>();
+        private long lastId;
+
+        @Override
+        public RecurringRule addRule(RecurringRule rule) {
+            synchronized (InMemoryLedgerStore.this) {
+                RecurringRule stored = rule.withId(++lastId);
+                rules.put(stored.getId(), stored);
+                return stored;
+            }
+        }
+
+        @Override
+        public boolean removeRule(long id) {
+            synchronized (InMemoryLedgerStore.this) {
+                return rules.remove(id) != null;
+            }
+        }
+
+        @Override
+        public List<RecurringRule> getRules() {
+            synchronized (InMemoryLedgerStore.this) {
+                return new ArrayList<>(rules.values());
+            }
+        }
+
+        @Override
+        public List<RecurringRule> getDueRules(long epochDay, int limit) {
+            List<RecurringRule> due = new ArrayList<>();
+            synchronized (InMemoryLedgerStore.this) {
+                for (RecurringRule rule : rules.values()) {
+                    if (rule.getNextDay() <= epochDay)
+                        due.add(rule);
+                }
+            }
+            Collections.sort(due, new Comparator<RecurringRule>() {
+                @Override
+                public int compare(RecurringRule lhs, RecurringRule rhs) {
+                    if (lhs.getNextDay() != rhs.getNextDay())
+                        return lhs.getNextDay() < rhs.getNextDay() ? -1 : 1;
+                    return lhs.getId() < rhs.getId() ? -1 : lhs.getId() == rhs.getId() ? 0 : 1;
+                }
+            });
+            return due.size() > limit ? due.subList(0, limit) : due;
+        }
+    }
+
+    /**
+     * The checkpoints of one account: the closing balance of every month with transactions, and of month 0, the
+     * opening balance, plus the net amount of every day, so that the days of one month are a range.
+     */
+    private static final class AccountCheckpoints {
+        private final TreeMap<Integer, Long> closings = new TreeMap<>();
+        private final TreeMap<Long, Long> dayNets = new TreeMap<>();
+    }
+
+    /**
+     * The balance checkpoints, updated by {@link #post(List)}. Guarded by the monitor of the store.
+     */
+    private final class InMemoryBalanceCheckpointDAO implements BalanceCheckpointDAO {
+        private final Map<String, AccountCheckpoints> checkpoints = new HashMap<>();
+
+        void open(Account account) {
+            AccountCheckpoints accountCheckpoints = checkpoints.get(account.getAccountNo());
+            if (accountCheckpoints == null) {
+                accountCheckpoints = new AccountCheckpoints();
+                checkpoints.put(account.getAccountNo(), accountCheckpoints);
+            }
+            accountCheckpoints.closings.put(BalanceCheckpoint.OPENING, account.getBalanceCents());
+        }
+
+        void add(String accountNo, long epochDay, long signedAmount) {
+            AccountCheckpoints accountCheckpoints = checkpoints.get(accountNo);
+            if (accountCheckpoints == null)
+                return;
+            int yearMonth = EpochDays.yearMonth(epochDay);
+            if (!accountCheckpoints.closings.containsKey(yearMonth))
+                accountCheckpoints.closings.put(yearMonth, accountCheckpoints.closings.lowerEntry(yearMonth).getValue());
+            for (Map.Entry<Integer, Long> closing : accountCheckpoints.closings.tailMap(yearMonth, true).entrySet()) {
+                closing.setValue(closing.getValue() + signedAmount);
+            }
+            Long dayNet = accountCheckpoints.dayNets.get(epochDay);
+            accountCheckpoints.dayNets.put(epochDay, (dayNet != null ? dayNet : 0) + signedAmount);
+        }
+
+        @Override
+        public long getBalance(String accountNo, long epochDay) throws InvalidAccountException {
+            int yearMonth = EpochDays.yearMonth(epochDay);
+            synchronized (InMemoryLedgerStore.this) {
+                AccountCheckpoints accountCheckpoints = checkpoints.get(accountNo);
+                if (accountCheckpoints == null)
+                    throw new InvalidAccountException("Account " + accountNo + " is invalid.");
+                long balance = accountCheckpoints.closings.lowerEntry(yearMonth).getValue();
+                for (long dayNet : accountCheckpoints.dayNets.subMap(EpochDays.firstDayOf(yearMonth), true,
+                        epochDay, true).values()) {
+                    balance += dayNet;
+                }
+                return balance;
+            }
+        }
+
+        @Override
+        public List<BalanceCheckpoint> getCheckpoints(String accountNo) {
+            List<BalanceCheckpoint> found = new ArrayList<>();
+            synchronized (InMemoryLedgerStore.this) {
+                AccountCheckpoints accountCheckpoints = checkpoints.get(accountNo);
+                if (accountCheckpoints != null) {
+                    for (Map.Entry<Integer, Long> closing : accountCheckpoints.closings.entrySet()) {
+                        found.add(new BalanceCheckpoint(accountNo, closing.getKey(), closing.getValue()));
+                    }
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public List<BalanceCheckpoint> verify() {
+            List<BalanceCheckpoint> mismatches = new ArrayList<>();
+            synchronized (InMemoryLedgerStore.this) {
+                // the net amount of every account and month, replayed from the log
+                Map<String, TreeMap<Integer, Long>> nets = new HashMap<>();
+                for (Transaction transaction : transactionDAO.getAllTransactionLogs()) {
+                    TreeMap<Integer, Long> accountNets = nets.get(transaction.getAccountNo());
+                    if (accountNets == null) {
+                        accountNets = new TreeMap<>();
+                        nets.put(transaction.getAccountNo(), accountNets);
+                    }
+                    int yearMonth = EpochDays.yearMonth(EpochDays.fromDate(transaction.getDate()));
+                    Long net = accountNets.get(yearMonth);
+                    accountNets.put(yearMonth, (net != null ? net : 0)
+                            + signedAmount(transaction.getExpenseType(), transaction.getAmountCents()));
+                }
+
+                for (Account account : accounts.values()) {
+                    String accountNo = account.getAccountNo();
+                    TreeMap<Integer, Long> accountNets = nets.get(accountNo);
+                    if (accountNets == null)
+                        accountNets = new TreeMap<>();
+                    // walk the months from the last one back, the closing balance of a month is the balance less
+                    // the net amounts of the later months
+                    TreeMap<Integer, Long> expected = new TreeMap<>();
+                    long closing = account.getBalanceCents();
+                    for (Map.Entry<Integer, Long> net : accountNets.descendingMap().entrySet()) {
+                        expected.put(net.getKey(), closing);
+                        closing -= net.getValue();
+                    }
+                    expected.put(BalanceCheckpoint.OPENING, closing);
+
+                    AccountCheckpoints accountCheckpoints = checkpoints.get(accountNo);
+                    TreeMap<Integer, Long> stored = accountCheckpoints != null
+                            ? accountCheckpoints.closings : new TreeMap<Integer, Long>();
+                    for (Map.Entry<Integer, Long> checkpoint : expected.entrySet()) {
+                        if (!stored.containsKey(checkpoint.getKey()))
+                            mismatches.add(new BalanceCheckpoint(accountNo, checkpoint.getKey(), checkpoint.getValue()));
+                    }
+                    for (Map.Entry<Integer, Long> checkpoint : stored.entrySet()) {
+                        // a month without transactions closes at the balance of the last month before it
+                        long balance = expected.floorEntry(checkpoint.getKey()).getValue();
+                        if (checkpoint.getValue() != balance)
+                            mismatches.add(new BalanceCheckpoint(accountNo, checkpoint.getKey(), balance));
+                    }
+                }
+            }
+            return mismatches;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.BalanceCheckpointDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BalanceCheckpoint;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * BalanceCheckpointDAO over the trigger maintained `balance_checkpoint` table of a JDBC connection, the JVM
+ * counterpart of SQLiteBalanceCheckpointDAO. The checkpoints are read through the read connection and rebuilt
+ * through the write one.
+ */
+public class JdbcBalanceCheckpointDAO implements BalanceCheckpointDAO {
+    private final Connection connection;
+    private final Connection readConnection;
+
+    JdbcBalanceCheckpointDAO(Connection connection, Connection readConnection) {
+        this.connection = connection;
+        this.readConnection = readConnection;
+    }
+
+    @Override
+    public long getBalance(String accountNo, long epochDay) throws InvalidAccountException {
+        int yearMonth = EpochDays.yearMonth(epochDay);
+        synchronized (readConnection) {
+            try {
+                PreparedStatement statement = readConnection.prepareStatement(LedgerSchema.SELECT_BALANCE_ON);
+                statement.setString(1, accountNo);
+                statement.setInt(2, yearMonth);
+                statement.setString(3, accountNo);
+                statement.setLong(4, EpochDays.firstDayOf(yearMonth));
+                statement.setLong(5, epochDay);
+                ResultSet resultSet = statement.executeQuery();
+                resultSet.next();
+                long balance = resultSet.getLong(1);
+                boolean unknown = resultSet.wasNull();
+                resultSet.close();
+                statement.close();
+                if (unknown)
+                    throw new InvalidAccountException("Account " + accountNo + " is invalid.");
+                return balance;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not read the balance of " + accountNo, e);
+            }
+        }
+    }
+
+    @Override
+    public List<BalanceCheckpoint> getCheckpoints(String accountNo) {
+        synchronized (readConnection) {
+            try {
+                PreparedStatement statement = readConnection.prepareStatement(LedgerSchema.SELECT_BALANCE_CHECKPOINTS);
+                statement.setString(1, accountNo);
+                List<BalanceCheckpoint> checkpoints = read(statement.executeQuery());
+                statement.close();
+                return checkpoints;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not read the checkpoints of " + accountNo, e);
+            }
+        }
+    }
+
+    @Override
+    public List<BalanceCheckpoint> verify() {
+        synchronized (readConnection) {
+            try {
+                Statement statement = readConnection.createStatement();
+                List<BalanceCheckpoint> mismatches = read(statement.executeQuery(LedgerSchema.VERIFY_BALANCE_CHECKPOINTS));
+                statement.close();
+                return mismatches;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not verify the checkpoints", e);
+            }
+        }
+    }
+
+    /***
+     * Recompute every checkpoint from the stored balances and the `transaction` table, in a single transaction.
+     */
+    public void rebuild() {
+        synchronized (connection) {
+            try {
+                connection.setAutoCommit(false);
+                boolean committed = false;
+                try {
+                    Statement statement = connection.createStatement();
+                    statement.executeUpdate("DELETE FROM `balance_checkpoint`");
+                    statement.executeUpdate("INSERT INTO `balance_checkpoint` (" + LedgerSchema.BALANCE_CHECKPOINT_COLUMNS + ") "
+                            + LedgerSchema.EXPECTED_BALANCE_CHECKPOINTS);
+                    statement.close();
+                    connection.commit();
+                    committed = true;
+                } finally {
+                    if (!committed)
+                        connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not rebuild the checkpoints", e);
+            }
+        }
+    }
+
+    private static List<BalanceCheckpoint> read(ResultSet resultSet) throws SQLException {
+        List<BalanceCheckpoint> checkpoints = new ArrayList<>();
+        while (resultSet.next()) {
+            checkpoints.add(new BalanceCheckpoint(resultSet.getString(1), resultSet.getInt(2), resultSet.getLong(3)));
+        }
+        resultSet.close();
+        return checkpoints;
+    }
+}
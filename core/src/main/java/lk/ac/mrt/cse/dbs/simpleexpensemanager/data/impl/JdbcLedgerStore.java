@@ -0,0 +1,407 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration.MigrationDatabase;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration.Migrator;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * LedgerStore over a JDBC connection to SQLite (e.g. the xerial sqlite-jdbc driver), for running the engine on a
+ * desktop or server JVM. It uses the schema, the migrations and the statements of the Android store, so it can open a
+ * database file copied from a device, of any version.
+ * <p/>
+ * Writes go through a single connection and are serialized on it. When the profile enables the write-ahead log and
+ * the database is a file, the DAOs read through a second, read only connection, so queries run while a batch is
+ * being posted. Otherwise the reads share the write connection.
+ * <p/>
+ * The calls are timed under the "store." names of {@link Metrics}, from the moment they hold the connection.
+ */
+public class JdbcLedgerStore implements LedgerStore {
+    private static final Timer OPEN_TIMER = Metrics.timer("store.open");
+    private static final Timer POST_TIMER = Metrics.timer("store.post");
+    private static final Timer LOAD_ACCOUNT_TIMER = Metrics.timer("store.loadAccount");
+    private static final Timer LOAD_ACCOUNTS_TIMER = Metrics.timer("store.loadAccounts");
+    private static final Timer LOAD_TRANSACTIONS_TIMER = Metrics.timer("store.loadTransactions");
+
+    private final Connection connection;
+    private final Connection readConnection;
+    private final PreparedStatement insertTransactionStatement;
+    private final PreparedStatement debitStatement;
+    private final PreparedStatement creditStatement;
+    private final PreparedStatement advanceRuleStatement;
+    private final JdbcTransactionDAO transactionDAO;
+    private final JdbcMonthlyTotalDAO monthlyTotalDAO;
+    private final JdbcSearchDAO searchDAO;
+    private final JdbcRecurringRuleDAO recurringRuleDAO;
+    private final JdbcBalanceCheckpointDAO balanceCheckpointDAO;
+
+    /***
+     * Open the database with the default profile and create the schema if it is empty.
+     *
+     * @param url - a JDBC url, e.g. "jdbc:sqlite::memory:" or "jdbc:sqlite:/var/lib/ledger.db"
+     */
+    public JdbcLedgerStore(String url) {
+        this(url, SQLiteProfile.DEFAULT);
+    }
+
+    /***
+     * Open the database and create the schema if it is empty.
+     *
+     * @param url     - a JDBC url, e.g. "jdbc:sqlite::memory:" or "jdbc:sqlite:/var/lib/ledger.db"
+     * @param profile - the connection settings
+     */
+    public JdbcLedgerStore(String url, SQLiteProfile profile) {
+        long start = OPEN_TIMER.start();
+        try {
+            connection = DriverManager.getConnection(url);
+            configure(connection, profile);
+            createSchema();
+            insertTransactionStatement = connection.prepareStatement(LedgerSchema.INSERT_TRANSACTION);
+            debitStatement = connection.prepareStatement(LedgerSchema.DEBIT_ACCOUNT);
+            creditStatement = connection.prepareStatement(LedgerSchema.CREDIT_ACCOUNT);
+            advanceRuleStatement = connection.prepareStatement(LedgerSchema.ADVANCE_RECURRING_RULE);
+            if (profile.isWriteAheadLog() && !isInMemory(url)) {
+                readConnection = DriverManager.getConnection(url);
+                configure(readConnection, profile);
+                execute(readConnection, "PRAGMA query_only = 1");
+            } else {
+                readConnection = connection;
+            }
+        } catch (SQLException e) {
+            throw new LedgerStoreException("Could not open " + url, e);
+        } finally {
+            OPEN_TIMER.stop(start, url);
+        }
+        transactionDAO = new JdbcTransactionDAO(connection, readConnection);
+        monthlyTotalDAO = new JdbcMonthlyTotalDAO(readConnection);
+        searchDAO = new JdbcSearchDAO(readConnection);
+        recurringRuleDAO = new JdbcRecurringRuleDAO(connection, readConnection);
+        balanceCheckpointDAO = new JdbcBalanceCheckpointDAO(connection, readConnection);
+    }
+
+    private static boolean isInMemory(String url) {
+        return url.contains(":memory:") || url.contains("mode=memory");
+    }
+
+    private static void configure(Connection connection, SQLiteProfile profile) throws SQLException {
+        for (String pragma : profile.getPragmas()) {
+            execute(connection, pragma);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        Statement statement = connection.createStatement();
+        int version;
+        try {
+            ResultSet resultSet = statement.executeQuery("PRAGMA user_version");
+            version = resultSet.next() ? resultSet.getInt(1) : 0;
+            resultSet.close();
+            if (version > LedgerSchema.VERSION)
+                throw new LedgerStoreException("Unsupported schema version " + version + ", the database was written by a newer version");
+
+            if (version == 0) {
+                connection.setAutoCommit(false);
+                try {
+                    for (String sql : LedgerSchema.CREATE_STATEMENTS) {
+                        statement.execute(sql);
+                    }
+                    statement.execute("PRAGMA user_version = " + LedgerSchema.VERSION);
+                    connection.commit();
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } finally {
+            statement.close();
+        }
+
+        // databases written by an older version are upgraded in place, batch by batch
+        Migrator migrator = Migrator.forLedger();
+        MigrationDatabase db = new JdbcMigrationDatabase(connection);
+        migrator.baseline(db, version == 0 ? LedgerSchema.VERSION : version);
+        migrator.migrate(db);
+        if (version != 0 && version != LedgerSchema.VERSION)
+            execute(connection, "PRAGMA user_version = " + LedgerSchema.VERSION);
+    }
+
+    @Override
+    public List<Account> loadAccounts() {
+        synchronized (connection) {
+            long start = LOAD_ACCOUNTS_TIMER.start();
+            try {
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT `accountNo`, `bankName`, `accountHolderName`, `balance` FROM `account`");
+                List<Account> accounts = new ArrayList<>();
+                while (resultSet.next()) {
+                    accounts.add(new Account(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getLong(4)));
+                }
+                resultSet.close();
+                statement.close();
+                return accounts;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not load the accounts", e);
+            } finally {
+                LOAD_ACCOUNTS_TIMER.stop(start);
+            }
+        }
+    }
+
+    @Override
+    public Account loadAccount(String accountNo) {
+        synchronized (connection) {
+            long start = LOAD_ACCOUNT_TIMER.start();
+            try {
+                PreparedStatement statement = connection.prepareStatement("SELECT `accountNo`, `bankName`, `accountHolderName`, `balance` FROM `account` WHERE `accountNo` = ?");
+                statement.setString(1, accountNo);
+                ResultSet resultSet = statement.executeQuery();
+                Account account = null;
+                if (resultSet.next()) {
+                    account = new Account(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getLong(4));
+                }
+                resultSet.close();
+                statement.close();
+                return account;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not load account " + accountNo, e);
+            } finally {
+                LOAD_ACCOUNT_TIMER.stop(start);
+            }
+        }
+    }
+
+    @Override
+    public List<String> loadAccountNumbers() {
+        synchronized (connection) {
+            try {
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT `accountNo` FROM `account`");
+                List<String> accountNumbers = new ArrayList<>();
+                while (resultSet.next()) {
+                    accountNumbers.add(resultSet.getString(1));
+                }
+                resultSet.close();
+                statement.close();
+                return accountNumbers;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not load the account numbers", e);
+            }
+        }
+    }
+
+    @Override
+    public void loadTransactions(PersistentTransactionDAO target) {
+        synchronized (connection) {
+            long start = LOAD_TRANSACTIONS_TIMER.start();
+            try {
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT `date`, `accountNo`, `expenseType`, `amount`, `transfer` FROM `transaction` ORDER BY `id`");
+                while (resultSet.next()) {
+                    target.logTransaction(resultSet.getLong(1), resultSet.getString(2),
+                            ExpenseType.valueOf(resultSet.getString(3)), resultSet.getLong(4), resultSet.getBoolean(5));
+                }
+                resultSet.close();
+                statement.close();
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not load the transactions", e);
+            } finally {
+                LOAD_TRANSACTIONS_TIMER.stop(start);
+            }
+        }
+    }
+
+    @Override
+    public void addAccount(Account account) {
+        synchronized (connection) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(LedgerSchema.INSERT_ACCOUNT);
+                statement.setString(1, account.getAccountNo());
+                statement.setString(2, account.getBankName());
+                statement.setString(3, account.getAccountHolderName());
+                statement.setLong(4, account.getBalanceCents());
+                statement.executeUpdate();
+                statement.close();
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not add account " + account.getAccountNo(), e);
+            }
+        }
+    }
+
+    @Override
+    public void post(List<Transaction> transactions) throws InvalidAccountException {
+        write(transactions, Collections.<RecurringRule>emptyList(), Collections.<RecurringRule>emptyList());
+    }
+
+    @Override
+    public boolean postRecurring(List<Transaction> transactions, List<RecurringRule> rules,
+                                 List<RecurringRule> advancedRules) throws InvalidAccountException {
+        return write(transactions, rules, advancedRules);
+    }
+
+    private boolean write(List<Transaction> transactions, List<RecurringRule> rules,
+                          List<RecurringRule> advancedRules) throws InvalidAccountException {
+        synchronized (connection) {
+            long start = POST_TIMER.start();
+            try {
+                connection.setAutoCommit(false);
+                boolean committed = false;
+                try {
+                    for (int i = 0; i < rules.size(); i++) {
+                        if (!advanceRule(rules.get(i), advancedRules.get(i)))
+                            return false;
+                    }
+                    for (Transaction transaction : transactions) {
+                        if (!postTransaction(transaction))
+                            throw new InvalidAccountException("Please enter an amount that is lesser than the account balance.");
+                    }
+                    connection.commit();
+                    committed = true;
+                    return true;
+                } finally {
+                    if (!committed)
+                        connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not post the transactions", e);
+            } finally {
+                POST_TIMER.stop(start);
+            }
+        }
+    }
+
+    /***
+     * Count the occurrences of a rule as posted. Must be called inside a database transaction.
+     *
+     * @return false if the rule is gone or was advanced since it was read
+     */
+    private boolean advanceRule(RecurringRule rule, RecurringRule advancedRule) throws SQLException {
+        advanceRuleStatement.setLong(1, advancedRule.getPosted());
+        advanceRuleStatement.setLong(2, advancedRule.getNextDay());
+        advanceRuleStatement.setLong(3, rule.getId());
+        advanceRuleStatement.setLong(4, rule.getPosted());
+        return advanceRuleStatement.executeUpdate() == 1;
+    }
+
+    /***
+     * Apply one transaction to the balance and log it. Must be called inside a database transaction.
+     *
+     * @return false if the transaction is an expense larger than the account balance
+     */
+    private boolean postTransaction(Transaction transaction) throws SQLException {
+        String accountNo = transaction.getAccountNo();
+        long amount = transaction.getAmountCents();
+
+        switch (transaction.getExpenseType()) {
+            case EXPENSE:
+                debitStatement.setLong(1, amount);
+                debitStatement.setString(2, accountNo);
+                debitStatement.setLong(3, amount);
+                if (debitStatement.executeUpdate() == 0)
+                    return false;
+                break;
+            case INCOME:
+                creditStatement.setLong(1, amount);
+                creditStatement.setString(2, accountNo);
+                creditStatement.executeUpdate();
+                break;
+        }
+
+        insertTransactionStatement.setLong(1, EpochDays.fromDate(transaction.getDate()));
+        insertTransactionStatement.setString(2, accountNo);
+        insertTransactionStatement.setString(3, transaction.getExpenseType().toString());
+        insertTransactionStatement.setLong(4, amount);
+        insertTransactionStatement.setBoolean(5, transaction.isTransfer());
+        insertTransactionStatement.executeUpdate();
+        return true;
+    }
+
+    @Override
+    public JdbcTransactionDAO getTransactionDAO() {
+        return transactionDAO;
+    }
+
+    @Override
+    public JdbcMonthlyTotalDAO getMonthlyTotalDAO() {
+        return monthlyTotalDAO;
+    }
+
+    @Override
+    public JdbcSearchDAO getSearchDAO() {
+        return searchDAO;
+    }
+
+    @Override
+    public JdbcRecurringRuleDAO getRecurringRuleDAO() {
+        return recurringRuleDAO;
+    }
+
+    @Override
+    public JdbcBalanceCheckpointDAO getBalanceCheckpointDAO() {
+        return balanceCheckpointDAO;
+    }
+
+    @Override
+    public void close() {
+        synchronized (connection) {
+            try {
+                insertTransactionStatement.close();
+                debitStatement.close();
+                creditStatement.close();
+                advanceRuleStatement.close();
+                if (readConnection != connection) {
+                    synchronized (readConnection) {
+                        readConnection.close();
+                    }
+                }
+                connection.close();
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not close the database", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration.MigrationDatabase;
+
+/**
+ * MigrationDatabase over a JDBC connection. A transaction turns auto commit off until it ends.
+ */
+public class JdbcMigrationDatabase implements MigrationDatabase {
+    private final Connection connection;
+    private boolean successful;
+
+    public JdbcMigrationDatabase(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void execSQL(String sql, Object... bindArgs) {
+        try {
+            PreparedStatement statement = prepare(sql, bindArgs);
+            try {
+                statement.execute();
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new LedgerStoreException("Could not execute " + sql, e);
+        }
+    }
+
+    @Override
+    public Long queryLong(String sql, Object... bindArgs) {
+        try {
+            PreparedStatement statement = prepare(sql, bindArgs);
+            try {
+                ResultSet resultSet = statement.executeQuery();
+                Long value = null;
+                if (resultSet.next()) {
+                    long result = resultSet.getLong(1);
+                    value = resultSet.wasNull() ? null : result;
+                }
+                resultSet.close();
+                return value;
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new LedgerStoreException("Could not query " + sql, e);
+        }
+    }
+
+    @Override
+    public List<String> describeRows(String sql) {
+        try {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            try {
+                ResultSet resultSet = statement.executeQuery();
+                int columns = resultSet.getMetaData().getColumnCount();
+                List<String> rows = new ArrayList<>();
+                StringBuilder row = new StringBuilder();
+                while (resultSet.next()) {
+                    row.setLength(0);
+                    for (int i = 1; i <= columns; i++) {
+                        if (i > 1)
+                            row.append(", ");
+                        row.append(resultSet.getString(i));
+                    }
+                    rows.add(row.toString());
+                }
+                resultSet.close();
+                return rows;
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new LedgerStoreException("Could not query " + sql, e);
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object[] bindArgs) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < bindArgs.length; i++) {
+            statement.setObject(i + 1, bindArgs[i]);
+        }
+        return statement;
+    }
+
+    @Override
+    public void beginTransaction() {
+        try {
+            connection.setAutoCommit(false);
+            successful = false;
+        } catch (SQLException e) {
+            throw new LedgerStoreException("Could not begin a transaction", e);
+        }
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        successful = true;
+    }
+
+    @Override
+    public void endTransaction() {
+        try {
+            try {
+                if (successful) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new LedgerStoreException("Could not end the transaction", e);
+        }
+    }
+}
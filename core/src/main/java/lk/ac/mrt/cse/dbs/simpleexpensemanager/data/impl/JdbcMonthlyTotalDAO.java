@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.MonthlyTotalDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.MonthlyTotal;
+
+/**
+ * MonthlyTotalDAO over the trigger maintained `monthly_total` table of a JDBC connection, the JVM counterpart of
+ * SQLiteMonthlyTotalDAO.
+ */
+public class JdbcMonthlyTotalDAO implements MonthlyTotalDAO {
+    private static final String SELECT = "SELECT " + LedgerSchema.MONTHLY_TOTAL_COLUMNS + " FROM `monthly_total` ";
+
+    private final Connection connection;
+
+    JdbcMonthlyTotalDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public List<MonthlyTotal> getMonthlyTotals(String accountNo, int fromYearMonth, int toYearMonth) {
+        return query(SELECT + "WHERE `accountNo` = ? AND `yearMonth` BETWEEN ? AND ? ORDER BY `yearMonth`, `expenseType`",
+                accountNo, fromYearMonth, toYearMonth);
+    }
+
+    @Override
+    public List<MonthlyTotal> getMonthlyTotals(int yearMonth) {
+        return query(SELECT + "WHERE `yearMonth` = ? ORDER BY `accountNo`, `expenseType`", yearMonth);
+    }
+
+    @Override
+    public long getTotal(ExpenseType expenseType, int fromYearMonth, int toYearMonth) {
+        synchronized (connection) {
+            try {
+                PreparedStatement statement = connection.prepareStatement("SELECT IFNULL(SUM(`total`), 0) FROM `monthly_total` WHERE `expenseType` = ? AND `yearMonth` BETWEEN ? AND ?");
+                statement.setString(1, expenseType.toString());
+                statement.setInt(2, fromYearMonth);
+                statement.setInt(3, toYearMonth);
+                ResultSet resultSet = statement.executeQuery();
+                long total = resultSet.next() ? resultSet.getLong(1) : 0;
+                resultSet.close();
+                statement.close();
+                return total;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not read the monthly totals", e);
+            }
+        }
+    }
+
+    private List<MonthlyTotal> query(String sql, Object... args) {
+        synchronized (connection) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                ResultSet resultSet = statement.executeQuery();
+                List<MonthlyTotal> totals = new ArrayList<>();
+                while (resultSet.next()) {
+                    totals.add(new MonthlyTotal(resultSet.getString(1), resultSet.getInt(2),
+                            ExpenseType.valueOf(resultSet.getString(3)), resultSet.getLong(4), resultSet.getLong(5)));
+                }
+                resultSet.close();
+                statement.close();
+                return totals;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not read the monthly totals", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.RecurringRuleDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+
+/**
+ * RecurringRuleDAO over the `recurring_rule` table of a JDBC connection, the JVM counterpart of
+ * SQLiteRecurringRuleDAO. Rules are added and removed through the write connection and read through the read one.
+ */
+public class JdbcRecurringRuleDAO implements RecurringRuleDAO {
+    private final Connection connection;
+    private final Connection readConnection;
+
+    JdbcRecurringRuleDAO(Connection connection, Connection readConnection) {
+        this.connection = connection;
+        this.readConnection = readConnection;
+    }
+
+    @Override
+    public RecurringRule addRule(RecurringRule rule) {
+        synchronized (connection) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(LedgerSchema.INSERT_RECURRING_RULE);
+                statement.setString(1, rule.getName());
+                statement.setString(2, rule.getAccountNo());
+                statement.setString(3, rule.getExpenseType().toString());
+                statement.setLong(4, rule.getAmountCents());
+                statement.setString(5, rule.getPeriod().toString());
+                statement.setInt(6, rule.getEvery());
+                statement.setLong(7, rule.getStartDay());
+                statement.setLong(8, rule.getEndDay());
+                statement.setLong(9, rule.getPosted());
+                statement.setLong(10, rule.getNextDay());
+                statement.executeUpdate();
+                statement.close();
+
+                Statement idStatement = connection.createStatement();
+                ResultSet resultSet = idStatement.executeQuery("SELECT last_insert_rowid()");
+                resultSet.next();
+                long id = resultSet.getLong(1);
+                resultSet.close();
+                idStatement.close();
+                return rule.withId(id);
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not add the recurring rule " + rule.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeRule(long id) {
+        synchronized (connection) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(LedgerSchema.DELETE_RECURRING_RULE);
+                statement.setLong(1, id);
+                int deleted = statement.executeUpdate();
+                statement.close();
+                return deleted > 0;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not remove the recurring rule " + id, e);
+            }
+        }
+    }
+
+    @Override
+    public List<RecurringRule> getRules() {
+        return query(LedgerSchema.SELECT_RECURRING_RULES);
+    }
+
+    @Override
+    public List<RecurringRule> getDueRules(long epochDay, int limit) {
+        return query(LedgerSchema.SELECT_DUE_RECURRING_RULES, epochDay, limit);
+    }
+
+    private List<RecurringRule> query(String sql, Object... args) {
+        synchronized (readConnection) {
+            try {
+                PreparedStatement statement = readConnection.prepareStatement(sql);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                ResultSet resultSet = statement.executeQuery();
+                List<RecurringRule> rules = new ArrayList<>();
+                while (resultSet.next()) {
+                    rules.add(new RecurringRule(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                            ExpenseType.valueOf(resultSet.getString(4)), resultSet.getLong(5),
+                            RecurringRule.Period.valueOf(resultSet.getString(6)), resultSet.getInt(7),
+                            resultSet.getLong(8), resultSet.getLong(9), resultSet.getLong(10)));
+                }
+                resultSet.close();
+                statement.close();
+                return rules;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not read the recurring rules", e);
+            }
+        }
+    }
+}
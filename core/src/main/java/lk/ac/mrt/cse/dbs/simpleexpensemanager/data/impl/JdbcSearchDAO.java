@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * SearchDAO over the `account_search` full text index of a JDBC connection, the JVM counterpart of SQLiteSearchDAO.
+ */
+public class JdbcSearchDAO implements SearchDAO {
+    private static final Timer ACCOUNTS_TIMER = Metrics.timer("store.searchAccounts");
+    private static final Timer TRANSACTIONS_TIMER = Metrics.timer("store.searchTransactions");
+
+    private final Connection connection;
+
+    JdbcSearchDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public List<Account> searchAccounts(String query, int limit) {
+        String match = LedgerSearch.matchExpression(query);
+        if (match == null)
+            return Collections.emptyList();
+        synchronized (connection) {
+            long start = ACCOUNTS_TIMER.start();
+            try {
+                PreparedStatement statement = connection.prepareStatement(LedgerSchema.SEARCH_ACCOUNTS);
+                statement.setString(1, match);
+                statement.setInt(2, limit);
+                ResultSet resultSet = statement.executeQuery();
+                List<Account> accounts = new ArrayList<>();
+                while (resultSet.next()) {
+                    accounts.add(new Account(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getLong(4)));
+                }
+                resultSet.close();
+                statement.close();
+                return accounts;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not search the accounts", e);
+            } finally {
+                ACCOUNTS_TIMER.stop(start, LedgerSchema.SEARCH_ACCOUNTS);
+            }
+        }
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(String query, Transaction after, int limit) {
+        String match = LedgerSearch.matchExpression(query);
+        if (match == null)
+            return Collections.emptyList();
+        long cursorDay = LedgerSearch.cursorDay(after);
+        long cursorId = LedgerSearch.cursorId(after);
+        synchronized (connection) {
+            long start = TRANSACTIONS_TIMER.start();
+            try {
+                PreparedStatement statement = connection.prepareStatement(LedgerSchema.SEARCH_ACCOUNT_NUMBERS);
+                statement.setString(1, match);
+                statement.setInt(2, LedgerSearch.MAX_ACCOUNTS);
+                ResultSet resultSet = statement.executeQuery();
+                List<String> accountNumbers = new ArrayList<>();
+                while (resultSet.next()) {
+                    accountNumbers.add(resultSet.getString(1));
+                }
+                resultSet.close();
+                statement.close();
+
+                List<Transaction> candidates = new ArrayList<>();
+                statement = connection.prepareStatement(LedgerSchema.SEARCH_ACCOUNT_TRANSACTIONS);
+                for (String accountNo : accountNumbers) {
+                    statement.setString(1, accountNo);
+                    statement.setLong(2, cursorDay);
+                    statement.setLong(3, cursorDay);
+                    statement.setLong(4, cursorId);
+                    statement.setInt(5, limit);
+                    resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        candidates.add(new Transaction(resultSet.getLong(1), EpochDays.toDate(resultSet.getLong(2)),
+                                resultSet.getString(3), ExpenseType.valueOf(resultSet.getString(4)),
+                                resultSet.getLong(5), resultSet.getBoolean(6)));
+                    }
+                    resultSet.close();
+                }
+                statement.close();
+                return LedgerSearch.newestFirst(candidates, limit);
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not search the transactions", e);
+            } finally {
+                TRANSACTIONS_TIMER.stop(start, LedgerSchema.SEARCH_ACCOUNT_TRANSACTIONS);
+            }
+        }
+    }
+}
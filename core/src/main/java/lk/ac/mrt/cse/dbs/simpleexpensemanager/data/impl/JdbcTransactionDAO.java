@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * TransactionDAO over the `transaction` table of a JDBC connection, the JVM counterpart of SQLiteTransactionDAO.
+ */
+public class JdbcTransactionDAO implements TransactionDAO {
+    private static final String SELECT = "SELECT " + LedgerSchema.TRANSACTION_COLUMNS + " FROM `transaction` ";
+
+    private static final Timer PAGE_TIMER = Metrics.timer("store.transactionPage");
+    private static final Timer ACCOUNT_TIMER = Metrics.timer("store.accountTransactions");
+    private static final Timer ALL_TIMER = Metrics.timer("store.allTransactions");
+
+    private final Connection connection;
+    private final Connection readConnection;
+
+    /***
+     * @param connection     - used to log transactions
+     * @param readConnection - used by the queries, may be the same connection
+     */
+    JdbcTransactionDAO(Connection connection, Connection readConnection) {
+        this.connection = connection;
+        this.readConnection = readConnection;
+    }
+
+    @Override
+    public void logTransaction(Date date, String accountNo, ExpenseType expenseType, long amount) {
+        synchronized (connection) {
+            try {
+                PreparedStatement statement = connection.prepareStatement(LedgerSchema.INSERT_TRANSACTION);
+                statement.setLong(1, EpochDays.fromDate(date));
+                statement.setString(2, accountNo);
+                statement.setString(3, expenseType.toString());
+                statement.setLong(4, amount);
+                statement.setBoolean(5, false);
+                statement.executeUpdate();
+                statement.close();
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not log the transaction", e);
+            }
+        }
+    }
+
+    @Override
+    public List<Transaction> getAllTransactionLogs() {
+        return query(ALL_TIMER, SELECT + "ORDER BY `id`");
+    }
+
+    @Override
+    public List<Transaction> getPaginatedTransactionLogs(int limit) {
+        List<Transaction> transactions = query(PAGE_TIMER, SELECT + "ORDER BY `id` DESC LIMIT ?", limit);
+        // return the last <code>limit</code> number of transaction logs, oldest first
+        Collections.reverse(transactions);
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> getAccountTransactionLogs(String accountNo, Date from, Date to) {
+        return query(ACCOUNT_TIMER, SELECT + "WHERE `accountNo` = ? AND `date` BETWEEN ? AND ? ORDER BY `date`, `id`",
+                accountNo, EpochDays.fromDate(from), EpochDays.fromDate(to));
+    }
+
+    @Override
+    public List<Transaction> getTransactionLogsBefore(long beforeId, int limit) {
+        // keyset pagination: seek on the primary key instead of OFFSET, so deep pages cost as much as the first
+        return query(PAGE_TIMER, SELECT + "WHERE `id` < ? ORDER BY `id` DESC LIMIT ?", beforeId, limit);
+    }
+
+    private List<Transaction> query(Timer timer, String sql, Object... args) {
+        synchronized (readConnection) {
+            long start = timer.start();
+            try {
+                PreparedStatement statement = readConnection.prepareStatement(sql);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                ResultSet resultSet = statement.executeQuery();
+                List<Transaction> transactions = new ArrayList<>();
+                while (resultSet.next()) {
+                    transactions.add(new Transaction(resultSet.getLong(1), EpochDays.toDate(resultSet.getLong(2)),
+                            resultSet.getString(3), ExpenseType.valueOf(resultSet.getString(4)), resultSet.getLong(5),
+                            resultSet.getBoolean(6)));
+                }
+                resultSet.close();
+                statement.close();
+                return transactions;
+            } catch (SQLException e) {
+                throw new LedgerStoreException("Could not read the transactions", e);
+            } finally {
+                timer.stop(start, sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of length-prefixed records, the storage of {@link JournalLedgerStore}. The file starts with a
+ * header, a magic number, the kind of file and its generation, and every record follows as its length, the CRC32 of
+ * its bytes and the bytes. A record cut short by a crash, or whose checksum does not match, ends the file:
+ * {@link #read} stops before it and {@link #open} truncates it away.
+ * <p/>
+ * {@link #append(JournalRecord)} only copies a record into a buffer. {@link #sync(long)} makes it durable with a group
+ * commit: the first caller writes every record appended so far and forces the file once, while the callers that
+ * arrive in the meantime wait and return without any I/O if their record was part of that write.
+ */
+final class Journal {
+    static final int KIND_JOURNAL = 1;
+    static final int KIND_SNAPSHOT = 2;
+
+    private static final int MAGIC = 0x534d454a;
+    private static final int HEADER_SIZE = 16;
+    // length and checksum
+    private static final int FRAME_SIZE = 8;
+    private static final int INITIAL_BUFFER_SIZE = 16 << 10;
+
+    /**
+     * Receives the records of a file, in order. The buffer is only valid during the call.
+     */
+    interface RecordHandler {
+        void onRecord(ByteBuffer record) throws IOException;
+    }
+
+    private final File file;
+    private final long generation;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+
+    // guarded by this: the records appended and not written yet go to pending, while the one writer owns the other
+    // buffer; the offsets are the end of the appended, the written and the forced records
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long size;
+    private long written;
+    private long durable;
+    private boolean writing;
+    private IOException failure;
+
+    private Journal(File file, long generation, RandomAccessFile randomAccessFile, long size) {
+        this.file = file;
+        this.generation = generation;
+        this.randomAccessFile = randomAccessFile;
+        this.channel = randomAccessFile.getChannel();
+        this.size = size;
+        this.written = size;
+        this.durable = size;
+    }
+
+    /***
+     * Create an empty file, replacing the file of that name if there is one.
+     *
+     * @param file
+     * @param kind       - KIND_JOURNAL or KIND_SNAPSHOT
+     * @param generation - the generation written into the header
+     * @return
+     * @throws IOException
+     */
+    static Journal create(File file, int kind, long generation) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(kind).putLong(generation).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+        return new Journal(file, generation, randomAccessFile, HEADER_SIZE);
+    }
+
+    /***
+     * Open a file read by {@link #read} to append to it, cutting off what follows its last whole record.
+     *
+     * @param file
+     * @param generation
+     * @param end        - the offset returned by read
+     * @return
+     * @throws IOException
+     */
+    static Journal open(File file, long generation, long end) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() > end) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+        return new Journal(file, generation, randomAccessFile, end);
+    }
+
+    /***
+     * Read the records of a file through a read-only memory mapping, up to the first record that is cut short or
+     * does not match its checksum.
+     *
+     * @param file
+     * @param kind       - the kind the header must have
+     * @param generation - the generation the header must have
+     * @param handler    - receives the records
+     * @return - the offset after the last whole record, or 0 if the file is shorter than its header
+     * @throws IOException - if the header is not the expected one, or the handler fails
+     */
+    static long read(File file, int kind, long generation, RecordHandler handler) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE)
+                return 0;
+            if (length > Integer.MAX_VALUE)
+                throw new IOException(file + " is too large to be mapped");
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (mapped.getInt() != MAGIC || mapped.getInt() != kind || mapped.getLong() != generation)
+                throw new IOException(file + " does not have the header of generation " + generation);
+
+            CRC32 checksum = new CRC32();
+            byte[] bytes = new byte[256];
+            long end = mapped.position();
+            while (mapped.remaining() >= FRAME_SIZE) {
+                int recordLength = mapped.getInt();
+                int recordChecksum = mapped.getInt();
+                if (recordLength <= 0 || recordLength > mapped.remaining())
+                    break;
+                if (recordLength > bytes.length)
+                    bytes = new byte[Math.max(recordLength, bytes.length * 2)];
+                mapped.get(bytes, 0, recordLength);
+                checksum.reset();
+                checksum.update(bytes, 0, recordLength);
+                if ((int) checksum.getValue() != recordChecksum)
+                    break;
+                handler.onRecord(ByteBuffer.wrap(bytes, 0, recordLength));
+                end = mapped.position();
+            }
+            return end;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /***
+     * @return - the length of the file once every record appended so far is written
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /***
+     * Append a record to the buffer, without writing it yet.
+     *
+     * @param record
+     * @return - the offset after the record, to pass to {@link #sync(long)}
+     */
+    synchronized long append(JournalRecord record) {
+        int length = record.length();
+        if (pending.remaining() < FRAME_SIZE + length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + FRAME_SIZE + length));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        crc.reset();
+        crc.update(record.bytes(), 0, length);
+        pending.putInt(length).putInt((int) crc.getValue()).put(record.bytes(), 0, length);
+        size += FRAME_SIZE + length;
+        return size;
+    }
+
+    /***
+     * Wait until the file is forced to disk up to an offset, writing and forcing it if no other thread is.
+     *
+     * @param position - an offset returned by append
+     * @throws IOException - if this or an earlier write failed, the records after the last forced one may be lost
+     */
+    void sync(long position) throws IOException {
+        write(position, true);
+    }
+
+    /***
+     * Write the records appended so far without forcing them to disk, so that they do not pile up in memory.
+     *
+     * @throws IOException
+     */
+    void flush() throws IOException {
+        write(size(), false);
+    }
+
+    private void write(long position, boolean force) throws IOException {
+        ByteBuffer batch;
+        long end;
+        synchronized (this) {
+            while (true) {
+                if (failure != null)
+                    throw new IOException("An earlier write to " + file + " failed", failure);
+                if ((force ? durable : written) >= position)
+                    return;
+                if (!writing)
+                    break;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for " + file);
+                }
+            }
+            // lead a group commit of everything appended so far
+            writing = true;
+            batch = pending;
+            pending = spare;
+            spare = null;
+            end = size;
+        }
+
+        IOException error = null;
+        try {
+            batch.flip();
+            long offset = end - batch.remaining();
+            while (batch.hasRemaining()) {
+                offset += channel.write(batch, offset);
+            }
+            if (force)
+                channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            writing = false;
+            batch.clear();
+            spare = batch;
+            if (error == null) {
+                written = end;
+                if (force)
+                    durable = end;
+            } else {
+                failure = error;
+            }
+            notifyAll();
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /***
+     * Force every record appended so far to disk and close the file.
+     *
+     * @throws IOException
+     */
+    void close() throws IOException {
+        try {
+            sync(size());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
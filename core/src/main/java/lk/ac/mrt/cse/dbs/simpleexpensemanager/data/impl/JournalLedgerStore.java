@@ -0,0 +1,574 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.RecurringRuleDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.LedgerStoreException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Counter;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Metrics;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics.Timer;
+
+/**
+ * LedgerStore that keeps the ledger in memory, like {@link InMemoryLedgerStore}, and makes every change durable in an
+ * append-only journal in a directory, instead of updating the `account` row and inserting into `transaction`.
+ * <p/>
+ * Every write is applied in memory, where the expenses are checked against the balances, and appended to the journal
+ * as one record: an account, a posting, the occurrences of standing orders with their advanced rules, or a rule
+ * added or removed. The call returns once the record is forced to disk. Writers that arrive while the journal is
+ * being forced are committed together by the next force (see {@link Journal}). A posting is visible to readers as
+ * soon as it is applied, a moment before it is durable; if the disk fails the store refuses any further write.
+ * <p/>
+ * When the journal grows past the compaction threshold a background thread starts a new journal and writes a snapshot
+ * of the store as it was at that moment: the accounts with their opening balances, the rules and the transaction log.
+ * The snapshot is written to a temporary file and renamed. The journal and the snapshot before it are kept until the
+ * next compaction, in case the rename does not reach the disk before a power loss, which nothing forces. Opening
+ * the store reads the last snapshot and the journals after it through a read-only memory mapping, and cuts off a
+ * record left incomplete by a crash at the end of the last journal.
+ * <p/>
+ * The calls are timed under the "journal." names of {@link Metrics}.
+ */
+public class JournalLedgerStore extends InMemoryLedgerStore {
+    /***
+     * Bytes of journal after which the store is compacted, about a hundred thousand postings.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 4L << 20;
+
+    private static final Timer OPEN_TIMER = Metrics.timer("journal.open");
+    private static final Timer SYNC_TIMER = Metrics.timer("journal.sync");
+    private static final Timer COMPACT_TIMER = Metrics.timer("journal.compact");
+    private static final Counter COMPACTION_FAILURE_COUNTER = Metrics.counter("journal.compaction.failures");
+
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int SNAPSHOT_CHUNK = 4096;
+
+    // record types of the journal
+    private static final byte ADD_ACCOUNT = 1;
+    private static final byte POST = 2;
+    private static final byte POST_RECURRING = 3;
+    private static final byte ADD_RULE = 4;
+    private static final byte REMOVE_RULE = 5;
+    // record types of a snapshot, which also holds ADD_RULE records
+    private static final byte OPEN_ACCOUNT = 6;
+    private static final byte RESTORE = 7;
+    private static final byte END = 8;
+
+    private final File directory;
+    private final long compactionThreshold;
+    private final ExecutorService compactor;
+    private final JournalRecurringRuleDAO recurringRuleDAO;
+    private final Runnable compaction = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                compactNow();
+            } catch (IOException e) {
+                COMPACTION_FAILURE_COUNTER.increment();
+                lastCompactionFailure = e;
+            }
+        }
+    };
+
+    // guarded by this
+    private Journal journal;
+    private long compactAt;
+    private boolean compacting;
+    private boolean closed;
+
+    private volatile IOException lastCompactionFailure;
+
+    /***
+     * Open the store in a directory, creating it if needed, with the default compaction threshold.
+     *
+     * @param directory
+     */
+    public JournalLedgerStore(File directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /***
+     * Open the store in a directory, creating it if needed.
+     *
+     * @param directory
+     * @param compactionThreshold - bytes of journal after which a snapshot is written in the background
+     */
+    public JournalLedgerStore(File directory, long compactionThreshold) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.recurringRuleDAO = new JournalRecurringRuleDAO(super.getRecurringRuleDAO());
+        long start = OPEN_TIMER.start();
+        try {
+            journal = recover();
+        } catch (IOException e) {
+            throw new LedgerStoreException("Could not open the journal in " + directory, e);
+        } finally {
+            OPEN_TIMER.stop(start, directory.getPath());
+        }
+        compactAt = journal.size() + compactionThreshold;
+        compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "journal-compactor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+    }
+
+    private File journalFile(long generation) {
+        return new File(directory, JOURNAL_PREFIX + generation);
+    }
+
+    private File snapshotFile(long generation) {
+        return new File(directory, SNAPSHOT_PREFIX + generation);
+    }
+
+    private static long generationOf(String name, String prefix) {
+        if (!name.startsWith(prefix))
+            return -1;
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /***
+     * Load the last snapshot, replay the journals after it and open the last one for appending. A snapshot of
+     * generation n holds the store as it was when journal n was started.
+     */
+    private Journal recover() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create " + directory);
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new IOException("Could not list " + directory);
+
+        long snapshotGeneration = -1;
+        TreeMap<Long, File> journals = new TreeMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMPORARY_SUFFIX)) {
+                // a snapshot the last compaction did not finish
+                file.delete();
+            } else if (generationOf(name, SNAPSHOT_PREFIX) >= 0) {
+                snapshotGeneration = Math.max(snapshotGeneration, generationOf(name, SNAPSHOT_PREFIX));
+            } else if (generationOf(name, JOURNAL_PREFIX) >= 0) {
+                journals.put(generationOf(name, JOURNAL_PREFIX), file);
+            }
+        }
+
+        long generation = Math.max(snapshotGeneration, 0);
+        if (snapshotGeneration >= 0)
+            loadSnapshot(snapshotFile(snapshotGeneration), snapshotGeneration);
+        // the journals before the snapshot are in it, the later ones must follow each other
+        deleteBefore(generation - 1);
+        List<File> replayed = new ArrayList<>(journals.tailMap(generation).values());
+        if (replayed.isEmpty())
+            return Journal.create(journalFile(generation), Journal.KIND_JOURNAL, generation);
+        for (int i = 0; i < replayed.size(); i++) {
+            File file = replayed.get(i);
+            if (!file.equals(journalFile(generation + i)))
+                throw new IOException("Journal " + (generation + i) + " is missing in " + directory);
+            long end = Journal.read(file, Journal.KIND_JOURNAL, generation + i, replayer);
+            boolean last = i == replayed.size() - 1;
+            if (last && end == 0)
+                return Journal.create(file, Journal.KIND_JOURNAL, generation + i);
+            if (last)
+                return Journal.open(file, generation + i, end);
+            if (end != file.length())
+                throw new IOException(file + " is damaged before the end of the journal");
+        }
+        throw new AssertionError();
+    }
+
+    private void loadSnapshot(File file, long generation) throws IOException {
+        final boolean[] complete = new boolean[1];
+        Journal.read(file, Journal.KIND_SNAPSHOT, generation, new Journal.RecordHandler() {
+            @Override
+            public void onRecord(ByteBuffer record) throws IOException {
+                switch (record.get()) {
+                    case OPEN_ACCOUNT:
+                        JournalLedgerStore.super.addAccount(JournalRecord.getAccount(record));
+                        break;
+                    case ADD_RULE:
+                        restoreRule(JournalRecord.getRule(record));
+                        break;
+                    case RESTORE:
+                        for (Transaction transaction : JournalRecord.getTransactions(record)) {
+                            restore(EpochDays.fromDate(transaction.getDate()), transaction.getAccountNo(),
+                                    transaction.getExpenseType(), transaction.getAmountCents(),
+                                    transaction.isTransfer());
+                        }
+                        break;
+                    case END:
+                        complete[0] = record.getLong() == getTransactionDAO().getAllTransactionLogs().size();
+                        break;
+                    default:
+                        throw new IOException("Unknown record in " + file);
+                }
+            }
+        });
+        if (!complete[0])
+            throw new IOException(file + " is incomplete");
+    }
+
+    private final Journal.RecordHandler replayer = new Journal.RecordHandler() {
+        @Override
+        public void onRecord(ByteBuffer record) throws IOException {
+            try {
+                switch (record.get()) {
+                    case ADD_ACCOUNT:
+                        JournalLedgerStore.super.addAccount(JournalRecord.getAccount(record));
+                        break;
+                    case POST:
+                        JournalLedgerStore.super.post(JournalRecord.getTransactions(record));
+                        break;
+                    case POST_RECURRING:
+                        JournalLedgerStore.super.post(JournalRecord.getTransactions(record));
+                        for (int rules = record.getInt(); rules > 0; rules--) {
+                            restoreRule(JournalRecord.getRule(record));
+                        }
+                        break;
+                    case ADD_RULE:
+                        restoreRule(JournalRecord.getRule(record));
+                        break;
+                    case REMOVE_RULE:
+                        JournalLedgerStore.super.getRecurringRuleDAO().removeRule(record.getLong());
+                        break;
+                    default:
+                        throw new IOException("Unknown record in the journal of " + directory);
+                }
+            } catch (InvalidAccountException e) {
+                throw new IOException("The journal of " + directory + " does not replay", e);
+            }
+        }
+    };
+
+    private void deleteBefore(long generation) {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            long journalGeneration = generationOf(file.getName(), JOURNAL_PREFIX);
+            long snapshotGeneration = generationOf(file.getName(), SNAPSHOT_PREFIX);
+            if ((journalGeneration >= 0 && journalGeneration < generation)
+                    || (snapshotGeneration >= 0 && snapshotGeneration < generation))
+                file.delete();
+        }
+    }
+
+    @Override
+    public void addAccount(Account account) {
+        Journal target;
+        long position;
+        synchronized (this) {
+            checkOpen();
+            super.addAccount(account);
+            target = journal;
+            position = append(new JournalRecord(ADD_ACCOUNT).putAccount(account));
+        }
+        sync(target, position);
+    }
+
+    @Override
+    public void post(List<Transaction> transactions) throws InvalidAccountException {
+        Journal target;
+        long position;
+        synchronized (this) {
+            checkOpen();
+            super.post(transactions);
+            target = journal;
+            position = append(new JournalRecord(POST).putTransactions(transactions));
+        }
+        sync(target, position);
+    }
+
+    @Override
+    public boolean postRecurring(List<Transaction> transactions, List<RecurringRule> rules,
+                                 List<RecurringRule> advancedRules) throws InvalidAccountException {
+        Journal target;
+        long position;
+        synchronized (this) {
+            checkOpen();
+            if (!super.postRecurring(transactions, rules, advancedRules))
+                return false;
+            JournalRecord record = new JournalRecord(POST_RECURRING).putTransactions(transactions);
+            record.putInt(advancedRules.size());
+            for (RecurringRule advancedRule : advancedRules) {
+                record.putRule(advancedRule);
+            }
+            target = journal;
+            position = append(record);
+        }
+        sync(target, position);
+        return true;
+    }
+
+    @Override
+    public RecurringRuleDAO getRecurringRuleDAO() {
+        return recurringRuleDAO;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new LedgerStoreException("The journal store in " + directory + " is closed");
+    }
+
+    /***
+     * Append a record to the current journal and start a compaction when it is due. Must hold the monitor.
+     *
+     * @return - the offset to sync
+     */
+    private long append(JournalRecord record) {
+        long position = journal.append(record);
+        if (!compacting && position >= compactAt) {
+            compacting = true;
+            compactor.execute(compaction);
+        }
+        return position;
+    }
+
+    private void sync(Journal target, long position) {
+        long start = SYNC_TIMER.start();
+        try {
+            target.sync(position);
+        } catch (IOException e) {
+            // the change is applied in memory but may not be on disk, nothing written after it could be trusted
+            synchronized (this) {
+                closed = true;
+            }
+            throw new LedgerStoreException("Could not write the journal in " + directory, e);
+        } finally {
+            SYNC_TIMER.stop(start);
+        }
+    }
+
+    /***
+     * Write a snapshot and start a new journal now, on the calling thread once a compaction running in the
+     * background is done. The store compacts itself when the journal grows past the threshold; this is for tools
+     * and tests.
+     */
+    public void compact() {
+        synchronized (this) {
+            checkOpen();
+            compacting = true;
+        }
+        lastCompactionFailure = null;
+        try {
+            compactor.submit(compaction).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerStoreException("Interrupted while compacting " + directory, e);
+        } catch (ExecutionException e) {
+            throw new LedgerStoreException("Could not compact " + directory, e.getCause());
+        }
+        IOException failure = lastCompactionFailure;
+        if (failure != null)
+            throw new LedgerStoreException("Could not compact " + directory, failure);
+    }
+
+    /***
+     * Start journal n + 1 and write snapshot n + 1 from the store as it is at that moment, then delete the files of
+     * generation n - 1. Runs on the compactor thread.
+     */
+    private void compactNow() throws IOException {
+        long start = COMPACT_TIMER.start();
+        Journal previous;
+        long generation;
+        List<Account> accounts;
+        List<RecurringRule> rules;
+        List<Transaction> log;
+        try {
+            synchronized (this) {
+                if (closed)
+                    return;
+                previous = journal;
+                generation = previous.getGeneration() + 1;
+                try {
+                    // a snapshot replaces journal n, every record of it must be on disk before the new one starts
+                    previous.sync(previous.size());
+                    journal = Journal.create(journalFile(generation), Journal.KIND_JOURNAL, generation);
+                } finally {
+                    compactAt = journal.size() + compactionThreshold;
+                }
+                accounts = loadAccounts();
+                rules = super.getRecurringRuleDAO().getRules();
+                // a read-only view of the rows logged so far, the log goes on growing while it is written
+                log = getTransactionDAO().getAllTransactionLogs();
+            }
+            previous.close();
+            writeSnapshot(generation, accounts, rules, log);
+            deleteBefore(generation - 1);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+            COMPACT_TIMER.stop(start, directory.getPath());
+        }
+    }
+
+    private void writeSnapshot(long generation, List<Account> accounts, List<RecurringRule> rules,
+                               List<Transaction> log) throws IOException {
+        // the accounts are written with their balances before the log, replaying it gives the current ones
+        Map<String, Long> openingBalances = new HashMap<>();
+        for (Account account : accounts) {
+            openingBalances.put(account.getAccountNo(), account.getBalanceCents());
+        }
+        for (Transaction transaction : log) {
+            Long balance = openingBalances.get(transaction.getAccountNo());
+            if (balance != null) {
+                long amount = transaction.getAmountCents();
+                openingBalances.put(transaction.getAccountNo(),
+                        balance + (transaction.getExpenseType() == ExpenseType.INCOME ? -amount : amount));
+            }
+        }
+
+        File temporary = new File(directory, SNAPSHOT_PREFIX + generation + TEMPORARY_SUFFIX);
+        Journal snapshot = Journal.create(temporary, Journal.KIND_SNAPSHOT, generation);
+        try {
+            for (Account account : accounts) {
+                snapshot.append(new JournalRecord(OPEN_ACCOUNT).putAccount(new Account(account.getAccountNo(),
+                        account.getBankName(), account.getAccountHolderName(),
+                        openingBalances.get(account.getAccountNo()))));
+            }
+            for (RecurringRule rule : rules) {
+                snapshot.append(new JournalRecord(ADD_RULE).putRule(rule));
+            }
+            for (int from = 0; from < log.size(); from += SNAPSHOT_CHUNK) {
+                snapshot.append(new JournalRecord(RESTORE).putTransactions(
+                        log.subList(from, Math.min(from + SNAPSHOT_CHUNK, log.size()))));
+                snapshot.flush();
+            }
+            snapshot.append(new JournalRecord(END).putLong(log.size()));
+        } catch (IOException e) {
+            try {
+                snapshot.close();
+            } catch (IOException ignored) {
+                // the first failure is the one to report
+            }
+            temporary.delete();
+            throw e;
+        }
+        snapshot.close();
+        if (!temporary.renameTo(snapshotFile(generation))) {
+            temporary.delete();
+            throw new IOException("Could not rename " + temporary);
+        }
+    }
+
+    /***
+     * Wait for a running compaction, force the journal to disk and close it. The store cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed && compactor.isShutdown())
+                return;
+            closed = true;
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Journal last;
+        synchronized (this) {
+            last = journal;
+        }
+        try {
+            last.close();
+        } catch (IOException e) {
+            throw new LedgerStoreException("Could not close the journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Journals the rules added and removed, the in memory DAO keeps them.
+     */
+    private final class JournalRecurringRuleDAO implements RecurringRuleDAO {
+        private final RecurringRuleDAO rules;
+
+        JournalRecurringRuleDAO(RecurringRuleDAO rules) {
+            this.rules = rules;
+        }
+
+        @Override
+        public RecurringRule addRule(RecurringRule rule) {
+            RecurringRule stored;
+            Journal target;
+            long position;
+            synchronized (JournalLedgerStore.this) {
+                checkOpen();
+                stored = rules.addRule(rule);
+                target = journal;
+                position = append(new JournalRecord(ADD_RULE).putRule(stored));
+            }
+            sync(target, position);
+            return stored;
+        }
+
+        @Override
+        public boolean removeRule(long id) {
+            Journal target;
+            long position;
+            synchronized (JournalLedgerStore.this) {
+                checkOpen();
+                if (!rules.removeRule(id))
+                    return false;
+                target = journal;
+                position = append(new JournalRecord(REMOVE_RULE).putLong(id));
+            }
+            sync(target, position);
+            return true;
+        }
+
+        @Override
+        public List<RecurringRule> getRules() {
+            return rules.getRules();
+        }
+
+        @Override
+        public List<RecurringRule> getDueRules(long epochDay, int limit) {
+            return rules.getDueRules(epochDay, limit);
+        }
+    }
+}
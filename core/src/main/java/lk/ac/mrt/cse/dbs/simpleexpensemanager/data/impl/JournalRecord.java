@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * One record of a {@link Journal} being written: a type byte followed by big-endian fields in a growable array. The
+ * static getters read the same fields back from the ByteBuffer of a record.
+ * <p/>
+ * Strings are written as their UTF-8 length and bytes, -1 for null. A transaction is its epoch day, account number,
+ * expense type and amount in cents; its id is the position in the log and its date is a whole day, so neither is
+ * written. The expense type byte has the TRANSFER_LEG bit set for a leg of a transfer.
+ */
+final class JournalRecord {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int TRANSFER_LEG = 0x40;
+
+    private byte[] bytes = new byte[64];
+    private int length;
+
+    /***
+     * @param type - what the record does, one of the record types of the store
+     */
+    JournalRecord(byte type) {
+        putByte(type);
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    private void ensure(int more) {
+        if (length + more > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(length + more, bytes.length * 2));
+    }
+
+    JournalRecord putByte(int value) {
+        ensure(1);
+        bytes[length++] = (byte) value;
+        return this;
+    }
+
+    JournalRecord putInt(int value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            bytes[length++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    JournalRecord putLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[length++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    JournalRecord putString(String value) {
+        if (value == null)
+            return putInt(-1);
+        byte[] encoded = value.getBytes(UTF_8);
+        putInt(encoded.length);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+        return this;
+    }
+
+    static String getString(ByteBuffer record) {
+        int encodedLength = record.getInt();
+        if (encodedLength < 0)
+            return null;
+        String value = new String(record.array(), record.arrayOffset() + record.position(), encodedLength, UTF_8);
+        record.position(record.position() + encodedLength);
+        return value;
+    }
+
+    JournalRecord putAccount(Account account) {
+        return putString(account.getAccountNo()).putString(account.getBankName())
+                .putString(account.getAccountHolderName()).putLong(account.getBalanceCents());
+    }
+
+    static Account getAccount(ByteBuffer record) {
+        return new Account(getString(record), getString(record), getString(record), record.getLong());
+    }
+
+    JournalRecord putTransaction(long epochDay, String accountNo, ExpenseType expenseType, long amount,
+                                 boolean transfer) {
+        return putInt((int) epochDay).putString(accountNo)
+                .putByte(expenseType.ordinal() | (transfer ? TRANSFER_LEG : 0)).putLong(amount);
+    }
+
+    JournalRecord putTransactions(List<Transaction> transactions) {
+        putInt(transactions.size());
+        for (Transaction transaction : transactions) {
+            putTransaction(EpochDays.fromDate(transaction.getDate()), transaction.getAccountNo(),
+                    transaction.getExpenseType(), transaction.getAmountCents(), transaction.isTransfer());
+        }
+        return this;
+    }
+
+    static List<Transaction> getTransactions(ByteBuffer record) {
+        int count = record.getInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long epochDay = record.getInt();
+            String accountNo = getString(record);
+            int type = record.get();
+            ExpenseType expenseType = ExpenseType.values()[type & ~TRANSFER_LEG];
+            transactions.add(new Transaction(0, EpochDays.toDate(epochDay), accountNo, expenseType, record.getLong(),
+                    (type & TRANSFER_LEG) != 0));
+        }
+        return transactions;
+    }
+
+    JournalRecord putRule(RecurringRule rule) {
+        return putLong(rule.getId()).putString(rule.getName()).putString(rule.getAccountNo())
+                .putByte(rule.getExpenseType().ordinal()).putLong(rule.getAmountCents())
+                .putByte(rule.getPeriod().ordinal()).putInt(rule.getEvery()).putLong(rule.getStartDay())
+                .putLong(rule.getEndDay()).putLong(rule.getPosted());
+    }
+
+    static RecurringRule getRule(ByteBuffer record) {
+        long id = record.getLong();
+        String name = getString(record);
+        String accountNo = getString(record);
+        ExpenseType expenseType = ExpenseType.values()[record.get()];
+        long amountCents = record.getLong();
+        RecurringRule.Period period = RecurringRule.Period.values()[record.get()];
+        int every = record.getInt();
+        return new RecurringRule(id, name, accountNo, expenseType, amountCents, period, every, record.getLong(),
+                record.getLong(), record.getLong());
+    }
+}
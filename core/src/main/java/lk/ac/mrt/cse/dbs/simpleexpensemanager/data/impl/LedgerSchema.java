@@ -0,0 +1,224 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+/**
+ * The SQLite schema of the ledger and the statements of the write path, shared by the Android and the JDBC stores so
+ * that both produce the same database file.
+ * <p/>
+ * Dates are stored as epoch days and amounts as cents. The `monthly_total` table is kept up to date by triggers on
+ * the `transaction` table, so every write path maintains it. The `account_search` full text index is kept up to date
+ * the same way by triggers on the `account` table. The two legs of a transfer between accounts are flagged in the
+ * `transfer` column and left out of the monthly totals, they still move the balances.
+ * <p/>
+ * The `balance_checkpoint` table holds the closing balance of every account and month with transactions, and the
+ * opening balance of the account as month 0. Triggers on `account` add the opening checkpoint, triggers on
+ * `transaction` add the checkpoint of a new month from the one before it and shift the checkpoints of the month of
+ * the transaction and of the later months, so a backdated transaction updates every closing balance it changes.
+ * <p/>
+ * The standing orders are kept in `recurring_rule` with the epoch day of their next occurrence, indexed so that the
+ * due rules are a range scan. A rule with no occurrence left has RecurringRule.NEVER as its next and end dates.
+ * <p/>
+ * A schema change bumps VERSION and adds the step that upgrades older databases to
+ * {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration.Migrator#forLedger()}.
+ */
+public final class LedgerSchema {
+    public static final int VERSION = 9;
+
+    public static final String CREATE_ACCOUNT_TABLE = "CREATE TABLE `account` (`accountNo` TEXT primary key, `bankName` TEXT NOT NULL, `accountHolderName` TEXT NOT NULL, `balance` INTEGER NOT NULL)";
+    public static final String CREATE_TRANSACTION_TABLE = "CREATE TABLE `transaction` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` INTEGER NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` INTEGER NOT NULL, `transfer` INTEGER NOT NULL DEFAULT 0, FOREIGN KEY(accountNo) REFERENCES account (accountNo))";
+    public static final String CREATE_TRANSACTION_INDEX = "CREATE INDEX `transaction_account_date` ON `transaction` (`accountNo`, `date`)";
+
+    public static final String CREATE_MONTHLY_TOTAL_TABLE = "CREATE TABLE `monthly_total` (`accountNo` TEXT NOT NULL, `yearMonth` INTEGER NOT NULL, `expenseType` TEXT NOT NULL, `total` INTEGER NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY (`accountNo`, `yearMonth`, `expenseType`))";
+
+    private static final String YEAR_MONTH = "CAST(strftime('%%Y%%m', %s.`date` * 86400, 'unixepoch') AS INTEGER)";
+
+    public static final String CREATE_MONTHLY_TOTAL_INSERT_TRIGGER = "CREATE TRIGGER `transaction_monthly_total_insert` AFTER INSERT ON `transaction` WHEN NEW.`transfer` = 0 BEGIN "
+            + "INSERT OR IGNORE INTO `monthly_total` (`accountNo`, `yearMonth`, `expenseType`, `total`, `count`) VALUES (NEW.`accountNo`, " + String.format(YEAR_MONTH, "NEW") + ", NEW.`expenseType`, 0, 0); "
+            + "UPDATE `monthly_total` SET `total` = `total` + NEW.`amount`, `count` = `count` + 1 WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "NEW") + " AND `expenseType` = NEW.`expenseType`; "
+            + "END";
+
+    public static final String CREATE_MONTHLY_TOTAL_DELETE_TRIGGER = "CREATE TRIGGER `transaction_monthly_total_delete` AFTER DELETE ON `transaction` WHEN OLD.`transfer` = 0 BEGIN "
+            + "UPDATE `monthly_total` SET `total` = `total` - OLD.`amount`, `count` = `count` - 1 WHERE `accountNo` = OLD.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "OLD") + " AND `expenseType` = OLD.`expenseType`; "
+            + "END";
+
+    // the simple tokenizer splits on anything but letters and digits and folds ASCII case, the prefix indexes make
+    // the short prefixes typed in a search box as cheap as whole words
+    public static final String CREATE_ACCOUNT_SEARCH_TABLE = "CREATE VIRTUAL TABLE `account_search` USING fts4(`accountNo`, `bankName`, `accountHolderName`, prefix=\"1,2,3\")";
+
+    // balance updates do not touch the index. The index rows are found by account number, a full scan of the index,
+    // which is only paid when an account is renamed or deleted: a migration that rebuilds the `account` table must
+    // drop these triggers first and refill the index at the end.
+    public static final String CREATE_ACCOUNT_SEARCH_INSERT_TRIGGER = "CREATE TRIGGER `account_search_insert` AFTER INSERT ON `account` BEGIN "
+            + "INSERT INTO `account_search` (`accountNo`, `bankName`, `accountHolderName`) VALUES (NEW.`accountNo`, NEW.`bankName`, NEW.`accountHolderName`); "
+            + "END";
+
+    public static final String CREATE_ACCOUNT_SEARCH_UPDATE_TRIGGER = "CREATE TRIGGER `account_search_update` AFTER UPDATE OF `accountNo`, `bankName`, `accountHolderName` ON `account` BEGIN "
+            + "DELETE FROM `account_search` WHERE `accountNo` = OLD.`accountNo`; "
+            + "INSERT INTO `account_search` (`accountNo`, `bankName`, `accountHolderName`) VALUES (NEW.`accountNo`, NEW.`bankName`, NEW.`accountHolderName`); "
+            + "END";
+
+    public static final String CREATE_ACCOUNT_SEARCH_DELETE_TRIGGER = "CREATE TRIGGER `account_search_delete` AFTER DELETE ON `account` BEGIN "
+            + "DELETE FROM `account_search` WHERE `accountNo` = OLD.`accountNo`; "
+            + "END";
+
+    public static final String CREATE_RECURRING_RULE_TABLE = "CREATE TABLE `recurring_rule` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `name` TEXT NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` INTEGER NOT NULL, `period` TEXT NOT NULL, `every` INTEGER NOT NULL, `startDate` INTEGER NOT NULL, `endDate` INTEGER NOT NULL, `posted` INTEGER NOT NULL, `nextDate` INTEGER NOT NULL, FOREIGN KEY(accountNo) REFERENCES account (accountNo))";
+    public static final String CREATE_RECURRING_RULE_INDEX = "CREATE INDEX `recurring_rule_next_date` ON `recurring_rule` (`nextDate`)";
+
+    private static final String SIGNED_AMOUNT = "CASE %1$s.`expenseType` WHEN 'INCOME' THEN %1$s.`amount` ELSE -%1$s.`amount` END";
+
+    public static final String CREATE_BALANCE_CHECKPOINT_TABLE = "CREATE TABLE `balance_checkpoint` (`accountNo` TEXT NOT NULL, `yearMonth` INTEGER NOT NULL, `balance` INTEGER NOT NULL, PRIMARY KEY (`accountNo`, `yearMonth`))";
+
+    public static final String CREATE_BALANCE_CHECKPOINT_ACCOUNT_INSERT_TRIGGER = "CREATE TRIGGER `account_balance_checkpoint_insert` AFTER INSERT ON `account` BEGIN "
+            + "INSERT OR REPLACE INTO `balance_checkpoint` (`accountNo`, `yearMonth`, `balance`) VALUES (NEW.`accountNo`, 0, NEW.`balance`); "
+            + "END";
+
+    public static final String CREATE_BALANCE_CHECKPOINT_ACCOUNT_DELETE_TRIGGER = "CREATE TRIGGER `account_balance_checkpoint_delete` AFTER DELETE ON `account` BEGIN "
+            + "DELETE FROM `balance_checkpoint` WHERE `accountNo` = OLD.`accountNo`; "
+            + "END";
+
+    // the first transaction of a month copies the closing balance of the month before, then the month and every
+    // later one move by the amount. A transaction of the current month touches one row. The transactions of an
+    // account that is not stored find no checkpoint and change nothing.
+    public static final String CREATE_BALANCE_CHECKPOINT_INSERT_TRIGGER = "CREATE TRIGGER `transaction_balance_checkpoint_insert` AFTER INSERT ON `transaction` BEGIN "
+            + "INSERT OR IGNORE INTO `balance_checkpoint` (`accountNo`, `yearMonth`, `balance`) SELECT `accountNo`, " + String.format(YEAR_MONTH, "NEW") + ", `balance` FROM `balance_checkpoint` "
+            + "WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` < " + String.format(YEAR_MONTH, "NEW") + " ORDER BY `yearMonth` DESC LIMIT 1; "
+            + "UPDATE `balance_checkpoint` SET `balance` = `balance` + " + String.format(SIGNED_AMOUNT, "NEW") + " WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` >= " + String.format(YEAR_MONTH, "NEW") + "; "
+            + "END";
+
+    public static final String CREATE_BALANCE_CHECKPOINT_DELETE_TRIGGER = "CREATE TRIGGER `transaction_balance_checkpoint_delete` AFTER DELETE ON `transaction` BEGIN "
+            + "UPDATE `balance_checkpoint` SET `balance` = `balance` - " + String.format(SIGNED_AMOUNT, "OLD") + " WHERE `accountNo` = OLD.`accountNo` AND `yearMonth` >= " + String.format(YEAR_MONTH, "OLD") + "; "
+            + "END";
+
+    /***
+     * The statements creating an empty database of the current version, in order.
+     */
+    public static final String[] CREATE_STATEMENTS = {
+            CREATE_ACCOUNT_TABLE,
+            CREATE_TRANSACTION_TABLE,
+            CREATE_TRANSACTION_INDEX,
+            CREATE_MONTHLY_TOTAL_TABLE,
+            CREATE_MONTHLY_TOTAL_INSERT_TRIGGER,
+            CREATE_MONTHLY_TOTAL_DELETE_TRIGGER,
+            CREATE_ACCOUNT_SEARCH_TABLE,
+            CREATE_ACCOUNT_SEARCH_INSERT_TRIGGER,
+            CREATE_ACCOUNT_SEARCH_UPDATE_TRIGGER,
+            CREATE_ACCOUNT_SEARCH_DELETE_TRIGGER,
+            CREATE_RECURRING_RULE_TABLE,
+            CREATE_RECURRING_RULE_INDEX,
+            CREATE_BALANCE_CHECKPOINT_TABLE,
+            CREATE_BALANCE_CHECKPOINT_ACCOUNT_INSERT_TRIGGER,
+            CREATE_BALANCE_CHECKPOINT_ACCOUNT_DELETE_TRIGGER,
+            CREATE_BALANCE_CHECKPOINT_INSERT_TRIGGER,
+            CREATE_BALANCE_CHECKPOINT_DELETE_TRIGGER,
+    };
+
+    public static final String MONTHLY_TOTAL_COLUMNS = "`accountNo`, `yearMonth`, `expenseType`, `total`, `count`";
+
+    /***
+     * The monthly totals recomputed from the `transaction` table, in the column order of MONTHLY_TOTAL_COLUMNS.
+     */
+    public static final String EXPECTED_MONTHLY_TOTALS = "SELECT `accountNo`, " + String.format(YEAR_MONTH, "`transaction`") + " AS `yearMonth`, `expenseType`, SUM(`amount`) AS `total`, COUNT(*) AS `count` FROM `transaction` WHERE `transfer` = 0 GROUP BY 1, 2, 3";
+
+    public static final String BALANCE_CHECKPOINT_COLUMNS = "`accountNo`, `yearMonth`, `balance`";
+
+    // the net amount of every account and month, computed once and joined to the months that precede it
+    private static final String MONTHLY_NETS = "SELECT `accountNo`, " + String.format(YEAR_MONTH, "`transaction`") + " AS `yearMonth`, SUM(" + String.format(SIGNED_AMOUNT, "`transaction`") + ") AS `net` FROM `transaction` GROUP BY 1, 2";
+
+    /***
+     * The checkpoints recomputed from the stored balances and the `transaction` table, in the column order of
+     * BALANCE_CHECKPOINT_COLUMNS: the closing balance of a month is the balance less the transactions of the later
+     * months.
+     */
+    public static final String EXPECTED_BALANCE_CHECKPOINTS = "SELECT k.`accountNo`, k.`yearMonth`, a.`balance` - IFNULL(SUM(n.`net`), 0) AS `balance` "
+            + "FROM (SELECT `accountNo`, 0 AS `yearMonth` FROM `account` UNION SELECT `accountNo`, `yearMonth` FROM (" + MONTHLY_NETS + ")) k "
+            + "JOIN `account` a ON a.`accountNo` = k.`accountNo` "
+            + "LEFT JOIN (" + MONTHLY_NETS + ") n ON n.`accountNo` = k.`accountNo` AND n.`yearMonth` > k.`yearMonth` "
+            + "GROUP BY k.`accountNo`, k.`yearMonth`";
+
+    /***
+     * The expected checkpoints that are missing, then the stored checkpoints whose balance is not the closing balance
+     * of their month, with their expected balance, zero when the account is not stored.
+     */
+    public static final String VERIFY_BALANCE_CHECKPOINTS = "SELECT e.`accountNo`, e.`yearMonth`, e.`balance` FROM (" + EXPECTED_BALANCE_CHECKPOINTS + ") e "
+            + "LEFT JOIN `balance_checkpoint` c ON c.`accountNo` = e.`accountNo` AND c.`yearMonth` = e.`yearMonth` WHERE c.`accountNo` IS NULL "
+            + "UNION ALL "
+            + "SELECT c.`accountNo`, c.`yearMonth`, IFNULL(a.`balance` - IFNULL(SUM(n.`net`), 0), 0) FROM `balance_checkpoint` c "
+            + "LEFT JOIN `account` a ON a.`accountNo` = c.`accountNo` "
+            + "LEFT JOIN (" + MONTHLY_NETS + ") n ON n.`accountNo` = c.`accountNo` AND n.`yearMonth` > c.`yearMonth` "
+            + "GROUP BY c.`accountNo`, c.`yearMonth` HAVING a.`accountNo` IS NULL OR c.`balance` != a.`balance` - IFNULL(SUM(n.`net`), 0)";
+
+    public static final String SELECT_BALANCE_CHECKPOINTS = "SELECT " + BALANCE_CHECKPOINT_COLUMNS + " FROM `balance_checkpoint` WHERE `accountNo` = ? ORDER BY `yearMonth`";
+
+    /***
+     * The balance of an account at the end of a day: the closing balance of the month before, a seek in the primary
+     * key, plus the transactions of the month up to the day, a range of the (accountNo, date) index. NULL when the
+     * account has no checkpoint. Parameters: the account number, the month of the day, the account number, the first
+     * day of the month, the day.
+     */
+    public static final String SELECT_BALANCE_ON = "SELECT (SELECT `balance` FROM `balance_checkpoint` WHERE `accountNo` = ? AND `yearMonth` < ? ORDER BY `yearMonth` DESC LIMIT 1) "
+            + "+ IFNULL((SELECT SUM(" + String.format(SIGNED_AMOUNT, "`transaction`") + ") FROM `transaction` WHERE `accountNo` = ? AND `date` BETWEEN ? AND ?), 0)";
+
+    public static final String TRANSACTION_COLUMNS = "`id`, `date`, `accountNo`, `expenseType`, `amount`, `transfer`";
+
+    /***
+     * The accounts matching a full text query, by account number. Parameters: the MATCH expression, the limit.
+     */
+    public static final String SEARCH_ACCOUNTS = "SELECT `account`.`accountNo`, `account`.`bankName`, `account`.`accountHolderName`, `account`.`balance` "
+            + "FROM `account_search` JOIN `account` ON `account`.`accountNo` = `account_search`.`accountNo` "
+            + "WHERE `account_search` MATCH ? ORDER BY `account`.`accountNo` LIMIT ?";
+
+    /***
+     * The numbers of the accounts matching a full text query. Parameters: the MATCH expression, the limit.
+     */
+    public static final String SEARCH_ACCOUNT_NUMBERS = "SELECT `accountNo` FROM `account_search` WHERE `account_search` MATCH ? ORDER BY `accountNo` LIMIT ?";
+
+    /***
+     * A page of the transactions of one account, newest first, that precede a (date, id) cursor. The range and the
+     * order are read from the (accountNo, date) index, which ends with the id. Parameters: the account number, the
+     * cursor date twice, the cursor id, the limit.
+     */
+    public static final String SEARCH_ACCOUNT_TRANSACTIONS = "SELECT " + TRANSACTION_COLUMNS + " FROM `transaction` "
+            + "WHERE `accountNo` = ? AND `date` <= ? AND (`date` < ? OR `id` < ?) ORDER BY `date` DESC, `id` DESC LIMIT ?";
+
+    public static final String RECURRING_RULE_COLUMNS = "`id`, `name`, `accountNo`, `expenseType`, `amount`, `period`, `every`, `startDate`, `endDate`, `posted`, `nextDate`";
+
+    public static final String SELECT_RECURRING_RULES = "SELECT " + RECURRING_RULE_COLUMNS + " FROM `recurring_rule` ORDER BY `id`";
+
+    /***
+     * The rules due on or before a day, the most overdue first. Parameters: the epoch day, the limit.
+     */
+    public static final String SELECT_DUE_RECURRING_RULES = "SELECT " + RECURRING_RULE_COLUMNS + " FROM `recurring_rule` WHERE `nextDate` <= ? ORDER BY `nextDate`, `id` LIMIT ?";
+
+    public static final String INSERT_RECURRING_RULE = "INSERT INTO `recurring_rule` (`name`, `accountNo`, `expenseType`, `amount`, `period`, `every`, `startDate`, `endDate`, `posted`, `nextDate`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    public static final String DELETE_RECURRING_RULE = "DELETE FROM `recurring_rule` WHERE `id` = ?";
+
+    /***
+     * Count the occurrences just posted, unless another writer has done it since the rule was read. Parameters: the
+     * new count, the new next date, the id, the count as read.
+     */
+    public static final String ADVANCE_RECURRING_RULE = "UPDATE `recurring_rule` SET `posted` = ?, `nextDate` = ? WHERE `id` = ? AND `posted` = ?";
+
+    public static final String INSERT_ACCOUNT = "INSERT INTO `account` (`accountNo`, `bankName`, `accountHolderName`, `balance`) VALUES (?, ?, ?, ?)";
+    public static final String INSERT_TRANSACTION = "INSERT INTO `transaction` (`date`, `accountNo`, `expenseType`, `amount`, `transfer`) VALUES (?, ?, ?, ?, ?)";
+    // the balance check and the debit are a single statement
+    public static final String DEBIT_ACCOUNT = "UPDATE `account` SET `balance` = `balance` - ? WHERE `accountNo` = ? AND `balance` >= ?";
+    public static final String CREDIT_ACCOUNT = "UPDATE `account` SET `balance` = `balance` + ? WHERE `accountNo` = ?";
+
+    private LedgerSchema() {
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * The query rules shared by the {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO} implementations. The
+ * words are split like the simple tokenizer of SQLite splits them, so the in memory index and the `account_search`
+ * table agree on what matches.
+ * <p/>
+ * A transaction search reads the newest page of each matching account from the (accountNo, date) index and merges
+ * them, so its cost depends on the number of matching accounts and the page size, not on the size of the ledger.
+ */
+public final class LedgerSearch {
+    /***
+     * The number of matching accounts whose transactions a search reads.
+     */
+    public static final int MAX_ACCOUNTS = 50;
+
+    public static final Comparator<Transaction> NEWEST_FIRST = new Comparator<Transaction>() {
+        @Override
+        public int compare(Transaction lhs, Transaction rhs) {
+            // the stores give every transaction of a day the same midnight Date
+            long lhsTime = lhs.getDate().getTime();
+            long rhsTime = rhs.getDate().getTime();
+            if (lhsTime != rhsTime)
+                return lhsTime > rhsTime ? -1 : 1;
+            return lhs.getId() > rhs.getId() ? -1 : lhs.getId() < rhs.getId() ? 1 : 0;
+        }
+    };
+
+    private LedgerSearch() {
+    }
+
+    /***
+     * Split a text into lower case words: runs of ASCII letters and digits, and of any non ASCII character.
+     *
+     * @param text
+     * @return
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')) {
+                word.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                word.append((char) (c + ('a' - 'A')));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0)
+            words.add(word.toString());
+        return words;
+    }
+
+    /***
+     * Turn the words of a query into an FTS MATCH expression where every word is a prefix.
+     *
+     * @param query
+     * @return - the expression, or null if the query has no word
+     */
+    public static String matchExpression(String query) {
+        List<String> words = words(query);
+        if (words.isEmpty())
+            return null;
+        StringBuilder expression = new StringBuilder();
+        for (String word : words) {
+            if (expression.length() > 0)
+                expression.append(' ');
+            // the words are lower case and hold no punctuation, so they can not be read as operators
+            expression.append(word).append('*');
+        }
+        return expression.toString();
+    }
+
+    /***
+     * @param after - the last transaction of the previous page, or null
+     * @return the epoch day of the cursor
+     */
+    public static long cursorDay(Transaction after) {
+        return after == null ? Long.MAX_VALUE : EpochDays.fromDate(after.getDate());
+    }
+
+    /***
+     * @param after - the last transaction of the previous page, or null
+     * @return the id of the cursor
+     */
+    public static long cursorId(Transaction after) {
+        return after == null ? Long.MAX_VALUE : after.getId();
+    }
+
+    /***
+     * Merge the pages read per account into one page.
+     *
+     * @param candidates - the newest transactions of every matching account, modified
+     * @param limit
+     * @return
+     */
+    public static List<Transaction> newestFirst(List<Transaction> candidates, int limit) {
+        Collections.sort(candidates, NEWEST_FIRST);
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+}
@@ -0,0 +1,162 @@
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.AccountDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * In memory account store that is safe to use from several threads. Lookups go through a ConcurrentHashMap and the
+ * balance of an account is only modified while holding the lock of its stripe, so concurrent updates of the same
+ * account are serialized while updates of accounts in different stripes proceed in parallel.
+ */
+public class PersistentAccountDAO implements AccountDAO {
+    private static final int STRIPES = 16;
+
+    private final ConcurrentHashMap<String, Account> accounts;
+    private final Object[] locks;
+    private final Object snapshotLock = new Object();
+    private volatile List<String> accountNumbers;
+
+    public PersistentAccountDAO() {
+        this.accounts = new ConcurrentHashMap<>();
+        this.locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    private static int stripeOf(String accountNo) {
+        int hash = accountNo.hashCode();
+        // spread the high bits so that similar account numbers do not share a stripe
+        hash ^= hash >>> 16;
+        return hash & (STRIPES - 1);
+    }
+
+    private Object lockFor(String accountNo) {
+        return locks[stripeOf(accountNo)];
+    }
+
+    /***
+     * Get the account numbers, sorted. The list is an immutable snapshot shared by every caller until an account is
+     * added or removed.
+     *
+     * @return
+     */
+    @Override
+    public List<String> getAccountNumbersList() {
+        List<String> snapshot = accountNumbers;
+        if (snapshot == null) {
+            synchronized (snapshotLock) {
+                snapshot = accountNumbers;
+                if (snapshot == null) {
+                    List<String> numbers = new ArrayList<>(accounts.keySet());
+                    Collections.sort(numbers);
+                    snapshot = Collections.unmodifiableList(numbers);
+                    accountNumbers = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private void accountsChanged() {
+        // taken after the map changed, so a snapshot being built either sees the change or is discarded here
+        synchronized (snapshotLock) {
+            accountNumbers = null;
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsList() {
+        return new ArrayList<>(accounts.values());
+    }
+
+    @Override
+    public Account getAccount(String accountNo) throws InvalidAccountException {
+        Account account = accounts.get(accountNo);
+        if (account != null) {
+            return account;
+        }
+        String msg = "Account " + accountNo + " is invalid.";
+        throw new InvalidAccountException(msg);
+    }
+
+    @Override
+    public void addAccount(Account account) {
+        Account previous;
+        synchronized (lockFor(account.getAccountNo())) {
+            previous = accounts.put(account.getAccountNo(), account);
+        }
+        if (previous == null) {
+            accountsChanged();
+        }
+    }
+
+    @Override
+    public void removeAccount(String accountNo) throws InvalidAccountException {
+        synchronized (lockFor(accountNo)) {
+            if (accounts.remove(accountNo) == null) {
+                String msg = "Account " + accountNo + " is invalid.";
+                throw new InvalidAccountException(msg);
+            }
+        }
+        accountsChanged();
+    }
+
+    @Override
+    public void updateBalance(String accountNo, ExpenseType expenseType, long amount) throws InvalidAccountException {
+        synchronized (lockFor(accountNo)) {
+            Account account = accounts.get(accountNo);
+            if (account == null) {
+                String msg = "Account " + accountNo + " is invalid.";
+                throw new InvalidAccountException(msg);
+            }
+            // specific implementation based on the transaction type
+            switch (expenseType) {
+                case EXPENSE:
+                    account.setBalanceCents(account.getBalanceCents() - amount);
+                    break;
+                case INCOME:
+                    account.setBalanceCents(account.getBalanceCents() + amount);
+                    break;
+            }
+        }
+    }
+
+    /***
+     * Move an amount between two accounts under the locks of both. The locks are always taken lowest stripe first,
+     * so two transfers in opposite directions cannot deadlock.
+     *
+     * @param fromAccountNo - account number of the debited account
+     * @param toAccountNo   - account number of the credited account
+     * @param amount        - amount involved, in cents
+     * @throws InvalidAccountException - if one of the account numbers is invalid
+     */
+    @Override
+    public void transferBalance(String fromAccountNo, String toAccountNo, long amount)
+            throws InvalidAccountException {
+        int first = stripeOf(fromAccountNo);
+        int second = stripeOf(toAccountNo);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        // both accounts may share a stripe, the monitor is reentrant
+        synchronized (locks[first]) {
+            synchronized (locks[second]) {
+                Account from = getAccount(fromAccountNo);
+                Account to = getAccount(toAccountNo);
+                from.setBalanceCents(from.getBalanceCents() - amount);
+                to.setBalanceCents(to.getBalanceCents() + amount);
+            }
+        }
+    }
+
+}
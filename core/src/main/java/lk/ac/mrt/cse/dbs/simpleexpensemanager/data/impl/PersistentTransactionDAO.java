@@ -0,0 +1,280 @@
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Append-only, in memory transaction log stored column by column in growable primitive arrays: the epoch day as an
+ * int, the account number as an index into a dictionary of the distinct account numbers, the expense type and the
+ * transfer flag as one bit each and the amount in cents as a long. A row costs about 17 bytes instead of a
+ * Transaction, a Date and a list node.
+ * <p/>
+ * Transaction objects are only created when a caller reads a row. The lists returned are read-only snapshots of the
+ * rows logged so far, they are safe to read while another thread keeps logging.
+ */
+public class PersistentTransactionDAO implements TransactionDAO {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private int[] days;
+    private int[] accounts;
+    // bit i is set when row i is an INCOME
+    private long[] incomes;
+    // bit i is set when row i is a leg of a transfer
+    private long[] transfers;
+    private long[] amounts;
+
+    private final Map<String, Integer> accountIds;
+    private String[] accountNumbers;
+
+    public PersistentTransactionDAO() {
+        days = new int[INITIAL_CAPACITY];
+        accounts = new int[INITIAL_CAPACITY];
+        incomes = new long[INITIAL_CAPACITY / 64];
+        transfers = new long[INITIAL_CAPACITY / 64];
+        amounts = new long[INITIAL_CAPACITY];
+        accountIds = new HashMap<>();
+        accountNumbers = new String[8];
+    }
+
+    @Override
+    public void logTransaction(Date date, String accountNo, ExpenseType expenseType, long amount) {
+        logTransaction(EpochDays.fromDate(date), accountNo, expenseType, amount);
+    }
+
+    /***
+     * Log a transaction whose date is already known as an epoch day, e.g. when loading rows from SQLite. This skips
+     * the Calendar conversion of {@link #logTransaction(Date, String, ExpenseType, long)}.
+     *
+     * @param epochDay    - day of the transaction, see {@link EpochDays}
+     * @param accountNo   - account number involved
+     * @param expenseType - type of the expense
+     * @param amount      - amount involved, in cents
+     */
+    public void logTransaction(long epochDay, String accountNo, ExpenseType expenseType, long amount) {
+        logTransaction(epochDay, accountNo, expenseType, amount, false);
+    }
+
+    /***
+     * Log a transaction by epoch day, flagging it as a leg of a transfer if it is one, see
+     * {@link Transaction#isTransfer()}.
+     *
+     * @param epochDay    - day of the transaction, see {@link EpochDays}
+     * @param accountNo   - account number involved
+     * @param expenseType - type of the expense
+     * @param amount      - amount involved, in cents
+     * @param transfer    - true for a leg of a transfer
+     */
+    public synchronized void logTransaction(long epochDay, String accountNo, ExpenseType expenseType, long amount,
+                                            boolean transfer) {
+        if (size == days.length) {
+            int capacity = size + (size >> 1);
+            days = Arrays.copyOf(days, capacity);
+            accounts = Arrays.copyOf(accounts, capacity);
+            incomes = Arrays.copyOf(incomes, (capacity + 63) >>> 6);
+            transfers = Arrays.copyOf(transfers, (capacity + 63) >>> 6);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        days[size] = (int) epochDay;
+        accounts[size] = accountId(accountNo);
+        if (expenseType == ExpenseType.INCOME) {
+            incomes[size >>> 6] |= 1L << size;
+        }
+        if (transfer) {
+            transfers[size >>> 6] |= 1L << size;
+        }
+        amounts[size] = amount;
+        size++;
+    }
+
+    private int accountId(String accountNo) {
+        Integer id = accountIds.get(accountNo);
+        if (id != null) {
+            return id;
+        }
+        int newId = accountIds.size();
+        if (newId == accountNumbers.length) {
+            accountNumbers = Arrays.copyOf(accountNumbers, newId * 2);
+        }
+        accountNumbers[newId] = accountNo;
+        accountIds.put(accountNo, newId);
+        return newId;
+    }
+
+    /***
+     * Number of transactions logged.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public List<Transaction> getAllTransactionLogs() {
+        return snapshot();
+    }
+
+    @Override
+    public List<Transaction> getPaginatedTransactionLogs(int limit) {
+        Rows rows = snapshot();
+        if (rows.size() <= limit) {
+            return rows;
+        }
+        // return the last <code>limit</code> number of transaction logs
+        return rows.subList(rows.size() - limit, rows.size());
+    }
+
+    @Override
+    public List<Transaction> getAccountTransactionLogs(String accountNo, Date from, Date to) {
+        Rows rows = snapshot();
+        List<Transaction> matching = new ArrayList<>();
+        Integer accountId;
+        synchronized (this) {
+            accountId = accountIds.get(accountNo);
+        }
+        if (accountId == null) {
+            return matching;
+        }
+        long fromDay = EpochDays.fromDate(from);
+        long toDay = EpochDays.fromDate(to);
+        for (int i = 0; i < rows.size; i++) {
+            int day = rows.days[i];
+            if (rows.accounts[i] == accountId && day >= fromDay && day <= toDay) {
+                matching.add(rows.get(i));
+            }
+        }
+        Collections.sort(matching, new Comparator<Transaction>() {
+            @Override
+            public int compare(Transaction lhs, Transaction rhs) {
+                return lhs.getDate().compareTo(rhs.getDate());
+            }
+        });
+        return matching;
+    }
+
+    @Override
+    public List<Transaction> getTransactionLogsBefore(long beforeId, int limit) {
+        Rows rows = snapshot();
+        // ids follow the insertion order, starting from 1 like the SQLite primary key
+        int start = (int) Math.max(Math.min(beforeId - 1, rows.size), 0);
+        List<Transaction> page = new ArrayList<>(Math.min(limit, start));
+        for (int i = start - 1; i >= 0 && page.size() < limit; i--) {
+            page.add(rows.get(i));
+        }
+        return page;
+    }
+
+    /***
+     * Get a page of the transactions of some accounts that precede a (day, id) cursor, newest first, the order of a
+     * search. Rows are kept in id order and a backdated transaction can be older than the rows logged before it, so
+     * every row is read once, but only the rows of the page are turned into Transactions.
+     *
+     * @param accountNumbers
+     * @param beforeDay      - epoch day of the cursor
+     * @param beforeId       - id of the cursor
+     * @param limit
+     * @return
+     */
+    public List<Transaction> getAccountTransactionLogsBefore(Collection<String> accountNumbers, long beforeDay,
+                                                             long beforeId, int limit) {
+        Rows rows = snapshot();
+        boolean[] wanted = new boolean[rows.accountNumbers.length];
+        boolean any = false;
+        synchronized (this) {
+            for (String accountNo : accountNumbers) {
+                Integer accountId = accountIds.get(accountNo);
+                if (accountId != null && accountId < wanted.length) {
+                    wanted[accountId] = true;
+                    any = true;
+                }
+            }
+        }
+        List<Transaction> page = new ArrayList<>();
+        if (!any || limit <= 0) {
+            return page;
+        }
+        // the page so far as (day << 32 | row) keys, the oldest at the head; scanning from the newest row means
+        // that once the page is full most rows are rejected by the first comparison
+        PriorityQueue<Long> newest = new PriorityQueue<>(limit + 1);
+        for (int i = rows.size - 1; i >= 0; i--) {
+            int day = rows.days[i];
+            if (!wanted[rows.accounts[i]] || day > beforeDay || (day == beforeDay && i + 1 >= beforeId)) {
+                continue;
+            }
+            long key = ((long) day << 32) | i;
+            if (newest.size() < limit) {
+                newest.add(key);
+            } else if (key > newest.peek()) {
+                newest.poll();
+                newest.add(key);
+            }
+        }
+        while (!newest.isEmpty()) {
+            page.add(rows.get((int) (long) newest.poll()));
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    private synchronized Rows snapshot() {
+        // the arrays are only ever replaced by larger copies and rows below size are never written again, so the
+        // current references stay valid for the rows logged so far
+        return new Rows(size, days, accounts, incomes, transfers, amounts, accountNumbers);
+    }
+
+    /**
+     * Read-only view of the first rows of the columns, materializing a Transaction on each access.
+     */
+    private static final class Rows extends AbstractList<Transaction> implements RandomAccess {
+        private final int size;
+        private final int[] days;
+        private final int[] accounts;
+        private final long[] incomes;
+        private final long[] transfers;
+        private final long[] amounts;
+        private final String[] accountNumbers;
+
+        Rows(int size, int[] days, int[] accounts, long[] incomes, long[] transfers, long[] amounts,
+             String[] accountNumbers) {
+            this.size = size;
+            this.days = days;
+            this.accounts = accounts;
+            this.incomes = incomes;
+            this.transfers = transfers;
+            this.amounts = amounts;
+            this.accountNumbers = accountNumbers;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            ExpenseType expenseType = (incomes[index >>> 6] & (1L << index)) != 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE;
+            return new Transaction(index + 1, EpochDays.toDate(days[index]), accountNumbers[accounts[index]],
+                    expenseType, amounts[index], (transfers[index >>> 6] & (1L << index)) != 0);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Connection settings of the SQLite stores: journal mode, durability, page cache, memory mapped I/O, the size of the
+ * prepared statement cache and foreign key enforcement.
+ * <p/>
+ * With the write-ahead log readers do not block the writer and the writer does not block readers, and a commit is a
+ * single append to the log. Synchronous NORMAL only syncs the log at checkpoints; a power loss can drop the last
+ * commits, but it cannot corrupt the database.
+ * <p/>
+ * Foreign keys are off in the predefined profiles, as the ledger logs incomes for accounts that are not registered on
+ * this device, which the constraint would reject. A profile that turns them on still upgrades, the Migrator turns
+ * them off while it rebuilds the `account` table.
+ */
+public final class SQLiteProfile {
+    public static final String SYNCHRONOUS_OFF = "OFF";
+    public static final String SYNCHRONOUS_NORMAL = "NORMAL";
+    public static final String SYNCHRONOUS_FULL = "FULL";
+
+    /***
+     * The settings the application used before profiles existed: rollback journal, full sync, SQLite's default
+     * cache and no memory mapping.
+     */
+    public static final SQLiteProfile LEGACY = new SQLiteProfile("legacy", false, SYNCHRONOUS_FULL, 2000, 0, 25, false);
+
+    /***
+     * Write-ahead log with synchronous NORMAL, an 8 MiB page cache and 32 MiB of memory mapped reads. Used by the
+     * application.
+     */
+    public static final SQLiteProfile DEFAULT = new SQLiteProfile("default", true, SYNCHRONOUS_NORMAL, 8192, 32L << 20, 50, false);
+
+    /***
+     * Write-ahead log without syncing at all, for bulk loads that can be repeated from their source. An operating
+     * system crash or power loss can corrupt the database, do not use it for the live ledger.
+     */
+    public static final SQLiteProfile BULK = new SQLiteProfile("bulk", true, SYNCHRONOUS_OFF, 16384, 64L << 20, 50, false);
+
+    private final String name;
+    private final boolean writeAheadLog;
+    private final String synchronous;
+    private final int cacheSizeKb;
+    private final long mmapSize;
+    private final int statementCacheSize;
+    private final boolean foreignKeys;
+
+    /***
+     * @param name               - used in logs and benchmark reports
+     * @param writeAheadLog      - journal_mode WAL when true, DELETE otherwise
+     * @param synchronous        - one of the SYNCHRONOUS_* modes
+     * @param cacheSizeKb        - page cache of each connection, in KiB
+     * @param mmapSize           - bytes of the database file read through memory mapping, 0 disables it
+     * @param statementCacheSize - compiled statements kept per connection, where the driver supports it
+     * @param foreignKeys        - enforce the foreign key of `transaction`.`accountNo`
+     */
+    public SQLiteProfile(String name, boolean writeAheadLog, String synchronous, int cacheSizeKb, long mmapSize,
+                         int statementCacheSize, boolean foreignKeys) {
+        if (!SYNCHRONOUS_OFF.equals(synchronous) && !SYNCHRONOUS_NORMAL.equals(synchronous)
+                && !SYNCHRONOUS_FULL.equals(synchronous)) {
+            throw new IllegalArgumentException("Unknown synchronous mode " + synchronous);
+        }
+        if (cacheSizeKb <= 0 || mmapSize < 0 || statementCacheSize < 0) {
+            throw new IllegalArgumentException("Cache sizes must be positive");
+        }
+        this.name = name;
+        this.writeAheadLog = writeAheadLog;
+        this.synchronous = synchronous;
+        this.cacheSizeKb = cacheSizeKb;
+        this.mmapSize = mmapSize;
+        this.statementCacheSize = statementCacheSize;
+        this.foreignKeys = foreignKeys;
+    }
+
+    /***
+     * Get a predefined profile by name.
+     *
+     * @param name - "legacy", "default" or "bulk"
+     * @return
+     */
+    public static SQLiteProfile named(String name) {
+        for (SQLiteProfile profile : new SQLiteProfile[]{LEGACY, DEFAULT, BULK}) {
+            if (profile.name.equals(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown SQLite profile " + name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public int getCacheSizeKb() {
+        return cacheSizeKb;
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public boolean isForeignKeys() {
+        return foreignKeys;
+    }
+
+    /***
+     * The PRAGMA statements that tune a connection. The journal mode and foreign keys are not included, the Android
+     * bindings set those through their own API.
+     *
+     * @return
+     */
+    public List<String> getTuningPragmas() {
+        List<String> pragmas = new ArrayList<>(3);
+        pragmas.add("PRAGMA synchronous = " + synchronous);
+        // a negative cache_size is in KiB instead of pages, so it does not depend on the page size
+        pragmas.add("PRAGMA cache_size = -" + cacheSizeKb);
+        pragmas.add("PRAGMA mmap_size = " + mmapSize);
+        return pragmas;
+    }
+
+    /***
+     * The complete set of PRAGMA statements for drivers that are configured through SQL only, e.g. JDBC.
+     *
+     * @return
+     */
+    public List<String> getPragmas() {
+        List<String> pragmas = new ArrayList<>(5);
+        // the journal mode goes first, synchronous NORMAL only means the same thing once the log is in place
+        pragmas.add("PRAGMA journal_mode = " + (writeAheadLog ? "WAL" : "DELETE"));
+        pragmas.add("PRAGMA foreign_keys = " + (foreignKeys ? "ON" : "OFF"));
+        pragmas.addAll(getTuningPragmas());
+        return pragmas;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s(wal=%b, synchronous=%s, cache=%dKiB, mmap=%d, statements=%d, fk=%b)",
+                name, writeAheadLog, synchronous, cacheSizeKb, mmapSize, statementCacheSize, foreignKeys);
+    }
+}
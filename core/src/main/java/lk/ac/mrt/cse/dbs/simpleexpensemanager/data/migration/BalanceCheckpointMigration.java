@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 8: the `balance_checkpoint` table, kept up to date by triggers on `account` and `transaction`, and filled
+ * with the opening and the month closing balances of the existing accounts. The balances are worked back from the
+ * stored balance of each account: the closing balance of a month is the balance less the net amount of the later
+ * months. The net amounts are one aggregate over the transactions, so the fill runs in one transaction.
+ */
+final class BalanceCheckpointMigration extends Migration {
+    private static final String YEAR_MONTH = "CAST(strftime('%%Y%%m', %s.`date` * 86400, 'unixepoch') AS INTEGER)";
+    private static final String SIGNED_AMOUNT = "CASE %1$s.`expenseType` WHEN 'INCOME' THEN %1$s.`amount` ELSE -%1$s.`amount` END";
+    private static final String MONTHLY_NETS = "SELECT `accountNo`, " + String.format(YEAR_MONTH, "`transaction`") + " AS `yearMonth`, SUM(" + String.format(SIGNED_AMOUNT, "`transaction`") + ") AS `net` FROM `transaction` GROUP BY 1, 2";
+
+    BalanceCheckpointMigration() {
+        super(8);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("CREATE TABLE `balance_checkpoint` (`accountNo` TEXT NOT NULL, `yearMonth` INTEGER NOT NULL, `balance` INTEGER NOT NULL, PRIMARY KEY (`accountNo`, `yearMonth`))");
+        db.execSQL("CREATE TRIGGER `account_balance_checkpoint_insert` AFTER INSERT ON `account` BEGIN "
+                + "INSERT OR REPLACE INTO `balance_checkpoint` (`accountNo`, `yearMonth`, `balance`) VALUES (NEW.`accountNo`, 0, NEW.`balance`); "
+                + "END");
+        db.execSQL("CREATE TRIGGER `account_balance_checkpoint_delete` AFTER DELETE ON `account` BEGIN "
+                + "DELETE FROM `balance_checkpoint` WHERE `accountNo` = OLD.`accountNo`; "
+                + "END");
+        db.execSQL("CREATE TRIGGER `transaction_balance_checkpoint_insert` AFTER INSERT ON `transaction` BEGIN "
+                + "INSERT OR IGNORE INTO `balance_checkpoint` (`accountNo`, `yearMonth`, `balance`) SELECT `accountNo`, " + String.format(YEAR_MONTH, "NEW") + ", `balance` FROM `balance_checkpoint` "
+                + "WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` < " + String.format(YEAR_MONTH, "NEW") + " ORDER BY `yearMonth` DESC LIMIT 1; "
+                + "UPDATE `balance_checkpoint` SET `balance` = `balance` + " + String.format(SIGNED_AMOUNT, "NEW") + " WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` >= " + String.format(YEAR_MONTH, "NEW") + "; "
+                + "END");
+        db.execSQL("CREATE TRIGGER `transaction_balance_checkpoint_delete` AFTER DELETE ON `transaction` BEGIN "
+                + "UPDATE `balance_checkpoint` SET `balance` = `balance` - " + String.format(SIGNED_AMOUNT, "OLD") + " WHERE `accountNo` = OLD.`accountNo` AND `yearMonth` >= " + String.format(YEAR_MONTH, "OLD") + "; "
+                + "END");
+        db.execSQL("INSERT INTO `balance_checkpoint` (`accountNo`, `yearMonth`, `balance`) "
+                + "SELECT k.`accountNo`, k.`yearMonth`, a.`balance` - IFNULL(SUM(n.`net`), 0) "
+                + "FROM (SELECT `accountNo`, 0 AS `yearMonth` FROM `account` UNION SELECT `accountNo`, `yearMonth` FROM (" + MONTHLY_NETS + ")) k "
+                + "JOIN `account` a ON a.`accountNo` = k.`accountNo` "
+                + "LEFT JOIN (" + MONTHLY_NETS + ") n ON n.`accountNo` = k.`accountNo` AND n.`yearMonth` > k.`yearMonth` "
+                + "GROUP BY k.`accountNo`, k.`yearMonth`");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 5: REAL amounts and balances become INTEGER cents. The monthly totals are created empty on the new
+ * `transaction` table before the rows are moved, so its triggers recompute them batch by batch from the converted
+ * amounts.
+ */
+final class CentsMigration extends Migration {
+    private static final String YEAR_MONTH = "CAST(strftime('%%Y%%m', %s.`date` * 86400, 'unixepoch') AS INTEGER)";
+
+    CentsMigration() {
+        super(5);
+    }
+
+    @Override
+    protected void prepare(MigrationDatabase db) {
+        // the triggers go first, newer SQLite versions refuse to rename a table whose triggers are broken
+        db.execSQL("DROP TRIGGER IF EXISTS `transaction_monthly_total_insert`");
+        db.execSQL("DROP TRIGGER IF EXISTS `transaction_monthly_total_delete`");
+        db.execSQL("DROP TABLE IF EXISTS `monthly_total`");
+        db.execSQL("DROP INDEX IF EXISTS `transaction_account_date`");
+        db.execSQL("ALTER TABLE `transaction` RENAME TO `transaction_v4`");
+        db.execSQL("CREATE TABLE `transaction` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` INTEGER NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` INTEGER NOT NULL, FOREIGN KEY(accountNo) REFERENCES account (accountNo))");
+        db.execSQL("CREATE TABLE `monthly_total` (`accountNo` TEXT NOT NULL, `yearMonth` INTEGER NOT NULL, `expenseType` TEXT NOT NULL, `total` INTEGER NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY (`accountNo`, `yearMonth`, `expenseType`))");
+        db.execSQL("CREATE TRIGGER `transaction_monthly_total_insert` AFTER INSERT ON `transaction` BEGIN "
+                + "INSERT OR IGNORE INTO `monthly_total` (`accountNo`, `yearMonth`, `expenseType`, `total`, `count`) VALUES (NEW.`accountNo`, " + String.format(YEAR_MONTH, "NEW") + ", NEW.`expenseType`, 0, 0); "
+                + "UPDATE `monthly_total` SET `total` = `total` + NEW.`amount`, `count` = `count` + 1 WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "NEW") + " AND `expenseType` = NEW.`expenseType`; "
+                + "END");
+        db.execSQL("CREATE TRIGGER `transaction_monthly_total_delete` AFTER DELETE ON `transaction` BEGIN "
+                + "UPDATE `monthly_total` SET `total` = `total` - OLD.`amount`, `count` = `count` - 1 WHERE `accountNo` = OLD.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "OLD") + " AND `expenseType` = OLD.`expenseType`; "
+                + "END");
+    }
+
+    @Override
+    protected boolean copyBatch(MigrationDatabase db, int batchSize) {
+        return moveRows(db, "`transaction_v4`", "`transaction`", "`id`, `date`, `accountNo`, `expenseType`, `amount`",
+                "`id`, `date`, `accountNo`, `expenseType`, CAST(ROUND(`amount` * 100) AS INTEGER)", "`id`", batchSize);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("DROP TABLE `transaction_v4`");
+        db.execSQL("CREATE INDEX `transaction_account_date` ON `transaction` (`accountNo`, `date`)");
+
+        // the accounts are few, they are rebuilt at once. The new table is renamed last so that the foreign key of
+        // `transaction` keeps pointing to it
+        db.execSQL("CREATE TABLE `account_v5` (`accountNo` TEXT primary key, `bankName` TEXT NOT NULL, `accountHolderName` TEXT NOT NULL, `balance` INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO `account_v5` (`accountNo`, `bankName`, `accountHolderName`, `balance`) SELECT `accountNo`, `bankName`, `accountHolderName`, CAST(ROUND(`balance` * 100) AS INTEGER) FROM `account`");
+        db.execSQL("DROP TABLE `account`");
+        db.execSQL("ALTER TABLE `account_v5` RENAME TO `account`");
+    }
+}
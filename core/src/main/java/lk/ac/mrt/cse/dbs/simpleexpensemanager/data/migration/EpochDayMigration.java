@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 3: "dd-MM-yyyy" TEXT dates become INTEGER epoch days, converted inside SQLite without parsing in Java.
+ */
+final class EpochDayMigration extends Migration {
+
+    EpochDayMigration() {
+        super(3);
+    }
+
+    @Override
+    protected void prepare(MigrationDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS `transaction_account_date`");
+        db.execSQL("ALTER TABLE `transaction` RENAME TO `transaction_v2`");
+        db.execSQL("CREATE TABLE `transaction` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` INTEGER NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` REAL NOT NULL, FOREIGN KEY(accountNo) REFERENCES account (accountNo))");
+    }
+
+    @Override
+    protected boolean copyBatch(MigrationDatabase db, int batchSize) {
+        return moveRows(db, "`transaction_v2`", "`transaction`", "`id`, `date`, `accountNo`, `expenseType`, `amount`",
+                "`id`, CAST(julianday(substr(`date`, 7, 4) || '-' || substr(`date`, 4, 2) || '-' || substr(`date`, 1, 2)) - 2440587.5 AS INTEGER), `accountNo`, `expenseType`, `amount`",
+                "`id`", batchSize);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("DROP TABLE `transaction_v2`");
+        db.execSQL("CREATE INDEX `transaction_account_date` ON `transaction` (`accountNo`, `date`)");
+    }
+}
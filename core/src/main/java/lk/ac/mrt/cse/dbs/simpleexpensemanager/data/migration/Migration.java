@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * One step of the schema history, upgrading the database from version - 1 to version.
+ * <p/>
+ * A step runs in three phases, each in its own database transaction: prepare, then copyBatch until it reports that
+ * nothing is left, then finish. The Migrator records the phase in the same transaction, so a step interrupted at
+ * any point resumes with the phase that did not commit. A step must never rely on the constants of
+ * {@link lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.LedgerSchema}: its statements describe the schema as it
+ * was at its version and must not change once released.
+ */
+public abstract class Migration {
+    private final int version;
+
+    protected Migration(int version) {
+        this.version = version;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /***
+     * Set the step up, e.g. rename the table to rebuild and create its new version. Runs once.
+     *
+     * @param db
+     */
+    protected void prepare(MigrationDatabase db) {
+    }
+
+    /***
+     * Move the next batch of rows. Every call runs in its own transaction.
+     *
+     * @param db
+     * @param batchSize - the maximum number of rows to move
+     * @return true while rows are left to move
+     */
+    protected boolean copyBatch(MigrationDatabase db, int batchSize) {
+        return false;
+    }
+
+    /***
+     * Complete the step, e.g. drop the old table and create the indexes. Runs once.
+     *
+     * @param db
+     */
+    protected void finish(MigrationDatabase db) {
+    }
+
+    /***
+     * Move up to batchSize rows, in key order, from one table to another and delete them from the source. Rows are
+     * deleted as they are copied, so the pages they free are reused by the copy and the file does not grow to twice
+     * the size of the table. Deleting in the same transaction as the copy makes every batch safe to repeat.
+     *
+     * @param db
+     * @param from          - the source table
+     * @param to            - the target table
+     * @param targetColumns - the column list of the target table
+     * @param selectColumns - the expressions computing those columns from a source row
+     * @param key           - the unique integer key of the source table, e.g. `id` or rowid
+     * @param batchSize
+     * @return true while rows are left to move
+     */
+    protected static boolean moveRows(MigrationDatabase db, String from, String to, String targetColumns,
+                                      String selectColumns, String key, int batchSize) {
+        Long last = db.queryLong("SELECT MAX(k) FROM (SELECT " + key + " AS k FROM " + from + " ORDER BY " + key
+                + " LIMIT ?)", (long) batchSize);
+        if (last == null) {
+            return false;
+        }
+        db.execSQL("INSERT INTO " + to + " (" + targetColumns + ") SELECT " + selectColumns + " FROM " + from
+                + " WHERE " + key + " <= ? ORDER BY " + key, last);
+        db.execSQL("DELETE FROM " + from + " WHERE " + key + " <= ?", last);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + version + ")";
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+import java.util.List;
+
+/**
+ * The few database operations the migrations need, so that the same steps run on the Android SQLite bindings and
+ * over JDBC. Transactions follow the Android pattern: begin, mark successful, end.
+ */
+public interface MigrationDatabase {
+
+    /***
+     * Execute a statement that returns no rows.
+     *
+     * @param sql
+     * @param bindArgs - Long, Double or String values for the `?` placeholders
+     */
+    public void execSQL(String sql, Object... bindArgs);
+
+    /***
+     * Run a query and return the first column of its first row.
+     *
+     * @param sql
+     * @param bindArgs - Long, Double or String values for the `?` placeholders
+     * @return the value, or null when there is no row or the value is NULL
+     */
+    public Long queryLong(String sql, Object... bindArgs);
+
+    /***
+     * Run a query and describe every row it returns, for a message.
+     *
+     * @param sql
+     * @return one entry per row, the columns as text separated by commas
+     */
+    public List<String> describeRows(String sql);
+
+    public void beginTransaction();
+
+    public void setTransactionSuccessful();
+
+    /***
+     * Commit the transaction if it was marked successful, roll it back otherwise.
+     */
+    public void endTransaction();
+}
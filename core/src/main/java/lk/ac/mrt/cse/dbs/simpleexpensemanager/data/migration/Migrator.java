@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Brings a database to the latest schema version by running the pending migrations in order.
+ * <p/>
+ * The progress is kept in the `schema_migration` table, one row per version with the phase it reached, and not in
+ * PRAGMA user_version, which the Android SQLiteOpenHelper sets to the new version before the migrations had a chance
+ * to run. Every phase and every batch commits on its own, so a large database is upgraded in short transactions, and
+ * an upgrade interrupted by a crash or a killed process carries on from the last committed batch at the next open.
+ * <p/>
+ * Foreign keys are turned off while the migrations run, as some of them rebuild a table that other tables refer to,
+ * and turned back on afterwards if they were on and PRAGMA foreign_key_check finds the rows consistent. The migrations
+ * must therefore be called outside of a transaction, where the PRAGMA has an effect. Rows that violate a key are not
+ * an error, the ledger logs incomes for accounts it does not know and the migrations have committed by then: they are
+ * reported to the {@link Listener} and the keys are left off on that connection.
+ */
+public class Migrator {
+
+    /**
+     * Receives what the migrations found, on the thread that ran them.
+     */
+    public interface Listener {
+        /***
+         * @param violations - the rows of PRAGMA foreign_key_check: table, rowid, referenced table, key index
+         */
+        public void onForeignKeyViolations(List<String> violations);
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private static final String CREATE_MIGRATION_TABLE = "CREATE TABLE IF NOT EXISTS `schema_migration` (`version` INTEGER PRIMARY KEY, `state` INTEGER NOT NULL)";
+    private static final long PREPARED = 1;
+    private static final long APPLIED = 2;
+
+    private final List<Migration> migrations;
+    private final int batchSize;
+    private Listener listener;
+
+    /***
+     * @param migrations - the steps, one per version and in increasing order of version
+     * @param batchSize  - the maximum number of rows moved in one transaction
+     */
+    public Migrator(List<Migration> migrations, int batchSize) {
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).getVersion() != migrations.get(i - 1).getVersion() + 1) {
+                throw new IllegalArgumentException("Migrations must have consecutive versions: " + migrations);
+            }
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.migrations = Collections.unmodifiableList(new ArrayList<>(migrations));
+        this.batchSize = batchSize;
+    }
+
+    /***
+     * The migrations of the ledger schema.
+     *
+     * @return
+     */
+    public static Migrator forLedger() {
+        return forLedger(DEFAULT_BATCH_SIZE);
+    }
+
+    public static Migrator forLedger(int batchSize) {
+        return new Migrator(Arrays.<Migration>asList(
+                new TransactionIdMigration(),
+                new EpochDayMigration(),
+                new MonthlyTotalMigration(),
+                new CentsMigration(),
+                new SearchIndexMigration(),
+                new RecurringRuleMigration(),
+                new BalanceCheckpointMigration(),
+                new TransferMigration()), batchSize);
+    }
+
+    /***
+     * @param listener - may be null to stop reporting
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /***
+     * The version the migrations lead to.
+     *
+     * @return
+     */
+    public int getLatestVersion() {
+        return migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /***
+     * Record the version a database is at, unless it is already recorded. To be called when the database is
+     * created, with the latest version, and when an upgrade is detected, with the version it is upgraded from.
+     *
+     * @param db
+     * @param version
+     */
+    public void baseline(MigrationDatabase db, int version) {
+        db.execSQL(CREATE_MIGRATION_TABLE);
+        if (db.queryLong("SELECT COUNT(*) FROM `schema_migration`") == 0) {
+            db.execSQL("INSERT INTO `schema_migration` (`version`, `state`) VALUES (?, ?)", (long) version, APPLIED);
+        }
+    }
+
+    /***
+     * The latest version whose migration has completed.
+     *
+     * @param db
+     * @return
+     */
+    public int getVersion(MigrationDatabase db) {
+        Long version = db.queryLong("SELECT MAX(`version`) FROM `schema_migration` WHERE `state` = ?", APPLIED);
+        if (version == null) {
+            throw new IllegalStateException("The database has no schema version, call baseline first");
+        }
+        return version.intValue();
+    }
+
+    /***
+     * Run the migrations that have not completed yet, resuming the one that was interrupted.
+     *
+     * @param db
+     * @return the number of migrations completed by this call
+     */
+    public int migrate(MigrationDatabase db) {
+        int version = getVersion(db);
+        if (version > getLatestVersion()) {
+            throw new IllegalStateException("Schema version " + version + " is newer than " + getLatestVersion());
+        }
+        if (version == getLatestVersion()) {
+            return 0;
+        }
+        boolean foreignKeys = Long.valueOf(1).equals(db.queryLong("PRAGMA foreign_keys"));
+        if (foreignKeys) {
+            db.execSQL("PRAGMA foreign_keys = OFF");
+        }
+        int completed = 0;
+        boolean consistent = true;
+        try {
+            for (Migration migration : migrations) {
+                if (migration.getVersion() > version) {
+                    run(db, migration);
+                    completed++;
+                }
+            }
+            if (foreignKeys) {
+                // older SQLite versions ignore the unknown PRAGMA and report no violation
+                List<String> violations = db.describeRows("PRAGMA foreign_key_check");
+                consistent = violations.isEmpty();
+                if (!consistent && listener != null) {
+                    listener.onForeignKeyViolations(violations);
+                }
+            }
+        } finally {
+            // an interrupted upgrade resumes at the next open, the connection goes on as it was configured
+            if (foreignKeys && consistent) {
+                db.execSQL("PRAGMA foreign_keys = ON");
+            }
+        }
+        return completed;
+    }
+
+    private void run(MigrationDatabase db, Migration migration) {
+        long version = migration.getVersion();
+        Long state = db.queryLong("SELECT `state` FROM `schema_migration` WHERE `version` = ?", version);
+        if (state == null) {
+            db.beginTransaction();
+            try {
+                migration.prepare(db);
+                db.execSQL("INSERT INTO `schema_migration` (`version`, `state`) VALUES (?, ?)", version, PREPARED);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        boolean more = true;
+        while (more) {
+            db.beginTransaction();
+            try {
+                more = migration.copyBatch(db, batchSize);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        db.beginTransaction();
+        try {
+            migration.finish(db);
+            db.execSQL("UPDATE `schema_migration` SET `state` = ? WHERE `version` = ?", APPLIED, version);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 4: the `monthly_total` table, kept up to date by triggers on `transaction` and filled from the existing
+ * transactions. Filling it is a single aggregate query that writes one row per account, month and type, so it runs
+ * in one transaction.
+ */
+final class MonthlyTotalMigration extends Migration {
+    private static final String YEAR_MONTH = "CAST(strftime('%%Y%%m', %s.`date` * 86400, 'unixepoch') AS INTEGER)";
+
+    MonthlyTotalMigration() {
+        super(4);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("CREATE TABLE `monthly_total` (`accountNo` TEXT NOT NULL, `yearMonth` INTEGER NOT NULL, `expenseType` TEXT NOT NULL, `total` REAL NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY (`accountNo`, `yearMonth`, `expenseType`))");
+        db.execSQL("CREATE TRIGGER `transaction_monthly_total_insert` AFTER INSERT ON `transaction` BEGIN "
+                + "INSERT OR IGNORE INTO `monthly_total` (`accountNo`, `yearMonth`, `expenseType`, `total`, `count`) VALUES (NEW.`accountNo`, " + String.format(YEAR_MONTH, "NEW") + ", NEW.`expenseType`, 0, 0); "
+                + "UPDATE `monthly_total` SET `total` = `total` + NEW.`amount`, `count` = `count` + 1 WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "NEW") + " AND `expenseType` = NEW.`expenseType`; "
+                + "END");
+        db.execSQL("CREATE TRIGGER `transaction_monthly_total_delete` AFTER DELETE ON `transaction` BEGIN "
+                + "UPDATE `monthly_total` SET `total` = `total` - OLD.`amount`, `count` = `count` - 1 WHERE `accountNo` = OLD.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "OLD") + " AND `expenseType` = OLD.`expenseType`; "
+                + "END");
+        db.execSQL("INSERT INTO `monthly_total` (`accountNo`, `yearMonth`, `expenseType`, `total`, `count`) "
+                + "SELECT `accountNo`, " + String.format(YEAR_MONTH, "`transaction`") + ", `expenseType`, SUM(`amount`), COUNT(*) FROM `transaction` GROUP BY 1, 2, 3");
+    }
+}
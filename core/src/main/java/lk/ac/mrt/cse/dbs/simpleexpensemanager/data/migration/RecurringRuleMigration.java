@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 7: the empty `recurring_rule` table of the standing orders and the index on their next occurrence.
+ */
+final class RecurringRuleMigration extends Migration {
+
+    RecurringRuleMigration() {
+        super(7);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("CREATE TABLE `recurring_rule` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `name` TEXT NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` INTEGER NOT NULL, `period` TEXT NOT NULL, `every` INTEGER NOT NULL, `startDate` INTEGER NOT NULL, `endDate` INTEGER NOT NULL, `posted` INTEGER NOT NULL, `nextDate` INTEGER NOT NULL, FOREIGN KEY(accountNo) REFERENCES account (accountNo))");
+        db.execSQL("CREATE INDEX `recurring_rule_next_date` ON `recurring_rule` (`nextDate`)");
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 6: the `account_search` full text index over the account numbers, bank names and holder names, kept up to
+ * date by triggers on `account` and filled from the existing accounts. There is one index row per account, so it is
+ * filled in one transaction.
+ */
+final class SearchIndexMigration extends Migration {
+
+    SearchIndexMigration() {
+        super(6);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE `account_search` USING fts4(`accountNo`, `bankName`, `accountHolderName`, prefix=\"1,2,3\")");
+        db.execSQL("CREATE TRIGGER `account_search_insert` AFTER INSERT ON `account` BEGIN "
+                + "INSERT INTO `account_search` (`accountNo`, `bankName`, `accountHolderName`) VALUES (NEW.`accountNo`, NEW.`bankName`, NEW.`accountHolderName`); "
+                + "END");
+        db.execSQL("CREATE TRIGGER `account_search_update` AFTER UPDATE OF `accountNo`, `bankName`, `accountHolderName` ON `account` BEGIN "
+                + "DELETE FROM `account_search` WHERE `accountNo` = OLD.`accountNo`; "
+                + "INSERT INTO `account_search` (`accountNo`, `bankName`, `accountHolderName`) VALUES (NEW.`accountNo`, NEW.`bankName`, NEW.`accountHolderName`); "
+                + "END");
+        db.execSQL("CREATE TRIGGER `account_search_delete` AFTER DELETE ON `account` BEGIN "
+                + "DELETE FROM `account_search` WHERE `accountNo` = OLD.`accountNo`; "
+                + "END");
+        db.execSQL("INSERT INTO `account_search` (`accountNo`, `bankName`, `accountHolderName`) "
+                + "SELECT `accountNo`, `bankName`, `accountHolderName` FROM `account`");
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 2: give every transaction a real primary key, keeping the implicit rowid as its value, and index the
+ * transactions by account and date.
+ */
+final class TransactionIdMigration extends Migration {
+
+    TransactionIdMigration() {
+        super(2);
+    }
+
+    @Override
+    protected void prepare(MigrationDatabase db) {
+        db.execSQL("ALTER TABLE `transaction` RENAME TO `transaction_v1`");
+        db.execSQL("CREATE TABLE `transaction` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` TEXT NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` REAL NOT NULL, FOREIGN KEY(accountNo) REFERENCES account (accountNo))");
+    }
+
+    @Override
+    protected boolean copyBatch(MigrationDatabase db, int batchSize) {
+        return moveRows(db, "`transaction_v1`", "`transaction`", "`id`, `date`, `accountNo`, `expenseType`, `amount`",
+                "rowid, `date`, `accountNo`, `expenseType`, `amount`", "rowid", batchSize);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("DROP TABLE `transaction_v1`");
+        db.execSQL("CREATE INDEX `transaction_account_date` ON `transaction` (`accountNo`, `date`)");
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+/**
+ * Version 9: the `transfer` column of `transaction`, set on the two legs of a transfer between accounts, which the
+ * monthly total triggers now skip. The legs written before this version cannot be told apart from other postings,
+ * so they keep the flag unset and their totals stay as they were.
+ */
+final class TransferMigration extends Migration {
+    private static final String YEAR_MONTH = "CAST(strftime('%%Y%%m', %s.`date` * 86400, 'unixepoch') AS INTEGER)";
+
+    TransferMigration() {
+        super(9);
+    }
+
+    @Override
+    protected void finish(MigrationDatabase db) {
+        db.execSQL("ALTER TABLE `transaction` ADD COLUMN `transfer` INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("DROP TRIGGER `transaction_monthly_total_insert`");
+        db.execSQL("DROP TRIGGER `transaction_monthly_total_delete`");
+        db.execSQL("CREATE TRIGGER `transaction_monthly_total_insert` AFTER INSERT ON `transaction` WHEN NEW.`transfer` = 0 BEGIN "
+                + "INSERT OR IGNORE INTO `monthly_total` (`accountNo`, `yearMonth`, `expenseType`, `total`, `count`) VALUES (NEW.`accountNo`, " + String.format(YEAR_MONTH, "NEW") + ", NEW.`expenseType`, 0, 0); "
+                + "UPDATE `monthly_total` SET `total` = `total` + NEW.`amount`, `count` = `count` + 1 WHERE `accountNo` = NEW.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "NEW") + " AND `expenseType` = NEW.`expenseType`; "
+                + "END");
+        db.execSQL("CREATE TRIGGER `transaction_monthly_total_delete` AFTER DELETE ON `transaction` WHEN OLD.`transfer` = 0 BEGIN "
+                + "UPDATE `monthly_total` SET `total` = `total` - OLD.`amount`, `count` = `count` - 1 WHERE `accountNo` = OLD.`accountNo` AND `yearMonth` = " + String.format(YEAR_MONTH, "OLD") + " AND `expenseType` = OLD.`expenseType`; "
+                + "END");
+    }
+}
@@ -16,6 +16,8 @@
 
 package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
 
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
 /**
  * This POJO holds the information about an account.
  */
@@ -23,7 +25,8 @@ public class Account {
     private String accountNo;
     private String bankName;
     private String accountHolderName;
-    private double balance;
+    // written under the account store's lock, read without it by the UI and the report code
+    private volatile long balance;
 
     public String getAccountNo() {
         return accountNo;
@@ -49,15 +52,35 @@ public class Account {
         this.accountHolderName = accountHolderName;
     }
 
+    /***
+     * Get the balance for display.
+     *
+     * @return - the balance as a decimal amount
+     */
     public double getBalance() {
+        return Money.toDouble(balance);
+    }
+
+    /***
+     * Get the exact balance.
+     *
+     * @return - the balance in cents
+     */
+    public long getBalanceCents() {
         return balance;
     }
 
-    public void setBalance(double balance) {
+    public void setBalanceCents(long balance) {
         this.balance = balance;
     }
 
-    public Account(String accountNo, String bankName, String accountHolderName, double balance) {
+    /***
+     * @param accountNo
+     * @param bankName
+     * @param accountHolderName
+     * @param balance           - the balance in cents
+     */
+    public Account(String accountNo, String bankName, String accountHolderName, long balance) {
         this.accountNo = accountNo;
         this.bankName = bankName;
         this.accountHolderName = accountHolderName;
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
+
+/**
+ * This immutable POJO holds the balance of one account at the end of a month, after every transaction dated in that
+ * month or before it.
+ */
+public final class BalanceCheckpoint {
+    /***
+     * The month of the opening checkpoint, the balance the account was added with.
+     */
+    public static final int OPENING = 0;
+
+    private final String accountNo;
+    private final int yearMonth;
+    private final long balanceCents;
+
+    /***
+     * @param accountNo
+     * @param yearMonth    - the month as yyyyMM, or OPENING
+     * @param balanceCents - the closing balance of the month, in cents
+     */
+    public BalanceCheckpoint(String accountNo, int yearMonth, long balanceCents) {
+        this.accountNo = accountNo;
+        this.yearMonth = yearMonth;
+        this.balanceCents = balanceCents;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    /***
+     * Get the month of the checkpoint as yyyyMM, e.g. 201904, or OPENING.
+     *
+     * @return
+     */
+    public int getYearMonth() {
+        return yearMonth;
+    }
+
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BalanceCheckpoint))
+            return false;
+        BalanceCheckpoint other = (BalanceCheckpoint) o;
+        return yearMonth == other.yearMonth && balanceCents == other.balanceCents
+                && accountNo.equals(other.accountNo);
+    }
+
+    @Override
+    public int hashCode() {
+        return (accountNo.hashCode() * 31 + yearMonth) * 31 + (int) (balanceCents ^ (balanceCents >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return accountNo + "@" + yearMonth + "=" + balanceCents;
+    }
+}
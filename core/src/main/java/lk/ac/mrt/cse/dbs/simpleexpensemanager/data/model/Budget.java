@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
+
+/**
+ * This POJO holds a monthly spending limit, either of one account or of the whole ledger. Only expenses count
+ * towards a budget.
+ */
+public class Budget {
+    private final String name;
+    private final String accountNo;
+    private final long limitCents;
+    private final int warningPercent;
+
+    /***
+     * @param name           - unique name of the budget
+     * @param accountNo      - the account the budget applies to, or null for every account
+     * @param limitCents     - the most that may be spent in a month, in cents
+     * @param warningPercent - share of the limit at which a warning is raised, 1 to 100, or 0 for no warning
+     */
+    public Budget(String name, String accountNo, long limitCents, int warningPercent) {
+        if (name == null)
+            throw new IllegalArgumentException("A budget needs a name");
+        if (limitCents < 0)
+            throw new IllegalArgumentException("Negative budget limit " + limitCents);
+        if (warningPercent < 0 || warningPercent > 100)
+            throw new IllegalArgumentException("Warning percent out of range " + warningPercent);
+        this.name = name;
+        this.accountNo = accountNo;
+        this.limitCents = limitCents;
+        this.warningPercent = warningPercent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /***
+     * @return - the account of the budget, or null when it applies to the whole ledger
+     */
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    public int getWarningPercent() {
+        return warningPercent;
+    }
+
+    /***
+     * Get the spending at which the warning is raised.
+     *
+     * @return - the amount in cents, or Long.MAX_VALUE when the budget has no warning
+     */
+    public long getWarningCents() {
+        // rounded up, a warning at 80% of 10.01 is raised at 8.01
+        return warningPercent == 0 ? Long.MAX_VALUE : (limitCents * warningPercent + 99) / 100;
+    }
+}
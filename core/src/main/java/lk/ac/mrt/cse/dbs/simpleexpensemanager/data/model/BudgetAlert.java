@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
+
+/**
+ * This POJO describes a posted expense that took the spending of a budget past its warning level or its limit.
+ */
+public class BudgetAlert {
+
+    public enum Level {
+        /***
+         * The spending of the month reached the warning share of the limit.
+         */
+        WARNING,
+        /***
+         * The spending of the month is above the limit.
+         */
+        EXCEEDED
+    }
+
+    private final Budget budget;
+    private final int yearMonth;
+    private final Level level;
+    private final long spentCents;
+    private final Transaction transaction;
+
+    public BudgetAlert(Budget budget, int yearMonth, Level level, long spentCents, Transaction transaction) {
+        this.budget = budget;
+        this.yearMonth = yearMonth;
+        this.level = level;
+        this.spentCents = spentCents;
+        this.transaction = transaction;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    /***
+     * Get the month of the spending as yyyyMM, e.g. 201904.
+     *
+     * @return
+     */
+    public int getYearMonth() {
+        return yearMonth;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /***
+     * Get the spending of the month, including the transaction that raised the alert.
+     *
+     * @return - the total in cents
+     */
+    public long getSpentCents() {
+        return spentCents;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+}
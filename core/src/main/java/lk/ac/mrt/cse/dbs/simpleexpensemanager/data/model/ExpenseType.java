@@ -18,7 +18,10 @@ package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
 
 /**
  * This ENUM holds the types of different expenditures.
+ * <p/>
+ * A TRANSFER moves money between two accounts. It is never logged as such: it is posted as an EXPENSE on the source
+ * account and an INCOME on the target, see ExpenseManager.transfer.
  */
 public enum ExpenseType {
-    EXPENSE, INCOME
+    EXPENSE, INCOME, TRANSFER
 }
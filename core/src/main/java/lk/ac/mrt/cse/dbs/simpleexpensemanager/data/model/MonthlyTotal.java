@@ -16,21 +16,15 @@
 
 package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
 
-import java.util.Date;
-
 /**
- * This POJO holds the information regarding a single transaction.
+ * This POJO holds the running total and the number of transactions of one account, month and expense type.
  */
-public class Transaction {
-    private Date date;
-
-    public Date getDate() {
-        return date;
-    }
-
-    public void setDate(Date date) {
-        this.date = date;
-    }
+public class MonthlyTotal {
+    private String accountNo;
+    private int yearMonth;
+    private ExpenseType expenseType;
+    private long total;
+    private long count;
 
     public String getAccountNo() {
         return accountNo;
@@ -40,6 +34,19 @@ public class Transaction {
         this.accountNo = accountNo;
     }
 
+    /***
+     * Get the month of the bucket as yyyyMM, e.g. 201904.
+     *
+     * @return
+     */
+    public int getYearMonth() {
+        return yearMonth;
+    }
+
+    public void setYearMonth(int yearMonth) {
+        this.yearMonth = yearMonth;
+    }
+
     public ExpenseType getExpenseType() {
         return expenseType;
     }
@@ -48,23 +55,32 @@ public class Transaction {
         this.expenseType = expenseType;
     }
 
-    public double getAmount() {
-        return amount;
+    /***
+     * Get the sum of the amounts of the bucket.
+     *
+     * @return - the total in cents
+     */
+    public long getTotal() {
+        return total;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    public void setTotal(long total) {
+        this.total = total;
     }
 
-    private String accountNo;
-    private ExpenseType expenseType;
-    private double amount;
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
 
-    public Transaction(Date date, String accountNo,
-                       ExpenseType expenseType, double amount) {
-        this.date = date;
+    public MonthlyTotal(String accountNo, int yearMonth, ExpenseType expenseType, long total, long count) {
         this.accountNo = accountNo;
+        this.yearMonth = yearMonth;
         this.expenseType = expenseType;
-        this.amount = amount;
+        this.total = total;
+        this.count = count;
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * This POJO holds a standing order: a transaction repeated every few days, weeks or months from a start date,
+ * until an optional end date. The rule counts the occurrences posted so far, the next one is derived from that
+ * count, so posting them is idempotent: the same occurrence is never derived twice.
+ * <p/>
+ * Monthly occurrences keep the day of the month of the start date, or use the last day of shorter months.
+ */
+public class RecurringRule {
+    /***
+     * Epoch day of the next occurrence of a rule that has none left.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    public enum Period {
+        DAY, WEEK, MONTH
+    }
+
+    private final long id;
+    private final String name;
+    private final String accountNo;
+    private final ExpenseType expenseType;
+    private final long amountCents;
+    private final Period period;
+    private final int every;
+    private final long startDay;
+    private final long endDay;
+    private final long posted;
+
+    /***
+     * @param id          - the id given by the store, 0 for a new rule
+     * @param name        - e.g. "Rent"
+     * @param accountNo
+     * @param expenseType
+     * @param amountCents
+     * @param period
+     * @param every       - the number of periods between two occurrences, at least 1
+     * @param startDay    - epoch day of the first occurrence
+     * @param endDay      - epoch day after which there is no occurrence, or NEVER
+     * @param posted      - the number of occurrences posted so far
+     */
+    public RecurringRule(long id, String name, String accountNo, ExpenseType expenseType, long amountCents,
+                         Period period, int every, long startDay, long endDay, long posted) {
+        if (every < 1)
+            throw new IllegalArgumentException("A rule repeats at least every period, not every " + every);
+        if (expenseType == ExpenseType.TRANSFER)
+            throw new IllegalArgumentException("A rule cannot repeat a transfer");
+        if (amountCents <= 0)
+            throw new IllegalArgumentException("A rule needs a positive amount");
+        this.id = id;
+        this.name = name;
+        this.accountNo = accountNo;
+        this.expenseType = expenseType;
+        this.amountCents = amountCents;
+        this.period = period;
+        this.every = every;
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.posted = posted;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    public ExpenseType getExpenseType() {
+        return expenseType;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+
+    public int getEvery() {
+        return every;
+    }
+
+    public long getStartDay() {
+        return startDay;
+    }
+
+    public long getEndDay() {
+        return endDay;
+    }
+
+    /***
+     * Get the number of occurrences posted so far.
+     *
+     * @return
+     */
+    public long getPosted() {
+        return posted;
+    }
+
+    /***
+     * Get the epoch day of an occurrence, computed from the start date so that short months do not shift the
+     * occurrences after them.
+     *
+     * @param occurrence - 0 for the first one
+     * @return - the epoch day, or NEVER when the occurrence is after the end date
+     */
+    public long occurrenceDay(long occurrence) {
+        long day;
+        switch (period) {
+            case DAY:
+                day = startDay + occurrence * every;
+                break;
+            case WEEK:
+                day = startDay + occurrence * every * 7;
+                break;
+            default:
+                day = EpochDays.plusMonths(startDay, occurrence * every);
+                break;
+        }
+        return day > endDay ? NEVER : day;
+    }
+
+    /***
+     * @return - the epoch day of the first occurrence not posted yet, or NEVER
+     */
+    public long getNextDay() {
+        return occurrenceDay(posted);
+    }
+
+    /***
+     * Get a copy of the rule with more occurrences posted.
+     *
+     * @param occurrences
+     * @return
+     */
+    public RecurringRule advance(long occurrences) {
+        return new RecurringRule(id, name, accountNo, expenseType, amountCents, period, every, startDay, endDay,
+                posted + occurrences);
+    }
+
+    /***
+     * Get a copy of the rule with the id given by the store.
+     *
+     * @param id
+     * @return
+     */
+    public RecurringRule withId(long id) {
+        return new RecurringRule(id, name, accountNo, expenseType, amountCents, period, every, startDay, endDay, posted);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model;
+
+import java.util.Date;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.Money;
+
+/**
+ * This POJO holds the information regarding a single transaction.
+ */
+public class Transaction {
+    private long id;
+    private Date date;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public void setDate(Date date) {
+        this.date = date;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    public void setAccountNo(String accountNo) {
+        this.accountNo = accountNo;
+    }
+
+    public ExpenseType getExpenseType() {
+        return expenseType;
+    }
+
+    public void setExpenseType(ExpenseType expenseType) {
+        this.expenseType = checkLogged(expenseType);
+    }
+
+    /***
+     * Get the amount for display.
+     *
+     * @return - the amount as a decimal amount
+     */
+    public double getAmount() {
+        return Money.toDouble(amount);
+    }
+
+    /***
+     * Get the exact amount.
+     *
+     * @return - the amount in cents
+     */
+    public long getAmountCents() {
+        return amount;
+    }
+
+    public void setAmountCents(long amount) {
+        this.amount = amount;
+    }
+
+    /***
+     * Whether this is one leg of a transfer between two accounts. The legs move the balances like any transaction,
+     * but they are neither spending nor earning and are left out of the monthly totals and of the budgets.
+     *
+     * @return
+     */
+    public boolean isTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(boolean transfer) {
+        this.transfer = transfer;
+    }
+
+    private String accountNo;
+    private ExpenseType expenseType;
+    private long amount;
+    private boolean transfer;
+
+    /***
+     * @param date
+     * @param accountNo
+     * @param expenseType
+     * @param amount      - the amount in cents
+     */
+    public Transaction(Date date, String accountNo,
+                       ExpenseType expenseType, long amount) {
+        this(0, date, accountNo, expenseType, amount);
+    }
+
+    public Transaction(long id, Date date, String accountNo,
+                       ExpenseType expenseType, long amount) {
+        this(id, date, accountNo, expenseType, amount, false);
+    }
+
+    /***
+     * @param id
+     * @param date
+     * @param accountNo
+     * @param expenseType
+     * @param amount      - the amount in cents
+     * @param transfer    - true for a leg of a transfer between accounts, see {@link #isTransfer()}
+     */
+    public Transaction(long id, Date date, String accountNo,
+                       ExpenseType expenseType, long amount, boolean transfer) {
+        this.id = id;
+        this.date = date;
+        this.accountNo = accountNo;
+        this.expenseType = checkLogged(expenseType);
+        this.amount = amount;
+        this.transfer = transfer;
+    }
+
+    private static ExpenseType checkLogged(ExpenseType expenseType) {
+        // a transfer is logged as its two legs, a row of its own would not tell which way the money went
+        if (expenseType == ExpenseType.TRANSFER)
+            throw new IllegalArgumentException("A transfer is posted as an expense and an income");
+        return expenseType;
+    }
+}
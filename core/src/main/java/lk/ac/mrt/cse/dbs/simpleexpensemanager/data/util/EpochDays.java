@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * Conversions between calendar dates and epoch days (days since 1970-01-01), the representation used for the
+ * `date` column of the `transaction` table. Epoch days sort and range-scan as plain integers inside SQLite.
+ * <p/>
+ * Only the local calendar day of a Date is kept, the time of the day is dropped.
+ */
+public final class EpochDays {
+
+    private EpochDays() {
+    }
+
+    /***
+     * Get the epoch day of a calendar date.
+     *
+     * @param year  - e.g. 2019
+     * @param month - 1 to 12
+     * @param day   - 1 to 31
+     * @return - days since 1970-01-01
+     */
+    public static long of(int year, int month, int day) {
+        // days_from_civil, see http://howardhinnant.github.io/date_algorithms.html
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /***
+     * Get the epoch day of the local calendar day of a Date.
+     *
+     * @param date
+     * @return - days since 1970-01-01
+     */
+    public static long fromDate(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return fromCalendar(calendar);
+    }
+
+    public static long fromCalendar(Calendar calendar) {
+        return of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /***
+     * Get a Date at local midnight of the given epoch day.
+     *
+     * @param epochDay
+     * @return
+     */
+    public static Date toDate(long epochDay) {
+        long civil = toCivil(epochDay);
+        return new GregorianCalendar(year(civil), month(civil) - 1, day(civil)).getTime();
+    }
+
+    /***
+     * Get the month of an epoch day as yyyyMM, e.g. 201904, the month key of the monthly totals.
+     *
+     * @param epochDay
+     * @return
+     */
+    public static int yearMonth(long epochDay) {
+        long civil = toCivil(epochDay);
+        return (int) (civil / 100);
+    }
+
+    /***
+     * Get the first day of a month.
+     *
+     * @param yearMonth - the month as yyyyMM
+     * @return - the epoch day
+     */
+    public static long firstDayOf(int yearMonth) {
+        return of(yearMonth / 100, yearMonth % 100, 1);
+    }
+
+    /***
+     * Move an epoch day by whole months, keeping the day of the month or, when the target month is shorter, using
+     * its last day: one month after January 31st is February 28th or 29th.
+     *
+     * @param epochDay
+     * @param months   - the number of months, may be negative
+     * @return
+     */
+    public static long plusMonths(long epochDay, long months) {
+        long civil = toCivil(epochDay);
+        long monthIndex = year(civil) * 12L + month(civil) - 1 + months;
+        int year = (int) ((monthIndex >= 0 ? monthIndex : monthIndex - 11) / 12);
+        int month = (int) (monthIndex - year * 12L) + 1;
+        return of(year, month, Math.min(day(civil), lengthOfMonth(year, month)));
+    }
+
+    /***
+     * The number of days of a month of the proleptic Gregorian calendar.
+     *
+     * @param year
+     * @param month - 1 to 12
+     * @return
+     */
+    public static int lengthOfMonth(int year, int month) {
+        if (month == 2)
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /***
+     * Append the epoch day as "yyyy-MM-dd" without allocating.
+     *
+     * @param epochDay
+     * @param builder
+     */
+    public static void appendIsoDate(long epochDay, StringBuilder builder) {
+        long civil = toCivil(epochDay);
+        int year = year(civil);
+        int month = month(civil);
+        int day = day(civil);
+        if (year < 1000)
+            builder.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        builder.append(year).append('-');
+        if (month < 10)
+            builder.append('0');
+        builder.append(month).append('-');
+        if (day < 10)
+            builder.append('0');
+        builder.append(day);
+    }
+
+    /***
+     * civil_from_days, the inverse of of(int, int, int). The result is packed as year * 10000 + month * 100 + day
+     * to avoid allocating.
+     */
+    private static long toCivil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int year(long civil) {
+        return (int) (civil / 10000);
+    }
+
+    private static int month(long civil) {
+        return (int) (civil / 100 % 100);
+    }
+
+    private static int day(long civil) {
+        return (int) (civil % 100);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util;
+
+/**
+ * Money is represented everywhere as a primitive long number of cents (minor units), so that sums are exact and the
+ * arithmetic does not allocate. This class converts amounts to and from their textual and decimal forms.
+ */
+public final class Money {
+    public static final int SCALE = 100;
+    private static final long MAX_UNITS = Long.MAX_VALUE / SCALE - 1;
+
+    private Money() {
+    }
+
+    /***
+     * Parse a decimal amount such as "1250", "-12.5" or "0.05" into cents, without going through a double.
+     *
+     * @param amount
+     * @return - the amount in cents
+     * @throws NumberFormatException - if the amount is not a number, has more than two significant decimals or does
+     *                               not fit in a long
+     */
+    public static long parse(String amount) {
+        String value = amount.trim();
+        int i = 0;
+        boolean negative = false;
+        if (value.length() > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        for (; i < value.length() && value.charAt(i) != '.'; i++, digits++) {
+            units = units * 10 + digit(value, i);
+            if (units > MAX_UNITS)
+                throw new NumberFormatException("Amount out of range \"" + amount + "\"");
+        }
+
+        long cents = 0;
+        int decimals = 0;
+        if (i < value.length()) {
+            for (i++; i < value.length(); i++, decimals++) {
+                int digit = digit(value, i);
+                if (decimals < 2) {
+                    cents = cents * 10 + digit;
+                } else if (digit != 0) {
+                    throw new NumberFormatException("More than two decimals in " + amount);
+                }
+            }
+        }
+        if (digits == 0 && decimals == 0)
+            throw new NumberFormatException("Invalid amount \"" + amount + "\"");
+        if (decimals == 1)
+            cents *= 10;
+
+        long result = units * SCALE + cents;
+        return negative ? -result : result;
+    }
+
+    /***
+     * Convert a decimal amount into cents, rounding to the nearest cent.
+     *
+     * @param amount
+     * @return
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * SCALE);
+    }
+
+    /***
+     * Convert cents into a decimal amount, for display only.
+     *
+     * @param cents
+     * @return
+     */
+    public static double toDouble(long cents) {
+        return (double) cents / SCALE;
+    }
+
+    /***
+     * Format cents as a plain decimal amount, e.g. 1250 becomes "12.50".
+     *
+     * @param cents
+     * @return
+     */
+    public static String format(long cents) {
+        StringBuilder builder = new StringBuilder(24);
+        appendTo(cents, builder);
+        return builder.toString();
+    }
+
+    /***
+     * Append cents as a plain decimal amount without allocating.
+     *
+     * @param cents
+     * @param builder
+     */
+    public static void appendTo(long cents, StringBuilder builder) {
+        long units = cents / SCALE;
+        long fraction = Math.abs(cents % SCALE);
+        if (cents < 0 && units == 0)
+            builder.append('-');
+        builder.append(units).append('.');
+        if (fraction < 10)
+            builder.append('0');
+        builder.append(fraction);
+    }
+
+    private static int digit(String value, int index) {
+        char c = value.charAt(index);
+        if (c < '0' || c > '9')
+            throw new NumberFormatException("Invalid amount \"" + value + "\"");
+        return c - '0';
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named event count, see {@link Metrics#counter(String)}. Nothing is counted while the metrics are disabled.
+ */
+public final class Counter {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        if (Metrics.isEnabled())
+            value.addAndGet(delta);
+    }
+
+    public long getValue() {
+        return value.get();
+    }
+
+    void reset() {
+        value.set(0);
+    }
+}
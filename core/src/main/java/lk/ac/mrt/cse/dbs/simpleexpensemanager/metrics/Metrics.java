@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide registry of the timers and counters of the ledger. The metrics are disabled by default, the
+ * instrumented code then skips the clock and the counters entirely.
+ * <p/>
+ * Operations that take longer than the slow operation threshold are counted per timer and reported to the
+ * {@link SlowOperationListener}, if one is set, with a description of what they did.
+ */
+public final class Metrics {
+    public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 50;
+
+    /**
+     * Receives the operations slower than the threshold, on the thread that ran them.
+     */
+    public interface SlowOperationListener {
+        public void onSlowOperation(String name, long nanos, String detail);
+    }
+
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled;
+    private static volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_THRESHOLD_MILLIS);
+    private static volatile SlowOperationListener slowOperationListener;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    public static long getSlowThresholdNanos() {
+        return slowThresholdNanos;
+    }
+
+    public static void setSlowThreshold(long duration, TimeUnit unit) {
+        slowThresholdNanos = unit.toNanos(duration);
+    }
+
+    /***
+     * @param listener - may be null to stop reporting
+     */
+    public static void setSlowOperationListener(SlowOperationListener listener) {
+        slowOperationListener = listener;
+    }
+
+    static void reportSlowOperation(String name, long nanos, String detail) {
+        SlowOperationListener listener = slowOperationListener;
+        if (listener != null)
+            listener.onSlowOperation(name, nanos, detail);
+    }
+
+    /***
+     * Get the timer with the given name, it is created on first use.
+     *
+     * @param name - dotted, e.g. "store.post"
+     * @return
+     */
+    public static Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            Timer created = new Timer(name);
+            timer = timers.putIfAbsent(name, created);
+            if (timer == null)
+                timer = created;
+        }
+        return timer;
+    }
+
+    /***
+     * Get the counter with the given name, it is created on first use.
+     *
+     * @param name
+     * @return
+     */
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter(name);
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null)
+                counter = created;
+        }
+        return counter;
+    }
+
+    /***
+     * Clear every recorded value, the timers and counters stay registered.
+     */
+    public static void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+    }
+
+    /***
+     * Write a plain text report of the timers, in milliseconds, and of the counters, sorted by name.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public static void dump(Appendable out) throws IOException {
+        out.append(String.format(Locale.US, "metrics %s, slow threshold %.1f ms%n", enabled ? "enabled" : "disabled",
+                slowThresholdNanos / 1e6));
+        out.append(String.format(Locale.US, "%n%-28s %8s %9s %9s %9s %9s %9s %6s%n",
+                "timer", "count", "mean", "p50", "p90", "p99", "max", "slow"));
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            LatencyHistogram histogram = timer.getHistogram();
+            if (histogram.getCount() == 0)
+                continue;
+            out.append(String.format(Locale.US, "%-28s %8d %9.3f %9.3f %9.3f %9.3f %9.3f %6d%n",
+                    timer.getName(), histogram.getCount(), histogram.getMean() / 1e6,
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6, histogram.getMax() / 1e6, timer.getSlowCount()));
+        }
+        out.append(String.format(Locale.US, "%n%-28s %8s%n", "counter", "value"));
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(String.format(Locale.US, "%-28s %8d%n", entry.getKey(), entry.getValue().getValue()));
+        }
+    }
+
+    /***
+     * Get the report written by dump as a String.
+     *
+     * @return
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        try {
+            dump(report);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times a named operation into a {@link LatencyHistogram}, see {@link Metrics#timer(String)}. A call site keeps the
+ * timer in a static field and brackets the operation:
+ * <pre>
+ *     long start = TIMER.start();
+ *     try {
+ *         ...
+ *     } finally {
+ *         TIMER.stop(start);
+ *     }
+ * </pre>
+ * While the metrics are disabled start does not read the clock and stop returns at once, so the cost of an
+ * instrumented call is a volatile read.
+ */
+public final class Timer {
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong slowCount = new AtomicLong();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /***
+     * Get the number of operations that took at least the slow operation threshold.
+     *
+     * @return
+     */
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+
+    /***
+     * @return the start time to pass to stop
+     */
+    public long start() {
+        return Metrics.isEnabled() ? System.nanoTime() : NOT_STARTED;
+    }
+
+    public void stop(long start) {
+        stop(start, null);
+    }
+
+    /***
+     * Record the time elapsed since start.
+     *
+     * @param start  - the value returned by start
+     * @param detail - what the operation did, e.g. the SQL of a query, reported when it is slow. May be null.
+     */
+    public void stop(long start, String detail) {
+        if (start == NOT_STARTED)
+            return;
+        long nanos = System.nanoTime() - start;
+        histogram.record(nanos);
+        if (nanos >= Metrics.getSlowThresholdNanos()) {
+            slowCount.incrementAndGet();
+            Metrics.reportSlowOperation(name, nanos, detail);
+        }
+    }
+
+    void reset() {
+        histogram.reset();
+        slowCount.set(0);
+    }
+}
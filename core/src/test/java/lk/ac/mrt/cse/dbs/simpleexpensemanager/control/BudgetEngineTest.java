@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Budget;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BudgetAlert;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Posts through the ledger engine and checks the spending and the alerts of its budgets, over the in memory and
+ * the JDBC stores.
+ */
+@RunWith(Parameterized.class)
+public class BudgetEngineTest {
+    // April 2019, the months of updateAccountBalance start at 0
+    private static final int APRIL = 3;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return Arrays.asList(new Object[][]{{"heap"}, {"jdbc"}});
+    }
+
+    private final String storeName;
+    private LedgerExpenseManager expenseManager;
+    private final List<BudgetAlert> alerts = new ArrayList<>();
+
+    public BudgetEngineTest(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Before
+    public void createExpenseManager() {
+        LedgerStore store = "jdbc".equals(storeName) ? new JdbcLedgerStore("jdbc:sqlite::memory:") : new InMemoryLedgerStore();
+        expenseManager = new LedgerExpenseManager(store, true);
+        expenseManager.addAccount("1A", "ABank", "AAA", 1000000);
+        expenseManager.addAccount("2B", "BBank", "BBB", 1000000);
+        expenseManager.getBudgetEngine().addListener(new BudgetListener() {
+            @Override
+            public void onBudgetAlert(BudgetAlert alert) {
+                alerts.add(alert);
+            }
+        });
+    }
+
+    @After
+    public void closeExpenseManager() {
+        expenseManager.close();
+    }
+
+    @Test
+    public void warnsThenAlertsOnceWhenTheLimitIsCrossed() throws InvalidAccountException {
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 80));
+
+        spend("1A", 1, "70");
+        assertTrue(alerts.isEmpty());
+        spend("1A", 2, "10");
+        assertAlert(0, "food", BudgetAlert.Level.WARNING, 8000);
+        spend("1A", 3, "15");
+        assertEquals(1, alerts.size());
+        spend("1A", 4, "5.01");
+        assertAlert(1, "food", BudgetAlert.Level.EXCEEDED, 10001);
+        spend("1A", 5, "1");
+        assertEquals(2, alerts.size());
+        assertEquals(10101, expenseManager.getBudgetEngine().getSpent("food", 201904));
+    }
+
+    @Test
+    public void countsOnlyTheExpensesOfTheAccount() throws InvalidAccountException {
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 0));
+
+        expenseManager.updateAccountBalance("1A", 1, APRIL, 2019, ExpenseType.INCOME, "500");
+        spend("2B", 1, "500");
+        assertTrue(alerts.isEmpty());
+        assertEquals(0, expenseManager.getBudgetEngine().getSpent("food", 201904));
+    }
+
+    @Test
+    public void startsFromTheSpendingAlreadyPosted() throws InvalidAccountException {
+        spend("1A", 1, "60");
+        spend("2B", 1, "30");
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 80));
+        expenseManager.addBudget(new Budget("all", null, 12000, 0));
+
+        assertEquals(6000, expenseManager.getBudgetEngine().getSpent("food", 201904));
+        assertEquals(9000, expenseManager.getBudgetEngine().getSpent("all", 201904));
+        spend("1A", 2, "20");
+        assertAlert(0, "food", BudgetAlert.Level.WARNING, 8000);
+        assertEquals(1, alerts.size());
+        spend("2B", 3, "10.01");
+        assertAlert(1, "all", BudgetAlert.Level.EXCEEDED, 12001);
+    }
+
+    @Test
+    public void keepsEveryMonthApart() throws InvalidAccountException {
+        spend("1A", 1, "90");
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 0));
+
+        expenseManager.updateAccountBalance("1A", 1, APRIL + 1, 2019, ExpenseType.EXPENSE, "90");
+        assertTrue(alerts.isEmpty());
+        // backdated into April, which already had 90 spent
+        spend("1A", 2, "20");
+        assertAlert(0, "food", BudgetAlert.Level.EXCEEDED, 11000);
+        assertEquals(201904, alerts.get(0).getYearMonth());
+        assertEquals(9000, expenseManager.getBudgetEngine().getSpent("food", 201905));
+    }
+
+    @Test
+    public void leavesTheBudgetsAloneOnATransfer() throws InvalidAccountException {
+        spend("1A", 1, "30");
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 80));
+        expenseManager.addBudget(new Budget("all", null, 10000, 80));
+
+        expenseManager.transfer("1A", "2B", 2, APRIL, 2019, "200");
+        assertTrue(alerts.isEmpty());
+        assertEquals(3000, expenseManager.getBudgetEngine().getSpent("food", 201904));
+        assertEquals(3000, expenseManager.getBudgetEngine().getSpent("all", 201904));
+        assertEquals(1000000 - 3000 - 20000, expenseManager.getAccountsDAO().getAccount("1A").getBalanceCents());
+
+        // a budget added later reads the month from the totals, which do not count the transfer either
+        expenseManager.addBudget(new Budget("later", null, 10000, 0));
+        assertEquals(3000, expenseManager.getBudgetEngine().getSpent("later", 201904));
+    }
+
+    @Test
+    public void alertsOnABatchOnceItIsCommitted() throws InvalidAccountException {
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 0));
+        Transaction tooLarge = new Transaction(EpochDays.toDate(EpochDays.of(2019, 4, 2)), "1A", ExpenseType.EXPENSE, 100000000);
+        try {
+            expenseManager.updateAccountBalances(Arrays.asList(
+                    new Transaction(EpochDays.toDate(EpochDays.of(2019, 4, 1)), "1A", ExpenseType.EXPENSE, 20000),
+                    tooLarge));
+            fail("the second expense exceeds the balance");
+        } catch (InvalidAccountException expected) {
+        }
+        assertTrue(alerts.isEmpty());
+        assertEquals(0, expenseManager.getBudgetEngine().getSpent("food", 201904));
+
+        Transaction second = new Transaction(EpochDays.toDate(EpochDays.of(2019, 4, 2)), "1A", ExpenseType.EXPENSE, 6000);
+        expenseManager.updateAccountBalances(Arrays.asList(
+                new Transaction(EpochDays.toDate(EpochDays.of(2019, 4, 1)), "1A", ExpenseType.EXPENSE, 5000), second));
+        assertAlert(0, "food", BudgetAlert.Level.EXCEEDED, 11000);
+        assertEquals(second, alerts.get(0).getTransaction());
+    }
+
+    @Test
+    public void stopsAlertingOnceRemoved() throws InvalidAccountException {
+        expenseManager.addBudget(new Budget("food", "1A", 10000, 0));
+        assertEquals(1, expenseManager.getBudgetEngine().getBudgets().size());
+        assertTrue(expenseManager.removeBudget("food"));
+        assertFalse(expenseManager.removeBudget("food"));
+
+        spend("1A", 1, "200");
+        assertTrue(alerts.isEmpty());
+        assertEquals(-1, expenseManager.getBudgetEngine().getSpent("food", 201904));
+    }
+
+    private void spend(String accountNo, int day, String amount) throws InvalidAccountException {
+        expenseManager.updateAccountBalance(accountNo, day, APRIL, 2019, ExpenseType.EXPENSE, amount);
+    }
+
+    private void assertAlert(int index, String budget, BudgetAlert.Level level, long spent) {
+        BudgetAlert alert = alerts.get(index);
+        assertEquals(budget, alert.getBudget().getName());
+        assertEquals(level, alert.getLevel());
+        assertEquals(spent, alert.getSpentCents());
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.TransactionDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JournalLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.MonthlyTotal;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Runs the ledger engine on a plain JVM over every LedgerStore that does not need Android, eager and lazy, with all
+ * the accounts in memory or behind a small account cache.
+ */
+@RunWith(Parameterized.class)
+public class LedgerExpenseManagerTest {
+
+    @Parameterized.Parameters(name = "{0} lazy={1} accountCache={2}")
+    public static Collection<Object[]> stores() {
+        int all = LedgerExpenseManager.ALL_ACCOUNTS;
+        return Arrays.asList(new Object[][]{
+                {"heap", true, all}, {"heap", false, all}, {"jdbc", true, all}, {"jdbc", false, all},
+                {"journal", true, all}, {"journal", false, all}, {"heap", true, 1}, {"jdbc", true, 1},
+        });
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final String storeName;
+    private final boolean lazyLoading;
+    private final int accountCacheSize;
+    private LedgerExpenseManager expenseManager;
+
+    public LedgerExpenseManagerTest(String storeName, boolean lazyLoading, int accountCacheSize) {
+        this.storeName = storeName;
+        this.lazyLoading = lazyLoading;
+        this.accountCacheSize = accountCacheSize;
+    }
+
+    @Before
+    public void createExpenseManager() throws IOException {
+        LedgerStore store;
+        if ("jdbc".equals(storeName)) {
+            store = new JdbcLedgerStore("jdbc:sqlite::memory:");
+        } else if ("journal".equals(storeName)) {
+            store = new JournalLedgerStore(folder.newFolder());
+        } else {
+            store = new InMemoryLedgerStore();
+        }
+        expenseManager = new LedgerExpenseManager(store, lazyLoading, accountCacheSize);
+        expenseManager.addAccount("1A", "ABank", "AAA", 10000);
+    }
+
+    @After
+    public void closeExpenseManager() {
+        expenseManager.close();
+    }
+
+    @Test
+    public void postsAndLogs() throws InvalidAccountException {
+        expenseManager.updateAccountBalance("1A", 28, 3, 2019, ExpenseType.EXPENSE, "25.50");
+        expenseManager.updateAccountBalance("1A", 29, 3, 2019, ExpenseType.INCOME, "3.25");
+
+        assertEquals(10000 - 2550 + 325, expenseManager.getAccountsDAO().getAccount("1A").getBalanceCents());
+        List<Transaction> logs = expenseManager.getTransactionLogs();
+        assertEquals(2, logs.size());
+        assertEquals(2550, logs.get(0).getAmountCents());
+        assertEquals(EpochDays.of(2019, 4, 28), EpochDays.fromDate(logs.get(0).getDate()));
+        assertEquals(ExpenseType.INCOME, logs.get(1).getExpenseType());
+    }
+
+    @Test
+    public void rejectsTheWholeBatchWhenAnExpenseExceedsTheBalance() {
+        Date date = new Date();
+        try {
+            expenseManager.updateAccountBalances(Arrays.asList(
+                    new Transaction(date, "1A", ExpenseType.EXPENSE, 6000),
+                    new Transaction(date, "1A", ExpenseType.EXPENSE, 6000)));
+            fail("the second expense exceeds the balance");
+        } catch (InvalidAccountException expected) {
+        }
+
+        assertTrue(expenseManager.getTransactionLogs().isEmpty());
+        assertEquals(10000, reopen().getAccountsDAO().getAccountsList().get(0).getBalanceCents());
+    }
+
+    @Test
+    public void rejectsAmountsThatAreNotPositive() throws InvalidAccountException {
+        expenseManager.addAccount("2B", "BBank", "BBB", 500);
+        try {
+            expenseManager.updateAccountBalance("1A", 28, 3, 2019, ExpenseType.EXPENSE, "-500");
+            fail("a negative expense would credit the account");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            expenseManager.updateAccountBalance("1A", 28, 3, 2019, ExpenseType.INCOME, "0");
+            fail("an income needs an amount");
+        } catch (IllegalArgumentException expected) {
+        }
+        Date date = new Date();
+        try {
+            expenseManager.updateAccountBalances(Arrays.asList(
+                    new Transaction(date, "1A", ExpenseType.INCOME, 100),
+                    new Transaction(date, "2B", ExpenseType.EXPENSE, -100000)));
+            fail("the second expense is negative");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            expenseManager.transfer("1A", "2B", 28, 3, 2019, "-1");
+            fail("a negative transfer would move the money backwards");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertTrue(expenseManager.getTransactionsDAO().getAllTransactionLogs().isEmpty());
+        LedgerExpenseManager reopened = reopen();
+        assertEquals(10000, reopened.getAccountsDAO().getAccount("1A").getBalanceCents());
+        assertEquals(500, reopened.getAccountsDAO().getAccount("2B").getBalanceCents());
+    }
+
+    @Test
+    public void logsAnIncomeForAnUnknownAccount() {
+        try {
+            expenseManager.updateAccountBalance("6F", 28, 3, 3014, ExpenseType.INCOME, "3000000");
+        } catch (InvalidAccountException e) {
+            // the account is not loaded in memory, the transaction is logged anyway
+        }
+
+        List<Transaction> logs = expenseManager.getTransactionsDAO().getAllTransactionLogs();
+        assertEquals("6F", logs.get(logs.size() - 1).getAccountNo());
+        assertEquals(3000000.0, logs.get(logs.size() - 1).getAmount(), 0.0);
+    }
+
+    @Test
+    public void pagesNewestFirst() throws InvalidAccountException {
+        for (int i = 0; i < 25; i++) {
+            expenseManager.updateAccountBalance("1A", 1, 0, 2020, ExpenseType.INCOME, String.valueOf(i + 1));
+        }
+
+        List<Transaction> first = expenseManager.getTransactionLogs(TransactionDAO.FIRST_PAGE, 10);
+        assertEquals(2500, first.get(0).getAmountCents());
+        List<Transaction> last = expenseManager.getTransactionLogs(
+                expenseManager.getTransactionLogs(first.get(9).getId(), 10).get(9).getId(), 10);
+        assertEquals(5, last.size());
+        assertEquals(100, last.get(4).getAmountCents());
+    }
+
+    @Test
+    public void maintainsMonthlyTotals() throws InvalidAccountException {
+        expenseManager.updateAccountBalance("1A", 2, 3, 2019, ExpenseType.EXPENSE, "10");
+        expenseManager.updateAccountBalance("1A", 30, 3, 2019, ExpenseType.EXPENSE, "5");
+        expenseManager.updateAccountBalance("1A", 1, 4, 2019, ExpenseType.INCOME, "7");
+
+        List<MonthlyTotal> april = expenseManager.getMonthlyTotalDAO().getMonthlyTotals("1A", 201904, 201904);
+        assertEquals(1, april.size());
+        assertEquals(1500, april.get(0).getTotal());
+        assertEquals(2, april.get(0).getCount());
+        assertEquals(700, expenseManager.getMonthlyTotalDAO().getTotal(ExpenseType.INCOME, 201901, 201912));
+    }
+
+    @Test
+    public void transfersBothLegsAtOnce() throws InvalidAccountException {
+        expenseManager.addAccount("2B", "BBank", "BBB", 500);
+        expenseManager.transfer("1A", "2B", 28, 3, 2019, "40.25");
+
+        assertEquals(10000 - 4025, expenseManager.getAccountsDAO().getAccount("1A").getBalanceCents());
+        assertEquals(500 + 4025, expenseManager.getAccountsDAO().getAccount("2B").getBalanceCents());
+        List<Transaction> logs = expenseManager.getTransactionsDAO().getAllTransactionLogs();
+        assertEquals(2, logs.size());
+        assertEquals("1A", logs.get(0).getAccountNo());
+        assertEquals(ExpenseType.EXPENSE, logs.get(0).getExpenseType());
+        assertEquals("2B", logs.get(1).getAccountNo());
+        assertEquals(ExpenseType.INCOME, logs.get(1).getExpenseType());
+        assertEquals(4025, logs.get(1).getAmountCents());
+        assertTrue(logs.get(0).isTransfer());
+        assertTrue(logs.get(1).isTransfer());
+        // moving money between accounts is neither spending nor earning
+        assertEquals(0, expenseManager.getMonthlyTotalDAO().getTotal(ExpenseType.EXPENSE, 201904, 201904));
+        assertEquals(0, expenseManager.getMonthlyTotalDAO().getTotal(ExpenseType.INCOME, 201904, 201904));
+
+        LedgerExpenseManager reopened = reopen();
+        assertEquals(10000 - 4025, reopened.getAccountsDAO().getAccount("1A").getBalanceCents());
+        assertEquals(500 + 4025, reopened.getAccountsDAO().getAccount("2B").getBalanceCents());
+        assertTrue(reopened.getTransactionsDAO().getAllTransactionLogs().get(0).isTransfer());
+    }
+
+    @Test
+    public void rejectsATransferThatExceedsTheBalance() throws InvalidAccountException {
+        expenseManager.addAccount("2B", "BBank", "BBB", 500);
+        try {
+            expenseManager.transfer("1A", "2B", 28, 3, 2019, "100.01");
+            fail("the transfer exceeds the balance of 1A");
+        } catch (InvalidAccountException expected) {
+        }
+
+        assertTrue(expenseManager.getTransactionsDAO().getAllTransactionLogs().isEmpty());
+        LedgerExpenseManager reopened = reopen();
+        assertEquals(10000, reopened.getAccountsDAO().getAccount("1A").getBalanceCents());
+        assertEquals(500, reopened.getAccountsDAO().getAccount("2B").getBalanceCents());
+    }
+
+    @Test
+    public void rejectsATransferToAnUnknownOrTheSameAccount() throws InvalidAccountException {
+        try {
+            expenseManager.transfer("1A", "6F", 28, 3, 2019, "10");
+            fail("6F does not exist");
+        } catch (InvalidAccountException expected) {
+        }
+        try {
+            expenseManager.transfer(new Date(), "1A", "1A", 1000);
+            fail("a transfer needs two accounts");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            expenseManager.updateAccountBalance("1A", 28, 3, 2019, ExpenseType.TRANSFER, "10");
+            fail("a transfer needs a target account");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertTrue(expenseManager.getTransactionsDAO().getAllTransactionLogs().isEmpty());
+        assertEquals(10000, reopen().getAccountsDAO().getAccountsList().get(0).getBalanceCents());
+    }
+
+    @Test
+    public void keepsTheTotalUnderConcurrentTransfers() throws Exception {
+        expenseManager.addAccount("2B", "BBank", "BBB", 10000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final String from = t % 2 == 0 ? "1A" : "2B";
+            final String to = t % 2 == 0 ? "2B" : "1A";
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Date date = new Date();
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            expenseManager.transfer(date, from, to, 100);
+                        } catch (InvalidAccountException e) {
+                            // the source ran dry for a moment, the transfer is rejected as a whole
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = 0;
+        for (Transaction transaction : expenseManager.getTransactionsDAO().getAllTransactionLogs()) {
+            total += transaction.getExpenseType() == ExpenseType.INCOME
+                    ? transaction.getAmountCents() : -transaction.getAmountCents();
+        }
+        assertEquals(0, total);
+        LedgerExpenseManager reopened = reopen();
+        assertEquals(20000, reopened.getAccountsDAO().getAccount("1A").getBalanceCents()
+                + reopened.getAccountsDAO().getAccount("2B").getBalanceCents());
+    }
+
+    private LedgerExpenseManager reopen() {
+        // a second manager over the same store sees only what was committed
+        return new LedgerExpenseManager(expenseManager.getStore(), lazyLoading, accountCacheSize);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Posts standing orders through the ledger engine over the in memory and the JDBC stores.
+ */
+@RunWith(Parameterized.class)
+public class RecurringSchedulerTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return Arrays.asList(new Object[][]{{"heap"}, {"jdbc"}});
+    }
+
+    private final String storeName;
+    private LedgerExpenseManager expenseManager;
+    private RecurringScheduler scheduler;
+
+    public RecurringSchedulerTest(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Before
+    public void createExpenseManager() {
+        LedgerStore store = "jdbc".equals(storeName) ? new JdbcLedgerStore("jdbc:sqlite::memory:") : new InMemoryLedgerStore();
+        expenseManager = new LedgerExpenseManager(store, true);
+        expenseManager.addAccount("1A", "ABank", "AAA", 100000);
+        scheduler = new RecurringScheduler(expenseManager);
+    }
+
+    @After
+    public void closeExpenseManager() {
+        expenseManager.close();
+    }
+
+    @Test
+    public void postsMonthlyOccurrencesOnTheLastDayOfShortMonths() throws InvalidAccountException {
+        expenseManager.addRecurringRule(rule("Rent", ExpenseType.EXPENSE, 1000, RecurringRule.Period.MONTH,
+                EpochDays.of(2019, 1, 31), RecurringRule.NEVER));
+
+        assertEquals(4, scheduler.catchUp(EpochDays.of(2019, 5, 15)));
+        assertEquals(Arrays.asList(EpochDays.of(2019, 1, 31), EpochDays.of(2019, 2, 28), EpochDays.of(2019, 3, 31),
+                EpochDays.of(2019, 4, 30)), loggedDays());
+        RecurringRule stored = expenseManager.getRecurringRuleDAO().getRules().get(0);
+        assertEquals(4, stored.getPosted());
+        assertEquals(EpochDays.of(2019, 5, 31), stored.getNextDay());
+        assertEquals(100000 - 4000, balance());
+    }
+
+    @Test
+    public void postsEachOccurrenceOnce() throws InvalidAccountException {
+        expenseManager.addRecurringRule(rule("Salary", ExpenseType.INCOME, 5000, RecurringRule.Period.WEEK,
+                EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+        long day = EpochDays.of(2019, 2, 1);
+
+        assertEquals(5, scheduler.catchUp(day));
+        assertEquals(0, scheduler.catchUp(day));
+        assertEquals(0, scheduler.run(day).getPosted());
+        assertEquals(1, scheduler.catchUp(day + 7));
+        assertEquals(100000 + 6 * 5000, balance());
+    }
+
+    @Test
+    public void postsNothingForARuleAdvancedSinceItWasRead() throws InvalidAccountException {
+        expenseManager.addRecurringRule(rule("Salary", ExpenseType.INCOME, 5000, RecurringRule.Period.DAY,
+                EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+        long day = EpochDays.of(2019, 1, 1);
+        RecurringRule read = expenseManager.getRecurringRuleDAO().getDueRules(day, 10).get(0);
+
+        assertEquals(1, scheduler.catchUp(day));
+        List<Transaction> occurrence = Collections.singletonList(
+                new Transaction(EpochDays.toDate(day), "1A", ExpenseType.INCOME, 5000));
+        assertFalse(expenseManager.postRecurring(occurrence, Collections.singletonList(read),
+                Collections.singletonList(read.advance(1))));
+        assertEquals(1, loggedDays().size());
+        assertEquals(100000 + 5000, balance());
+    }
+
+    @Test
+    public void catchesUpInBatchesAfterALongGap() throws InvalidAccountException {
+        expenseManager.addRecurringRule(rule("Coffee", ExpenseType.EXPENSE, 10, RecurringRule.Period.DAY,
+                EpochDays.of(2015, 1, 1), RecurringRule.NEVER));
+        long day = EpochDays.of(2015, 1, 1) + 2499;
+
+        RecurringScheduler.Run run = scheduler.run(day);
+        assertEquals(RecurringScheduler.MAX_OCCURRENCES, run.getPosted());
+        assertTrue(run.hasMore());
+        assertEquals(2500 - RecurringScheduler.MAX_OCCURRENCES, scheduler.catchUp(day));
+        assertEquals(2500, loggedDays().size());
+        assertEquals(100000 - 2500 * 10, balance());
+    }
+
+    @Test
+    public void stopsAtTheEndDate() throws InvalidAccountException {
+        expenseManager.addRecurringRule(rule("Gym", ExpenseType.EXPENSE, 100, RecurringRule.Period.MONTH,
+                EpochDays.of(2019, 1, 15), EpochDays.of(2019, 3, 15)));
+
+        assertEquals(3, scheduler.catchUp(EpochDays.of(2020, 1, 1)));
+        assertEquals(RecurringRule.NEVER, expenseManager.getRecurringRuleDAO().getRules().get(0).getNextDay());
+        assertTrue(expenseManager.getRecurringRuleDAO().getDueRules(Long.MAX_VALUE - 1, 10).isEmpty());
+    }
+
+    @Test
+    public void leavesARuleDueWhenItsExpenseExceedsTheBalance() throws InvalidAccountException {
+        expenseManager.addRecurringRule(rule("Salary", ExpenseType.INCOME, 5000, RecurringRule.Period.MONTH,
+                EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+        expenseManager.addRecurringRule(rule("Car", ExpenseType.EXPENSE, 1000000, RecurringRule.Period.MONTH,
+                EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+
+        RecurringScheduler.Run run = scheduler.run(EpochDays.of(2019, 2, 1));
+        assertEquals(2, run.getPosted());
+        assertEquals(1, run.getFailedRules().size());
+        assertEquals("Car", run.getFailedRules().get(0).getName());
+        assertEquals(100000 + 2 * 5000, balance());
+        assertEquals(1, expenseManager.getRecurringRuleDAO().getDueRules(EpochDays.of(2019, 2, 1), 10).size());
+    }
+
+    @Test
+    public void postsTheRulesBehindRulesThatAlwaysFail() throws InvalidAccountException {
+        // more rules than a run reads, all more overdue than the healthy ones and never covered by the balance
+        expenseManager.addAccount("2B", "BBank", "BBB", 0);
+        for (int i = 0; i < 600; i++) {
+            expenseManager.addRecurringRule(new RecurringRule(0, "Loan" + i, "2B", ExpenseType.EXPENSE, 100,
+                    RecurringRule.Period.MONTH, 1, EpochDays.of(2018, 12, 1), RecurringRule.NEVER, 0));
+        }
+        expenseManager.addRecurringRule(rule("Salary", ExpenseType.INCOME, 5000, RecurringRule.Period.MONTH,
+                EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+        expenseManager.addRecurringRule(rule("Rent", ExpenseType.EXPENSE, 1000, RecurringRule.Period.MONTH,
+                EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+        long day = EpochDays.of(2019, 1, 1);
+
+        RecurringScheduler.Run run = scheduler.run(day);
+        assertEquals(0, run.getPosted());
+        assertEquals(500, run.getFailedRules().size());
+        assertTrue(run.hasMore());
+
+        assertEquals(2, scheduler.catchUp(day));
+        assertEquals(100000 + 5000 - 1000, balance());
+        assertEquals(600, expenseManager.getRecurringRuleDAO().getDueRules(day, 1000).size());
+        assertEquals(0, expenseManager.getAccountsDAO().getAccount("2B").getBalanceCents());
+        // the failed rules are retried by every catch up, and post once the balance covers them
+        assertEquals(0, scheduler.catchUp(day));
+        expenseManager.updateAccountBalance("2B", 1, 0, 2019, ExpenseType.INCOME, "1200");
+        assertEquals(1200, scheduler.catchUp(day));
+        assertTrue(expenseManager.getRecurringRuleDAO().getDueRules(day, 1000).isEmpty());
+    }
+
+    @Test
+    public void rejectsARuleForAnUnknownAccount() {
+        try {
+            expenseManager.addRecurringRule(rule("Rent", ExpenseType.EXPENSE, 1000, RecurringRule.Period.MONTH,
+                    EpochDays.of(2019, 1, 1), RecurringRule.NEVER));
+            RecurringRule unknown = new RecurringRule(0, "Rent", "9Z", ExpenseType.EXPENSE, 1000,
+                    RecurringRule.Period.MONTH, 1, EpochDays.of(2019, 1, 1), RecurringRule.NEVER, 0);
+            expenseManager.addRecurringRule(unknown);
+            fail("9Z is not an account");
+        } catch (InvalidAccountException expected) {
+        }
+        assertEquals(1, expenseManager.getRecurringRuleDAO().getRules().size());
+        assertTrue(expenseManager.getRecurringRuleDAO().removeRule(
+                expenseManager.getRecurringRuleDAO().getRules().get(0).getId()));
+        assertTrue(expenseManager.getRecurringRuleDAO().getRules().isEmpty());
+    }
+
+    private static RecurringRule rule(String name, ExpenseType expenseType, long amount, RecurringRule.Period period,
+                                      long startDay, long endDay) {
+        return new RecurringRule(0, name, "1A", expenseType, amount, period, 1, startDay, endDay, 0);
+    }
+
+    private long balance() throws InvalidAccountException {
+        return expenseManager.getAccountsDAO().getAccount("1A").getBalanceCents();
+    }
+
+    private List<Long> loggedDays() {
+        List<Long> days = new ArrayList<>();
+        for (Transaction transaction : expenseManager.getTransactionsDAO().getAllTransactionLogs()) {
+            days.add(EpochDays.fromDate(transaction.getDate()));
+        }
+        return days;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Quoting, headers, malformed lines, date layouts and signs of the CSV statements.
+ */
+public class CsvStatementParserTest {
+
+    private static CsvStatementParser parser(String... lines) {
+        StringBuilder statement = new StringBuilder();
+        for (String line : lines) {
+            statement.append(line).append('\n');
+        }
+        return new CsvStatementParser(new StringReader(statement.toString()));
+    }
+
+    private static void assertTransaction(Transaction transaction, long epochDay, String accountNo,
+                                          ExpenseType expenseType, long amount) {
+        assertEquals(EpochDays.toDate(epochDay), transaction.getDate());
+        assertEquals(accountNo, transaction.getAccountNo());
+        assertEquals(expenseType, transaction.getExpenseType());
+        assertEquals(amount, transaction.getAmountCents());
+    }
+
+    private static void assertRejected(CsvStatementParser parser, String message) throws IOException {
+        try {
+            parser.next();
+            fail("the line is malformed");
+        } catch (StatementFormatException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith(message));
+        }
+    }
+
+    @Test
+    public void readsQuotedFields() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "2019-04-01,\"12-34, \"\"main\"\"\",\"EXPENSE\",\" 12.50 \"",
+                "2019-04-02,\"\",INCOME,\"\"\"\"",
+                "\"2019-04-03\",\"a,b,c\",income,1");
+
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "12-34, \"main\"", ExpenseType.EXPENSE, 1250);
+        // the quoted quote is an amount, not an empty field
+        assertRejected(parser, "Line 2: ");
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 3), "a,b,c", ExpenseType.INCOME, 100);
+        assertNull(parser.next());
+        parser.close();
+    }
+
+    @Test
+    public void skipsTheHeaderAndBlankLines() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "Date,accountNo,expenseType,amount",
+                "",
+                "2019-04-01,1A,EXPENSE,5",
+                "   ",
+                "date,accountNo,expenseType,amount");
+
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "1A", ExpenseType.EXPENSE, 500);
+        // only the first line can be a header
+        assertRejected(parser, "Line 5: ");
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void rejectsAWrongColumnCountAndGoesOn() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "2019-04-01,1A,EXPENSE",
+                "2019-04-01,1A,EXPENSE,5,false,extra",
+                "2019-04-01,\"1A,EXPENSE,5\"",
+                "2019-04-02,1A,EXPENSE,6");
+
+        assertRejected(parser, "Line 1: expected 4 or 5 columns but found 3");
+        assertRejected(parser, "Line 2: expected 4 or 5 columns but found 6");
+        assertRejected(parser, "Line 3: expected 4 or 5 columns but found 2");
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 2), "1A", ExpenseType.EXPENSE, 600);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void readsTheTransferFlagOfTheExport() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "date,accountNo,expenseType,amount,transfer",
+                "2019-04-01,1A,EXPENSE,5,true",
+                "2019-04-01,2B,INCOME,5,true",
+                "2019-04-01,1A,EXPENSE,6,false",
+                "2019-04-01,1A,EXPENSE,7,",
+                "2019-04-01,1A,EXPENSE,8,yes");
+
+        Transaction transaction = parser.next();
+        assertTransaction(transaction, EpochDays.of(2019, 4, 1), "1A", ExpenseType.EXPENSE, 500);
+        assertTrue(transaction.isTransfer());
+        assertTrue(parser.next().isTransfer());
+        assertFalse(parser.next().isTransfer());
+        assertFalse(parser.next().isTransfer());
+        assertRejected(parser, "Line 6: Invalid transfer flag yes");
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void readsBothDateLayouts() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "2019-12-31,1A,INCOME,1",
+                "31-12-2019,1A,INCOME,1",
+                "2019/12/31,1A,INCOME,1",
+                "2019-13-01,1A,INCOME,1");
+
+        assertTransaction(parser.next(), EpochDays.of(2019, 12, 31), "1A", ExpenseType.INCOME, 100);
+        assertTransaction(parser.next(), EpochDays.of(2019, 12, 31), "1A", ExpenseType.INCOME, 100);
+        assertRejected(parser, "Line 3: Invalid date");
+        assertRejected(parser, "Line 4: Invalid date");
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void rejectsDaysPastTheEndOfTheMonth() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "2020-02-29,1A,INCOME,1",
+                "29-02-2000,1A,INCOME,1",
+                "2021-02-29,1A,INCOME,1",
+                "29-02-1900,1A,INCOME,1",
+                "2021-02-31,1A,INCOME,1",
+                "31-04-2021,1A,INCOME,1",
+                "2021-04-30,1A,INCOME,1");
+
+        assertTransaction(parser.next(), EpochDays.of(2020, 2, 29), "1A", ExpenseType.INCOME, 100);
+        assertTransaction(parser.next(), EpochDays.of(2000, 2, 29), "1A", ExpenseType.INCOME, 100);
+        assertRejected(parser, "Line 3: Invalid date 2021-02-29");
+        assertRejected(parser, "Line 4: Invalid date 29-02-1900");
+        assertRejected(parser, "Line 5: Invalid date 2021-02-31");
+        assertRejected(parser, "Line 6: Invalid date 31-04-2021");
+        assertTransaction(parser.next(), EpochDays.of(2021, 4, 30), "1A", ExpenseType.INCOME, 100);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void takesTheTypeFromTheSignWhenItIsEmpty() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "2019-04-01,1A,,-12.50",
+                "2019-04-01,1A,,12.50",
+                "2019-04-01,1A,,abc");
+
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "1A", ExpenseType.EXPENSE, 1250);
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "1A", ExpenseType.INCOME, 1250);
+        assertRejected(parser, "Line 3: ");
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void rejectsASignThatContradictsTheType() throws IOException, StatementFormatException {
+        CsvStatementParser parser = parser(
+                "2019-04-01,1A,INCOME,-12.50",
+                "2019-04-01,1A,EXPENSE,-12.50",
+                "2019-04-01,1A,EXPENSE,12.50",
+                "2019-04-01,1A,INCOME,+12.50",
+                "2019-04-01,1A,TRANSFER,12.50",
+                "2019-04-01,1A,REFUND,12.50");
+
+        assertRejected(parser, "Line 1: Negative amount -12.50 for an INCOME");
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "1A", ExpenseType.EXPENSE, 1250);
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "1A", ExpenseType.EXPENSE, 1250);
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 1), "1A", ExpenseType.INCOME, 1250);
+        assertRejected(parser, "Line 5: A transfer is imported as its two legs");
+        assertRejected(parser, "Line 6: ");
+        assertNull(parser.next());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.exception.StatementFormatException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * The SGML and XML flavours of OFX statements, and the records that are cut short.
+ */
+public class OfxStatementParserTest {
+    private static final String SGML_HEADER = "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\nENCODING:USASCII\n\n";
+
+    private static void assertTransaction(Transaction transaction, long epochDay, String accountNo,
+                                          ExpenseType expenseType, long amount) {
+        assertEquals(EpochDays.toDate(epochDay), transaction.getDate());
+        assertEquals(accountNo, transaction.getAccountNo());
+        assertEquals(expenseType, transaction.getExpenseType());
+        assertEquals(amount, transaction.getAmountCents());
+    }
+
+    private static void assertRejected(OfxStatementParser parser, String message) throws IOException {
+        try {
+            parser.next();
+            fail("the record is malformed");
+        } catch (StatementFormatException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith(message));
+        }
+    }
+
+    @Test
+    public void readsTheSgmlFlavour() throws IOException, StatementFormatException {
+        // the elements holding a value have no closing tag
+        OfxStatementParser parser = new OfxStatementParser(new StringReader(SGML_HEADER
+                + "<OFX>\n<BANKMSGSRSV1>\n<STMTTRNRS>\n<STMTRS>\n<CURDEF>USD\n"
+                + "<BANKACCTFROM>\n<BANKID>121000248\n<ACCTID>1234-5\n<ACCTTYPE>CHECKING\n</BANKACCTFROM>\n"
+                + "<BANKTRANLIST>\n<DTSTART>20190401\n<DTEND>20190430\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20190402120000[0:GMT]\n<TRNAMT>-12.50\n<FITID>1\n<NAME>Grocer\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20190415\n<TRNAMT>1000.00\n<FITID>2\n</STMTTRN>\n"
+                + "</BANKTRANLIST>\n<LEDGERBAL>\n<BALAMT>987.50\n<DTASOF>20190430\n</LEDGERBAL>\n"
+                + "</STMTRS>\n</STMTTRNRS>\n</BANKMSGSRSV1>\n</OFX>\n"));
+
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 2), "1234-5", ExpenseType.EXPENSE, 1250);
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 15), "1234-5", ExpenseType.INCOME, 100000);
+        assertNull(parser.next());
+        parser.close();
+    }
+
+    @Test
+    public void readsTheXmlFlavour() throws IOException, StatementFormatException {
+        OfxStatementParser parser = new OfxStatementParser(new StringReader(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n"
+                        + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS>"
+                        + "<BANKACCTFROM><BANKID>1</BANKID><acctid> 77 </acctid></BANKACCTFROM><BANKTRANLIST>"
+                        + "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20191231</DTPOSTED><TRNAMT>-0.05</TRNAMT></STMTTRN>"
+                        + "<stmttrn><dtposted>20200101000000.000</dtposted><trnamt>+3</trnamt></stmttrn>"
+                        + "</BANKTRANLIST></STMTRS></STMTTRNRS>"
+                        + "<STMTTRNRS><STMTRS><BANKACCTFROM><ACCTID>88</ACCTID></BANKACCTFROM><BANKTRANLIST>"
+                        + "<STMTTRN><DTPOSTED>20200102</DTPOSTED><TRNAMT>-1</TRNAMT></STMTTRN>"
+                        + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>"));
+
+        assertTransaction(parser.next(), EpochDays.of(2019, 12, 31), "77", ExpenseType.EXPENSE, 5);
+        assertTransaction(parser.next(), EpochDays.of(2020, 1, 1), "77", ExpenseType.INCOME, 300);
+        // the account of the next statement
+        assertTransaction(parser.next(), EpochDays.of(2020, 1, 2), "88", ExpenseType.EXPENSE, 100);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void rejectsDaysPastTheEndOfTheMonth() throws IOException, StatementFormatException {
+        OfxStatementParser parser = new OfxStatementParser(new StringReader(SGML_HEADER
+                + "<OFX><ACCTID>1\n"
+                + "<STMTTRN>\n<DTPOSTED>20200229\n<TRNAMT>-1\n</STMTTRN>\n"
+                + "<STMTTRN>\n<DTPOSTED>20210229\n<TRNAMT>-2\n</STMTTRN>\n"
+                + "<STMTTRN>\n<DTPOSTED>20210431120000\n<TRNAMT>-3\n</STMTTRN>\n</OFX>"));
+
+        assertTransaction(parser.next(), EpochDays.of(2020, 2, 29), "1", ExpenseType.EXPENSE, 100);
+        assertRejected(parser, "Invalid date 20210229");
+        assertRejected(parser, "Invalid date 20210431120000");
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void rejectsAnIncompleteRecordAndGoesOn() throws IOException, StatementFormatException {
+        OfxStatementParser parser = new OfxStatementParser(new StringReader(SGML_HEADER
+                + "<OFX><ACCTID>1\n"
+                + "<STMTTRN>\n<DTPOSTED>20190401\n</STMTTRN>\n"
+                + "<STMTTRN>\n<DTPOSTED>20190401\n<TRNAMT>1,5\n</STMTTRN>\n"
+                + "<STMTTRN>\n<DTPOSTED>20190402\n<TRNAMT>-2\n</STMTTRN>\n</OFX>"));
+
+        assertRejected(parser, "Incomplete STMTTRN record");
+        assertRejected(parser, "Invalid TRNAMT 1,5");
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 2), "1", ExpenseType.EXPENSE, 200);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void rejectsATruncatedRecordAndGoesOn() throws IOException, StatementFormatException {
+        // the first record is cut off by the next one, the last one by the end of the file
+        OfxStatementParser parser = new OfxStatementParser(new StringReader(SGML_HEADER
+                + "<OFX><ACCTID>1\n"
+                + "<STMTTRN>\n<DTPOSTED>20190401\n<TRNAMT>-1\n"
+                + "<STMTTRN>\n<DTPOSTED>20190402\n<TRNAMT>-2\n</STMTTRN>\n"
+                + "<STMTTRN>\n<DTPOSTED>20190403\n<TRN"));
+
+        assertRejected(parser, "Unterminated STMTTRN record");
+        assertTransaction(parser.next(), EpochDays.of(2019, 4, 2), "1", ExpenseType.EXPENSE, 200);
+        assertRejected(parser, "Truncated STMTTRN record");
+        assertNull(parser.next());
+        assertNull(parser.next());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.control.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+
+/**
+ * The batches of the statement importer, at the batch boundary and when a batch is refused by the store.
+ */
+public class StatementImporterTest {
+    private LedgerExpenseManager expenseManager;
+    private RecordingListener listener;
+
+    @Before
+    public void createExpenseManager() {
+        InMemoryLedgerStore store = new InMemoryLedgerStore();
+        store.addAccount(new Account("1A", "Bank", "Holder", 1000));
+        store.addAccount(new Account("2B", "Bank", "Holder", 0));
+        expenseManager = new LedgerExpenseManager(store, true);
+        listener = new RecordingListener();
+    }
+
+    private static CsvStatementParser incomes(int rows) {
+        StringBuilder statement = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            statement.append("2019-04-01,2B,INCOME,0.01\n");
+        }
+        return new CsvStatementParser(new StringReader(statement.toString()));
+    }
+
+    private long balance(String accountNo) throws InvalidAccountException {
+        return expenseManager.getAccountsDAO().getAccount(accountNo).getBalanceCents();
+    }
+
+    @Test
+    public void postsAFullBatchOnce() throws IOException, InvalidAccountException {
+        ImportProgress progress = new StatementImporter(expenseManager).importStatement(
+                incomes(StatementImporter.DEFAULT_BATCH_SIZE), listener);
+
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE, progress.getRowsRead());
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE, progress.getRowsImported());
+        assertEquals(0, progress.getRowsRejected());
+        // one report for the full batch, and the final one after an empty last batch
+        assertEquals(2, listener.progress.size());
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE, listener.progress.get(0).getRowsImported());
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE, listener.progress.get(1).getRowsImported());
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE, balance("2B"));
+    }
+
+    @Test
+    public void postsTheRowAfterAFullBatch() throws IOException, InvalidAccountException {
+        ImportProgress progress = new StatementImporter(expenseManager).importStatement(
+                incomes(StatementImporter.DEFAULT_BATCH_SIZE + 1), listener);
+
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE + 1, progress.getRowsImported());
+        assertEquals(2, listener.progress.size());
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE, listener.progress.get(0).getRowsImported());
+        assertEquals(StatementImporter.DEFAULT_BATCH_SIZE + 1, balance("2B"));
+    }
+
+    @Test
+    public void postsARefusedBatchRowByRow() throws IOException, InvalidAccountException {
+        CsvStatementParser parser = new CsvStatementParser(new StringReader(
+                "2019-04-01,1A,EXPENSE,3\n"
+                        + "2019-04-01,1A,EXPENSE,20\n"
+                        + "2019-04-01,1A,EXPENSE,3\n"
+                        + "2019-04-01,2B,INCOME,1\n"
+                        // the second batch, posted at once
+                        + "2019-04-02,1A,EXPENSE,1\n"
+                        + "2019-04-02,NOPE,INCOME,1\n"
+                        + "2019-04-02,1A,EXPENSE\n"
+                        + "2019-04-02,2B,INCOME,2\n"
+                        + "2019-04-02,2B,INCOME,0\n"));
+        ImportProgress progress = new StatementImporter(expenseManager, 4).importStatement(parser, listener);
+
+        assertEquals(9, progress.getRowsRead());
+        assertEquals(5, progress.getRowsImported());
+        assertEquals(4, progress.getRowsRejected());
+        assertEquals(1000 - 300 - 300 - 100, balance("1A"));
+        assertEquals(300, balance("2B"));
+        assertEquals(5, expenseManager.getTransactionLogs().size());
+        assertEquals(4, listener.reasons.size());
+        assertTrue(listener.reasons.get(0), listener.reasons.get(0).contains("lesser than the account balance"));
+        assertTrue(listener.reasons.get(1), listener.reasons.get(1).contains("NOPE"));
+        assertTrue(listener.reasons.get(2), listener.reasons.get(2).startsWith("Line 7: "));
+        assertEquals("Zero amount for account 2B", listener.reasons.get(3));
+    }
+
+    private static class RecordingListener implements StatementImporter.ImportListener {
+        private final List<ImportProgress> progress = new ArrayList<>();
+        private final List<String> reasons = new ArrayList<>();
+
+        @Override
+        public void onProgress(ImportProgress progress) {
+            this.progress.add(progress);
+        }
+
+        @Override
+        public void onRejected(String reason) {
+            reasons.add(reason);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.BalanceCheckpointDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BalanceCheckpoint;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Checks the balances on past days against a replay of the transaction log, over the in-memory checkpoints and over
+ * the trigger maintained table of a JDBC store, with transactions posted out of date order.
+ */
+@RunWith(Parameterized.class)
+public class BalanceCheckpointDAOTest {
+    private static final long OPENING = 100000;
+    private static int databases;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return Arrays.asList(new Object[][]{{"heap"}, {"jdbc"}});
+    }
+
+    private final String storeName;
+    private String url;
+    private LedgerExpenseManager expenseManager;
+    private BalanceCheckpointDAO balanceCheckpointDAO;
+
+    public BalanceCheckpointDAOTest(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Before
+    public void createExpenseManager() {
+        // a named in-memory database, so that a test can reach it from a second connection
+        url = "jdbc:sqlite:file:checkpoints" + (++databases) + "?mode=memory&cache=shared";
+        LedgerStore store = "jdbc".equals(storeName) ? new JdbcLedgerStore(url) : new InMemoryLedgerStore();
+        expenseManager = new LedgerExpenseManager(store, true, LedgerExpenseManager.ALL_ACCOUNTS);
+        expenseManager.addAccount("1A", "ABank", "AAA", OPENING);
+        expenseManager.addAccount("2B", "BBank", "BBB", OPENING);
+        balanceCheckpointDAO = store.getBalanceCheckpointDAO();
+    }
+
+    @After
+    public void closeExpenseManager() {
+        expenseManager.close();
+    }
+
+    @Test
+    public void keepsTheClosingBalanceOfEveryMonth() throws InvalidAccountException {
+        post("1A", EpochDays.of(2019, 1, 10), ExpenseType.INCOME, 500);
+        post("1A", EpochDays.of(2019, 3, 31), ExpenseType.EXPENSE, 200);
+        post("2B", EpochDays.of(2019, 3, 1), ExpenseType.EXPENSE, 1000);
+
+        assertEquals(Arrays.asList(
+                new BalanceCheckpoint("1A", BalanceCheckpoint.OPENING, OPENING),
+                new BalanceCheckpoint("1A", 201901, OPENING + 500),
+                new BalanceCheckpoint("1A", 201903, OPENING + 300)), balanceCheckpointDAO.getCheckpoints("1A"));
+        assertEquals(OPENING, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 1, 9)));
+        assertEquals(OPENING + 500, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 1, 10)));
+        assertEquals(OPENING + 500, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 2, 14)));
+        assertEquals(OPENING + 500, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 3, 30)));
+        assertEquals(OPENING + 300, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 3, 31)));
+        assertEquals(OPENING + 300, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2030, 1, 1)));
+        assertEquals(OPENING - 1000, balanceCheckpointDAO.getBalance("2B", EpochDays.of(2019, 3, 1)));
+        assertTrue(balanceCheckpointDAO.verify().isEmpty());
+    }
+
+    @Test
+    public void shiftsTheLaterMonthsOnABackdatedTransaction() throws InvalidAccountException {
+        post("1A", EpochDays.of(2019, 5, 15), ExpenseType.EXPENSE, 3000);
+        // dated before the first checkpoint, from the date picker of the manage screen
+        expenseManager.updateAccountBalance("1A", 20, 1, 2019, ExpenseType.INCOME, "7.50");
+
+        assertEquals(OPENING + 750, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 2, 20)));
+        assertEquals(OPENING + 750, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 5, 14)));
+        assertEquals(OPENING + 750 - 3000, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 5, 15)));
+        assertEquals(Arrays.asList(
+                new BalanceCheckpoint("1A", BalanceCheckpoint.OPENING, OPENING),
+                new BalanceCheckpoint("1A", 201902, OPENING + 750),
+                new BalanceCheckpoint("1A", 201905, OPENING + 750 - 3000)), balanceCheckpointDAO.getCheckpoints("1A"));
+        assertEquals(expenseManager.getAccountsDAO().getAccount("1A").getBalanceCents(),
+                balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 12, 31)));
+        assertTrue(balanceCheckpointDAO.verify().isEmpty());
+    }
+
+    @Test
+    public void matchesAReplayOfTransactionsPostedInAnyOrder() throws InvalidAccountException {
+        Random random = new Random(42);
+        long first = EpochDays.of(2018, 1, 1);
+        for (int i = 0; i < 500; i++) {
+            long day = first + random.nextInt(3 * 365);
+            String accountNo = random.nextBoolean() ? "1A" : "2B";
+            // incomes outweigh expenses, so no expense is refused whatever the order
+            ExpenseType expenseType = random.nextInt(3) == 0 ? ExpenseType.EXPENSE : ExpenseType.INCOME;
+            post(accountNo, day, expenseType, 1 + random.nextInt(150));
+        }
+
+        List<Transaction> logs = expenseManager.getTransactionsDAO().getAllTransactionLogs();
+        for (long day = first - 1; day <= first + 3 * 365; day += 11) {
+            for (String accountNo : new String[]{"1A", "2B"}) {
+                assertEquals(accountNo + " on " + day, replay(logs, accountNo, day),
+                        balanceCheckpointDAO.getBalance(accountNo, day));
+            }
+        }
+        assertTrue(balanceCheckpointDAO.verify().isEmpty());
+    }
+
+    @Test
+    public void includesTransfers() throws InvalidAccountException {
+        expenseManager.transfer("1A", "2B", 1, 6, 2020, "25");
+
+        assertEquals(OPENING - 2500, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2020, 7, 1)));
+        assertEquals(OPENING + 2500, balanceCheckpointDAO.getBalance("2B", EpochDays.of(2020, 7, 1)));
+        assertEquals(OPENING, balanceCheckpointDAO.getBalance("2B", EpochDays.of(2020, 6, 30)));
+    }
+
+    @Test
+    public void rejectsAnUnknownAccount() {
+        try {
+            balanceCheckpointDAO.getBalance("6F", EpochDays.of(2019, 1, 1));
+            fail("6F is not stored");
+        } catch (InvalidAccountException expected) {
+        }
+        assertTrue(balanceCheckpointDAO.getCheckpoints("6F").isEmpty());
+    }
+
+    @Test
+    public void verifiesAndRebuildsTheTable() throws Exception {
+        assumeTrue("jdbc".equals(storeName));
+        post("1A", EpochDays.of(2019, 1, 10), ExpenseType.INCOME, 500);
+        post("1A", EpochDays.of(2019, 3, 10), ExpenseType.INCOME, 500);
+
+        Connection connection = DriverManager.getConnection(url);
+        try {
+            execute(connection, "UPDATE `balance_checkpoint` SET `balance` = `balance` + 1 WHERE `yearMonth` = 201901");
+            execute(connection, "DELETE FROM `balance_checkpoint` WHERE `yearMonth` = 201903");
+            execute(connection, "INSERT INTO `balance_checkpoint` VALUES ('6F', 0, 10)");
+        } finally {
+            connection.close();
+        }
+
+        List<BalanceCheckpoint> mismatches = new ArrayList<>(balanceCheckpointDAO.verify());
+        assertEquals(3, mismatches.size());
+        assertTrue(mismatches.contains(new BalanceCheckpoint("1A", 201901, OPENING + 500)));
+        assertTrue(mismatches.contains(new BalanceCheckpoint("1A", 201903, OPENING + 1000)));
+        assertTrue(mismatches.contains(new BalanceCheckpoint("6F", 0, 0)));
+
+        ((JdbcBalanceCheckpointDAO) balanceCheckpointDAO).rebuild();
+        assertTrue(balanceCheckpointDAO.verify().isEmpty());
+        assertEquals(OPENING + 500, balanceCheckpointDAO.getBalance("1A", EpochDays.of(2019, 2, 1)));
+    }
+
+    private void post(String accountNo, long epochDay, ExpenseType expenseType, long amount)
+            throws InvalidAccountException {
+        expenseManager.updateAccountBalances(Arrays.asList(
+                new Transaction(EpochDays.toDate(epochDay), accountNo, expenseType, amount)));
+    }
+
+    private static long replay(List<Transaction> logs, String accountNo, long epochDay) {
+        long balance = OPENING;
+        for (Transaction transaction : logs) {
+            if (transaction.getAccountNo().equals(accountNo) && EpochDays.fromDate(transaction.getDate()) <= epochDay)
+                balance += transaction.getExpenseType() == ExpenseType.INCOME
+                        ? transaction.getAmountCents() : -transaction.getAmountCents();
+        }
+        return balance;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+}
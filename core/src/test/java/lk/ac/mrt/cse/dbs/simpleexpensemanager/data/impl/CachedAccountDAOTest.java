@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * Eviction, metrics, the account number snapshot and the balances read through the account cache.
+ */
+public class CachedAccountDAOTest {
+    private static final int ACCOUNTS = 1000;
+
+    private InMemoryLedgerStore store;
+
+    @Before
+    public void createStore() {
+        store = new InMemoryLedgerStore();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            store.addAccount(new Account(String.format("ACC%04d", i), "Bank", "Holder", 1000));
+        }
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedAccount() throws InvalidAccountException {
+        CachedAccountDAO accountDAO = new CachedAccountDAO(store, 4);
+        for (int i = 0; i < 4; i++) {
+            accountDAO.getAccount(String.format("ACC%04d", i));
+        }
+        accountDAO.getAccount("ACC0000");
+        accountDAO.getAccount("ACC0004");
+
+        assertEquals(4, accountDAO.size());
+        assertEquals(1, accountDAO.getEvictionCount());
+        accountDAO.getAccount("ACC0000");
+        assertEquals(2, accountDAO.getHitCount());
+        accountDAO.getAccount("ACC0001");
+        assertEquals(6, accountDAO.getMissCount());
+    }
+
+    @Test
+    public void staysWithinItsCapacity() throws InvalidAccountException {
+        CachedAccountDAO accountDAO = new CachedAccountDAO(store, 64);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accountDAO.getAccount(String.format("ACC%04d", i));
+            }
+        }
+        assertTrue(accountDAO.size() <= 64);
+        assertEquals(2 * ACCOUNTS, accountDAO.getHitCount() + accountDAO.getMissCount());
+        assertEquals(accountDAO.getMissCount() - accountDAO.size(), accountDAO.getEvictionCount());
+    }
+
+    @Test
+    public void holdsExactlyItsCapacity() throws InvalidAccountException {
+        for (int capacity : new int[]{1, 15, 16, 31, 127}) {
+            CachedAccountDAO accountDAO = new CachedAccountDAO(store, capacity);
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < capacity; i++) {
+                    accountDAO.getAccount(String.format("ACC%04d", i));
+                }
+            }
+            assertEquals(capacity, accountDAO.size());
+            assertEquals(0, accountDAO.getEvictionCount());
+            assertEquals(capacity, accountDAO.getHitCount());
+
+            accountDAO.getAccount(String.format("ACC%04d", capacity));
+            assertEquals(capacity, accountDAO.size());
+            assertEquals(1, accountDAO.getEvictionCount());
+        }
+    }
+
+    @Test
+    public void roundsTheStripesUp() throws InvalidAccountException {
+        CachedAccountDAO accountDAO = new CachedAccountDAO(store, 130);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountDAO.getAccount(String.format("ACC%04d", i));
+        }
+        // 16 stripes of 9 accounts, each one full after a thousand spread lookups
+        assertEquals(16 * 9, accountDAO.size());
+    }
+
+    @Test
+    public void sharesTheAccountNumbersUntilTheyChange() {
+        CachedAccountDAO accountDAO = new CachedAccountDAO(store, 16);
+        List<String> numbers = accountDAO.getAccountNumbersList();
+        assertSame(numbers, accountDAO.getAccountNumbersList());
+        List<String> sorted = new ArrayList<>(numbers);
+        Collections.sort(sorted);
+        assertEquals(sorted, numbers);
+        try {
+            numbers.add("ACC9999");
+            fail("the snapshot is shared, it must not be modifiable");
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        Account account = new Account("ACC0500A", "Bank", "Holder", 0);
+        store.addAccount(account);
+        accountDAO.addAccount(account);
+        List<String> updated = accountDAO.getAccountNumbersList();
+        assertNotSame(numbers, updated);
+        assertEquals(ACCOUNTS + 1, updated.size());
+        assertEquals("ACC0500A", updated.get(501));
+    }
+
+    @Test
+    public void rejectsUnknownAccountsWithoutReadingTheStore() {
+        CachedAccountDAO accountDAO = new CachedAccountDAO(store, 16);
+        try {
+            accountDAO.getAccount("NOPE");
+            fail("the account does not exist");
+        } catch (InvalidAccountException expected) {
+        }
+        assertEquals(0, accountDAO.getMissCount());
+    }
+
+    @Test
+    public void readsTheBalanceCommittedByTheStore() throws InvalidAccountException {
+        LedgerExpenseManager expenseManager = new LedgerExpenseManager(store, true, 4);
+        CachedAccountDAO accountDAO = (CachedAccountDAO) expenseManager.getAccountsDAO();
+        assertEquals(1000, accountDAO.getAccount("ACC0007").getBalanceCents());
+
+        expenseManager.updateAccountBalance("ACC0007", 1, 0, 2020, ExpenseType.EXPENSE, "2.50");
+        expenseManager.updateAccountBalance("ACC0007", 2, 0, 2020, ExpenseType.INCOME, "1");
+        assertEquals(1000 - 250 + 100, accountDAO.getAccount("ACC0007").getBalanceCents());
+
+        try {
+            expenseManager.updateAccountBalance("ACC0007", 3, 0, 2020, ExpenseType.EXPENSE, "100");
+            fail("the expense exceeds the balance");
+        } catch (InvalidAccountException expected) {
+        }
+        assertEquals(850, accountDAO.getAccount("ACC0007").getBalanceCents());
+    }
+}
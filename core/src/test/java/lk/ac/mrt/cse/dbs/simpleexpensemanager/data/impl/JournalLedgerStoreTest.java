@@ -0,0 +1,329 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.BalanceCheckpoint;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.RecurringRule;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Reopens journal stores after clean closes, after crashes simulated by damaging the end of the journal or leaving a
+ * compaction half done, and after concurrent postings, and compares them with what was written.
+ */
+public class JournalLedgerStoreTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static Transaction transaction(int day, String accountNo, ExpenseType expenseType, long amount) {
+        return new Transaction(EpochDays.toDate(EpochDays.of(2019, 3, day)), accountNo, expenseType, amount);
+    }
+
+    private static Transaction transferLeg(int day, String accountNo, ExpenseType expenseType, long amount) {
+        return new Transaction(0, EpochDays.toDate(EpochDays.of(2019, 3, day)), accountNo, expenseType, amount, true);
+    }
+
+    private static void post(JournalLedgerStore store, Transaction... transactions) throws InvalidAccountException {
+        store.post(Arrays.asList(transactions));
+    }
+
+    private static List<String> accounts(JournalLedgerStore store) {
+        List<String> accounts = new ArrayList<>();
+        for (Account account : store.loadAccounts()) {
+            accounts.add(account.getAccountNo() + " " + account.getBankName() + " " + account.getAccountHolderName()
+                    + " " + account.getBalanceCents());
+        }
+        Collections.sort(accounts);
+        return accounts;
+    }
+
+    private static List<String> log(JournalLedgerStore store) {
+        List<String> log = new ArrayList<>();
+        for (Transaction transaction : store.getTransactionDAO().getAllTransactionLogs()) {
+            log.add(transaction.getId() + " " + EpochDays.fromDate(transaction.getDate()) + " "
+                    + transaction.getAccountNo() + " " + transaction.getExpenseType() + " "
+                    + transaction.getAmountCents() + (transaction.isTransfer() ? " transfer" : ""));
+        }
+        return log;
+    }
+
+    private static List<String> rules(JournalLedgerStore store) {
+        List<String> rules = new ArrayList<>();
+        for (RecurringRule rule : store.getRecurringRuleDAO().getRules()) {
+            rules.add(rule.getId() + " " + rule.getName() + " " + rule.getPosted());
+        }
+        return rules;
+    }
+
+    private File journal(File directory, long generation) {
+        return new File(directory, "journal-" + generation);
+    }
+
+    @Test
+    public void reopensTheLedgerAsItWasWritten() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore store = new JournalLedgerStore(directory);
+        store.addAccount(new Account("1A", "ABank", "AAA", 10000));
+        store.addAccount(new Account("2B", "BBank", "BBB", 500));
+        post(store, transaction(1, "1A", ExpenseType.EXPENSE, 2550), transaction(2, "2B", ExpenseType.INCOME, 325));
+        // an income for an account this device does not know is logged as well
+        post(store, transaction(3, "6F", ExpenseType.INCOME, 100));
+        post(store, transferLeg(4, "1A", ExpenseType.EXPENSE, 700), transferLeg(4, "2B", ExpenseType.INCOME, 700));
+        RecurringRule rent = store.getRecurringRuleDAO().addRule(new RecurringRule(0, "Rent", "1A",
+                ExpenseType.EXPENSE, 1000, RecurringRule.Period.MONTH, 1, EpochDays.of(2019, 3, 1),
+                RecurringRule.NEVER, 0));
+        RecurringRule gym = store.getRecurringRuleDAO().addRule(new RecurringRule(0, "Gym", "1A",
+                ExpenseType.EXPENSE, 200, RecurringRule.Period.WEEK, 1, EpochDays.of(2019, 3, 1),
+                RecurringRule.NEVER, 0));
+        assertTrue(store.postRecurring(Collections.singletonList(transaction(1, "1A", ExpenseType.EXPENSE, 1000)),
+                Collections.singletonList(rent), Collections.singletonList(rent.advance(1))));
+        assertTrue(store.getRecurringRuleDAO().removeRule(gym.getId()));
+
+        List<String> accounts = accounts(store);
+        List<String> log = log(store);
+        List<String> rules = rules(store);
+        List<BalanceCheckpoint> checkpoints = store.getBalanceCheckpointDAO().getCheckpoints("1A");
+        store.close();
+
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        try {
+            assertEquals(accounts, accounts(reopened));
+            assertEquals(log, log(reopened));
+            assertEquals(rules, rules(reopened));
+            assertEquals(checkpoints, reopened.getBalanceCheckpointDAO().getCheckpoints("1A"));
+            assertEquals(2550 + 1000, reopened.getMonthlyTotalDAO().getTotal(ExpenseType.EXPENSE, 201903, 201903));
+            // the next rule does not take the id of the one removed before it
+            assertEquals(3, reopened.getRecurringRuleDAO().addRule(gym).getId());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void journalsNothingForARejectedExpense() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore store = new JournalLedgerStore(directory);
+        store.addAccount(new Account("1A", "ABank", "AAA", 10000));
+        long length = journal(directory, 0).length();
+        try {
+            post(store, transaction(1, "1A", ExpenseType.EXPENSE, 6000), transaction(1, "1A", ExpenseType.EXPENSE, 6000));
+            fail("the second expense exceeds the balance");
+        } catch (InvalidAccountException expected) {
+        }
+        store.close();
+
+        assertEquals(length, journal(directory, 0).length());
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        assertEquals(10000, reopened.loadAccount("1A").getBalanceCents());
+        reopened.close();
+    }
+
+    @Test
+    public void keepsEveryPostingThatReturnedWithoutBeingClosed() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore crashed = new JournalLedgerStore(directory);
+        crashed.addAccount(new Account("1A", "ABank", "AAA", 0));
+        for (int i = 1; i <= 20; i++) {
+            post(crashed, transaction(i, "1A", ExpenseType.INCOME, i));
+        }
+
+        // a second process opens the directory as it is on disk
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        assertEquals(20, reopened.getTransactionDAO().getAllTransactionLogs().size());
+        assertEquals(20 * 21 / 2, reopened.loadAccount("1A").getBalanceCents());
+        reopened.close();
+        crashed.close();
+    }
+
+    @Test
+    public void cutsOffARecordTornByACrash() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore store = new JournalLedgerStore(directory);
+        store.addAccount(new Account("1A", "ABank", "AAA", 0));
+        post(store, transaction(1, "1A", ExpenseType.INCOME, 100));
+        post(store, transaction(2, "1A", ExpenseType.INCOME, 200));
+        store.close();
+
+        // the last record was being written when the power went
+        File file = journal(directory, 0);
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        journal.setLength(file.length() - 5);
+        journal.close();
+
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        assertEquals(100, reopened.loadAccount("1A").getBalanceCents());
+        assertEquals(1, reopened.getTransactionDAO().getAllTransactionLogs().size());
+        // the torn bytes are gone, the next posting follows the last whole record
+        post(reopened, transaction(3, "1A", ExpenseType.INCOME, 300));
+        reopened.close();
+
+        reopened = new JournalLedgerStore(directory);
+        assertEquals(400, reopened.loadAccount("1A").getBalanceCents());
+        assertEquals(2, reopened.getTransactionDAO().getAllTransactionLogs().size());
+        reopened.close();
+    }
+
+    @Test
+    public void dropsARecordThatDoesNotMatchItsChecksum() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore store = new JournalLedgerStore(directory);
+        store.addAccount(new Account("1A", "ABank", "AAA", 0));
+        post(store, transaction(1, "1A", ExpenseType.INCOME, 100));
+        post(store, transaction(2, "1A", ExpenseType.INCOME, 200));
+        store.close();
+
+        // the sectors of the last record were written in the wrong order, its amount is garbage
+        File file = journal(directory, 0);
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        journal.seek(file.length() - 1);
+        int last = journal.read();
+        journal.seek(file.length() - 1);
+        journal.write(last ^ 0xff);
+        journal.close();
+
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        assertEquals(100, reopened.loadAccount("1A").getBalanceCents());
+        assertEquals(1, reopened.getTransactionDAO().getAllTransactionLogs().size());
+        reopened.close();
+    }
+
+    @Test
+    public void compactsInTheBackground() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore store = new JournalLedgerStore(directory, 1024);
+        store.addAccount(new Account("1A", "ABank", "AAA", 0));
+        store.addAccount(new Account("2B", "BBank", "BBB", 1000000));
+        for (int i = 0; i < 2000; i++) {
+            if (i % 10 == 0) {
+                post(store, transferLeg(1 + i % 28, "2B", ExpenseType.EXPENSE, 10),
+                        transferLeg(1 + i % 28, "1A", ExpenseType.INCOME, 10));
+            } else {
+                post(store, transaction(1 + i % 28, "1A", ExpenseType.INCOME, 10),
+                        transaction(1 + i % 28, "2B", ExpenseType.EXPENSE, 10));
+            }
+        }
+        List<String> accounts = accounts(store);
+        List<String> log = log(store);
+        store.close();
+
+        // the last snapshot and the journal after it, and the generation before them
+        String[] files = directory.list();
+        assertEquals(Arrays.toString(files), 4, files.length);
+        JournalLedgerStore reopened = new JournalLedgerStore(directory, 1024);
+        try {
+            assertEquals(accounts, accounts(reopened));
+            assertEquals(log, log(reopened));
+            assertTrue(reopened.getBalanceCheckpointDAO().verify().isEmpty());
+            assertEquals(1800 * 10, reopened.getMonthlyTotalDAO().getTotal(ExpenseType.INCOME, 201903, 201903));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void recoversFromACrashInTheMiddleOfACompaction() throws IOException, InvalidAccountException {
+        File directory = folder.newFolder();
+        JournalLedgerStore store = new JournalLedgerStore(directory);
+        store.addAccount(new Account("1A", "ABank", "AAA", 0));
+        post(store, transaction(1, "1A", ExpenseType.INCOME, 100));
+        store.compact();
+        post(store, transaction(2, "1A", ExpenseType.INCOME, 200));
+        store.close();
+        assertEquals(Arrays.asList("journal-0", "journal-1", "snapshot-1"), sorted(directory.list()));
+
+        // the next compaction had started journal 2 and was writing snapshot 2 when the process died
+        Journal.create(journal(directory, 2), Journal.KIND_JOURNAL, 2).close();
+        RandomAccessFile snapshot = new RandomAccessFile(new File(directory, "snapshot-2.tmp"), "rw");
+        snapshot.write(new byte[100]);
+        snapshot.close();
+
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        assertEquals(300, reopened.loadAccount("1A").getBalanceCents());
+        assertEquals(2, reopened.getTransactionDAO().getAllTransactionLogs().size());
+        assertFalse(new File(directory, "snapshot-2.tmp").exists());
+        // postings go on in the newest journal
+        post(reopened, transaction(3, "1A", ExpenseType.INCOME, 300));
+        reopened.close();
+
+        reopened = new JournalLedgerStore(directory);
+        assertEquals(600, reopened.loadAccount("1A").getBalanceCents());
+        reopened.compact();
+        reopened.close();
+        assertEquals(Arrays.asList("journal-2", "journal-3", "snapshot-3"), sorted(directory.list()));
+    }
+
+    private static List<String> sorted(String[] names) {
+        List<String> sorted = new ArrayList<>(Arrays.asList(names));
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    @Test
+    public void commitsConcurrentPostingsTogether() throws IOException, InterruptedException {
+        File directory = folder.newFolder();
+        final JournalLedgerStore store = new JournalLedgerStore(directory);
+        store.addAccount(new Account("1A", "ABank", "AAA", 0));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 200; i++) {
+                        try {
+                            store.post(Collections.singletonList(new Transaction(new Date(), "1A",
+                                    ExpenseType.INCOME, 1)));
+                        } catch (InvalidAccountException e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        store.close();
+
+        JournalLedgerStore reopened = new JournalLedgerStore(directory);
+        assertEquals(800, reopened.loadAccount("1A").getBalanceCents());
+        assertEquals(800, reopened.getTransactionDAO().getAllTransactionLogs().size());
+        reopened.close();
+    }
+}
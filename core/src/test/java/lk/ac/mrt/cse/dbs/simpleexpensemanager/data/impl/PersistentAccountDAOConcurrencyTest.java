@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * Hammers the in memory account store from several threads at once and checks that no balance update is lost.
+ */
+public class PersistentAccountDAOConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 20000;
+    private static final int ACCOUNTS = 4;
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws InterruptedException, InvalidAccountException {
+        final PersistentAccountDAO accountDAO = new PersistentAccountDAO();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountDAO.addAccount(new Account("ACC" + i, "Bank", "Holder", 0));
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                            String accountNo = "ACC" + ((thread + i) % ACCOUNTS);
+                            // two credits of 3 for every debit of 2, every thread touches every account
+                            if (i % 3 == 2) {
+                                accountDAO.updateBalance(accountNo, ExpenseType.EXPENSE, 2);
+                            } else {
+                                accountDAO.updateBalance(accountNo, ExpenseType.INCOME, 3);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            worker.start();
+        }
+        start.countDown();
+        assertTrue("workers did not finish", done.await(60, TimeUnit.SECONDS));
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        long expected = 0;
+        long[] perAccount = new long[ACCOUNTS];
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                long delta = i % 3 == 2 ? -2 : 3;
+                perAccount[(t + i) % ACCOUNTS] += delta;
+                expected += delta;
+            }
+        }
+        long actual = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long balance = accountDAO.getAccount("ACC" + i).getBalanceCents();
+            assertEquals("ACC" + i, perAccount[i], balance);
+            actual += balance;
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void updatesRaceWithAddAndRemove() throws InterruptedException {
+        final PersistentAccountDAO accountDAO = new PersistentAccountDAO();
+        accountDAO.addAccount(new Account("STABLE", "Bank", "Holder", 0));
+
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread churn = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        accountDAO.addAccount(new Account("TEMP" + i, "Bank", "Holder", 0));
+                        accountDAO.removeAccount("TEMP" + i);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        Thread updater = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        accountDAO.updateBalance("STABLE", ExpenseType.INCOME, 1);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        churn.start();
+        updater.start();
+        assertTrue("workers did not finish", done.await(60, TimeUnit.SECONDS));
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(1, accountDAO.getAccountNumbersList().size());
+        try {
+            assertEquals(UPDATES_PER_THREAD, accountDAO.getAccount("STABLE").getBalanceCents());
+        } catch (InvalidAccountException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Reads the columnar transaction log back across the growth of its columns, its income and transfer bitsets and its
+ * account dictionary, and checks that the lists it returned stay as they were while rows are appended.
+ */
+public class PersistentTransactionDAOTest {
+    // past several growths of the columns (64, 96, 144, ...) and of the dictionary (8, 16, 32)
+    private static final int ROWS = 1000;
+    private static final int ACCOUNTS = 20;
+    private static final long FIRST_DAY = EpochDays.of(2019, 1, 1);
+
+    private PersistentTransactionDAO transactionDAO;
+    private List<Transaction> expected;
+
+    private static Transaction row(int index) {
+        // backdated days, so that the id order and the date order differ
+        long day = FIRST_DAY + (index * 37) % 90;
+        ExpenseType expenseType = index % 3 == 0 ? ExpenseType.INCOME : ExpenseType.EXPENSE;
+        return new Transaction(index + 1, EpochDays.toDate(day), "ACC" + (index * 7) % ACCOUNTS, expenseType,
+                index * 101L, index % 5 == 0);
+    }
+
+    private static String describe(Transaction transaction) {
+        return transaction.getId() + " " + EpochDays.fromDate(transaction.getDate()) + " " + transaction.getAccountNo()
+                + " " + transaction.getExpenseType() + " " + transaction.getAmountCents()
+                + (transaction.isTransfer() ? " transfer" : "");
+    }
+
+    private static List<String> describe(List<Transaction> transactions) {
+        List<String> descriptions = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            descriptions.add(describe(transaction));
+        }
+        return descriptions;
+    }
+
+    private void log(int rows) {
+        for (int i = expected.size(), end = i + rows; i < end; i++) {
+            Transaction transaction = row(i);
+            transactionDAO.logTransaction(EpochDays.fromDate(transaction.getDate()), transaction.getAccountNo(),
+                    transaction.getExpenseType(), transaction.getAmountCents(), transaction.isTransfer());
+            expected.add(transaction);
+        }
+    }
+
+    @Before
+    public void createTransactionDAO() {
+        transactionDAO = new PersistentTransactionDAO();
+        expected = new ArrayList<>();
+    }
+
+    @Test
+    public void readsEveryRowBackAcrossTheGrowthBoundaries() {
+        for (int rows : new int[]{0, 1, 63, 64, 65, 96, 97, 145, ROWS}) {
+            log(rows - expected.size());
+            assertEquals(rows, transactionDAO.size());
+            assertEquals(describe(expected), describe(transactionDAO.getAllTransactionLogs()));
+        }
+    }
+
+    @Test
+    public void pagesFromTheEnd() {
+        log(ROWS);
+        assertEquals(describe(expected.subList(ROWS - 100, ROWS)),
+                describe(transactionDAO.getPaginatedTransactionLogs(100)));
+        assertEquals(describe(expected), describe(transactionDAO.getPaginatedTransactionLogs(ROWS + 1)));
+        assertTrue(transactionDAO.getPaginatedTransactionLogs(0).isEmpty());
+    }
+
+    @Test
+    public void pagesBackwardsFromAnId() {
+        log(ROWS);
+        for (long beforeId : new long[]{ROWS + 50, ROWS + 1, ROWS, 500, 65, 64, 2}) {
+            List<Transaction> page = new ArrayList<>();
+            for (long id = Math.min(beforeId, ROWS + 1) - 1; id >= 1 && page.size() < 64; id--) {
+                page.add(expected.get((int) id - 1));
+            }
+            assertEquals("before " + beforeId, describe(page),
+                    describe(transactionDAO.getTransactionLogsBefore(beforeId, 64)));
+        }
+        assertTrue(transactionDAO.getTransactionLogsBefore(1, 64).isEmpty());
+        assertTrue(transactionDAO.getTransactionLogsBefore(0, 64).isEmpty());
+    }
+
+    @Test
+    public void pagesTheTransactionsOfSomeAccountsBackwardsFromACursor() {
+        log(ROWS);
+        List<String> accounts = Arrays.asList("ACC0", "ACC9", "ACC19", "unknown");
+        List<Transaction> newestFirst = new ArrayList<>();
+        for (Transaction transaction : expected) {
+            if (accounts.contains(transaction.getAccountNo()))
+                newestFirst.add(transaction);
+        }
+        Collections.sort(newestFirst, new Comparator<Transaction>() {
+            @Override
+            public int compare(Transaction lhs, Transaction rhs) {
+                int order = rhs.getDate().compareTo(lhs.getDate());
+                return order != 0 ? order : Long.compare(rhs.getId(), lhs.getId());
+            }
+        });
+
+        long beforeDay = Long.MAX_VALUE;
+        long beforeId = Long.MAX_VALUE;
+        int read = 0;
+        while (true) {
+            List<Transaction> page = transactionDAO.getAccountTransactionLogsBefore(accounts, beforeDay, beforeId, 25);
+            assertEquals(describe(newestFirst.subList(read, Math.min(read + 25, newestFirst.size()))),
+                    describe(page));
+            if (page.isEmpty())
+                break;
+            read += page.size();
+            Transaction last = page.get(page.size() - 1);
+            beforeDay = EpochDays.fromDate(last.getDate());
+            beforeId = last.getId();
+        }
+        assertEquals(newestFirst.size(), read);
+
+        assertTrue(transactionDAO.getAccountTransactionLogsBefore(Collections.singletonList("unknown"),
+                Long.MAX_VALUE, Long.MAX_VALUE, 25).isEmpty());
+        assertTrue(transactionDAO.getAccountTransactionLogsBefore(accounts, Long.MAX_VALUE, Long.MAX_VALUE, 0)
+                .isEmpty());
+    }
+
+    @Test
+    public void readsTheTransactionsOfAnAccountInADateRange() {
+        log(ROWS);
+        long from = FIRST_DAY + 10;
+        long to = FIRST_DAY + 40;
+        List<Transaction> inRange = new ArrayList<>();
+        for (Transaction transaction : expected) {
+            long day = EpochDays.fromDate(transaction.getDate());
+            if (transaction.getAccountNo().equals("ACC7") && day >= from && day <= to)
+                inRange.add(transaction);
+        }
+        Collections.sort(inRange, new Comparator<Transaction>() {
+            @Override
+            public int compare(Transaction lhs, Transaction rhs) {
+                return lhs.getDate().compareTo(rhs.getDate());
+            }
+        });
+
+        assertEquals(describe(inRange), describe(transactionDAO.getAccountTransactionLogs("ACC7",
+                EpochDays.toDate(from), EpochDays.toDate(to))));
+        assertTrue(transactionDAO.getAccountTransactionLogs("unknown", EpochDays.toDate(from),
+                EpochDays.toDate(to)).isEmpty());
+    }
+
+    @Test
+    public void keepsTheSnapshotsAsTheyWereRead() {
+        // the snapshots are taken right at the boundaries, the next row makes every column and bitset grow
+        log(64);
+        List<Transaction> all = transactionDAO.getAllTransactionLogs();
+        List<Transaction> lastPage = transactionDAO.getPaginatedTransactionLogs(10);
+        List<String> allBefore = describe(all);
+        List<String> lastPageBefore = describe(lastPage);
+
+        log(ROWS - 64);
+        assertEquals(64, all.size());
+        assertEquals(allBefore, describe(all));
+        assertEquals(lastPageBefore, describe(lastPage));
+        assertEquals(ROWS, transactionDAO.getAllTransactionLogs().size());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.LedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.SearchDAO;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Transaction;
+
+/**
+ * Runs the same searches over the in-memory index and over the FTS4 table of a JDBC store.
+ */
+@RunWith(Parameterized.class)
+public class SearchDAOTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return Arrays.asList(new Object[][]{{"heap"}, {"jdbc"}});
+    }
+
+    private final String storeName;
+    private LedgerExpenseManager expenseManager;
+    private SearchDAO searchDAO;
+
+    public SearchDAOTest(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Before
+    public void createExpenseManager() {
+        LedgerStore store = "jdbc".equals(storeName) ? new JdbcLedgerStore("jdbc:sqlite::memory:") : new InMemoryLedgerStore();
+        expenseManager = new LedgerExpenseManager(store, true, LedgerExpenseManager.ALL_ACCOUNTS);
+        expenseManager.addAccount("102-CEY-1", "Bank of Ceylon", "Kasun Perera", 1000000);
+        expenseManager.addAccount("204-SAM-7", "Sampath Bank", "Kamal Silva", 1000000);
+        expenseManager.addAccount("305-CEY-2", "Bank of Ceylon", "Nimal Fernando", 1000000);
+        searchDAO = store.getSearchDAO();
+    }
+
+    @After
+    public void closeExpenseManager() {
+        expenseManager.close();
+    }
+
+    @Test
+    public void matchesEveryWordAsAPrefixInAnyCase() {
+        assertEquals(Arrays.asList("102-CEY-1", "305-CEY-2"), numbers(searchDAO.searchAccounts("ceyl", 10)));
+        assertEquals(Arrays.asList("102-CEY-1", "204-SAM-7"), numbers(searchDAO.searchAccounts("KA", 10)));
+        assertEquals(Arrays.asList("102-CEY-1"), numbers(searchDAO.searchAccounts("ceyl ka", 10)));
+        assertEquals(Arrays.asList("204-SAM-7"), numbers(searchDAO.searchAccounts("204-sam", 10)));
+        assertTrue(searchDAO.searchAccounts("ceylon sampath", 10).isEmpty());
+    }
+
+    @Test
+    public void findsNothingWithoutAWord() {
+        assertTrue(searchDAO.searchAccounts("", 10).isEmpty());
+        assertTrue(searchDAO.searchAccounts(" -*\" ", 10).isEmpty());
+        assertTrue(searchDAO.searchTransactions("()", null, 10).isEmpty());
+    }
+
+    @Test
+    public void limitsTheAccounts() {
+        assertEquals(Arrays.asList("102-CEY-1"), numbers(searchDAO.searchAccounts("bank", 1)));
+    }
+
+    @Test
+    public void indexesNewAccounts() {
+        assertTrue(searchDAO.searchAccounts("hatton", 10).isEmpty());
+        expenseManager.addAccount("406-HNB-3", "Hatton National Bank", "Kasun Perera", 0);
+
+        assertEquals(Arrays.asList("406-HNB-3"), numbers(searchDAO.searchAccounts("hatton", 10)));
+        assertEquals(Arrays.asList("102-CEY-1", "406-HNB-3"), numbers(searchDAO.searchAccounts("kasun", 10)));
+        assertEquals(1000000, searchDAO.searchAccounts("kasun", 10).get(0).getBalanceCents());
+    }
+
+    @Test
+    public void pagesTheTransactionsOfTheMatchingAccountsNewestFirst() throws InvalidAccountException {
+        expenseManager.updateAccountBalance("102-CEY-1", 10, 0, 2020, ExpenseType.EXPENSE, "1");
+        expenseManager.updateAccountBalance("204-SAM-7", 11, 0, 2020, ExpenseType.EXPENSE, "2");
+        expenseManager.updateAccountBalance("305-CEY-2", 12, 0, 2020, ExpenseType.EXPENSE, "3");
+        expenseManager.updateAccountBalance("102-CEY-1", 12, 0, 2020, ExpenseType.EXPENSE, "4");
+        // backdated, it is posted last but belongs between the first two
+        expenseManager.updateAccountBalance("305-CEY-2", 10, 0, 2020, ExpenseType.EXPENSE, "5");
+
+        List<Transaction> all = searchDAO.searchTransactions("ceylon", null, 10);
+        assertEquals(Arrays.asList(400L, 300L, 500L, 100L), amounts(all));
+
+        List<Long> paged = new ArrayList<>();
+        Transaction after = null;
+        List<Transaction> page;
+        while (!(page = searchDAO.searchTransactions("ceylon", after, 1)).isEmpty()) {
+            assertEquals(1, page.size());
+            paged.addAll(amounts(page));
+            after = page.get(0);
+        }
+        assertEquals(amounts(all), paged);
+
+        assertEquals(Arrays.asList(200L), amounts(searchDAO.searchTransactions("kamal silva", null, 10)));
+    }
+
+    private static List<String> numbers(List<Account> accounts) {
+        List<String> numbers = new ArrayList<>();
+        for (Account account : accounts) {
+            numbers.add(account.getAccountNo());
+        }
+        return numbers;
+    }
+
+    private static List<Long> amounts(List<Transaction> transactions) {
+        List<Long> amounts = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            amounts.add(transaction.getAmountCents());
+        }
+        return amounts;
+    }
+}
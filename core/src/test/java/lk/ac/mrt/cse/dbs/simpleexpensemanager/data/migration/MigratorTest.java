@@ -0,0 +1,375 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.migration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.JdbcMigrationDatabase;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.LedgerSchema;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.Account;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util.EpochDays;
+
+/**
+ * Upgrades a database written by the first version of the app, in small batches, and checks that the result is the
+ * schema of a new database holding the same data, including when the upgrade is interrupted at any transaction.
+ */
+public class MigratorTest {
+    private static final int ROWS = 100;
+    private static final int BATCH_SIZE = 7;
+    private static final String[] ACCOUNTS = {"A0", "A1", "A2"};
+
+    private Connection connection;
+
+    @Before
+    public void openDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @After
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void upgradesFirstVersion() throws SQLException {
+        createVersion1(connection);
+        Migrator migrator = Migrator.forLedger(BATCH_SIZE);
+        MigrationDatabase db = new JdbcMigrationDatabase(connection);
+        migrator.baseline(db, 1);
+
+        assertEquals(8, migrator.migrate(db));
+        assertEquals(LedgerSchema.VERSION, migrator.getVersion(db));
+        assertEquals(0, migrator.migrate(db));
+        assertUpgraded(connection);
+    }
+
+    @Test
+    public void upgradesWithForeignKeysOn() throws SQLException {
+        // rebuilding `account` drops the table `transaction` refers to, which fails while the keys are enforced
+        createVersion1(connection);
+        execute(connection, "PRAGMA foreign_keys = ON");
+        Migrator migrator = Migrator.forLedger(BATCH_SIZE);
+        MigrationDatabase db = new JdbcMigrationDatabase(connection);
+        migrator.baseline(db, 1);
+
+        assertEquals(8, migrator.migrate(db));
+        assertUpgraded(connection);
+        assertEquals(Long.valueOf(1), db.queryLong("PRAGMA foreign_keys"));
+        try {
+            execute(connection, "INSERT INTO `transaction` (`date`, `accountNo`, `expenseType`, `amount`) VALUES (0, 'unknown', 'EXPENSE', 100)");
+            fail("the foreign key must be enforced again after the upgrade");
+        } catch (SQLException expected) {
+        }
+    }
+
+    @Test
+    public void reportsAnIncomeForAnUnknownAccount() throws SQLException {
+        // the ledger logs incomes for accounts it does not know, a database without the keys holds such rows
+        createVersion1(connection);
+        execute(connection, "INSERT INTO `transaction` VALUES ('01-01-2019', 'UNKNOWN', 'INCOME', 5)");
+        execute(connection, "PRAGMA foreign_keys = ON");
+        Migrator migrator = Migrator.forLedger(BATCH_SIZE);
+        final List<String> reported = new ArrayList<>();
+        migrator.setListener(new Migrator.Listener() {
+            @Override
+            public void onForeignKeyViolations(List<String> violations) {
+                reported.addAll(violations);
+            }
+        });
+        MigrationDatabase db = new JdbcMigrationDatabase(connection);
+        migrator.baseline(db, 1);
+
+        assertEquals(8, migrator.migrate(db));
+        assertEquals(LedgerSchema.VERSION, migrator.getVersion(db));
+        assertEquals(1, reported.size());
+        assertTrue(reported.get(0), reported.get(0).startsWith("transaction, " + (ROWS + 1) + ", account"));
+        assertEquals(Long.valueOf(0), db.queryLong("PRAGMA foreign_keys"));
+
+        // the next open finds the database up to date
+        execute(connection, "PRAGMA foreign_keys = ON");
+        assertEquals(0, migrator.migrate(db));
+        assertEquals(1, reported.size());
+    }
+
+    @Test
+    public void resumesAfterAnInterruption() throws SQLException {
+        // crash in every transaction in turn, until an upgrade gets through without reaching the crash
+        for (int crashAt = 1; ; crashAt++) {
+            Connection crashed = DriverManager.getConnection("jdbc:sqlite::memory:");
+            try {
+                createVersion1(crashed);
+                CrashingDatabase db = new CrashingDatabase(new JdbcMigrationDatabase(crashed), crashAt);
+                Migrator.forLedger(BATCH_SIZE).baseline(db, 1);
+                try {
+                    Migrator.forLedger(BATCH_SIZE).migrate(db);
+                } catch (Crash e) {
+                    Migrator.forLedger(BATCH_SIZE).migrate(new JdbcMigrationDatabase(crashed));
+                    assertUpgraded(crashed);
+                    continue;
+                }
+                assertUpgraded(crashed);
+                assertTrue("the upgrade should take several transactions", crashAt > ROWS / BATCH_SIZE);
+                return;
+            } finally {
+                crashed.close();
+            }
+        }
+    }
+
+    @Test
+    public void newDatabaseIsAtTheLatestVersion() throws IOException {
+        File file = File.createTempFile("migration", ".db");
+        try {
+            new JdbcLedgerStore("jdbc:sqlite:" + file.getAbsolutePath()).close();
+            JdbcLedgerStore store = new JdbcLedgerStore("jdbc:sqlite:" + file.getAbsolutePath());
+            store.close();
+
+            Connection reopened = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try {
+                MigrationDatabase db = new JdbcMigrationDatabase(reopened);
+                assertEquals(LedgerSchema.VERSION, Migrator.forLedger().getVersion(db));
+                assertEquals(Long.valueOf(1), db.queryLong("SELECT COUNT(*) FROM `schema_migration`"));
+            } finally {
+                reopened.close();
+            }
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void jdbcStoreUpgradesOnOpen() throws IOException, SQLException {
+        File file = File.createTempFile("migration", ".db");
+        try {
+            Connection old = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            createVersion1(old);
+            execute(old, "PRAGMA user_version = 1");
+            old.close();
+
+            JdbcLedgerStore store = new JdbcLedgerStore("jdbc:sqlite:" + file.getAbsolutePath());
+            List<Account> accounts = store.loadAccounts();
+            store.close();
+            assertEquals(ACCOUNTS.length, accounts.size());
+            for (Account account : accounts) {
+                assertEquals(expectedBalance(Integer.parseInt(account.getAccountNo().substring(1))), account.getBalanceCents());
+            }
+
+            Connection upgraded = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try {
+                assertEquals(Long.valueOf(LedgerSchema.VERSION), new JdbcMigrationDatabase(upgraded).queryLong("PRAGMA user_version"));
+                assertUpgraded(upgraded);
+            } finally {
+                upgraded.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void rejectsMissingVersions() {
+        try {
+            new Migrator(Arrays.<Migration>asList(new TransactionIdMigration(), new MonthlyTotalMigration()), 10);
+            fail("a gap in the versions must be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void createVersion1(Connection connection) throws SQLException {
+        execute(connection, "CREATE TABLE `account` (`accountNo` TEXT primary key, `bankName` TEXT NOT NULL, `accountHolderName` TEXT NOT NULL, `balance` REAL NOT NULL)");
+        execute(connection, "CREATE TABLE `transaction` (`date` TEXT NOT NULL, `accountNo` TEXT NOT NULL, `expenseType` TEXT NOT NULL, `amount` REAL NOT NULL, FOREIGN KEY(accountNo) REFERENCES account (accountNo))");
+        for (int i = 0; i < ACCOUNTS.length; i++) {
+            execute(connection, "INSERT INTO `account` VALUES ('" + ACCOUNTS[i] + "', 'Bank', 'Holder', " + expectedBalance(i) / 100.0 + ")");
+        }
+        PreparedStatement insert = connection.prepareStatement("INSERT INTO `transaction` VALUES (?, ?, ?, ?)");
+        for (int i = 0; i < ROWS; i++) {
+            insert.setString(1, String.format("%02d-%02d-%04d", 1 + i % 28, 1 + i % 12, 2010 + i % 9));
+            insert.setString(2, ACCOUNTS[i % ACCOUNTS.length]);
+            insert.setString(3, i % 3 == 0 ? "INCOME" : "EXPENSE");
+            insert.setDouble(4, expectedAmount(i) / 100.0);
+            insert.executeUpdate();
+        }
+        insert.close();
+    }
+
+    private static long expectedBalance(int account) {
+        return 100001 + account * 1234567L;
+    }
+
+    private static long expectedAmount(int row) {
+        return 1 + row * 1999L;
+    }
+
+    private static void assertUpgraded(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT `id`, `date`, `accountNo`, `expenseType`, `amount` FROM `transaction` ORDER BY `id`");
+        int row = 0;
+        while (resultSet.next()) {
+            assertEquals(row + 1, resultSet.getLong(1));
+            assertEquals(EpochDays.of(2010 + row % 9, 1 + row % 12, 1 + row % 28), resultSet.getLong(2));
+            assertEquals(ACCOUNTS[row % ACCOUNTS.length], resultSet.getString(3));
+            assertEquals(row % 3 == 0 ? "INCOME" : "EXPENSE", resultSet.getString(4));
+            assertEquals(expectedAmount(row), resultSet.getLong(5));
+            row++;
+        }
+        resultSet.close();
+        assertEquals(ROWS, row);
+
+        resultSet = statement.executeQuery("SELECT `accountNo`, `balance` FROM `account` ORDER BY `accountNo`");
+        for (int i = 0; i < ACCOUNTS.length; i++) {
+            assertTrue(resultSet.next());
+            assertEquals(ACCOUNTS[i], resultSet.getString(1));
+            assertEquals(expectedBalance(i), resultSet.getLong(2));
+        }
+        resultSet.close();
+
+        JdbcMigrationDatabase db = new JdbcMigrationDatabase(connection);
+        assertEquals(Long.valueOf(0), db.queryLong("SELECT COUNT(*) FROM (" + LedgerSchema.EXPECTED_MONTHLY_TOTALS
+                + " EXCEPT SELECT " + LedgerSchema.MONTHLY_TOTAL_COLUMNS + " FROM `monthly_total`)"));
+        assertEquals(Long.valueOf(0), db.queryLong("SELECT COUNT(*) FROM (SELECT " + LedgerSchema.MONTHLY_TOTAL_COLUMNS
+                + " FROM `monthly_total` EXCEPT " + LedgerSchema.EXPECTED_MONTHLY_TOTALS + ")"));
+        // an opening checkpoint per account and a closing one per account and month
+        assertEquals(db.queryLong("SELECT " + ACCOUNTS.length + " + COUNT(DISTINCT `accountNo` || `yearMonth`) FROM `monthly_total`"),
+                db.queryLong("SELECT COUNT(*) FROM `balance_checkpoint`"));
+        assertNull(db.queryLong("SELECT 1 FROM (" + LedgerSchema.VERIFY_BALANCE_CHECKPOINTS + ")"));
+        assertNull(db.queryLong("SELECT 1 FROM sqlite_master WHERE `name` LIKE '%\\_v_' ESCAPE '\\'"));
+        assertEquals(Long.valueOf(ACCOUNTS.length), db.queryLong("SELECT COUNT(*) FROM `account_search` WHERE `account_search` MATCH 'holder*'"));
+        statement.close();
+
+        Connection fresh = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try {
+            for (String sql : LedgerSchema.CREATE_STATEMENTS) {
+                execute(fresh, sql);
+            }
+            assertEquals(describeSchema(fresh), describeSchema(connection));
+        } finally {
+            fresh.close();
+        }
+    }
+
+    /***
+     * The columns of every table and the names of the indexes and triggers. The CREATE statements themselves are
+     * not compared, SQLite rewrites them when a table is renamed.
+     */
+    private static List<String> describeSchema(Connection connection) throws SQLException {
+        List<String> schema = new ArrayList<>();
+        Statement statement = connection.createStatement();
+        ResultSet objects = statement.executeQuery("SELECT `type`, `name`, `tbl_name` FROM sqlite_master WHERE `name` NOT LIKE 'sqlite\\_%' ESCAPE '\\' AND `name` != 'schema_migration' ORDER BY `type`, `name`");
+        List<String> tables = new ArrayList<>();
+        while (objects.next()) {
+            schema.add(objects.getString(1) + " " + objects.getString(2) + " on " + objects.getString(3));
+            if ("table".equals(objects.getString(1))) {
+                tables.add(objects.getString(2));
+            }
+        }
+        objects.close();
+        for (String table : tables) {
+            ResultSet columns = statement.executeQuery("PRAGMA table_info(`" + table + "`)");
+            while (columns.next()) {
+                schema.add(table + "." + columns.getString("name") + " " + columns.getString("type")
+                        + " notnull=" + columns.getInt("notnull") + " pk=" + columns.getInt("pk"));
+            }
+            columns.close();
+        }
+        statement.close();
+        return schema;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(sql);
+        statement.close();
+    }
+
+    private static class Crash extends RuntimeException {
+    }
+
+    /***
+     * Rolls back the n-th transaction and throws, as if the process had been killed before the commit.
+     */
+    private static class CrashingDatabase implements MigrationDatabase {
+        private final MigrationDatabase db;
+        private final int crashAt;
+        private int transactions;
+        private boolean successful;
+
+        CrashingDatabase(MigrationDatabase db, int crashAt) {
+            this.db = db;
+            this.crashAt = crashAt;
+        }
+
+        @Override
+        public void execSQL(String sql, Object... bindArgs) {
+            db.execSQL(sql, bindArgs);
+        }
+
+        @Override
+        public Long queryLong(String sql, Object... bindArgs) {
+            return db.queryLong(sql, bindArgs);
+        }
+
+        @Override
+        public List<String> describeRows(String sql) {
+            return db.describeRows(sql);
+        }
+
+        @Override
+        public void beginTransaction() {
+            successful = false;
+            db.beginTransaction();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            successful = true;
+        }
+
+        @Override
+        public void endTransaction() {
+            if (++transactions == crashAt) {
+                db.endTransaction();
+                throw new Crash();
+            }
+            if (successful) {
+                db.setTransactionSuccessful();
+            }
+            db.endTransaction();
+        }
+    }
+}
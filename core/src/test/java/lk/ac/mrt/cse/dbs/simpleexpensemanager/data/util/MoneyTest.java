@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.data.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Parsing and formatting of amounts in cents: signs, partial decimals, extra decimals, the range of a long and the
+ * amounts under one unit.
+ */
+public class MoneyTest {
+    // the largest whole amount parse accepts, see Money.MAX_UNITS
+    private static final long MAX_UNITS = Long.MAX_VALUE / Money.SCALE - 1;
+
+    private static void assertRejected(String amount) {
+        try {
+            Money.parse(amount);
+            fail("\"" + amount + "\" is not an amount");
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void parsesSigns() {
+        assertEquals(1250, Money.parse("12.50"));
+        assertEquals(1250, Money.parse("+12.50"));
+        assertEquals(-1250, Money.parse("-12.50"));
+        assertEquals(-5, Money.parse("-0.05"));
+        assertEquals(0, Money.parse("-0"));
+        assertEquals(1250, Money.parse("  12.5 "));
+        assertRejected("-");
+        assertRejected("+");
+        assertRejected("--1");
+        assertRejected("1-");
+    }
+
+    @Test
+    public void parsesPartialDecimals() {
+        assertEquals(500, Money.parse("5."));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(5, Money.parse("0.05"));
+        assertEquals(5, Money.parse(".05"));
+        assertEquals(-50, Money.parse("-.5"));
+        assertEquals(1200, Money.parse("0012"));
+        assertRejected("");
+        assertRejected(".");
+        assertRejected("-.");
+        assertRejected("1.2.3");
+        assertRejected("1,50");
+        assertRejected("1e3");
+    }
+
+    @Test
+    public void acceptsOnlyTrailingZerosAfterTwoDecimals() {
+        assertEquals(1250, Money.parse("12.500"));
+        assertEquals(1201, Money.parse("12.0100000"));
+        assertRejected("12.501");
+        assertRejected("12.5001");
+        assertRejected("0.001");
+    }
+
+    @Test
+    public void rejectsAmountsOutOfRange() {
+        assertEquals(MAX_UNITS * Money.SCALE + 99, Money.parse(MAX_UNITS + ".99"));
+        assertEquals(-MAX_UNITS * Money.SCALE - 99, Money.parse("-" + MAX_UNITS + ".99"));
+        assertEquals(Money.SCALE, Money.parse("00000000000000000000000001"));
+        assertRejected((MAX_UNITS + 1) + ".00");
+        assertRejected("-" + (MAX_UNITS + 1));
+        assertRejected(String.valueOf(Long.MAX_VALUE));
+        assertRejected("99999999999999999999999");
+    }
+
+    @Test
+    public void formatsAmountsUnderOneUnit() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-0.50", Money.format(-50));
+        assertEquals("-0.99", Money.format(-99));
+        assertEquals("-1.00", Money.format(-100));
+        assertEquals("-12.34", Money.format(-1234));
+        assertEquals("12.50", Money.format(1250));
+    }
+
+    @Test
+    public void formatsTheWholeRangeOfALong() {
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void appendsToTheBuilder() {
+        StringBuilder builder = new StringBuilder("total ");
+        Money.appendTo(-5, builder);
+        builder.append(' ');
+        Money.appendTo(100001, builder);
+        assertEquals("total -0.05 1000.01", builder.toString());
+    }
+
+    @Test
+    public void parsesWhatItFormats() {
+        long[] amounts = {0, 1, -1, 9, -10, 99, -99, 100, -101, 123456789, -123456789, MAX_UNITS * Money.SCALE + 99,
+                -MAX_UNITS * Money.SCALE - 99};
+        for (long cents : amounts) {
+            assertEquals(cents, Money.parse(Money.format(cents)));
+        }
+    }
+}
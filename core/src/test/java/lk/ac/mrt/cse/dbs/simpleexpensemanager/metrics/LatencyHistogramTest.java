@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Bucket layout, precision and percentiles of the latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueWithinTheirPrecision() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = LatencyHistogram.bucketOf(value);
+            long lowest = LatencyHistogram.lowestValueOf(bucket);
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            assertTrue(value + " below bucket " + bucket, lowest <= value);
+            assertTrue(value + " above bucket " + bucket, value <= highest);
+            assertTrue(value + " in a bucket too wide", highest - lowest <= Math.max(0, lowest / 32));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(last));
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        for (int bucket = 0; bucket < last; bucket++) {
+            long next = LatencyHistogram.highestValueOf(bucket) + 1;
+            assertEquals(next, LatencyHistogram.lowestValueOf(bucket + 1));
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(next));
+        }
+    }
+
+    @Test
+    public void reportsPercentilesWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000, histogram.getMax());
+        assertEquals(5000500, histogram.getMean(), 0.001);
+        double[] percentiles = {1, 50, 90, 99, 99.9};
+        for (double percentile : percentiles) {
+            long exact = (long) Math.ceil(percentile * 100) * 1000;
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue("p" + percentile + " = " + reported, reported >= exact);
+            assertTrue("p" + percentile + " = " + reported, reported <= exact * 1.032);
+        }
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void startsOverAfterReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        histogram.record(-5);
+        histogram.record(123456789);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        histogram.record(7);
+        assertEquals(7, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void countsConcurrentRecords() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long base = t * 1000000L;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(base + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(3000000L + 99999, histogram.getMax());
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Department of Computer Science and Engineering, University of Moratuwa.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *                  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package lk.ac.mrt.cse.dbs.simpleexpensemanager.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.control.LedgerExpenseManager;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.exception.InvalidAccountException;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.impl.InMemoryLedgerStore;
+import lk.ac.mrt.cse.dbs.simpleexpensemanager.data.model.ExpenseType;
+
+/**
+ * The metrics registry, the slow operation reports and the timers of the ledger engine.
+ */
+public class MetricsTest {
+    private final List<String> slowOperations = new ArrayList<>();
+
+    @Before
+    public void enable() {
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        Metrics.setSlowOperationListener(new Metrics.SlowOperationListener() {
+            @Override
+            public void onSlowOperation(String name, long nanos, String detail) {
+                slowOperations.add(name + " " + detail);
+            }
+        });
+    }
+
+    @After
+    public void disable() {
+        Metrics.setEnabled(false);
+        Metrics.setSlowOperationListener(null);
+        Metrics.setSlowThreshold(Metrics.DEFAULT_SLOW_THRESHOLD_MILLIS, TimeUnit.MILLISECONDS);
+        Metrics.reset();
+    }
+
+    @Test
+    public void recordsNothingWhileDisabled() {
+        Metrics.setEnabled(false);
+        Metrics.setSlowThreshold(0, TimeUnit.NANOSECONDS);
+        Timer timer = Metrics.timer("test.disabled");
+        Counter counter = Metrics.counter("test.disabled");
+
+        long start = timer.start();
+        timer.stop(start, "detail");
+        counter.increment();
+
+        assertEquals(0, timer.getHistogram().getCount());
+        assertEquals(0, counter.getValue());
+        assertTrue(slowOperations.isEmpty());
+    }
+
+    @Test
+    public void reportsOnlyTheSlowOperations() {
+        Timer timer = Metrics.timer("test.query");
+        assertSame(timer, Metrics.timer("test.query"));
+
+        timer.stop(timer.start(), "SELECT 1");
+        assertEquals(1, timer.getHistogram().getCount());
+        assertEquals(0, timer.getSlowCount());
+
+        Metrics.setSlowThreshold(0, TimeUnit.NANOSECONDS);
+        timer.stop(timer.start(), "SELECT 2");
+        timer.stop(timer.start());
+        assertEquals(3, timer.getHistogram().getCount());
+        assertEquals(2, timer.getSlowCount());
+        assertEquals("test.query SELECT 2", slowOperations.get(0));
+        assertEquals("test.query null", slowOperations.get(1));
+    }
+
+    @Test
+    public void timesTheLedgerOperations() throws InvalidAccountException {
+        LedgerExpenseManager expenseManager = new LedgerExpenseManager(new InMemoryLedgerStore(), true);
+        expenseManager.addAccount("1A", "Bank", "Holder", 1000);
+        expenseManager.updateAccountBalance("1A", 1, 0, 2020, ExpenseType.EXPENSE, "2.50");
+        try {
+            expenseManager.updateAccountBalance("1A", 2, 0, 2020, ExpenseType.EXPENSE, "100");
+            fail("the expense exceeds the balance");
+        } catch (InvalidAccountException expected) {
+        }
+        expenseManager.getTransactionLogs();
+
+        assertEquals(1, Metrics.timer("ledger.setup").getHistogram().getCount());
+        assertEquals(1, Metrics.timer("ledger.addAccount").getHistogram().getCount());
+        assertEquals(2, Metrics.timer("ledger.post").getHistogram().getCount());
+        assertEquals(1, Metrics.timer("ledger.transactionPage").getHistogram().getCount());
+        assertEquals(1, Metrics.counter("ledger.transactions.posted").getValue());
+        assertEquals(1, Metrics.counter("ledger.transactions.rejected").getValue());
+
+        String report = Metrics.report();
+        assertTrue(report, report.contains("ledger.post"));
+        assertTrue(report, report.contains("ledger.transactions.rejected"));
+
+        Metrics.reset();
+        assertEquals(0, Metrics.timer("ledger.post").getHistogram().getCount());
+        assertTrue(slowOperations.isEmpty());
+    }
+}